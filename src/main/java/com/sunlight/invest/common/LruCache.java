@@ -0,0 +1,89 @@
+package com.sunlight.invest.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 简单的线程安全LRU缓存
+ * <p>
+ * 基于访问顺序的LinkedHashMap，超过容量时淘汰最久未访问的条目。
+ * 适用于条目少、计算代价高的分析结果缓存。
+ * </p>
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @author System
+ * @since 2024-12-03
+ */
+public class LruCache<K, V> {
+
+    private final int capacity;
+
+    private final LinkedHashMap<K, V> map;
+
+    private long hits;
+
+    private long misses;
+
+    public LruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 键
+     * @return 值，不存在时返回null
+     */
+    public synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * 放入缓存
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
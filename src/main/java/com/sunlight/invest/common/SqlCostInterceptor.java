@@ -1,7 +1,12 @@
 package com.sunlight.invest.common;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.plugin.*;
@@ -12,16 +17,25 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Field;
 import java.sql.Statement;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * SQL执行耗时拦截器
  * <p>
- * 用于监控SQL执行耗时，帮助优化数据库查询性能
+ * 用于监控SQL执行耗时，帮助优化数据库查询性能。
+ * metrics 模式下每条语句只用 nanoTime 计时并记入按 Mapper 语句ID打标签的 Micrometer 计时器，
+ * 只有慢SQL和按比例抽样的语句才拼接成带参数的SQL文本输出日志；
+ * log 模式保留逐条 INFO 日志。规整后的SQL模板按原始SQL缓存。
  * </p>
  *
  * @author System
@@ -36,36 +50,107 @@ public class SqlCostInterceptor implements Interceptor {
 
     private static final Logger log = LoggerFactory.getLogger(SqlCostInterceptor.class);
 
+    /**
+     * 计时器名称，标签 statement 为 Mapper 语句ID
+     */
+    public static final String TIMER_NAME = "mybatis.sql";
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 日志中SQL的最大长度
+    private static final int MAX_SQL_LENGTH = 1000;
+
+    private static final String UNKNOWN_STATEMENT = "unknown";
+
+    // 反射字段只解析一次，避免每条语句创建 MetaObject
+    private static final Field DELEGATE_FIELD = field(RoutingStatementHandler.class, "delegate");
+
+    private static final Field MAPPED_STATEMENT_FIELD = field(BaseStatementHandler.class, "mappedStatement");
+
+    /**
+     * 运行模式
+     */
+    public enum Mode {
+        /**
+         * 计时器 + 慢SQL/抽样日志
+         */
+        METRICS,
+        /**
+         * 逐条输出 INFO 日志
+         */
+        LOG
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final Mode mode;
+
+    private final long slowThresholdNanos;
+
+    private final double sampleRate;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final LruCache<String, String> normalizedSqlCache;
+
+    public SqlCostInterceptor() {
+        this(null, Mode.LOG, 1000, 0, 256);
+    }
+
+    /**
+     * @param meterRegistry       计时器注册表，为 null 时不记录计时器
+     * @param mode                运行模式
+     * @param slowThresholdMillis 慢SQL阈值（毫秒）
+     * @param sampleRate          metrics 模式下输出日志的抽样比例（0~1）
+     * @param sqlCacheSize        规整后SQL模板的缓存条数
+     */
+    public SqlCostInterceptor(MeterRegistry meterRegistry, Mode mode, long slowThresholdMillis,
+                              double sampleRate, int sqlCacheSize) {
+        this.meterRegistry = meterRegistry;
+        this.mode = mode;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.sampleRate = sampleRate;
+        this.normalizedSqlCache = new LruCache<>(Math.max(1, sqlCacheSize));
+    }
+
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
-        long startTime = System.currentTimeMillis();
-        Object result;
+        long startTime = System.nanoTime();
         try {
             // 执行SQL
-            result = invocation.proceed();
-            return result;
+            return invocation.proceed();
         } finally {
-            long endTime = System.currentTimeMillis();
-            long sqlCost = endTime - startTime;
-            
-            // 获取SQL语句
-            BoundSql boundSql = statementHandler.getBoundSql();
-            String sql = boundSql.getSql();
-            
-            // 格式化SQL（去除多余空格和换行）
-            sql = formatSql(sql);
-            
-            // 填充参数
-            String executableSql = getExecutableSql(boundSql, statementHandler);
-            
-            // 记录SQL执行耗时
-            log.info("SQL执行耗时: {} ms, SQL: {}", sqlCost, executableSql);
-            
-            // 如果执行时间超过1000ms，记录警告日志
-            if (sqlCost > 1000) {
-                log.warn("SQL执行较慢，耗时: {} ms, SQL: {}", sqlCost, executableSql);
-            }
+            record((StatementHandler) invocation.getTarget(), System.nanoTime() - startTime);
+        }
+    }
+
+    private void record(StatementHandler statementHandler, long costNanos) {
+        MappedStatement mappedStatement = mappedStatement(statementHandler);
+        String statementId = mappedStatement != null ? mappedStatement.getId() : UNKNOWN_STATEMENT;
+        if (meterRegistry != null) {
+            timers.computeIfAbsent(statementId, id -> Timer.builder(TIMER_NAME)
+                    .description("MyBatis SQL执行耗时")
+                    .tag("statement", id)
+                    .register(meterRegistry))
+                    .record(costNanos, TimeUnit.NANOSECONDS);
+        }
+
+        boolean slow = costNanos > slowThresholdNanos;
+        boolean logged = mode == Mode.LOG
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        if (!slow && !logged) {
+            return;
+        }
+
+        // 只有需要输出时才拼接SQL
+        long sqlCost = TimeUnit.NANOSECONDS.toMillis(costNanos);
+        String executableSql = getExecutableSql(statementHandler.getBoundSql(),
+                mappedStatement != null ? mappedStatement.getConfiguration() : null);
+        if (logged) {
+            log.info("SQL执行耗时: {} ms, 语句: {}, SQL: {}", sqlCost, statementId, executableSql);
+        }
+        if (slow) {
+            log.warn("SQL执行较慢，耗时: {} ms, 语句: {}, SQL: {}", sqlCost, statementId, executableSql);
         }
     }
 
@@ -89,100 +174,63 @@ public class SqlCostInterceptor implements Interceptor {
         if (sql == null || sql.trim().isEmpty()) {
             return "";
         }
-        
-        // 去除首尾空格
-        sql = sql.trim();
-        
-        // 将多个连续的空格替换为单个空格
-        sql = sql.replaceAll("\\s+", " ");
-        
-        // 限制SQL长度，避免日志过长
-        if (sql.length() > 1000) {
-            sql = sql.substring(0, 1000) + "...";
-        }
-        
-        return sql;
+        return truncate(collapseWhitespace(sql.trim()));
     }
-    
+
     /**
      * 获取可执行的SQL语句（包含参数值）
      *
-     * @param boundSql BoundSql对象
-     * @param statementHandler StatementHandler对象
+     * @param boundSql      BoundSql对象
+     * @param configuration MyBatis配置，为 null 时不填充参数
      * @return 带参数的可执行SQL语句
      */
-    private String getExecutableSql(BoundSql boundSql, StatementHandler statementHandler) {
-        String sql = boundSql.getSql();
-        if (sql == null || sql.trim().isEmpty()) {
-            return "";
-        }
-        
-        Configuration configuration = getConfiguration(statementHandler);
-        if (configuration == null) {
-            return formatSql(sql);
-        }
-        
-        // 获取参数对象
-        Object parameterObject = boundSql.getParameterObject();
+    String getExecutableSql(BoundSql boundSql, Configuration configuration) {
+        String sql = normalize(boundSql.getSql());
         // 获取参数映射列表
         List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-        
-        // 如果没有参数映射，直接返回原SQL
-        if (parameterMappings == null || parameterMappings.isEmpty()) {
-            return formatSql(sql);
+        if (sql.isEmpty() || configuration == null || parameterMappings == null || parameterMappings.isEmpty()) {
+            return truncate(sql);
         }
-        
+
+        Object parameterObject = boundSql.getParameterObject();
         TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
-        
-        // 替换SQL中的参数占位符
-        String executableSql = sql;
-        for (int i = 0; i < parameterMappings.size(); i++) {
-            ParameterMapping parameterMapping = parameterMappings.get(i);
-            if (parameterMapping.getMode() != ParameterMode.OUT) {
-                Object value;
-                String propertyName = parameterMapping.getProperty();
-                
-                // 获取参数值
-                if (boundSql.hasAdditionalParameter(propertyName)) {
-                    value = boundSql.getAdditionalParameter(propertyName);
-                } else if (parameterObject == null) {
-                    value = null;
-                } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-                    value = parameterObject;
-                } else {
-                    MetaObject metaObject = configuration.newMetaObject(parameterObject);
-                    value = metaObject.getValue(propertyName);
+        MetaObject metaObject = null;
+
+        // 按顺序替换问号占位符
+        StringBuilder executableSql = new StringBuilder(sql.length() + parameterMappings.size() * 8);
+        int from = 0;
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            int placeholder = sql.indexOf('?', from);
+            if (placeholder < 0) {
+                break;
+            }
+            Object value;
+            String propertyName = parameterMapping.getProperty();
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
                 }
-                
-                // 格式化参数值
-                String formattedValue = formatParameterValue(value);
-                
-                // 替换第一个问号占位符
-                executableSql = executableSql.replaceFirst("\\?", formattedValue);
+                value = metaObject.getValue(propertyName);
+            }
+            executableSql.append(sql, from, placeholder).append(formatParameterValue(value));
+            from = placeholder + 1;
+            if (executableSql.length() > MAX_SQL_LENGTH) {
+                break;
             }
         }
-        
-        return formatSql(executableSql);
-    }
-    
-    /**
-     * 获取Configuration对象
-     *
-     * @param statementHandler StatementHandler对象
-     * @return Configuration对象
-     */
-    private Configuration getConfiguration(StatementHandler statementHandler) {
-        try {
-            MetaObject metaObject = MetaObject.forObject(statementHandler, 
-                org.apache.ibatis.reflection.SystemMetaObject.DEFAULT_OBJECT_FACTORY,
-                org.apache.ibatis.reflection.SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY,
-                new org.apache.ibatis.reflection.DefaultReflectorFactory());
-            return (Configuration) metaObject.getValue("delegate.configuration");
-        } catch (Exception e) {
-            return null;
-        }
+        executableSql.append(sql, from, sql.length());
+        return truncate(executableSql.toString());
     }
-    
+
     /**
      * 格式化参数值，使其适合在SQL中显示
      *
@@ -201,11 +249,83 @@ public class SqlCostInterceptor implements Interceptor {
         
         // 处理日期类型
         if (value instanceof Date) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            return "'" + sdf.format((Date) value) + "'";
+            return "'" + DATE_FORMATTER.format(((Date) value).toInstant().atZone(ZoneId.systemDefault())) + "'";
         }
         
         // 其他类型直接转换为字符串
         return value.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * 规整SQL模板（去首尾空白、合并连续空白），按原始SQL缓存
+     */
+    private String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = normalizedSqlCache.get(sql);
+        if (normalized == null) {
+            normalized = collapseWhitespace(sql.trim());
+            normalizedSqlCache.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * 将连续的空白字符（同正则 \s）替换为单个空格
+     */
+    private static String collapseWhitespace(String sql) {
+        StringBuilder result = new StringBuilder(sql.length());
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                space = true;
+                continue;
+            }
+            if (space) {
+                result.append(' ');
+                space = false;
+            }
+            result.append(c);
+        }
+        if (space) {
+            result.append(' ');
+        }
+        return result.toString();
+    }
+
+    /**
+     * 限制SQL长度，避免日志过长
+     */
+    private static String truncate(String sql) {
+        return sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + "..." : sql;
+    }
+
+    private static MappedStatement mappedStatement(StatementHandler statementHandler) {
+        if (MAPPED_STATEMENT_FIELD == null) {
+            return null;
+        }
+        try {
+            Object handler = statementHandler;
+            if (handler instanceof RoutingStatementHandler && DELEGATE_FIELD != null) {
+                handler = DELEGATE_FIELD.get(handler);
+            }
+            return handler instanceof BaseStatementHandler
+                    ? (MappedStatement) MAPPED_STATEMENT_FIELD.get(handler) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field field(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            log.warn("无法读取 {}.{}，SQL计时器将不区分语句", type.getSimpleName(), name);
+            return null;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.sunlight.invest.config;
 
 import com.sunlight.invest.common.SqlCostInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.ibatis.plugin.Interceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,8 +20,22 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class MyBatisConfig {
 
+    @Value("${sql-cost.mode:metrics}")
+    private String mode;
+
+    @Value("${sql-cost.slow-threshold-ms:1000}")
+    private long slowThresholdMs;
+
+    @Value("${sql-cost.sample-rate:0}")
+    private double sampleRate;
+
+    @Value("${sql-cost.sql-cache-size:256}")
+    private int sqlCacheSize;
+
     @Bean
-    public Interceptor sqlCostInterceptor() {
-        return new SqlCostInterceptor();
+    public Interceptor sqlCostInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SqlCostInterceptor(meterRegistry.getIfAvailable(),
+                SqlCostInterceptor.Mode.valueOf(mode.trim().toUpperCase()),
+                slowThresholdMs, sampleRate, sqlCacheSize);
     }
-}
\ No newline at end of file
+}
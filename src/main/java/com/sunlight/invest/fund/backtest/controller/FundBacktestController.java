@@ -1,12 +1,28 @@
 package com.sunlight.invest.fund.backtest.controller;
 
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
 import com.sunlight.invest.fund.backtest.dto.BacktestRequest;
 import com.sunlight.invest.fund.backtest.dto.BacktestResponse;
+import com.sunlight.invest.fund.backtest.dto.MonteCarloRequest;
+import com.sunlight.invest.fund.backtest.dto.PortfolioRequest;
+import com.sunlight.invest.fund.backtest.dto.PortfolioResponse;
+import com.sunlight.invest.fund.backtest.dto.SweepRequest;
+import com.sunlight.invest.fund.backtest.dto.SweepResponse;
+import com.sunlight.invest.fund.backtest.dto.WalkForwardRequest;
+import com.sunlight.invest.fund.backtest.service.BacktestJobService;
+import com.sunlight.invest.fund.backtest.service.BacktestRobustnessService;
+import com.sunlight.invest.fund.backtest.service.BacktestSweepService;
 import com.sunlight.invest.fund.backtest.service.FundBacktestService;
+import com.sunlight.invest.fund.backtest.service.PortfolioBacktestService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,10 +39,24 @@ import java.util.Map;
 public class FundBacktestController {
     
     private static final Logger logger = LoggerFactory.getLogger(FundBacktestController.class);
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
     
     @Autowired
     private FundBacktestService backtestService;
 
+    @Autowired
+    private BacktestSweepService sweepService;
+
+    @Autowired
+    private BacktestRobustnessService robustnessService;
+
+    @Autowired
+    private BacktestJobService jobService;
+
+    @Autowired
+    private PortfolioBacktestService portfolioService;
+
     /**
      * 执行回测
      */
@@ -67,6 +97,175 @@ public class FundBacktestController {
         return result;
     }
 
+    /**
+     * 流式回测：以 NDJSON 输出，第一行为汇总，之后每行一个交易日明细
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<?> streamBacktest(@RequestBody BacktestRequest request) {
+        logger.info("接收到流式回测请求: 基金={}, 指数={}", request.getFundCode(), request.getIndexCode());
+        try {
+            StreamingResponseBody body = backtestService.streamBacktest(request);
+            return ResponseEntity.ok().contentType(NDJSON).body(body);
+        } catch (Exception e) {
+            logger.error("流式回测失败", e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("message", "回测执行失败: " + e.getMessage());
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(result);
+        }
+    }
+
+    /**
+     * 提交异步回测任务，返回任务ID；相同请求已有结果时返回已完成的任务
+     */
+    @PostMapping("/submit")
+    public Map<String, Object> submitBacktest(@RequestBody BacktestRequest request,
+                                              @RequestHeader(value = "X-User-Id", required = false) String userId,
+                                              HttpServletRequest httpRequest) {
+        String user = resolveUser(userId, httpRequest);
+        logger.info("接收到异步回测请求: 用户={}, 基金={}, 指数={}", user, request.getFundCode(), request.getIndexCode());
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BacktestJob job = backtestService.submitBacktest(request, user);
+            result.put("success", true);
+            result.put("data", job);
+            result.put("message", job.isCached() ? "命中缓存" : "任务已提交");
+        } catch (Exception e) {
+            logger.error("提交回测任务失败", e);
+            result.put("success", false);
+            result.put("message", "提交失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 参数寻优：对参数区间内的所有组合并行回测，返回排名结果
+     */
+    @PostMapping("/sweep")
+    public Map<String, Object> sweep(@RequestBody SweepRequest request) {
+        logger.info("接收到参数寻优请求: 基金={}, 指数={}", request.getFundCode(), request.getIndexCode());
+        Map<String, Object> result = new HashMap<>();
+        try {
+            SweepResponse response = sweepService.sweep(request);
+            result.put("success", true);
+            result.put("data", response);
+            result.put("count", response.getRows().size());
+            result.put("message", "参数寻优完成，共 " + response.getCombinations() + " 个组合");
+        } catch (Exception e) {
+            logger.error("参数寻优失败", e);
+            result.put("success", false);
+            result.put("message", "参数寻优失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 多基金组合回测
+     */
+    @PostMapping("/portfolio")
+    public Map<String, Object> portfolio(@RequestBody PortfolioRequest request) {
+        logger.info("接收到组合回测请求: 基金数={}, 指数={}, 再平衡={}",
+            request.getFunds() == null ? 0 : request.getFunds().size(), request.getIndexCode(), request.getRebalanceMode());
+        Map<String, Object> result = new HashMap<>();
+        try {
+            PortfolioResponse response = portfolioService.runBacktest(request);
+            result.put("success", true);
+            result.put("data", response);
+            result.put("message", "组合回测执行成功");
+        } catch (Exception e) {
+            logger.error("组合回测失败", e);
+            result.put("success", false);
+            result.put("message", "组合回测失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 提交滚动样本外检验任务
+     */
+    @PostMapping("/walk-forward")
+    public Map<String, Object> walkForward(@RequestBody WalkForwardRequest request,
+                                           @RequestHeader(value = "X-User-Id", required = false) String userId,
+                                           HttpServletRequest httpRequest) {
+        logger.info("接收到滚动样本外检验请求: 基金={}, 样本内{}个月, 样本外{}个月",
+            request.getFundCode(), request.getInSampleMonths(), request.getOutOfSampleMonths());
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BacktestJob job = robustnessService.submitWalkForward(request, resolveUser(userId, httpRequest));
+            result.put("success", true);
+            result.put("data", job);
+            result.put("message", "任务已提交");
+        } catch (Exception e) {
+            logger.error("提交滚动样本外检验失败", e);
+            result.put("success", false);
+            result.put("message", "提交失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 提交蒙特卡洛检验任务
+     */
+    @PostMapping("/monte-carlo")
+    public Map<String, Object> monteCarlo(@RequestBody MonteCarloRequest request,
+                                          @RequestHeader(value = "X-User-Id", required = false) String userId,
+                                          HttpServletRequest httpRequest) {
+        logger.info("接收到蒙特卡洛检验请求: 基金={}, 路径{}条, 块长{}",
+            request.getFundCode(), request.getPaths(), request.getBlockSize());
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BacktestJob job = robustnessService.submitMonteCarlo(request, resolveUser(userId, httpRequest));
+            result.put("success", true);
+            result.put("data", job);
+            result.put("message", "任务已提交");
+        } catch (Exception e) {
+            logger.error("提交蒙特卡洛检验失败", e);
+            result.put("success", false);
+            result.put("message", "提交失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 查询任务队列状态
+     */
+    @GetMapping("/jobs/stats")
+    public Map<String, Object> getJobStats() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("success", true);
+            result.put("data", jobService.getStats());
+        } catch (Exception e) {
+            logger.error("查询回测任务队列状态失败", e);
+            result.put("success", false);
+            result.put("message", "查询失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 查询异步任务进度和结果
+     */
+    @GetMapping("/jobs/{jobId}")
+    public Map<String, Object> getJob(@PathVariable String jobId) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            BacktestJob job = jobService.getJob(jobId);
+            if (job == null) {
+                result.put("success", false);
+                result.put("message", "任务不存在或已过期: " + jobId);
+                return result;
+            }
+            result.put("success", true);
+            result.put("data", job);
+        } catch (Exception e) {
+            logger.error("查询回测任务失败", e);
+            result.put("success", false);
+            result.put("message", "查询失败: " + e.getMessage());
+        }
+        return result;
+    }
+
     /**
      * 获取默认参数
      */
@@ -79,4 +278,14 @@ public class FundBacktestController {
         result.put("data", defaultRequest);
         return result;
     }
+
+    /**
+     * 提交用户：优先取 X-User-Id 请求头，没有时按客户端地址区分
+     */
+    private String resolveUser(String userId, HttpServletRequest httpRequest) {
+        if (userId != null && !userId.trim().isEmpty()) {
+            return userId.trim();
+        }
+        return httpRequest.getRemoteAddr();
+    }
 }
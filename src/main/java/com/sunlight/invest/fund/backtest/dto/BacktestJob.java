@@ -0,0 +1,163 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 回测异步任务
+ * <p>
+ * 计算线程通过 {@link #advance(long)} 上报进度，查询接口随时读取当前状态。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class BacktestJob {
+
+    public static final String STATUS_PENDING = "PENDING";
+
+    public static final String STATUS_RUNNING = "RUNNING";
+
+    public static final String STATUS_SUCCESS = "SUCCESS";
+
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 任务ID
+     */
+    private final String jobId;
+
+    /**
+     * 任务类型
+     */
+    private final String type;
+
+    /**
+     * 状态
+     */
+    private volatile String status = STATUS_PENDING;
+
+    /**
+     * 总工作量（单位由任务类型决定）
+     */
+    private volatile long total;
+
+    /**
+     * 已完成工作量
+     */
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * 结果（完成后可用）
+     */
+    private volatile Object result;
+
+    /**
+     * 是否直接命中结果缓存
+     */
+    private volatile boolean cached;
+
+    /**
+     * 失败原因
+     */
+    private volatile String message;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime submitTime = LocalDateTime.now();
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private volatile LocalDateTime finishTime;
+
+    public BacktestJob(String jobId, String type) {
+        this.jobId = jobId;
+        this.type = type;
+    }
+
+    /**
+     * 上报完成的工作量
+     */
+    public void advance(long amount) {
+        completed.addAndGet(amount);
+    }
+
+    /**
+     * 进度百分比
+     */
+    public double getProgress() {
+        if (STATUS_SUCCESS.equals(status)) {
+            return 100.0;
+        }
+        long totalWork = total;
+        return totalWork <= 0 ? 0.0 : Math.min(100.0, Math.round(completed.get() * 1000.0 / totalWork) / 10.0);
+    }
+
+    public void markRunning() {
+        status = STATUS_RUNNING;
+    }
+
+    public void markSuccess(Object jobResult) {
+        result = jobResult;
+        finishTime = LocalDateTime.now();
+        status = STATUS_SUCCESS;
+    }
+
+    public void markFailed(String reason) {
+        message = reason;
+        finishTime = LocalDateTime.now();
+        status = STATUS_FAILED;
+    }
+
+    public boolean isFinished() {
+        return STATUS_SUCCESS.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public LocalDateTime getSubmitTime() {
+        return submitTime;
+    }
+
+    public LocalDateTime getFinishTime() {
+        return finishTime;
+    }
+}
@@ -11,6 +11,16 @@ import java.time.LocalDate;
  * @date 2025-12-01
  */
 public class BacktestRequest {
+    /**
+     * 回测基金代码（需已抓取入库）
+     */
+    private String fundCode = "006195";
+    
+    /**
+     * 仓位信号参考的指数代码（需已抓取入库），默认上证指数
+     */
+    private String indexCode = "000001";
+    
     /**
      * 初始资金（元）
      */
@@ -58,7 +68,28 @@ public class BacktestRequest {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate endDate;
 
+    /**
+     * 自定义策略（可选，为空时使用内置指数阈值规则）
+     */
+    private StrategyDefinition strategy;
+
     // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
     public double getInitialCapital() {
         return initialCapital;
     }
@@ -130,4 +161,12 @@ public class BacktestRequest {
     public void setEndDate(LocalDate endDate) {
         this.endDate = endDate;
     }
+
+    public StrategyDefinition getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(StrategyDefinition strategy) {
+        this.strategy = strategy;
+    }
 }
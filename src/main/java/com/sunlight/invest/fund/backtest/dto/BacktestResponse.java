@@ -9,6 +9,26 @@ import java.util.List;
  * @date 2025-12-01
  */
 public class BacktestResponse {
+    /**
+     * 基金代码
+     */
+    private String fundCode;
+    
+    /**
+     * 基金名称
+     */
+    private String fundName;
+    
+    /**
+     * 指数代码
+     */
+    private String indexCode;
+    
+    /**
+     * 指数名称
+     */
+    private String indexName;
+    
     /**
      * 初始资金
      */
@@ -80,6 +100,38 @@ public class BacktestResponse {
     private List<DailyDetail> dailyDetails;
 
     // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getFundName() {
+        return fundName;
+    }
+
+    public void setFundName(String fundName) {
+        this.fundName = fundName;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
+    }
+
     public double getInitialCapital() {
         return initialCapital;
     }
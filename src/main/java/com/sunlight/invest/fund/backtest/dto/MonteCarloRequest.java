@@ -0,0 +1,188 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 蒙特卡洛分块自助法（block bootstrap）检验请求
+ * <p>
+ * 把历史的"前一日指数涨跌幅 + 当日基金收益"成对分块重采样，生成大量模拟行情，
+ * 在每条路径上执行同一组策略参数，得到收益率和最大回撤的分布。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class MonteCarloRequest {
+    /**
+     * 回测基金代码（需已抓取入库）
+     */
+    private String fundCode = "006195";
+
+    /**
+     * 仓位信号参考的指数代码（需已抓取入库）
+     */
+    private String indexCode = "000001";
+
+    /**
+     * 初始资金（元）
+     */
+    private double initialCapital = 100000.0;
+
+    /**
+     * 初始持仓（元）
+     */
+    private double initialHoldings = 100000.0;
+
+    /**
+     * 回测结束日期（可选，默认今天）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    /**
+     * 回测月数
+     */
+    private int backtestMonths = 36;
+
+    /**
+     * 每次加仓金额（元）
+     */
+    private double upPositionChange = 10000.0;
+
+    /**
+     * 每次减仓金额（元）
+     */
+    private double downPositionChange = 10000.0;
+
+    /**
+     * 涨幅阈值（%）
+     */
+    private double upThreshold = 2.0;
+
+    /**
+     * 跌幅阈值（%）
+     */
+    private double downThreshold = 0.5;
+
+    /**
+     * 模拟路径数
+     */
+    private int paths = 1000;
+
+    /**
+     * 重采样块长度（交易日），保留收益的短期相关性
+     */
+    private int blockSize = 20;
+
+    /**
+     * 随机种子（可选，指定后结果可复现）
+     */
+    private Long seed;
+
+    // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+
+    public double getInitialHoldings() {
+        return initialHoldings;
+    }
+
+    public void setInitialHoldings(double initialHoldings) {
+        this.initialHoldings = initialHoldings;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public int getBacktestMonths() {
+        return backtestMonths;
+    }
+
+    public void setBacktestMonths(int backtestMonths) {
+        this.backtestMonths = backtestMonths;
+    }
+
+    public double getUpPositionChange() {
+        return upPositionChange;
+    }
+
+    public void setUpPositionChange(double upPositionChange) {
+        this.upPositionChange = upPositionChange;
+    }
+
+    public double getDownPositionChange() {
+        return downPositionChange;
+    }
+
+    public void setDownPositionChange(double downPositionChange) {
+        this.downPositionChange = downPositionChange;
+    }
+
+    public double getUpThreshold() {
+        return upThreshold;
+    }
+
+    public void setUpThreshold(double upThreshold) {
+        this.upThreshold = upThreshold;
+    }
+
+    public double getDownThreshold() {
+        return downThreshold;
+    }
+
+    public void setDownThreshold(double downThreshold) {
+        this.downThreshold = downThreshold;
+    }
+
+    public int getPaths() {
+        return paths;
+    }
+
+    public void setPaths(int paths) {
+        this.paths = paths;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+}
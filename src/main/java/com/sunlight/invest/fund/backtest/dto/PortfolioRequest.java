@@ -0,0 +1,253 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 组合回测请求
+ * <p>
+ * 多只基金按目标权重构建组合，支持定期或按权重偏离再平衡，并可叠加单基金回测的指数阈值加减仓规则。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class PortfolioRequest {
+    /**
+     * 组合基金及目标权重（需已抓取入库），权重自动归一化
+     */
+    private List<FundWeight> funds;
+
+    /**
+     * 仓位信号参考的指数代码（需已抓取入库），默认上证指数
+     */
+    private String indexCode = "000001";
+
+    /**
+     * 初始现金（元）
+     */
+    private double initialCapital = 100000.0;
+
+    /**
+     * 初始持仓（元），按目标权重买入
+     */
+    private double initialHoldings = 100000.0;
+
+    /**
+     * 再平衡方式：none（不再平衡）、periodic（定期）、threshold（权重偏离阈值）
+     */
+    private String rebalanceMode = "periodic";
+
+    /**
+     * 定期再平衡间隔（交易日）
+     */
+    private int rebalanceInterval = 20;
+
+    /**
+     * 阈值再平衡的权重偏离（%）
+     */
+    private double driftThreshold = 5.0;
+
+    /**
+     * 是否叠加指数阈值加减仓规则
+     */
+    private boolean indexSignal = true;
+
+    /**
+     * 加仓金额（元）
+     */
+    private double upPositionChange = 10000.0;
+
+    /**
+     * 减仓金额（元）
+     */
+    private double downPositionChange = 10000.0;
+
+    /**
+     * 涨幅阈值（%）
+     */
+    private double upThreshold = 2.0;
+
+    /**
+     * 跌幅阈值（%）
+     */
+    private double downThreshold = 0.5;
+
+    /**
+     * 回测月数
+     */
+    private int backtestMonths = 12;
+
+    /**
+     * 回测开始日期（可选，优先使用日期区间）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    /**
+     * 回测结束日期（可选，优先使用日期区间）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    public List<FundWeight> getFunds() {
+        return funds;
+    }
+
+    public void setFunds(List<FundWeight> funds) {
+        this.funds = funds;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+
+    public double getInitialHoldings() {
+        return initialHoldings;
+    }
+
+    public void setInitialHoldings(double initialHoldings) {
+        this.initialHoldings = initialHoldings;
+    }
+
+    public String getRebalanceMode() {
+        return rebalanceMode;
+    }
+
+    public void setRebalanceMode(String rebalanceMode) {
+        this.rebalanceMode = rebalanceMode;
+    }
+
+    public int getRebalanceInterval() {
+        return rebalanceInterval;
+    }
+
+    public void setRebalanceInterval(int rebalanceInterval) {
+        this.rebalanceInterval = rebalanceInterval;
+    }
+
+    public double getDriftThreshold() {
+        return driftThreshold;
+    }
+
+    public void setDriftThreshold(double driftThreshold) {
+        this.driftThreshold = driftThreshold;
+    }
+
+    public boolean isIndexSignal() {
+        return indexSignal;
+    }
+
+    public void setIndexSignal(boolean indexSignal) {
+        this.indexSignal = indexSignal;
+    }
+
+    public double getUpPositionChange() {
+        return upPositionChange;
+    }
+
+    public void setUpPositionChange(double upPositionChange) {
+        this.upPositionChange = upPositionChange;
+    }
+
+    public double getDownPositionChange() {
+        return downPositionChange;
+    }
+
+    public void setDownPositionChange(double downPositionChange) {
+        this.downPositionChange = downPositionChange;
+    }
+
+    public double getUpThreshold() {
+        return upThreshold;
+    }
+
+    public void setUpThreshold(double upThreshold) {
+        this.upThreshold = upThreshold;
+    }
+
+    public double getDownThreshold() {
+        return downThreshold;
+    }
+
+    public void setDownThreshold(double downThreshold) {
+        this.downThreshold = downThreshold;
+    }
+
+    public int getBacktestMonths() {
+        return backtestMonths;
+    }
+
+    public void setBacktestMonths(int backtestMonths) {
+        this.backtestMonths = backtestMonths;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    /**
+     * 组合成分
+     */
+    public static class FundWeight {
+        /**
+         * 基金代码
+         */
+        private String fundCode;
+
+        /**
+         * 目标权重
+         */
+        private double weight;
+
+        public FundWeight() {
+        }
+
+        public FundWeight(String fundCode, double weight) {
+            this.fundCode = fundCode;
+            this.weight = weight;
+        }
+
+        public String getFundCode() {
+            return fundCode;
+        }
+
+        public void setFundCode(String fundCode) {
+            this.fundCode = fundCode;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        public void setWeight(double weight) {
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import java.util.List;
+
+/**
+ * 组合回测结果
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class PortfolioResponse {
+    /**
+     * 信号指数代码
+     */
+    private String indexCode;
+
+    /**
+     * 回测开始日期（首个共同交易日）
+     */
+    private String startDate;
+
+    /**
+     * 回测结束日期
+     */
+    private String endDate;
+
+    /**
+     * 共同交易日数
+     */
+    private int tradingDays;
+
+    /**
+     * 初始总资产（元）
+     */
+    private double initialAssets;
+
+    /**
+     * 期末总资产（元）
+     */
+    private double totalAssets;
+
+    /**
+     * 期末现金（元）
+     */
+    private double finalCash;
+
+    /**
+     * 总收益率（%）
+     */
+    private double returnRate;
+
+    /**
+     * 年化收益率（%）
+     */
+    private double annualizedReturn;
+
+    /**
+     * 年化波动率（%）
+     */
+    private double volatility;
+
+    /**
+     * 夏普比率（无风险利率按0计）
+     */
+    private double sharpeRatio;
+
+    /**
+     * 最大回撤（%）
+     */
+    private double maxDrawdown;
+
+    /**
+     * 再平衡次数
+     */
+    private int rebalanceCount;
+
+    /**
+     * 指数信号加仓次数
+     */
+    private int upPositionChanges;
+
+    /**
+     * 指数信号减仓次数
+     */
+    private int downPositionChanges;
+
+    /**
+     * 换手率（累计成交金额 / 初始总资产，%）
+     */
+    private double turnover;
+
+    /**
+     * 计算耗时（毫秒，不含数据加载）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 期末各基金持仓
+     */
+    private List<Position> positions;
+
+    /**
+     * 资产曲线日期
+     */
+    private List<String> dates;
+
+    /**
+     * 资产曲线（每个交易日的总资产）
+     */
+    private double[] assetCurve;
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    public String getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(String endDate) {
+        this.endDate = endDate;
+    }
+
+    public int getTradingDays() {
+        return tradingDays;
+    }
+
+    public void setTradingDays(int tradingDays) {
+        this.tradingDays = tradingDays;
+    }
+
+    public double getInitialAssets() {
+        return initialAssets;
+    }
+
+    public void setInitialAssets(double initialAssets) {
+        this.initialAssets = initialAssets;
+    }
+
+    public double getTotalAssets() {
+        return totalAssets;
+    }
+
+    public void setTotalAssets(double totalAssets) {
+        this.totalAssets = totalAssets;
+    }
+
+    public double getFinalCash() {
+        return finalCash;
+    }
+
+    public void setFinalCash(double finalCash) {
+        this.finalCash = finalCash;
+    }
+
+    public double getReturnRate() {
+        return returnRate;
+    }
+
+    public void setReturnRate(double returnRate) {
+        this.returnRate = returnRate;
+    }
+
+    public double getAnnualizedReturn() {
+        return annualizedReturn;
+    }
+
+    public void setAnnualizedReturn(double annualizedReturn) {
+        this.annualizedReturn = annualizedReturn;
+    }
+
+    public double getVolatility() {
+        return volatility;
+    }
+
+    public void setVolatility(double volatility) {
+        this.volatility = volatility;
+    }
+
+    public double getSharpeRatio() {
+        return sharpeRatio;
+    }
+
+    public void setSharpeRatio(double sharpeRatio) {
+        this.sharpeRatio = sharpeRatio;
+    }
+
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public void setMaxDrawdown(double maxDrawdown) {
+        this.maxDrawdown = maxDrawdown;
+    }
+
+    public int getRebalanceCount() {
+        return rebalanceCount;
+    }
+
+    public void setRebalanceCount(int rebalanceCount) {
+        this.rebalanceCount = rebalanceCount;
+    }
+
+    public int getUpPositionChanges() {
+        return upPositionChanges;
+    }
+
+    public void setUpPositionChanges(int upPositionChanges) {
+        this.upPositionChanges = upPositionChanges;
+    }
+
+    public int getDownPositionChanges() {
+        return downPositionChanges;
+    }
+
+    public void setDownPositionChanges(int downPositionChanges) {
+        this.downPositionChanges = downPositionChanges;
+    }
+
+    public double getTurnover() {
+        return turnover;
+    }
+
+    public void setTurnover(double turnover) {
+        this.turnover = turnover;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<Position> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<Position> positions) {
+        this.positions = positions;
+    }
+
+    public List<String> getDates() {
+        return dates;
+    }
+
+    public void setDates(List<String> dates) {
+        this.dates = dates;
+    }
+
+    public double[] getAssetCurve() {
+        return assetCurve;
+    }
+
+    public void setAssetCurve(double[] assetCurve) {
+        this.assetCurve = assetCurve;
+    }
+
+    /**
+     * 单只基金持仓
+     */
+    public static class Position {
+        /**
+         * 基金代码
+         */
+        private String fundCode;
+
+        /**
+         * 基金名称
+         */
+        private String fundName;
+
+        /**
+         * 目标权重（%，基金之间归一化）
+         */
+        private double targetWeight;
+
+        /**
+         * 期末持仓市值（元）
+         */
+        private double finalValue;
+
+        /**
+         * 期末占总资产比例（%）
+         */
+        private double finalWeight;
+
+        /**
+         * 区间净值涨幅（%）
+         */
+        private double navReturn;
+
+        public String getFundCode() {
+            return fundCode;
+        }
+
+        public void setFundCode(String fundCode) {
+            this.fundCode = fundCode;
+        }
+
+        public String getFundName() {
+            return fundName;
+        }
+
+        public void setFundName(String fundName) {
+            this.fundName = fundName;
+        }
+
+        public double getTargetWeight() {
+            return targetWeight;
+        }
+
+        public void setTargetWeight(double targetWeight) {
+            this.targetWeight = targetWeight;
+        }
+
+        public double getFinalValue() {
+            return finalValue;
+        }
+
+        public void setFinalValue(double finalValue) {
+            this.finalValue = finalValue;
+        }
+
+        public double getFinalWeight() {
+            return finalWeight;
+        }
+
+        public void setFinalWeight(double finalWeight) {
+            this.finalWeight = finalWeight;
+        }
+
+        public double getNavReturn() {
+            return navReturn;
+        }
+
+        public void setNavReturn(double navReturn) {
+            this.navReturn = navReturn;
+        }
+    }
+}
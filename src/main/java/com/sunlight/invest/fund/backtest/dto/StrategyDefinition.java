@@ -0,0 +1,70 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+/**
+ * 自定义回测策略
+ * <p>
+ * 四个表达式分别给出减仓条件、加仓条件和对应的金额，留空的部分使用内置规则
+ * （前一日指数涨幅超过 upThreshold 减仓 downPositionChange，跌幅超过 downThreshold 加仓 upPositionChange）。
+ * 表达式语法见 {@code StrategyProgram}，例如：
+ * </p>
+ * <pre>
+ * buyWhen:   idx(1) &lt; -downThreshold &amp;&amp; nav(1) &lt; sma(20)
+ * buyAmount: min(upPositionChange, total * 0.05)
+ * </pre>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class StrategyDefinition {
+    /**
+     * 加仓条件
+     */
+    private String buyWhen;
+
+    /**
+     * 减仓条件
+     */
+    private String sellWhen;
+
+    /**
+     * 加仓金额（元）
+     */
+    private String buyAmount;
+
+    /**
+     * 减仓金额（元）
+     */
+    private String sellAmount;
+
+    public String getBuyWhen() {
+        return buyWhen;
+    }
+
+    public void setBuyWhen(String buyWhen) {
+        this.buyWhen = buyWhen;
+    }
+
+    public String getSellWhen() {
+        return sellWhen;
+    }
+
+    public void setSellWhen(String sellWhen) {
+        this.sellWhen = sellWhen;
+    }
+
+    public String getBuyAmount() {
+        return buyAmount;
+    }
+
+    public void setBuyAmount(String buyAmount) {
+        this.buyAmount = buyAmount;
+    }
+
+    public String getSellAmount() {
+        return sellAmount;
+    }
+
+    public void setSellAmount(String sellAmount) {
+        this.sellAmount = sellAmount;
+    }
+}
@@ -0,0 +1,284 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 参数寻优请求
+ * <p>
+ * 每个策略参数给出取值区间和步长，对所有组合做网格回测。
+ * 未指定的参数取 {@link BacktestRequest} 的默认值（单一取值）。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class SweepRequest {
+    /**
+     * 回测基金代码（需已抓取入库）
+     */
+    private String fundCode = "006195";
+
+    /**
+     * 仓位信号参考的指数代码（需已抓取入库）
+     */
+    private String indexCode = "000001";
+
+    /**
+     * 初始资金（元）
+     */
+    private double initialCapital = 100000.0;
+
+    /**
+     * 初始持仓（元）
+     */
+    private double initialHoldings = 100000.0;
+
+    /**
+     * 回测结束日期（可选，默认今天）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    /**
+     * 回测月数区间（截止到结束日期）
+     */
+    private ParamRange backtestMonths = new ParamRange(12, 12, 1);
+
+    /**
+     * 涨幅阈值区间（%）
+     */
+    private ParamRange upThreshold = new ParamRange(2.0, 2.0, 0.1);
+
+    /**
+     * 跌幅阈值区间（%）
+     */
+    private ParamRange downThreshold = new ParamRange(0.5, 0.5, 0.1);
+
+    /**
+     * 加仓金额区间（元）
+     */
+    private ParamRange upPositionChange = new ParamRange(10000.0, 10000.0, 1000.0);
+
+    /**
+     * 减仓金额区间（元）
+     */
+    private ParamRange downPositionChange = new ParamRange(10000.0, 10000.0, 1000.0);
+
+    /**
+     * 排序字段：returnRate（收益率降序）、maxDrawdown（最大回撤升序）、tradeCount（交易次数升序）
+     */
+    private String sortBy = "returnRate";
+
+    /**
+     * 返回前N个组合
+     */
+    private int topN = 50;
+
+    /**
+     * 自定义策略（可选），表达式中的策略参数按参数区间取值
+     */
+    private StrategyDefinition strategy;
+
+    /**
+     * 组合总数
+     *
+     * @throws IllegalArgumentException 参数区间无效或组合数超出 long 范围
+     */
+    public long combinations() {
+        try {
+            long total = backtestMonths.count();
+            total = Math.multiplyExact(total, upThreshold.count());
+            total = Math.multiplyExact(total, downThreshold.count());
+            total = Math.multiplyExact(total, upPositionChange.count());
+            return Math.multiplyExact(total, downPositionChange.count());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("参数组合数过多");
+        }
+    }
+
+    // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+
+    public double getInitialHoldings() {
+        return initialHoldings;
+    }
+
+    public void setInitialHoldings(double initialHoldings) {
+        this.initialHoldings = initialHoldings;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public ParamRange getBacktestMonths() {
+        return backtestMonths;
+    }
+
+    public void setBacktestMonths(ParamRange backtestMonths) {
+        this.backtestMonths = backtestMonths;
+    }
+
+    public ParamRange getUpThreshold() {
+        return upThreshold;
+    }
+
+    public void setUpThreshold(ParamRange upThreshold) {
+        this.upThreshold = upThreshold;
+    }
+
+    public ParamRange getDownThreshold() {
+        return downThreshold;
+    }
+
+    public void setDownThreshold(ParamRange downThreshold) {
+        this.downThreshold = downThreshold;
+    }
+
+    public ParamRange getUpPositionChange() {
+        return upPositionChange;
+    }
+
+    public void setUpPositionChange(ParamRange upPositionChange) {
+        this.upPositionChange = upPositionChange;
+    }
+
+    public ParamRange getDownPositionChange() {
+        return downPositionChange;
+    }
+
+    public void setDownPositionChange(ParamRange downPositionChange) {
+        this.downPositionChange = downPositionChange;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        this.topN = topN;
+    }
+
+    public StrategyDefinition getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(StrategyDefinition strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * 参数取值区间：min、min+step、…，不超过 max
+     */
+    public static class ParamRange {
+
+        /**
+         * 单个参数的最大取值个数
+         */
+        public static final int MAX_COUNT = 1000000;
+
+        private double min;
+
+        private double max;
+
+        private double step;
+
+        public ParamRange() {
+        }
+
+        public ParamRange(double min, double max, double step) {
+            this.min = min;
+            this.max = max;
+            this.step = step;
+        }
+
+        /**
+         * 取值个数
+         */
+        public int count() {
+            if (max < min) {
+                throw new IllegalArgumentException("参数区间无效: min=" + min + ", max=" + max);
+            }
+            if (max == min) {
+                return 1;
+            }
+            if (step <= 0) {
+                throw new IllegalArgumentException("参数步长必须大于0: step=" + step);
+            }
+            // 容忍浮点误差，避免 0.1 步长漏掉最后一个取值；先在浮点下比较上限，步长极小时不会强转溢出
+            double count = Math.floor((max - min) / step + 1e-9) + 1;
+            if (!(count <= MAX_COUNT)) {
+                throw new IllegalArgumentException("参数取值个数超过上限 " + MAX_COUNT
+                        + ": min=" + min + ", max=" + max + ", step=" + step);
+            }
+            return (int) count;
+        }
+
+        /**
+         * 第 i 个取值
+         */
+        public double valueAt(int i) {
+            return min + i * step;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public void setMin(double min) {
+            this.min = min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public void setMax(double max) {
+            this.max = max;
+        }
+
+        public double getStep() {
+            return step;
+        }
+
+        public void setStep(double step) {
+            this.step = step;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import java.util.List;
+
+/**
+ * 参数寻优结果
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class SweepResponse {
+    /**
+     * 基金代码
+     */
+    private String fundCode;
+
+    /**
+     * 基金名称
+     */
+    private String fundName;
+
+    /**
+     * 指数代码
+     */
+    private String indexCode;
+
+    /**
+     * 指数名称
+     */
+    private String indexName;
+
+    /**
+     * 参数组合总数
+     */
+    private long combinations;
+
+    /**
+     * 排序字段
+     */
+    private String sortBy;
+
+    /**
+     * 计算耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 排名靠前的组合
+     */
+    private List<Row> rows;
+
+    // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getFundName() {
+        return fundName;
+    }
+
+    public void setFundName(String fundName) {
+        this.fundName = fundName;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public void setIndexName(String indexName) {
+        this.indexName = indexName;
+    }
+
+    public long getCombinations() {
+        return combinations;
+    }
+
+    public void setCombinations(long combinations) {
+        this.combinations = combinations;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * 单个参数组合的回测结果
+     */
+    public static class Row {
+        private int backtestMonths;
+        private String startDate;
+        private int tradingDays;
+        private double upThreshold;
+        private double downThreshold;
+        private double upPositionChange;
+        private double downPositionChange;
+        private double returnRate;
+        private double maxDrawdown;
+        private int upPositionChanges;
+        private int downPositionChanges;
+        private double totalAssets;
+
+        public Row(int backtestMonths, String startDate, int tradingDays, double upThreshold, double downThreshold,
+                   double upPositionChange, double downPositionChange, double returnRate, double maxDrawdown,
+                   int upPositionChanges, int downPositionChanges, double totalAssets) {
+            this.backtestMonths = backtestMonths;
+            this.startDate = startDate;
+            this.tradingDays = tradingDays;
+            this.upThreshold = upThreshold;
+            this.downThreshold = downThreshold;
+            this.upPositionChange = upPositionChange;
+            this.downPositionChange = downPositionChange;
+            this.returnRate = returnRate;
+            this.maxDrawdown = maxDrawdown;
+            this.upPositionChanges = upPositionChanges;
+            this.downPositionChanges = downPositionChanges;
+            this.totalAssets = totalAssets;
+        }
+
+        public int getBacktestMonths() {
+            return backtestMonths;
+        }
+
+        public String getStartDate() {
+            return startDate;
+        }
+
+        public int getTradingDays() {
+            return tradingDays;
+        }
+
+        public double getUpThreshold() {
+            return upThreshold;
+        }
+
+        public double getDownThreshold() {
+            return downThreshold;
+        }
+
+        public double getUpPositionChange() {
+            return upPositionChange;
+        }
+
+        public double getDownPositionChange() {
+            return downPositionChange;
+        }
+
+        /**
+         * 总收益率（%）
+         */
+        public double getReturnRate() {
+            return returnRate;
+        }
+
+        /**
+         * 最大回撤（%）
+         */
+        public double getMaxDrawdown() {
+            return maxDrawdown;
+        }
+
+        public int getUpPositionChanges() {
+            return upPositionChanges;
+        }
+
+        public int getDownPositionChanges() {
+            return downPositionChanges;
+        }
+
+        /**
+         * 交易次数（加仓+减仓）
+         */
+        public int getTradeCount() {
+            return upPositionChanges + downPositionChanges;
+        }
+
+        public double getTotalAssets() {
+            return totalAssets;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.sunlight.invest.fund.backtest.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 滚动样本外（walk-forward）检验请求
+ * <p>
+ * 在每个样本内窗口上对参数网格寻优，再用最优参数在紧随其后的样本外窗口回测，
+ * 窗口按样本外长度向前滚动。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class WalkForwardRequest {
+    /**
+     * 回测基金代码（需已抓取入库）
+     */
+    private String fundCode = "006195";
+
+    /**
+     * 仓位信号参考的指数代码（需已抓取入库）
+     */
+    private String indexCode = "000001";
+
+    /**
+     * 初始资金（元）
+     */
+    private double initialCapital = 100000.0;
+
+    /**
+     * 初始持仓（元）
+     */
+    private double initialHoldings = 100000.0;
+
+    /**
+     * 分析开始日期（可选，默认结束日期前5年）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    /**
+     * 分析结束日期（可选，默认今天）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    /**
+     * 样本内（参数寻优）窗口月数
+     */
+    private int inSampleMonths = 12;
+
+    /**
+     * 样本外（检验）窗口月数，也是窗口滚动步长
+     */
+    private int outOfSampleMonths = 3;
+
+    /**
+     * 涨幅阈值区间（%）
+     */
+    private SweepRequest.ParamRange upThreshold = new SweepRequest.ParamRange(1.0, 3.0, 0.5);
+
+    /**
+     * 跌幅阈值区间（%）
+     */
+    private SweepRequest.ParamRange downThreshold = new SweepRequest.ParamRange(0.5, 2.0, 0.5);
+
+    /**
+     * 加仓金额区间（元）
+     */
+    private SweepRequest.ParamRange upPositionChange = new SweepRequest.ParamRange(10000.0, 10000.0, 1000.0);
+
+    /**
+     * 减仓金额区间（元）
+     */
+    private SweepRequest.ParamRange downPositionChange = new SweepRequest.ParamRange(10000.0, 10000.0, 1000.0);
+
+    /**
+     * 样本内寻优目标：returnRate（收益率）或 calmar（收益率/最大回撤）
+     */
+    private String objective = "returnRate";
+
+    // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public void setIndexCode(String indexCode) {
+        this.indexCode = indexCode;
+    }
+
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+
+    public double getInitialHoldings() {
+        return initialHoldings;
+    }
+
+    public void setInitialHoldings(double initialHoldings) {
+        this.initialHoldings = initialHoldings;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public int getInSampleMonths() {
+        return inSampleMonths;
+    }
+
+    public void setInSampleMonths(int inSampleMonths) {
+        this.inSampleMonths = inSampleMonths;
+    }
+
+    public int getOutOfSampleMonths() {
+        return outOfSampleMonths;
+    }
+
+    public void setOutOfSampleMonths(int outOfSampleMonths) {
+        this.outOfSampleMonths = outOfSampleMonths;
+    }
+
+    public SweepRequest.ParamRange getUpThreshold() {
+        return upThreshold;
+    }
+
+    public void setUpThreshold(SweepRequest.ParamRange upThreshold) {
+        this.upThreshold = upThreshold;
+    }
+
+    public SweepRequest.ParamRange getDownThreshold() {
+        return downThreshold;
+    }
+
+    public void setDownThreshold(SweepRequest.ParamRange downThreshold) {
+        this.downThreshold = downThreshold;
+    }
+
+    public SweepRequest.ParamRange getUpPositionChange() {
+        return upPositionChange;
+    }
+
+    public void setUpPositionChange(SweepRequest.ParamRange upPositionChange) {
+        this.upPositionChange = upPositionChange;
+    }
+
+    public SweepRequest.ParamRange getDownPositionChange() {
+        return downPositionChange;
+    }
+
+    public void setDownPositionChange(SweepRequest.ParamRange downPositionChange) {
+        this.downPositionChange = downPositionChange;
+    }
+
+    public String getObjective() {
+        return objective;
+    }
+
+    public void setObjective(String objective) {
+        this.objective = objective;
+    }
+}
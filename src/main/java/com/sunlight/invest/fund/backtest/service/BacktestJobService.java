@@ -0,0 +1,254 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.common.LruCache;
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 回测异步任务服务
+ * <p>
+ * 耗时的回测分析提交后立即返回任务ID，在后台线程执行，调用方轮询进度和结果。
+ * 待执行任务按用户分队列，工作线程在有任务的用户之间轮转取任务，
+ * 单个用户批量提交不会饿死其他用户；总排队数和单用户排队数都有上限。
+ * 最近的任务保留在内存中，超过保留数量时淘汰最久未访问的任务。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class BacktestJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacktestJobService.class);
+
+    public static final String DEFAULT_USER = "anonymous";
+
+    @Value("${backtest.job.threads:2}")
+    private int threads;
+
+    @Value("${backtest.job.retain:200}")
+    private int retain;
+
+    @Value("${backtest.job.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${backtest.job.max-queued-per-user:10}")
+    private int maxQueuedPerUser;
+
+    private final Object lock = new Object();
+
+    // 每个用户的待执行任务
+    private final Map<String, Deque<Runnable>> userQueues = new HashMap<>();
+
+    // 有待执行任务的用户，按轮转顺序排列
+    private final Deque<String> readyUsers = new ArrayDeque<>();
+
+    private int queued;
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private LruCache<String, BacktestJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        jobs = new LruCache<>(Math.max(1, retain));
+        for (int i = 1; i <= Math.max(1, threads); i++) {
+            Thread worker = new Thread(this::workLoop, "backtest-job-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 以默认用户提交任务
+     *
+     * @param type 任务类型
+     * @param work 计算逻辑，可通过任务对象上报进度，返回值作为任务结果
+     * @return 任务
+     */
+    public BacktestJob submit(String type, Function<BacktestJob, Object> work) {
+        return submit(DEFAULT_USER, type, work);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param user 提交用户，用于公平调度
+     * @param type 任务类型
+     * @param work 计算逻辑，可通过任务对象上报进度，返回值作为任务结果
+     * @return 任务
+     * @throws IllegalStateException 队列已满或该用户排队任务过多
+     */
+    public BacktestJob submit(String user, String type, Function<BacktestJob, Object> work) {
+        String owner = user == null || user.isEmpty() ? DEFAULT_USER : user;
+        BacktestJob job = new BacktestJob(newJobId(), type);
+        enqueue(owner, () -> execute(job, owner, work));
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    /**
+     * 登记一个已有结果的任务（如命中结果缓存），不进入队列
+     *
+     * @param type   任务类型
+     * @param result 结果
+     * @return 已完成的任务
+     */
+    public BacktestJob completed(String type, Object result) {
+        BacktestJob job = new BacktestJob(newJobId(), type);
+        job.setCached(true);
+        job.markSuccess(result);
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    /**
+     * 查询任务
+     *
+     * @param jobId 任务ID
+     * @return 任务，不存在或已淘汰时返回null
+     */
+    public BacktestJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * 队列状态
+     *
+     * @return 排队数、执行数和各用户排队数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Integer> perUser = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("queued", queued);
+            for (Map.Entry<String, Deque<Runnable>> entry : userQueues.entrySet()) {
+                perUser.put(entry.getKey(), entry.getValue().size());
+            }
+        }
+        stats.put("running", running.get());
+        stats.put("threads", workers.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("maxQueuedPerUser", maxQueuedPerUser);
+        stats.put("queuedByUser", perUser);
+        stats.put("retainedJobs", jobs.size());
+        return stats;
+    }
+
+    private void enqueue(String user, Runnable task) {
+        synchronized (lock) {
+            if (queued >= queueCapacity) {
+                throw new IllegalStateException("回测任务队列已满，请稍后再试");
+            }
+            Deque<Runnable> queue = userQueues.get(user);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                userQueues.put(user, queue);
+                readyUsers.addLast(user);
+            }
+            if (queue.size() >= maxQueuedPerUser) {
+                throw new IllegalStateException("排队中的任务过多（上限 " + maxQueuedPerUser + "），请等待已提交任务完成");
+            }
+            queue.addLast(task);
+            queued++;
+            lock.notify();
+        }
+    }
+
+    /**
+     * 轮转取下一个任务：取队首用户的一个任务，该用户仍有任务时排到队尾
+     */
+    private Runnable take() throws InterruptedException {
+        synchronized (lock) {
+            while (readyUsers.isEmpty()) {
+                lock.wait();
+            }
+            String user = readyUsers.pollFirst();
+            Deque<Runnable> queue = userQueues.get(user);
+            Runnable task = queue.pollFirst();
+            if (queue.isEmpty()) {
+                userQueues.remove(user);
+            } else {
+                readyUsers.addLast(user);
+            }
+            queued--;
+            return task;
+        }
+    }
+
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            running.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // 单个任务的异常不能让工作线程退出，否则池中线程越来越少直至队列无人消费
+                logger.error("回测工作线程执行任务异常", t);
+                rethrowIfFatal(t);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private void execute(BacktestJob job, String user, Function<BacktestJob, Object> work) {
+        job.markRunning();
+        long start = System.currentTimeMillis();
+        try {
+            job.markSuccess(work.apply(job));
+            logger.info("回测任务完成: {} [{}] 用户={}, 耗时 {} ms",
+                    job.getJobId(), job.getType(), user, System.currentTimeMillis() - start);
+        } catch (Throwable t) {
+            // 包括 StackOverflowError、OutOfMemoryError 等错误，任务必须进入终态，否则轮询方一直看到运行中
+            logger.error("回测任务失败: {} [{}] 用户={}", job.getJobId(), job.getType(), user, t);
+            job.markFailed(t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName());
+            rethrowIfFatal(t);
+        }
+    }
+
+    /**
+     * 虚拟机已不可用的错误继续抛出；StackOverflowError 只影响当前调用栈，工作线程可以继续运行
+     */
+    private static void rethrowIfFatal(Throwable t) {
+        if (t instanceof VirtualMachineError && !(t instanceof StackOverflowError)) {
+            throw (VirtualMachineError) t;
+        }
+    }
+
+    private static String newJobId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
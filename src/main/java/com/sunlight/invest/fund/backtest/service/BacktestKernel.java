@@ -0,0 +1,397 @@
+package com.sunlight.invest.fund.backtest.service;
+
+/**
+ * 回测计算内核
+ * <p>
+ * 在按交易日对齐的基本类型数组上执行"指数阈值调仓"策略，循环中不创建任何对象：
+ * 行情对齐由 {@link #mergeAlign} 对两组有序日期做线性归并完成，
+ * 每日明细写入调用方预先分配的 {@link Trace}（或任意 {@link DayListener}，如流式输出），
+ * 只需汇总结果时可传 null。
+ * 交易规则默认为内置的前一日指数涨跌幅阈值规则，也可传入自定义 {@link Rule}（如编译后的策略表达式）。
+ * 内核实例只保存策略参数，不可变且线程安全，可在多次回测间复用。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class BacktestKernel {
+
+    /**
+     * 当日操作：持有
+     */
+    public static final byte ACTION_HOLD = 0;
+
+    /**
+     * 当日操作：加仓
+     */
+    public static final byte ACTION_BUY = 1;
+
+    /**
+     * 当日操作：减仓
+     */
+    public static final byte ACTION_SELL = 2;
+
+    private final double initialCapital;
+
+    private final double initialHoldings;
+
+    private final double upThreshold;
+
+    private final double downThreshold;
+
+    private final double upPositionChange;
+
+    private final double downPositionChange;
+
+    private final Rule rule;
+
+    /**
+     * @param initialCapital     初始资金
+     * @param initialHoldings    初始持仓金额
+     * @param upThreshold        前一日指数涨幅超过该值（%）时减仓
+     * @param downThreshold      前一日指数跌幅超过该值（%）时加仓
+     * @param upPositionChange   每次加仓金额
+     * @param downPositionChange 每次减仓金额
+     */
+    public BacktestKernel(double initialCapital, double initialHoldings, double upThreshold, double downThreshold,
+                          double upPositionChange, double downPositionChange) {
+        this(initialCapital, initialHoldings, upThreshold, downThreshold, upPositionChange, downPositionChange, null);
+    }
+
+    /**
+     * @param initialCapital     初始资金
+     * @param initialHoldings    初始持仓金额
+     * @param upThreshold        涨幅阈值（%），内置规则使用，也供自定义规则引用
+     * @param downThreshold      跌幅阈值（%）
+     * @param upPositionChange   加仓金额
+     * @param downPositionChange 减仓金额
+     * @param rule               自定义交易规则，须与回测使用同一份行情数组绑定；传 null 使用内置规则
+     */
+    public BacktestKernel(double initialCapital, double initialHoldings, double upThreshold, double downThreshold,
+                          double upPositionChange, double downPositionChange, Rule rule) {
+        this.initialCapital = initialCapital;
+        this.initialHoldings = initialHoldings;
+        this.upThreshold = upThreshold;
+        this.downThreshold = downThreshold;
+        this.upPositionChange = upPositionChange;
+        this.downPositionChange = downPositionChange;
+        this.rule = rule;
+    }
+
+    /**
+     * 执行回测
+     *
+     * @param navs         基金单位净值，按交易日升序
+     * @param indexChanges 同一交易日的指数涨跌幅（%）
+     * @param listener     每日明细输出（Trace 长度不小于交易日数）；传 null 只计算汇总
+     * @return 汇总结果
+     */
+    public Result run(double[] navs, double[] indexChanges, DayListener listener) {
+        if (indexChanges.length != navs.length) {
+            throw new IllegalArgumentException("行情数组长度不一致");
+        }
+        return run(navs, indexChanges, navs.length, listener);
+    }
+
+    /**
+     * 在数组前 n 个交易日上执行回测，便于复用按最大长度预分配的缓冲区
+     *
+     * @param navs         基金单位净值，按交易日升序
+     * @param indexChanges 同一交易日的指数涨跌幅（%）
+     * @param n            交易日数
+     * @param listener     每日明细输出，传 null 只计算汇总
+     * @return 汇总结果
+     */
+    public Result run(double[] navs, double[] indexChanges, int n, DayListener listener) {
+        return run(navs, indexChanges, 0, n, listener);
+    }
+
+    /**
+     * 在 [from, to) 交易日区间上执行回测，多个回测窗口可共享同一份对齐数据
+     *
+     * @param navs         基金单位净值，按交易日升序
+     * @param indexChanges 同一交易日的指数涨跌幅（%）
+     * @param from         起始下标（建仓日）
+     * @param to           结束下标（不含）
+     * @param listener     每日明细输出，按数组下标回调，传 null 只计算汇总
+     * @return 汇总结果
+     */
+    public Result run(double[] navs, double[] indexChanges, int from, int to, DayListener listener) {
+        if (from < 0 || to <= from || to > navs.length || to > indexChanges.length) {
+            throw new IllegalArgumentException("交易日区间无效: [" + from + ", " + to + ")");
+        }
+        if (listener instanceof Trace && ((Trace) listener).capacity() < to) {
+            throw new IllegalArgumentException("明细数组容量不足: " + ((Trace) listener).capacity() + " < " + to);
+        }
+
+        double capital = initialCapital;
+        double holdings = initialHoldings / navs[from];
+        double peakAsset = initialCapital + initialHoldings;
+        double maxDrawdown = 0;
+        double peakHoldings = holdings;
+        int upPositionChanges = 0;
+        int downPositionChanges = 0;
+        if (listener != null) {
+            listener.onDay(from, capital, holdings, capital + holdings * navs[from], ACTION_HOLD);
+        }
+
+        // 内置规则按前一交易日指数涨跌幅决定当日操作
+        for (int i = from + 1; i < to; i++) {
+            double nav = navs[i];
+            double amount;
+            if (rule != null) {
+                amount = rule.decide(i, capital, holdings);
+            } else {
+                double previousChange = indexChanges[i - 1];
+                amount = previousChange > upThreshold ? -downPositionChange
+                        : previousChange < -downThreshold ? upPositionChange : 0;
+            }
+            byte action = ACTION_HOLD;
+            if (amount < 0) {
+                double sellShares = Math.min(-amount / nav, holdings);
+                if (sellShares > 0) {
+                    holdings -= sellShares;
+                    capital += sellShares * nav;
+                    downPositionChanges++;
+                    action = ACTION_SELL;
+                }
+            } else if (amount > 0) {
+                double purchaseAmount = Math.min(amount, capital);
+                if (purchaseAmount > 0) {
+                    holdings += purchaseAmount / nav;
+                    capital -= purchaseAmount;
+                    upPositionChanges++;
+                    action = ACTION_BUY;
+                }
+            }
+
+            double totalAsset = capital + holdings * nav;
+            if (totalAsset > peakAsset) {
+                peakAsset = totalAsset;
+            }
+            double drawdown = (peakAsset - totalAsset) / peakAsset;
+            if (drawdown > maxDrawdown) {
+                maxDrawdown = drawdown;
+            }
+            if (holdings > peakHoldings) {
+                peakHoldings = holdings;
+            }
+            if (listener != null) {
+                listener.onDay(i, capital, holdings, totalAsset, action);
+            }
+        }
+        return new Result(capital, holdings, navs[to - 1], upPositionChanges, downPositionChanges,
+                maxDrawdown, peakHoldings, initialCapital + initialHoldings);
+    }
+
+    /**
+     * 线性归并两组升序日期，取共同交易日
+     * <p>
+     * 日期为 epochDay，两组内部不应有重复。匹配位置写入调用方分配的下标数组，
+     * 其长度应不小于两组长度的较小值。
+     * </p>
+     *
+     * @param leftDays   左侧日期（升序）
+     * @param rightDays  右侧日期（升序）
+     * @param leftIndex  输出：共同日期在左侧的下标
+     * @param rightIndex 输出：共同日期在右侧的下标
+     * @return 共同日期数量
+     */
+    public static int mergeAlign(int[] leftDays, int[] rightDays, int[] leftIndex, int[] rightIndex) {
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < leftDays.length && j < rightDays.length) {
+            int left = leftDays[i];
+            int right = rightDays[j];
+            if (left < right) {
+                i++;
+            } else if (left > right) {
+                j++;
+            } else {
+                leftIndex[n] = i++;
+                rightIndex[n] = j++;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 按下标数组抽取数据
+     *
+     * @param source 源数组
+     * @param index  下标
+     * @param count  抽取数量
+     * @param target 输出数组
+     */
+    public static void gather(double[] source, int[] index, int count, double[] target) {
+        for (int k = 0; k < count; k++) {
+            target[k] = source[index[k]];
+        }
+    }
+
+    /**
+     * 交易规则，在计算循环内同步调用，实现应无状态且不创建对象
+     */
+    public interface Rule {
+
+        /**
+         * @param day      交易日下标（按该日净值成交）
+         * @param capital  当前现金
+         * @param holdings 当前持仓份额
+         * @return 正数为加仓金额，负数为减仓金额，0 为持有
+         */
+        double decide(int day, double capital, double holdings);
+    }
+
+    /**
+     * 每日状态回调，在计算循环内同步调用，实现中不应做耗时操作
+     */
+    public interface DayListener {
+
+        /**
+         * @param day        交易日下标
+         * @param capital    当日收盘后现金
+         * @param holdings   当日收盘后持仓份额
+         * @param totalAsset 当日总资产
+         * @param action     当日操作，见 ACTION_* 常量
+         */
+        void onDay(int day, double capital, double holdings, double totalAsset, byte action);
+    }
+
+    /**
+     * 每日明细（列式存储）
+     * <p>
+     * 按最大交易日数分配一次，可在多次回测间复用。
+     * </p>
+     */
+    public static final class Trace implements DayListener {
+
+        private final double[] capital;
+
+        private final double[] holdings;
+
+        private final double[] totalAssets;
+
+        private final byte[] actions;
+
+        public Trace(int capacity) {
+            this.capital = new double[capacity];
+            this.holdings = new double[capacity];
+            this.totalAssets = new double[capacity];
+            this.actions = new byte[capacity];
+        }
+
+        @Override
+        public void onDay(int day, double capitalValue, double holdingsValue, double totalAsset, byte action) {
+            capital[day] = capitalValue;
+            holdings[day] = holdingsValue;
+            totalAssets[day] = totalAsset;
+            actions[day] = action;
+        }
+
+        public int capacity() {
+            return actions.length;
+        }
+
+        public double capitalAt(int day) {
+            return capital[day];
+        }
+
+        public double holdingsAt(int day) {
+            return holdings[day];
+        }
+
+        public double totalAssetAt(int day) {
+            return totalAssets[day];
+        }
+
+        public byte actionAt(int day) {
+            return actions[day];
+        }
+    }
+
+    /**
+     * 回测汇总结果
+     */
+    public static final class Result {
+
+        private final double finalCapital;
+
+        private final double finalHoldings;
+
+        private final double finalNav;
+
+        private final int upPositionChanges;
+
+        private final int downPositionChanges;
+
+        private final double maxDrawdown;
+
+        private final double peakHoldings;
+
+        private final double initialAssets;
+
+        Result(double finalCapital, double finalHoldings, double finalNav, int upPositionChanges,
+               int downPositionChanges, double maxDrawdown, double peakHoldings, double initialAssets) {
+            this.finalCapital = finalCapital;
+            this.finalHoldings = finalHoldings;
+            this.finalNav = finalNav;
+            this.upPositionChanges = upPositionChanges;
+            this.downPositionChanges = downPositionChanges;
+            this.maxDrawdown = maxDrawdown;
+            this.peakHoldings = peakHoldings;
+            this.initialAssets = initialAssets;
+        }
+
+        public double getFinalCapital() {
+            return finalCapital;
+        }
+
+        /**
+         * 期末持仓份额
+         */
+        public double getFinalHoldings() {
+            return finalHoldings;
+        }
+
+        public double getFinalNav() {
+            return finalNav;
+        }
+
+        public double getFinalHoldingsValue() {
+            return finalHoldings * finalNav;
+        }
+
+        public double getTotalAssets() {
+            return finalCapital + finalHoldings * finalNav;
+        }
+
+        /**
+         * 总收益率（%）
+         */
+        public double getReturnRate() {
+            return (getTotalAssets() / initialAssets - 1) * 100;
+        }
+
+        public int getUpPositionChanges() {
+            return upPositionChanges;
+        }
+
+        public int getDownPositionChanges() {
+            return downPositionChanges;
+        }
+
+        /**
+         * 最大回撤（比例，非百分比）
+         */
+        public double getMaxDrawdown() {
+            return maxDrawdown;
+        }
+
+        public double getPeakHoldings() {
+            return peakHoldings;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
+import com.sunlight.invest.fund.backtest.dto.MonteCarloRequest;
+import com.sunlight.invest.fund.backtest.dto.WalkForwardRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 回测稳健性分析服务
+ * <p>
+ * 单一窗口的回测容易过拟合，这里提供两种检验，均作为异步任务并行执行并上报进度，
+ * 只返回分位数汇总而不返回原始路径：
+ * <ul>
+ *     <li>滚动样本外检验（walk-forward）：样本内寻优、样本外打分，窗口逐段滚动；</li>
+ *     <li>蒙特卡洛分块自助法：成对分块重采样历史行情，得到收益率和回撤分布。</li>
+ * </ul>
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class BacktestRobustnessService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacktestRobustnessService.class);
+
+    public static final String JOB_WALK_FORWARD = "walk-forward";
+
+    public static final String JOB_MONTE_CARLO = "monte-carlo";
+
+    private static final double[] PERCENTILE_LEVELS = {5, 25, 50, 75, 95};
+
+    // 每个并行分片模拟的路径数，分片内复用缓冲区
+    private static final int PATHS_PER_CHUNK = 32;
+
+    // calmar 目标下回撤低于该值（%）按该值计，避免极小回撤放大得分
+    private static final double MIN_CALMAR_DRAWDOWN = 1.0;
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @Autowired
+    private BacktestSweepService sweepService;
+
+    @Autowired
+    private BacktestJobService jobService;
+
+    @Value("${backtest.sweep.max-combinations:100000}")
+    private int maxCombinations;
+
+    @Value("${backtest.monte-carlo.max-paths:20000}")
+    private int maxPaths;
+
+    /**
+     * 提交滚动样本外检验任务
+     *
+     * @param request 检验参数
+     * @param user    提交用户
+     * @return 任务
+     */
+    public BacktestJob submitWalkForward(WalkForwardRequest request, String user) {
+        validate(request);
+        return jobService.submit(user, JOB_WALK_FORWARD, job -> walkForward(request, job));
+    }
+
+    /**
+     * 提交蒙特卡洛检验任务
+     *
+     * @param request 检验参数
+     * @param user    提交用户
+     * @return 任务
+     */
+    public BacktestJob submitMonteCarlo(MonteCarloRequest request, String user) {
+        validate(request);
+        return jobService.submit(user, JOB_MONTE_CARLO, job -> monteCarlo(request, job));
+    }
+
+    /**
+     * 执行滚动样本外检验
+     *
+     * @param request 检验参数
+     * @param job     进度上报对象，总工作量为 窗口数 × 参数组合数
+     * @return 各窗口结果和汇总
+     */
+    Map<String, Object> walkForward(WalkForwardRequest request, BacktestJob job) {
+        validate(request);
+        ParameterGrid grid = grid(request);
+        boolean calmar = "calmar".equals(request.getObjective());
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : LocalDate.now();
+        LocalDate startDate = request.getStartDate() != null ? request.getStartDate() : endDate.minusYears(5);
+        MarketData data = marketDataService.load(request.getFundCode(), request.getIndexCode(), startDate, endDate);
+
+        // 每个窗口：{样本内起点, 样本外起点, 样本外终点(不含)}
+        List<int[]> folds = new ArrayList<>();
+        for (LocalDate cursor = startDate; ; cursor = cursor.plusMonths(request.getOutOfSampleMonths())) {
+            LocalDate inSampleEnd = cursor.plusMonths(request.getInSampleMonths());
+            if (inSampleEnd.isAfter(endDate)) {
+                break;
+            }
+            int from = data.indexOnOrAfter(cursor);
+            int split = data.indexOnOrAfter(inSampleEnd);
+            int to = data.indexOnOrAfter(inSampleEnd.plusMonths(request.getOutOfSampleMonths()));
+            if (split - from >= 2 && to - split >= 2) {
+                folds.add(new int[]{from, split, to});
+            }
+        }
+        if (folds.isEmpty()) {
+            throw new IllegalArgumentException("行情数据不足以划分样本内/样本外窗口");
+        }
+        job.setTotal(folds.size() * grid.size());
+
+        List<Map<String, Object>> foldResults = sweepService.invoke(() -> IntStream.range(0, folds.size()).parallel()
+                .mapToObj(f -> evaluateFold(request, grid, data, folds.get(f), calmar, job))
+                .collect(Collectors.toList()));
+
+        double[] outOfSampleReturns = new double[foldResults.size()];
+        double compounded = 1;
+        double inSampleDaily = 0;
+        double outOfSampleDaily = 0;
+        double worstDrawdown = 0;
+        int positive = 0;
+        for (int f = 0; f < foldResults.size(); f++) {
+            Map<String, Object> fold = foldResults.get(f);
+            int[] bounds = folds.get(f);
+            double oosReturn = (Double) fold.get("outOfSampleReturn");
+            outOfSampleReturns[f] = oosReturn;
+            compounded *= 1 + oosReturn / 100;
+            positive += oosReturn > 0 ? 1 : 0;
+            worstDrawdown = Math.max(worstDrawdown, (Double) fold.get("outOfSampleMaxDrawdown"));
+            inSampleDaily += (Double) fold.get("inSampleReturn") / (bounds[1] - bounds[0]);
+            outOfSampleDaily += oosReturn / (bounds[2] - bounds[1]);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("foldCount", folds.size());
+        summary.put("combinationsPerFold", grid.size());
+        summary.put("compoundedOutOfSampleReturn", round((compounded - 1) * 100));
+        summary.put("meanOutOfSampleReturn", round(Arrays.stream(outOfSampleReturns).average().orElse(0)));
+        summary.put("positiveFoldRatio", round((double) positive / folds.size()));
+        summary.put("worstOutOfSampleDrawdown", round(worstDrawdown));
+        // 样本外与样本内日均收益之比，越接近1说明寻优结果越能延续
+        summary.put("efficiency", inSampleDaily > 0 ? round(outOfSampleDaily / inSampleDaily) : null);
+        summary.put("outOfSampleReturnPercentiles", percentiles(outOfSampleReturns));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fundCode", data.getFundCode());
+        result.put("fundName", data.getFundName());
+        result.put("indexCode", data.getIndexCode());
+        result.put("indexName", data.getIndexName());
+        result.put("objective", calmar ? "calmar" : "returnRate");
+        result.put("summary", summary);
+        result.put("folds", foldResults);
+        logger.info("滚动样本外检验完成: 基金={}, 窗口 {} 个, 每窗口 {} 个组合",
+                data.getFundCode(), folds.size(), grid.size());
+        return result;
+    }
+
+    /**
+     * 执行蒙特卡洛分块自助法检验
+     *
+     * @param request 检验参数
+     * @param job     进度上报对象，总工作量为路径数
+     * @return 收益率和最大回撤的分布汇总
+     */
+    Map<String, Object> monteCarlo(MonteCarloRequest request, BacktestJob job) {
+        validate(request);
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : LocalDate.now();
+        MarketData data = marketDataService.load(request.getFundCode(), request.getIndexCode(),
+                endDate.minusMonths(request.getBacktestMonths()), endDate);
+        int n = data.size();
+        if (n < 3) {
+            throw new IllegalArgumentException("交易日不足，无法进行蒙特卡洛检验");
+        }
+        double[] navs = data.navArray();
+        double[] changes = data.indexChangeArray();
+        double[] navReturns = new double[n];
+        for (int k = 1; k < n; k++) {
+            navReturns[k] = navs[k] / navs[k - 1] - 1;
+        }
+
+        BacktestKernel kernel = new BacktestKernel(request.getInitialCapital(), request.getInitialHoldings(),
+                request.getUpThreshold(), request.getDownThreshold(),
+                request.getUpPositionChange(), request.getDownPositionChange());
+        BacktestKernel.Result historical = kernel.run(navs, changes, null);
+
+        int paths = request.getPaths();
+        int blockSize = Math.min(request.getBlockSize(), n - 1);
+        long seed = request.getSeed() != null ? request.getSeed() : System.nanoTime();
+        double[] returns = new double[paths];
+        double[] drawdowns = new double[paths];
+        job.setTotal(paths);
+        int chunks = (paths + PATHS_PER_CHUNK - 1) / PATHS_PER_CHUNK;
+        sweepService.invoke(() -> {
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int first = c * PATHS_PER_CHUNK;
+                int last = Math.min(paths, first + PATHS_PER_CHUNK);
+                // 每个分片独立的随机序列，保证指定种子时结果与线程调度无关
+                SplittableRandom random = new SplittableRandom(seed + c * 0x9E3779B97F4A7C15L);
+                double[] simNavs = new double[n];
+                double[] simChanges = new double[n];
+                for (int p = first; p < last; p++) {
+                    resample(navs[0], navReturns, changes, blockSize, random, simNavs, simChanges);
+                    BacktestKernel.Result path = kernel.run(simNavs, simChanges, null);
+                    returns[p] = path.getReturnRate();
+                    drawdowns[p] = path.getMaxDrawdown() * 100;
+                }
+                job.advance(last - first);
+            });
+            return null;
+        });
+
+        double historicalReturn = historical.getReturnRate();
+        int losses = 0;
+        int notBetter = 0;
+        for (double value : returns) {
+            losses += value < 0 ? 1 : 0;
+            notBetter += value <= historicalReturn ? 1 : 0;
+        }
+        Map<String, Object> historicalResult = new LinkedHashMap<>();
+        historicalResult.put("returnRate", round(historicalReturn));
+        historicalResult.put("maxDrawdown", round(historical.getMaxDrawdown() * 100));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fundCode", data.getFundCode());
+        result.put("fundName", data.getFundName());
+        result.put("indexCode", data.getIndexCode());
+        result.put("indexName", data.getIndexName());
+        result.put("tradingDays", n);
+        result.put("paths", paths);
+        result.put("blockSize", blockSize);
+        result.put("seed", seed);
+        result.put("historical", historicalResult);
+        result.put("meanReturn", round(Arrays.stream(returns).average().orElse(0)));
+        result.put("lossProbability", round((double) losses / paths));
+        // 历史结果在模拟分布中的分位，接近1说明历史表现依赖于特定的行情顺序
+        result.put("historicalReturnRank", round((double) notBetter / paths));
+        result.put("returnPercentiles", percentiles(returns));
+        result.put("maxDrawdownPercentiles", percentiles(drawdowns));
+        logger.info("蒙特卡洛检验完成: 基金={}, 路径 {} 条, 块长 {}", data.getFundCode(), paths, blockSize);
+        return result;
+    }
+
+    /**
+     * 样本内寻优并在样本外打分
+     */
+    private Map<String, Object> evaluateFold(WalkForwardRequest request, ParameterGrid grid, MarketData data,
+                                             int[] bounds, boolean calmar, BacktestJob job) {
+        double[] navs = data.navArray();
+        double[] changes = data.indexChangeArray();
+        long best = LongStream.range(0, grid.size()).parallel()
+                .mapToObj(c -> {
+                    BacktestKernel.Result inSample = grid.kernel(c, request.getInitialCapital(),
+                            request.getInitialHoldings()).run(navs, changes, bounds[0], bounds[1], null);
+                    job.advance(1);
+                    return new Candidate(c, score(inSample, calmar));
+                })
+                .reduce(Candidate::better)
+                .map(candidate -> candidate.combination)
+                .orElse(0L);
+
+        BacktestKernel kernel = grid.kernel(best, request.getInitialCapital(), request.getInitialHoldings());
+        BacktestKernel.Result inSample = kernel.run(navs, changes, bounds[0], bounds[1], null);
+        BacktestKernel.Result outOfSample = kernel.run(navs, changes, bounds[1], bounds[2], null);
+
+        Map<String, Object> fold = new LinkedHashMap<>();
+        fold.put("inSampleStart", data.dateAt(bounds[0]).toString());
+        fold.put("inSampleEnd", data.dateAt(bounds[1] - 1).toString());
+        fold.put("outOfSampleStart", data.dateAt(bounds[1]).toString());
+        fold.put("outOfSampleEnd", data.dateAt(bounds[2] - 1).toString());
+        fold.put("upThreshold", grid.upThreshold(best));
+        fold.put("downThreshold", grid.downThreshold(best));
+        fold.put("upPositionChange", grid.upPositionChange(best));
+        fold.put("downPositionChange", grid.downPositionChange(best));
+        fold.put("inSampleReturn", round(inSample.getReturnRate()));
+        fold.put("inSampleMaxDrawdown", round(inSample.getMaxDrawdown() * 100));
+        fold.put("outOfSampleReturn", round(outOfSample.getReturnRate()));
+        fold.put("outOfSampleMaxDrawdown", round(outOfSample.getMaxDrawdown() * 100));
+        fold.put("outOfSampleTrades", outOfSample.getUpPositionChanges() + outOfSample.getDownPositionChanges());
+        return fold;
+    }
+
+    /**
+     * 生成一条模拟行情
+     * <p>
+     * 抽样单位为 (前一日指数涨跌幅, 当日基金收益) 对，保留策略信号与次日收益的对应关系；
+     * 块内连续取样，超出末尾时回绕。
+     * </p>
+     */
+    static void resample(double startNav, double[] navReturns, double[] changes, int blockSize,
+                         SplittableRandom random, double[] simNavs, double[] simChanges) {
+        int n = simNavs.length;
+        int units = n - 1;
+        simNavs[0] = startNav;
+        int i = 1;
+        while (i < n) {
+            int start = random.nextInt(units);
+            for (int b = 0; b < blockSize && i < n; b++, i++) {
+                int k = 1 + (start + b) % units;
+                simNavs[i] = simNavs[i - 1] * (1 + navReturns[k]);
+                simChanges[i - 1] = changes[k - 1];
+            }
+        }
+        simChanges[n - 1] = 0;
+    }
+
+    /**
+     * 分位数汇总（线性插值）
+     */
+    static Map<String, Double> percentiles(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (double level : PERCENTILE_LEVELS) {
+            double position = level / 100 * (sorted.length - 1);
+            int lower = (int) Math.floor(position);
+            int upper = Math.min(lower + 1, sorted.length - 1);
+            double value = sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+            result.put("p" + (int) level, round(value));
+        }
+        return result;
+    }
+
+    private static double score(BacktestKernel.Result result, boolean calmar) {
+        if (!calmar) {
+            return result.getReturnRate();
+        }
+        return result.getReturnRate() / Math.max(result.getMaxDrawdown() * 100, MIN_CALMAR_DRAWDOWN);
+    }
+
+    private ParameterGrid grid(WalkForwardRequest request) {
+        return new ParameterGrid(request.getUpThreshold(), request.getDownThreshold(),
+                request.getUpPositionChange(), request.getDownPositionChange());
+    }
+
+    private void validate(WalkForwardRequest request) {
+        if (request.getInSampleMonths() <= 0 || request.getOutOfSampleMonths() <= 0) {
+            throw new IllegalArgumentException("样本内和样本外窗口月数必须大于0");
+        }
+        if (!"returnRate".equals(request.getObjective()) && !"calmar".equals(request.getObjective())) {
+            throw new IllegalArgumentException("不支持的寻优目标: " + request.getObjective());
+        }
+        long combinations = grid(request).size();
+        if (combinations > maxCombinations) {
+            throw new IllegalArgumentException("参数组合数 " + combinations + " 超过上限 " + maxCombinations);
+        }
+    }
+
+    private void validate(MonteCarloRequest request) {
+        if (request.getPaths() <= 0 || request.getPaths() > maxPaths) {
+            throw new IllegalArgumentException("模拟路径数必须在 1 到 " + maxPaths + " 之间");
+        }
+        if (request.getBlockSize() <= 0 || request.getBacktestMonths() <= 0) {
+            throw new IllegalArgumentException("块长度和回测月数必须大于0");
+        }
+    }
+
+    private static Double round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * 样本内寻优候选，得分相同时取序号小的组合，保证并行归约结果确定
+     */
+    private static final class Candidate {
+
+        private final long combination;
+
+        private final double score;
+
+        Candidate(long combination, double score) {
+            this.combination = combination;
+            this.score = score;
+        }
+
+        Candidate better(Candidate other) {
+            if (score != other.score) {
+                return score > other.score ? this : other;
+            }
+            return combination <= other.combination ? this : other;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.SweepRequest;
+import com.sunlight.invest.fund.backtest.dto.SweepResponse;
+import com.sunlight.invest.fund.backtest.strategy.PreparedStrategy;
+import com.sunlight.invest.fund.backtest.strategy.StrategyProgram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 回测参数寻优服务
+ * <p>
+ * 按参数区间展开网格，在专用 ForkJoinPool 上并行回测所有组合。
+ * 行情只加载一次（取最长的回测窗口），各组合共享同一份对齐数组，
+ * 不同窗口通过起始下标区分，单个组合只计算汇总结果。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class BacktestSweepService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacktestSweepService.class);
+
+    private static final int MAX_TOP_N = 1000;
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @Value("${backtest.sweep.parallelism:0}")
+    private int parallelism;
+
+    @Value("${backtest.sweep.max-combinations:100000}")
+    private int maxCombinations;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(size, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("backtest-sweep-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 执行参数寻优
+     *
+     * @param request 参数区间
+     * @return 按排序字段排名的结果表
+     */
+    public SweepResponse sweep(SweepRequest request) {
+        long combinations = request.combinations();
+        if (combinations > maxCombinations) {
+            throw new IllegalArgumentException("参数组合数 " + combinations + " 超过上限 " + maxCombinations);
+        }
+        Comparator<SweepResponse.Row> comparator = comparator(request.getSortBy());
+        StrategyProgram program = StrategyProgram.compile(request.getStrategy());
+        int topN = Math.max(1, Math.min(request.getTopN(), MAX_TOP_N));
+
+        SweepRequest.ParamRange monthRange = request.getBacktestMonths();
+        int[] months = new int[monthRange.count()];
+        int maxMonths = 0;
+        for (int k = 0; k < months.length; k++) {
+            months[k] = (int) Math.round(monthRange.valueAt(k));
+            if (months[k] <= 0) {
+                throw new IllegalArgumentException("回测月数必须大于0");
+            }
+            maxMonths = Math.max(maxMonths, months[k]);
+        }
+
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : LocalDate.now();
+        MarketData data = marketDataService.load(request.getFundCode(), request.getIndexCode(),
+                endDate.minusMonths(maxMonths), endDate);
+        int[] starts = new int[months.length];
+        for (int k = 0; k < months.length; k++) {
+            starts[k] = data.indexOnOrAfter(endDate.minusMonths(months[k]));
+            if (data.size() - starts[k] < 2) {
+                throw new IllegalArgumentException("最近 " + months[k] + " 个月的交易日不足，无法回测");
+            }
+        }
+
+        // 自定义策略在全量行情上准备一次，所有组合共享指标列
+        PreparedStrategy strategy = program == null ? null : program.prepare(data.navArray(), data.indexChangeArray());
+        ParameterGrid grid = new ParameterGrid(request.getUpThreshold(), request.getDownThreshold(),
+                request.getUpPositionChange(), request.getDownPositionChange());
+        long start = System.currentTimeMillis();
+        List<SweepResponse.Row> rows = invoke(() -> IntStream.range(0, (int) combinations).parallel()
+                .mapToObj(c -> evaluate(request, grid, strategy, data, months, starts, c))
+                .sorted(comparator)
+                .limit(topN)
+                .collect(Collectors.toList()));
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("参数寻优完成: 基金={}, 指数={}, 组合 {} 个, 耗时 {} ms",
+                request.getFundCode(), request.getIndexCode(), combinations, elapsed);
+
+        SweepResponse response = new SweepResponse();
+        response.setFundCode(data.getFundCode());
+        response.setFundName(data.getFundName());
+        response.setIndexCode(data.getIndexCode());
+        response.setIndexName(data.getIndexName());
+        response.setCombinations(combinations);
+        response.setSortBy(request.getSortBy());
+        response.setElapsedMillis(elapsed);
+        response.setRows(rows);
+        return response;
+    }
+
+    /**
+     * 在参数寻优线程池上执行计算任务，任务内的并行流共享该线程池
+     *
+     * @param task 计算任务
+     * @return 计算结果
+     */
+    <T> T invoke(Callable<T> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("回测计算被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("回测计算失败", e.getCause());
+        }
+    }
+
+    /**
+     * 组合序号先按窗口、再按参数网格拆分后回测
+     */
+    private SweepResponse.Row evaluate(SweepRequest request, ParameterGrid grid, PreparedStrategy strategy,
+                                       MarketData data, int[] months, int[] starts, int combination) {
+        int window = (int) (combination / grid.size());
+        long index = combination % grid.size();
+        BacktestKernel.Result result = grid.kernel(index, request.getInitialCapital(), request.getInitialHoldings(), strategy)
+                .run(data.navArray(), data.indexChangeArray(), starts[window], data.size(), null);
+        return new SweepResponse.Row(months[window], data.dateAt(starts[window]).toString(),
+                data.size() - starts[window], grid.upThreshold(index), grid.downThreshold(index),
+                grid.upPositionChange(index), grid.downPositionChange(index),
+                result.getReturnRate(), result.getMaxDrawdown() * 100,
+                result.getUpPositionChanges(), result.getDownPositionChanges(), result.getTotalAssets());
+    }
+
+    private static Comparator<SweepResponse.Row> comparator(String sortBy) {
+        Comparator<SweepResponse.Row> byReturn =
+                Comparator.comparingDouble(SweepResponse.Row::getReturnRate).reversed();
+        if (sortBy == null || "returnRate".equals(sortBy)) {
+            return byReturn.thenComparingDouble(SweepResponse.Row::getMaxDrawdown);
+        }
+        if ("maxDrawdown".equals(sortBy)) {
+            return Comparator.comparingDouble(SweepResponse.Row::getMaxDrawdown).thenComparing(byReturn);
+        }
+        if ("tradeCount".equals(sortBy)) {
+            return Comparator.comparingInt(SweepResponse.Row::getTradeCount).thenComparing(byReturn);
+        }
+        throw new IllegalArgumentException("不支持的排序字段: " + sortBy);
+    }
+}
@@ -1,18 +1,39 @@
 package com.sunlight.invest.fund.backtest.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunlight.invest.common.LruCache;
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
 import com.sunlight.invest.fund.backtest.dto.BacktestRequest;
 import com.sunlight.invest.fund.backtest.dto.BacktestResponse;
-import com.sunlight.invest.fund.export.GsNavHtmlToExcel;
+import com.sunlight.invest.fund.backtest.dto.StrategyDefinition;
+import com.sunlight.invest.fund.backtest.strategy.StrategyProgram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基金回测服务
+ * <p>
+ * 回测结果按请求的规范化摘要和数据版本缓存，相同请求在数据未更新前直接返回缓存结果；
+ * 异步提交的回测在 {@link BacktestJobService} 的公平队列中执行。
+ * </p>
  * 
  * @author system
  * @date 2025-12-01
@@ -22,53 +43,52 @@ public class FundBacktestService {
     
     private static final Logger logger = LoggerFactory.getLogger(FundBacktestService.class);
 
+    public static final String JOB_BACKTEST = "backtest";
+
+    // 流式输出每写多少行明细刷新一次
+    private static final int STREAM_FLUSH_ROWS = 256;
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @Autowired
+    private BacktestJobService jobService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${backtest.job.result-cache-size:64}")
+    private int resultCacheSize;
+
+    private LruCache<String, BacktestResponse> resultCache;
+
+    // 执行中的任务，相同请求直接复用
+    private final ConcurrentHashMap<String, BacktestJob> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        resultCache = new LruCache<>(Math.max(1, resultCacheSize));
+    }
+
     /**
      * 执行回测
      */
     public BacktestResponse runBacktest(BacktestRequest request) {
         logger.info("开始执行回测业务逻辑...");
         try {
-            // 获取基金净值数据
-            logger.info("步骤1: 获取基金净值数据...");
-            List<GsNavHtmlToExcel.Nav> fundDataList = GsNavHtmlToExcel.fetchTable();
-            logger.info("获取到基金数据 {} 条", fundDataList.size());
-            
-            // 过滤出指定月数或日期区间的基金数据
-            LocalDate endDate;
-            LocalDate startDate;
-            
-            // 优先使用日期区间，其次使用月数
-            if (request.getStartDate() != null && request.getEndDate() != null) {
-                startDate = request.getStartDate();
-                endDate = request.getEndDate();
-                logger.info("步骤2: 使用日期区间 {} 至 {}", startDate, endDate);
-            } else {
-                endDate = LocalDate.now();
-                startDate = endDate.minusMonths(request.getBacktestMonths());
-                logger.info("步骤2: 过滤最近 {} 个月的数据 ({} 至 {})", 
-                    request.getBacktestMonths(), startDate, endDate);
-            }
-            
-            fundDataList = fundDataList.stream()
-                    .filter(nav -> !nav.getDate().isBefore(startDate) && !nav.getDate().isAfter(endDate))
-                    .sorted(Comparator.comparing(GsNavHtmlToExcel.Nav::getDate))
-                    .collect(Collectors.toList());
-            
-            logger.info("筛选后的基金数据: {} 条 (日期范围: {} 至 {})", 
-                fundDataList.size(), startDate, endDate);
-            
-            if (fundDataList.isEmpty()) {
-                throw new RuntimeException("没有找到符合条件的基金数据");
+            LocalDate[] range = resolveRange(request);
+            String cacheKey = cacheKey(request, range);
+            BacktestResponse cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                logger.info("命中回测结果缓存");
+                return cached;
             }
-            
-            // 模拟指数数据（实际应从数据源获取）
-            logger.info("步骤3: 生成模拟指数数据...");
-            List<IndexData> indexDataList = generateMockIndexData(startDate, endDate);
-            logger.info("生成指数数据: {} 条", indexDataList.size());
-            
-            // 执行回测
-            logger.info("步骤4: 执行回测算法...");
-            return performBacktest(request, indexDataList, fundDataList);
+            BacktestResponse response = compute(request, range, null);
+            resultCache.put(cacheKey, response);
+            return response;
             
         } catch (Exception e) {
             logger.error("回测执行失败", e);
@@ -77,171 +97,245 @@ public class FundBacktestService {
     }
 
     /**
-     * 执行回测核心逻辑
+     * 提交异步回测任务
+     * <p>
+     * 相同请求（含数据版本）已有结果时直接返回已完成的任务，正在执行时返回同一个任务。
+     * </p>
+     *
+     * @param request 回测参数
+     * @param user    提交用户
+     * @return 任务
      */
-    private BacktestResponse performBacktest(BacktestRequest request,
-                                            List<IndexData> indexDataList,
-                                            List<GsNavHtmlToExcel.Nav> fundDataList) {
-        
-        logger.info("进入回测核心逻辑...");
-        
-        // 将指数数据转换为Map便于查找
-        Map<LocalDate, IndexData> indexDataMap = indexDataList.stream()
-                .collect(Collectors.toMap(IndexData::getDate, data -> data));
-        
-        // 将基金数据转换为Map便于查找
-        Map<LocalDate, GsNavHtmlToExcel.Nav> fundDataMap = fundDataList.stream()
-                .collect(Collectors.toMap(GsNavHtmlToExcel.Nav::getDate, nav -> nav));
-        
-        // 获取共同的交易日期并排序
-        Set<LocalDate> commonDates = new HashSet<>(indexDataMap.keySet());
-        commonDates.retainAll(fundDataMap.keySet());
-        List<LocalDate> sortedDates = new ArrayList<>(commonDates);
-        sortedDates.sort(LocalDate::compareTo);
-        
-        if (sortedDates.isEmpty()) {
-            logger.error("没有找到共同的交易日期");
-            throw new RuntimeException("没有找到共同的交易日期");
+    public BacktestJob submitBacktest(BacktestRequest request, String user) {
+        // 表达式错误在提交时直接返回，不进入队列
+        StrategyProgram.compile(request.getStrategy());
+        LocalDate[] range = resolveRange(request);
+        String cacheKey = cacheKey(request, range);
+        BacktestResponse cached = resultCache.get(cacheKey);
+        if (cached != null) {
+            return jobService.completed(JOB_BACKTEST, cached);
         }
-        
-        logger.info("找到 {} 个共同交易日", sortedDates.size());
-        
-        double capital = request.getInitialCapital();
-        double holdings = request.getInitialHoldings() / fundDataMap.get(sortedDates.get(0)).getNav();
-        int upPositionChanges = 0;
-        int downPositionChanges = 0;
-        double peakCapital = request.getInitialCapital() + request.getInitialHoldings();
-        double maxDrawdown = 0;
-        double peakHoldings = holdings;
-        double finalNav = 0;
-        
-        List<BacktestResponse.DailyDetail> dailyDetails = new ArrayList<>();
-        
-        // 遍历每个交易日
-        for (int i = 1; i < sortedDates.size(); i++) {
-            LocalDate currentDate = sortedDates.get(i);
-            LocalDate previousDate = sortedDates.get(i - 1);
-            
-            IndexData currentIndex = indexDataMap.get(currentDate);
-            GsNavHtmlToExcel.Nav currentNav = fundDataMap.get(currentDate);
-            IndexData previousIndex = indexDataMap.get(previousDate);
-            
-            if (currentIndex == null || currentNav == null || previousIndex == null) {
-                continue;
+        // 在 compute 内提交，任务结束时的 remove 会等待登记完成，不会留下已结束的任务
+        return inFlight.compute(cacheKey, (key, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                return existing;
             }
-            
-            double previousChange = previousIndex.getChangePercent();
-            String action = "持有";
-            
-            // 根据前一天上证指数涨跌幅调整仓位
-            if (previousChange > request.getUpThreshold()) {
-                // 减仓
-                double sellShares = Math.min(request.getDownPositionChange() / currentNav.getNav(), holdings);
-                if (sellShares > 0) {
-                    holdings -= sellShares;
-                    capital += sellShares * currentNav.getNav();
-                    downPositionChanges++;
-                    action = "减仓";
-                }
-            } else if (previousChange < -request.getDownThreshold()) {
-                // 加仓
-                double purchaseAmount = Math.min(request.getUpPositionChange(), capital);
-                if (purchaseAmount > 0) {
-                    double newShares = purchaseAmount / currentNav.getNav();
-                    holdings += newShares;
-                    capital -= purchaseAmount;
-                    upPositionChanges++;
-                    action = "加仓";
+            return jobService.submit(user, JOB_BACKTEST, job -> {
+                try {
+                    BacktestResponse response = compute(request, range, job);
+                    resultCache.put(key, response);
+                    return response;
+                } finally {
+                    inFlight.remove(key, job);
                 }
-            }
-            
-            // 计算当前总资产
-            double totalAsset = capital + holdings * currentNav.getNav();
-            finalNav = currentNav.getNav();
-            
-            // 更新最大回撤
-            if (totalAsset > peakCapital) {
-                peakCapital = totalAsset;
-            }
-            double drawdown = (peakCapital - totalAsset) / peakCapital;
-            if (drawdown > maxDrawdown) {
-                maxDrawdown = drawdown;
-            }
-            
-            // 更新持仓峰值
-            if (holdings > peakHoldings) {
-                peakHoldings = holdings;
-            }
-            
-            // 记录每日明细
-            dailyDetails.add(new BacktestResponse.DailyDetail(
-                currentDate.toString(),
-                previousChange,
-                currentNav.getNav(),
-                capital,
-                holdings,
-                totalAsset,
-                action
-            ));
+            });
+        });
+    }
+
+    /**
+     * 确定回测区间：优先使用日期区间，其次使用月数
+     */
+    private LocalDate[] resolveRange(BacktestRequest request) {
+        if (request.getStartDate() != null && request.getEndDate() != null) {
+            return new LocalDate[]{request.getStartDate(), request.getEndDate()};
+        }
+        LocalDate endDate = LocalDate.now();
+        return new LocalDate[]{endDate.minusMonths(request.getBacktestMonths()), endDate};
+    }
+
+    /**
+     * 请求的规范化摘要：字段按固定顺序拼接（区间已解析为具体日期），再附加数据版本
+     */
+    private String cacheKey(BacktestRequest request, LocalDate[] range) {
+        String canonical = String.join("|",
+                request.getFundCode(), request.getIndexCode(),
+                range[0].toString(), range[1].toString(),
+                Double.toString(request.getInitialCapital()), Double.toString(request.getInitialHoldings()),
+                Double.toString(request.getUpThreshold()), Double.toString(request.getDownThreshold()),
+                Double.toString(request.getUpPositionChange()), Double.toString(request.getDownPositionChange()),
+                strategyKey(request.getStrategy()),
+                marketDataService.dataVersion(request.getFundCode(), request.getIndexCode()));
+        return DigestUtils.md5DigestAsHex(canonical.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String strategyKey(StrategyDefinition strategy) {
+        if (strategy == null) {
+            return "";
+        }
+        return strategy.getBuyWhen() + "\u0000" + strategy.getSellWhen() + "\u0000"
+                + strategy.getBuyAmount() + "\u0000" + strategy.getSellAmount();
+    }
+
+    private BacktestResponse compute(BacktestRequest request, LocalDate[] range, BacktestJob job) {
+        if (job != null) {
+            job.setTotal(3);
         }
+        logger.info("步骤1: 回测区间 {} 至 {}", range[0], range[1]);
         
-        // 构建响应
-        BacktestResponse response = new BacktestResponse();
-        response.setInitialCapital(request.getInitialCapital());
-        response.setInitialHoldings(request.getInitialHoldings());
-        response.setFinalCapital(capital);
-        response.setFinalHoldings(holdings);
-        response.setFinalNav(finalNav);
-        response.setFinalHoldingsValue(holdings * finalNav);
-        response.setTotalAssets(capital + holdings * finalNav);
-        response.setReturnRate(((capital + holdings * finalNav) / (request.getInitialCapital() + request.getInitialHoldings()) - 1) * 100);
-        response.setUpPositionChanges(upPositionChanges);
-        response.setDownPositionChanges(downPositionChanges);
-        response.setMaxDrawdown(maxDrawdown * 100);
-        response.setPeakHoldings(peakHoldings);
-        response.setTradingDays(sortedDates.size());
-        response.setDailyDetails(dailyDetails);
+        // 从已入库的净值和指数行情加载对齐后的数据
+        logger.info("步骤2: 加载基金 {} 与指数 {} 的行情数据...", request.getFundCode(), request.getIndexCode());
+        MarketData data = marketDataService.load(request.getFundCode(), request.getIndexCode(), range[0], range[1]);
+        if (data.size() == 0) {
+            throw new IllegalArgumentException("没有找到符合条件的基金数据");
+        }
+        if (job != null) {
+            job.advance(1);
+        }
         
+        // 执行回测
+        logger.info("步骤3: 执行回测算法...");
+        BacktestResponse response = performBacktest(request, data);
+        if (job != null) {
+            job.advance(2);
+        }
         return response;
     }
 
     /**
-     * 生成模拟指数数据（实际应从API获取）
+     * 流式回测
+     * <p>
+     * 行情加载和汇总计算在调用时完成（出错直接抛出，便于返回错误信息），
+     * 返回的输出体先写一行汇总，再边计算边逐行写每日明细（NDJSON），不在内存中积累明细列表。
+     * </p>
+     *
+     * @param request 回测参数
+     * @return NDJSON 输出体
      */
-    private List<IndexData> generateMockIndexData(LocalDate startDate, LocalDate endDate) {
-        List<IndexData> dataList = new ArrayList<>();
-        Random random = new Random(42);
-        
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate)) {
-            if (currentDate.getDayOfWeek().getValue() <= 5) {
-                double changePercent = random.nextGaussian() * 1.5;
-                dataList.add(new IndexData(currentDate, changePercent));
-            }
-            currentDate = currentDate.plusDays(1);
+    public StreamingResponseBody streamBacktest(BacktestRequest request) {
+        LocalDate[] range = resolveRange(request);
+        MarketData data = marketDataService.load(request.getFundCode(), request.getIndexCode(), range[0], range[1]);
+        if (data.size() == 0) {
+            throw new IllegalArgumentException("没有找到符合条件的基金数据");
         }
-        
-        return dataList;
+        BacktestKernel kernel = kernel(request, data);
+        BacktestKernel.Result result = kernel.run(data.navArray(), data.indexChangeArray(), null);
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("type", "summary");
+        header.putAll(objectMapper.convertValue(buildResponse(request, data, result), MAP_TYPE));
+        header.remove("dailyDetails");
+
+        return out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            generator.writeObject(header);
+            generator.writeRaw('\n');
+            try {
+                kernel.run(data.navArray(), data.indexChangeArray(), (day, capital, holdings, totalAsset, action) -> {
+                    if (day == 0) {
+                        return;
+                    }
+                    try {
+                        writeDay(generator, data, day, capital, holdings, totalAsset, action);
+                        if (day % STREAM_FLUSH_ROWS == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // 客户端断开等写出失败，终止计算
+                throw e.getCause();
+            }
+            generator.flush();
+        };
+    }
+
+    private void writeDay(JsonGenerator generator, MarketData data, int day, double capital, double holdings,
+                          double totalAsset, byte action) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "day");
+        generator.writeStringField("date", data.dateAt(day).toString());
+        generator.writeNumberField("indexChange", data.indexChangeAt(day - 1));
+        generator.writeNumberField("nav", data.navAt(day));
+        generator.writeNumberField("capital", capital);
+        generator.writeNumberField("holdings", holdings);
+        generator.writeNumberField("totalAssets", totalAsset);
+        generator.writeStringField("action", actionName(action));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
     }
 
     /**
-     * 指数数据内部类
+     * 执行回测核心逻辑
+     * <p>
+     * 接口和命令行回测共用：行情已对齐为 {@link MarketData}，不依赖数据库和缓存。
+     * </p>
+     *
+     * @param request 回测参数
+     * @param data    对齐后的行情数据
+     * @return 含每日明细的回测结果
      */
-    static class IndexData {
-        private LocalDate date;
-        private double changePercent;
+    public static BacktestResponse performBacktest(BacktestRequest request, MarketData data) {
         
-        public IndexData(LocalDate date, double changePercent) {
-            this.date = date;
-            this.changePercent = changePercent;
-        }
+        logger.info("进入回测核心逻辑，共 {} 个交易日", data.size());
         
-        public LocalDate getDate() {
-            return date;
+        BacktestKernel.Trace trace = new BacktestKernel.Trace(data.size());
+        BacktestKernel.Result result = kernel(request, data).run(data.navArray(), data.indexChangeArray(), trace);
+        
+        // 由列式明细生成每日明细（首日为建仓日，不计入）
+        List<BacktestResponse.DailyDetail> dailyDetails = new ArrayList<>(data.size());
+        for (int i = 1; i < data.size(); i++) {
+            dailyDetails.add(new BacktestResponse.DailyDetail(
+                data.dateAt(i).toString(),
+                data.indexChangeAt(i - 1),
+                data.navAt(i),
+                trace.capitalAt(i),
+                trace.holdingsAt(i),
+                trace.totalAssetAt(i),
+                actionName(trace.actionAt(i))
+            ));
         }
         
-        public double getChangePercent() {
-            return changePercent;
+        BacktestResponse response = buildResponse(request, data, result);
+        response.setDailyDetails(dailyDetails);
+        return response;
+    }
+
+    private static BacktestKernel kernel(BacktestRequest request, MarketData data) {
+        StrategyProgram program = StrategyProgram.compile(request.getStrategy());
+        BacktestKernel.Rule rule = program == null ? null
+                : program.prepare(data.navArray(), data.indexChangeArray()).rule(request.getUpThreshold(),
+                request.getDownThreshold(), request.getUpPositionChange(), request.getDownPositionChange());
+        return new BacktestKernel(request.getInitialCapital(), request.getInitialHoldings(),
+                request.getUpThreshold(), request.getDownThreshold(),
+                request.getUpPositionChange(), request.getDownPositionChange(), rule);
+    }
+
+    /**
+     * 构建不含每日明细的响应
+     */
+    private static BacktestResponse buildResponse(BacktestRequest request, MarketData data, BacktestKernel.Result result) {
+        BacktestResponse response = new BacktestResponse();
+        response.setFundCode(data.getFundCode());
+        response.setFundName(data.getFundName());
+        response.setIndexCode(data.getIndexCode());
+        response.setIndexName(data.getIndexName());
+        response.setInitialCapital(request.getInitialCapital());
+        response.setInitialHoldings(request.getInitialHoldings());
+        response.setFinalCapital(result.getFinalCapital());
+        response.setFinalHoldings(result.getFinalHoldings());
+        response.setFinalNav(result.getFinalNav());
+        response.setFinalHoldingsValue(result.getFinalHoldingsValue());
+        response.setTotalAssets(result.getTotalAssets());
+        response.setReturnRate(result.getReturnRate());
+        response.setUpPositionChanges(result.getUpPositionChanges());
+        response.setDownPositionChanges(result.getDownPositionChanges());
+        response.setMaxDrawdown(result.getMaxDrawdown() * 100);
+        response.setPeakHoldings(result.getPeakHoldings());
+        response.setTradingDays(data.size());
+        return response;
+    }
+
+    private static String actionName(byte action) {
+        switch (action) {
+            case BacktestKernel.ACTION_BUY:
+                return "加仓";
+            case BacktestKernel.ACTION_SELL:
+                return "减仓";
+            default:
+                return "持有";
         }
     }
 }
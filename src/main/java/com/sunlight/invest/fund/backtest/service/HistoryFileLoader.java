@@ -0,0 +1,537 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * 历史行情文件加载器
+ * <p>
+ * 从 CSV 或 XLSX 文件按列读取（日期, 数值）序列，供命令行回测使用。
+ * 逐字符流式解析：字段按引号规则切分，日期和数字在读取字符的同时累加成整数，
+ * 不切分字符串、不使用正则，也不依赖解析异常判断格式，百万行级别的文件可在数秒内导入。
+ * XLSX 通过 POI 的 SAX 事件接口逐行读取，不把整个工作簿加载到内存。
+ * </p>
+ * <p>
+ * 支持的日期格式：yyyy-M-d、yyyy/M/d、yyyy年M月d日、yyyyMMdd（可带时间，时间部分忽略），
+ * 以及 Excel 日期单元格。数字可带千分位逗号、百分号和引号。
+ * 无法解析的行（如表头）跳过并计数；结果按日期升序，同一日期保留最后出现的一行。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class HistoryFileLoader {
+
+    private static final int INVALID_DAY = Integer.MIN_VALUE;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Excel 日期序列号 0 对应 1899-12-30
+    private static final long EXCEL_EPOCH_OFFSET = 25569;
+
+    private HistoryFileLoader() {
+    }
+
+    /**
+     * 按扩展名读取 CSV 或 XLSX 文件
+     *
+     * @param file        文件路径
+     * @param dateColumn  日期列下标（从0开始，负数表示从行尾倒数，-1 为最后一列）
+     * @param valueColumn 数值列下标（规则同上）
+     * @return 按日期升序的序列
+     */
+    public static Series load(Path file, int dateColumn, int valueColumn) throws IOException {
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xlsx")) {
+            return readXlsx(file, dateColumn, valueColumn);
+        }
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            return readCsv(reader, dateColumn, valueColumn);
+        }
+    }
+
+    /**
+     * 流式读取 CSV
+     *
+     * @param reader      字符输入（无需带缓冲）
+     * @param dateColumn  日期列下标
+     * @param valueColumn 数值列下标
+     * @return 按日期升序的序列
+     */
+    public static Series readCsv(Reader reader, int dateColumn, int valueColumn) throws IOException {
+        RowCollector rows = new RowCollector(dateColumn, valueColumn);
+        FieldParser field = rows.field(0);
+        char[] buffer = new char[BUFFER_SIZE];
+        boolean inQuotes = false;
+        boolean rowStarted = false;
+        int column = 0;
+        int read;
+        while ((read = reader.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                char ch = buffer[i];
+                if (ch == '"') {
+                    // 转义的双引号 "" 相当于连续切换两次，其内容本身不参与日期和数字解析
+                    inQuotes = !inQuotes;
+                    rowStarted = true;
+                } else if (inQuotes) {
+                    field.accept(ch);
+                } else if (ch == ',') {
+                    field = rows.field(++column);
+                    rowStarted = true;
+                } else if (ch == '\n') {
+                    if (rowStarted) {
+                        rows.endRow(column);
+                    }
+                    column = 0;
+                    field = rows.field(0);
+                    rowStarted = false;
+                } else if (ch != '\r' && ch != '\uFEFF') {
+                    field.accept(ch);
+                    rowStarted = true;
+                }
+            }
+        }
+        if (rowStarted) {
+            rows.endRow(column);
+        }
+        return rows.toSeries();
+    }
+
+    /**
+     * 流式读取 XLSX 的第一个工作表
+     *
+     * @param file        文件路径
+     * @param dateColumn  日期列下标
+     * @param valueColumn 数值列下标
+     * @return 按日期升序的序列
+     */
+    public static Series readXlsx(Path file, int dateColumn, int valueColumn) throws IOException {
+        RowCollector rows = new RowCollector(dateColumn, valueColumn);
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return rows.toSeries();
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new SheetRows(rows), new IsoDateFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("读取 Excel 文件失败: " + file, e);
+        }
+        return rows.toSeries();
+    }
+
+    /**
+     * 日期转为 epochDay，日期无效时返回 {@link Integer#MIN_VALUE}
+     */
+    static int epochDay(int year, int month, int day) {
+        if (year < 1900 || year > 2200 || month < 1 || month > 12 || day < 1 || day > monthLength(year, month)) {
+            return INVALID_DAY;
+        }
+        // 公历日期到序号的整数换算（以3月为年首，闰日落在年末）
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 加载结果：按日期升序的（epochDay, 数值）两列
+     */
+    public static final class Series {
+
+        private final int[] days;
+
+        private final double[] values;
+
+        private final int skippedRows;
+
+        Series(int[] days, double[] values, int skippedRows) {
+            this.days = days;
+            this.values = values;
+            this.skippedRows = skippedRows;
+        }
+
+        /**
+         * 由已按日期严格升序排列的数组构建
+         *
+         * @param days   日期（epochDay）
+         * @param values 与日期一一对应的数值
+         * @return 序列
+         */
+        public static Series of(int[] days, double[] values) {
+            if (days.length != values.length) {
+                throw new IllegalArgumentException("日期与数值数量不一致: " + days.length + " != " + values.length);
+            }
+            for (int i = 1; i < days.length; i++) {
+                if (days[i] <= days[i - 1]) {
+                    throw new IllegalArgumentException("日期必须严格升序");
+                }
+            }
+            return new Series(days, values, 0);
+        }
+
+        public int size() {
+            return days.length;
+        }
+
+        public int dayAt(int index) {
+            return days[index];
+        }
+
+        public LocalDate dateAt(int index) {
+            return LocalDate.ofEpochDay(days[index]);
+        }
+
+        public double valueAt(int index) {
+            return values[index];
+        }
+
+        /**
+         * 无法解析而跳过的行数（含表头）
+         */
+        public int getSkippedRows() {
+            return skippedRows;
+        }
+
+        /**
+         * 只保留 [startDate, endDate] 区间内的行
+         */
+        public Series between(LocalDate startDate, LocalDate endDate) {
+            int from = lowerBound((int) startDate.toEpochDay());
+            int to = lowerBound((int) endDate.toEpochDay() + 1);
+            return new Series(Arrays.copyOfRange(days, from, to), Arrays.copyOfRange(values, from, to), skippedRows);
+        }
+
+        int[] dayArray() {
+            return days;
+        }
+
+        double[] valueArray() {
+            return values;
+        }
+
+        private int lowerBound(int day) {
+            int index = Arrays.binarySearch(days, day);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * 单个字段的增量解析：同时按数字和日期两种格式累加，字段结束时取需要的结果
+     */
+    private static final class FieldParser {
+
+        // 数字
+        private long mantissa;
+        private int digits;
+        private int fractionDigits;
+        private boolean negative;
+        private boolean dot;
+        private boolean numberValid;
+
+        // 日期：最多取前三组连续数字
+        private final int[] groups = new int[3];
+        private final int[] groupDigits = new int[3];
+        private int groupCount;
+        private boolean inGroup;
+
+        void reset() {
+            mantissa = 0;
+            digits = 0;
+            fractionDigits = 0;
+            negative = false;
+            dot = false;
+            numberValid = true;
+            groupCount = 0;
+            inGroup = false;
+        }
+
+        void accept(char ch) {
+            if (ch >= '0' && ch <= '9') {
+                int digit = ch - '0';
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    digits++;
+                    if (dot) {
+                        fractionDigits++;
+                    }
+                } else {
+                    numberValid = false;
+                }
+                if (!inGroup) {
+                    if (groupCount < groups.length) {
+                        groups[groupCount] = 0;
+                        groupDigits[groupCount] = 0;
+                    }
+                    groupCount++;
+                    inGroup = true;
+                }
+                int group = groupCount - 1;
+                if (group < groups.length && groupDigits[group] < 9) {
+                    groups[group] = groups[group] * 10 + digit;
+                    groupDigits[group]++;
+                }
+                return;
+            }
+            inGroup = false;
+            if (ch == '.') {
+                numberValid &= !dot;
+                dot = true;
+            } else if (ch == '-' || ch == '+') {
+                numberValid &= digits == 0 && !negative && !dot;
+                negative = ch == '-';
+            } else if (ch != ',' && ch != '%' && ch != ' ' && ch != '\t') {
+                numberValid = false;
+            }
+        }
+
+        double number() {
+            if (!numberValid || digits == 0) {
+                return Double.NaN;
+            }
+            double value = fractionDigits == 0 ? mantissa : mantissa / Math.pow(10, fractionDigits);
+            return negative ? -value : value;
+        }
+
+        int day() {
+            if (groupCount == 1 && groupDigits[0] == 8) {
+                int value = groups[0];
+                return epochDay(value / 10000, value / 100 % 100, value % 100);
+            }
+            if (groupCount >= 3 && groupDigits[0] == 4 && groupDigits[1] <= 2 && groupDigits[2] <= 2) {
+                return epochDay(groups[0], groups[1], groups[2]);
+            }
+            return INVALID_DAY;
+        }
+    }
+
+    /**
+     * 按列收集字段并在行结束时取出日期列和数值列
+     */
+    private static final class RowCollector {
+
+        private final int dateColumn;
+
+        private final int valueColumn;
+
+        private FieldParser[] fields = new FieldParser[0];
+
+        // 本行出现过的字段列号上界，未出现的列（XLSX 空单元格）视为无效
+        private boolean[] present = new boolean[0];
+
+        private int[] days = new int[1024];
+
+        private double[] values = new double[1024];
+
+        private int size;
+
+        private int skipped;
+
+        RowCollector(int dateColumn, int valueColumn) {
+            this.dateColumn = dateColumn;
+            this.valueColumn = valueColumn;
+        }
+
+        FieldParser field(int column) {
+            if (column >= fields.length) {
+                int length = Math.max(column + 1, fields.length * 2);
+                FieldParser[] grown = Arrays.copyOf(fields, length);
+                for (int c = fields.length; c < length; c++) {
+                    grown[c] = new FieldParser();
+                }
+                fields = grown;
+                present = Arrays.copyOf(present, length);
+            }
+            FieldParser field = fields[column];
+            field.reset();
+            present[column] = true;
+            return field;
+        }
+
+        /**
+         * 行结束
+         *
+         * @param lastColumn 本行最后一个字段的列号
+         */
+        void endRow(int lastColumn) {
+            int dateIndex = dateColumn >= 0 ? dateColumn : lastColumn + 1 + dateColumn;
+            int valueIndex = valueColumn >= 0 ? valueColumn : lastColumn + 1 + valueColumn;
+            int day = isPresent(dateIndex, lastColumn) ? fields[dateIndex].day() : INVALID_DAY;
+            double value = isPresent(valueIndex, lastColumn) ? fields[valueIndex].number() : Double.NaN;
+            Arrays.fill(present, 0, Math.min(present.length, lastColumn + 1), false);
+            if (day == INVALID_DAY || Double.isNaN(value)) {
+                skipped++;
+                return;
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            days[size] = day;
+            values[size] = value;
+            size++;
+        }
+
+        private boolean isPresent(int column, int lastColumn) {
+            return column >= 0 && column <= lastColumn && column < present.length && present[column];
+        }
+
+        /**
+         * 整理为日期升序：已升序直接截断，整体降序（常见的导出格式）原地反转，其余按日期排序并去重
+         */
+        Series toSeries() {
+            int[] resultDays = Arrays.copyOf(days, size);
+            double[] resultValues = Arrays.copyOf(values, size);
+            boolean ascending = true;
+            boolean descending = true;
+            for (int i = 1; i < size; i++) {
+                ascending &= resultDays[i] > resultDays[i - 1];
+                descending &= resultDays[i] < resultDays[i - 1];
+            }
+            if (ascending) {
+                return new Series(resultDays, resultValues, skipped);
+            }
+            if (descending) {
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    int day = resultDays[i];
+                    resultDays[i] = resultDays[j];
+                    resultDays[j] = day;
+                    double value = resultValues[i];
+                    resultValues[i] = resultValues[j];
+                    resultValues[j] = value;
+                }
+                return new Series(resultDays, resultValues, skipped);
+            }
+            // 日期在高位、行号在低位，排序后同一日期的最后一行排在最后
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) resultDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int day = (int) (keys[k] >> 32);
+                if (k + 1 < size && (int) (keys[k + 1] >> 32) == day) {
+                    continue;
+                }
+                resultDays[n] = day;
+                resultValues[n] = values[(int) keys[k]];
+                n++;
+            }
+            return new Series(Arrays.copyOf(resultDays, n), Arrays.copyOf(resultValues, n), skipped);
+        }
+    }
+
+    /**
+     * 把 XLSX 单元格事件转成与 CSV 相同的字段输入
+     */
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowCollector rows;
+
+        private int lastColumn;
+
+        SheetRows(RowCollector rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            lastColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (lastColumn >= 0) {
+                rows.endRow(lastColumn);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (cellReference == null || formattedValue == null) {
+                return;
+            }
+            int column = -1;
+            for (int i = 0; i < cellReference.length(); i++) {
+                char ch = cellReference.charAt(i);
+                if (ch < 'A' || ch > 'Z') {
+                    break;
+                }
+                column = (column + 1) * 26 + (ch - 'A');
+            }
+            if (column < 0) {
+                return;
+            }
+            FieldParser field = rows.field(column);
+            for (int i = 0; i < formattedValue.length(); i++) {
+                field.accept(formattedValue.charAt(i));
+            }
+            lastColumn = Math.max(lastColumn, column);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+
+    /**
+     * 日期单元格统一输出为 yyyy-MM-dd，不受单元格显示格式影响
+     */
+    private static final class IsoDateFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return LocalDate.ofEpochDay((long) Math.floor(value) - EXCEL_EPOCH_OFFSET).toString();
+            }
+            return super.formatRawCellContents(value, formatIndex, formatString);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 回测行情数据
+ * <p>
+ * 基金净值与指数涨跌幅按共同交易日对齐后的基本类型数组，日期为 epochDay。
+ * 实例不可变，可被多次回测共享。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class MarketData {
+
+    private final String fundCode;
+
+    private final String fundName;
+
+    private final String indexCode;
+
+    private final String indexName;
+
+    private final int[] days;
+
+    private final double[] navs;
+
+    private final double[] indexChanges;
+
+    public MarketData(String fundCode, String fundName, String indexCode, String indexName,
+                      int[] days, double[] navs, double[] indexChanges) {
+        if (days.length != navs.length || days.length != indexChanges.length) {
+            throw new IllegalArgumentException("行情数组长度不一致");
+        }
+        this.fundCode = fundCode;
+        this.fundName = fundName;
+        this.indexCode = indexCode;
+        this.indexName = indexName;
+        this.days = days;
+        this.navs = navs;
+        this.indexChanges = indexChanges;
+    }
+
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public String getFundName() {
+        return fundName;
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * 交易日数量
+     */
+    public int size() {
+        return days.length;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    /**
+     * 第一个不早于指定日期的交易日下标，全部早于该日期时返回 size()
+     */
+    public int indexOnOrAfter(LocalDate date) {
+        int key = (int) date.toEpochDay();
+        int position = Arrays.binarySearch(days, key);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * 基金单位净值
+     */
+    public double navAt(int index) {
+        return navs[index];
+    }
+
+    /**
+     * 指数日涨跌幅（百分比）
+     */
+    public double indexChangeAt(int index) {
+        return indexChanges[index];
+    }
+
+    /**
+     * 由文件导入的基金净值和指数涨跌幅序列按共同交易日对齐
+     *
+     * @param fundCode     基金代码
+     * @param fundName     基金名称
+     * @param indexCode    指数代码
+     * @param indexName    指数名称
+     * @param fundSeries   基金净值序列（日期升序）
+     * @param indexSeries  指数涨跌幅序列（%，日期升序）
+     * @return 对齐后的行情数据
+     */
+    public static MarketData of(String fundCode, String fundName, String indexCode, String indexName,
+                                HistoryFileLoader.Series fundSeries, HistoryFileLoader.Series indexSeries) {
+        int capacity = Math.min(fundSeries.size(), indexSeries.size());
+        int[] fundIndex = new int[capacity];
+        int[] indexIndex = new int[capacity];
+        int n = BacktestKernel.mergeAlign(fundSeries.dayArray(), indexSeries.dayArray(), fundIndex, indexIndex);
+        int[] days = new int[n];
+        double[] navs = new double[n];
+        double[] changes = new double[n];
+        for (int i = 0; i < n; i++) {
+            days[i] = fundSeries.dayAt(fundIndex[i]);
+        }
+        BacktestKernel.gather(fundSeries.valueArray(), fundIndex, n, navs);
+        BacktestKernel.gather(indexSeries.valueArray(), indexIndex, n, changes);
+        return new MarketData(fundCode, fundName, indexCode, indexName, days, navs, changes);
+    }
+
+    /**
+     * 交易日数组（不复制，供对齐计算直接读取，调用方不得修改）
+     */
+    int[] dayArray() {
+        return days;
+    }
+
+    /**
+     * 净值数组（不复制，供回测内核直接读取，调用方不得修改）
+     */
+    double[] navArray() {
+        return navs;
+    }
+
+    /**
+     * 指数涨跌幅数组（不复制，供回测内核直接读取，调用方不得修改）
+     */
+    double[] indexChangeArray() {
+        return indexChanges;
+    }
+}
@@ -0,0 +1,359 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.common.LruCache;
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.fund.monitor.service.ColumnarSeries;
+import com.sunlight.invest.fund.monitor.service.FundNavService;
+import com.sunlight.invest.fund.monitor.service.IndexDataService;
+import com.sunlight.invest.fund.monitor.service.SeriesArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 回测行情数据服务
+ * <p>
+ * 从已入库的 fund_nav / index_data 读取任意基金和指数的数据，按交易日对齐成基本类型数组，
+ * 回测过程不再依赖网络。加载结果按（基金、指数、区间、数据版本）缓存，
+ * 同一组数据上反复调整参数回测时无需重复查询。组合数据整体按（基金列表、指数、区间、各基金数据版本）另行缓存，
+ * 基金数超过单基金缓存容量时也不会反复重新对齐。
+ * 启用列式归档读取且基金和指数的归档已包含数据库中的最新数据时，直接从内存映射文件对齐，
+ * 只查询汇总表判断归档是否过期，不读取净值明细。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class MarketDataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataService.class);
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private FundNavService fundNavService;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Autowired
+    private SeriesArchiveService seriesArchiveService;
+
+    @Value("${backtest.market-data.cache-size:32}")
+    private int cacheSize;
+
+    @Value("${backtest.market-data.portfolio-cache-size:8}")
+    private int portfolioCacheSize;
+
+    private LruCache<String, MarketData> cache;
+
+    private LruCache<String, PortfolioData> portfolioCache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LruCache<>(Math.max(1, cacheSize));
+        portfolioCache = new LruCache<>(Math.max(1, portfolioCacheSize));
+    }
+
+    /**
+     * 加载回测行情数据
+     *
+     * @param fundCode  基金代码
+     * @param indexCode 指数代码
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 对齐后的行情数据
+     */
+    public MarketData load(String fundCode, String indexCode, LocalDate startDate, LocalDate endDate) {
+        FundNavLatest latestNav = requireLatestNav(fundCode);
+        IndexData latestIndex = requireLatestIndex(indexCode);
+        ColumnarSeries[] archived = freshArchive(fundCode, indexCode, latestNav, latestIndex);
+        return load(fundCode, indexCode, startDate, endDate, latestNav, latestIndex, archived);
+    }
+
+    private MarketData load(String fundCode, String indexCode, LocalDate startDate, LocalDate endDate,
+                            FundNavLatest latestNav, IndexData latestIndex, ColumnarSeries[] archived) {
+        if (archived != null) {
+            return loadArchived(archived[0], archived[1], startDate, endDate);
+        }
+
+        // 数据版本变化（新净值入库或指数行情更新）时缓存自动失效
+        String cacheKey = fundCode + "|" + indexCode + "|" + startDate + "|" + endDate + "|"
+                + version(latestNav, latestIndex);
+        MarketData cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<FundNav> navList = fundNavMapper.selectByDateRange(fundCode, startDate, endDate);
+        // 多取前一条行情，保证区间第一天也能由收盘价推算涨跌幅
+        List<IndexData> indexList = indexDataMapper.selectByDateRange(indexCode, startDate.minusDays(15), endDate);
+        MarketData data = align(fundCode, latestNav.getFundName(), indexCode, indexDataService.getIndexName(indexCode),
+                navList, indexList, startDate);
+        cache.put(cacheKey, data);
+        logger.info("加载回测行情数据: 基金={}, 指数={}, {} 至 {}, 对齐交易日 {} 个",
+                fundCode, indexCode, startDate, endDate, data.size());
+        return data;
+    }
+
+    /**
+     * 加载组合回测行情数据
+     * <p>
+     * 每只基金先与指数对齐（复用单基金缓存），再对各基金的交易日逐一线性归并取交集，
+     * 最终按交易日优先展开成净值矩阵。结果整体缓存，键包含每只基金的数据版本，
+     * 命中时只查询汇总表，不依赖单基金缓存能否同时容纳全部基金。
+     * </p>
+     *
+     * @param fundCodes 基金代码列表
+     * @param indexCode 信号指数代码
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 对齐后的组合行情数据
+     */
+    public PortfolioData loadPortfolio(List<String> fundCodes, String indexCode, LocalDate startDate, LocalDate endDate) {
+        int m = fundCodes.size();
+        IndexData latestIndex = requireLatestIndex(indexCode);
+        FundNavLatest[] latestNavs = new FundNavLatest[m];
+        ColumnarSeries[][] archives = new ColumnarSeries[m][];
+        // 基金顺序决定矩阵列顺序，按请求顺序拼接
+        StringBuilder cacheKey = new StringBuilder(indexCode).append('|').append(startDate).append('|').append(endDate);
+        for (int f = 0; f < m; f++) {
+            String fundCode = fundCodes.get(f);
+            latestNavs[f] = requireLatestNav(fundCode);
+            archives[f] = freshArchive(fundCode, indexCode, latestNavs[f], latestIndex);
+            cacheKey.append('|').append(fundCode).append('=').append(archives[f] != null
+                    ? archiveVersion(archives[f][0], archives[f][1]) : version(latestNavs[f], latestIndex));
+        }
+        PortfolioData cached = portfolioCache.get(cacheKey.toString());
+        if (cached != null) {
+            return cached;
+        }
+
+        MarketData[] series = new MarketData[m];
+        for (int f = 0; f < m; f++) {
+            series[f] = load(fundCodes.get(f), indexCode, startDate, endDate, latestNavs[f], latestIndex, archives[f]);
+        }
+
+        // 逐只基金求共同交易日
+        int[] common = series[0].dayArray();
+        int[] left = new int[common.length];
+        int[] right = new int[common.length];
+        for (int f = 1; f < m && common.length > 0; f++) {
+            int count = BacktestKernel.mergeAlign(common, series[f].dayArray(), left, right);
+            int[] next = new int[count];
+            for (int k = 0; k < count; k++) {
+                next[k] = common[left[k]];
+            }
+            common = next;
+        }
+
+        int n = common.length;
+        double[] navs = new double[n * m];
+        double[] changes = new double[n];
+        String[] names = new String[m];
+        for (int f = 0; f < m; f++) {
+            MarketData data = series[f];
+            BacktestKernel.mergeAlign(common, data.dayArray(), left, right);
+            double[] fundNavs = data.navArray();
+            for (int i = 0; i < n; i++) {
+                navs[i * m + f] = fundNavs[right[i]];
+            }
+            if (f == 0) {
+                BacktestKernel.gather(data.indexChangeArray(), right, n, changes);
+            }
+            names[f] = data.getFundName();
+        }
+        logger.info("加载组合回测行情数据: 基金 {} 只, 指数={}, {} 至 {}, 共同交易日 {} 个",
+                m, indexCode, startDate, endDate, n);
+        PortfolioData data = new PortfolioData(fundCodes.toArray(new String[0]), names, indexCode, common, navs, changes);
+        portfolioCache.put(cacheKey.toString(), data);
+        return data;
+    }
+
+    /**
+     * 获取基金与指数的数据版本，任一方有新数据入库时版本改变
+     *
+     * @param fundCode  基金代码
+     * @param indexCode 指数代码
+     * @return 数据版本
+     */
+    public String dataVersion(String fundCode, String indexCode) {
+        FundNavLatest latestNav = requireLatestNav(fundCode);
+        IndexData latestIndex = requireLatestIndex(indexCode);
+        ColumnarSeries[] archived = freshArchive(fundCode, indexCode, latestNav, latestIndex);
+        if (archived != null) {
+            return archiveVersion(archived[0], archived[1]);
+        }
+        return version(latestNav, latestIndex);
+    }
+
+    private FundNavLatest requireLatestNav(String fundCode) {
+        FundNavLatest latestNav = fundNavService.getLatest(fundCode);
+        if (latestNav == null) {
+            throw new IllegalArgumentException("基金 " + fundCode + " 没有已入库的净值数据，请先抓取");
+        }
+        return latestNav;
+    }
+
+    private IndexData requireLatestIndex(String indexCode) {
+        IndexData latestIndex = indexDataMapper.selectLatest(indexCode);
+        if (latestIndex == null) {
+            throw new IllegalArgumentException("指数 " + indexCode + " 没有已入库的行情数据，请先抓取");
+        }
+        return latestIndex;
+    }
+
+    /**
+     * 获取与数据库一致的归档，任一方过期时回退到数据库
+     * <p>
+     * 数据版本随读取来源一起切换，归档过期后结果缓存也随之失效。
+     * </p>
+     *
+     * @return {基金归档, 指数归档}，未启用、未归档或已过期时返回 null
+     */
+    private ColumnarSeries[] freshArchive(String fundCode, String indexCode, FundNavLatest latestNav, IndexData latestIndex) {
+        ColumnarSeries fundSeries = seriesArchiveService.currentFund(fundCode, latestNav);
+        ColumnarSeries indexSeries = fundSeries != null ? seriesArchiveService.currentIndex(indexCode, latestIndex) : null;
+        return indexSeries != null ? new ColumnarSeries[]{fundSeries, indexSeries} : null;
+    }
+
+    private MarketData loadArchived(ColumnarSeries fundSeries, ColumnarSeries indexSeries,
+                                    LocalDate startDate, LocalDate endDate) {
+        String cacheKey = fundSeries.getCode() + "|" + indexSeries.getCode() + "|" + startDate + "|" + endDate + "|"
+                + archiveVersion(fundSeries, indexSeries);
+        MarketData cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        MarketData data = alignArchived(fundSeries, indexSeries, startDate, endDate);
+        cache.put(cacheKey, data);
+        logger.info("从列式归档加载回测行情数据: 基金={}, 指数={}, {} 至 {}, 对齐交易日 {} 个",
+                fundSeries.getCode(), indexSeries.getCode(), startDate, endDate, data.size());
+        return data;
+    }
+
+    private static String archiveVersion(ColumnarSeries fundSeries, ColumnarSeries indexSeries) {
+        return "archive:" + fundSeries.getModified() + "|" + indexSeries.getModified();
+    }
+
+    private static String version(FundNavLatest latestNav, IndexData latestIndex) {
+        return latestNav.getNavCount() + "/" + latestNav.getUpdateTime() + "|"
+                + latestIndex.getTradeDate() + "/" + latestIndex.getUpdateTime();
+    }
+
+    /**
+     * 按日期有序归并基金净值和指数行情
+     * <p>
+     * 指数涨跌幅优先取 daily_return，缺失时用相邻两条收盘价推算。
+     * </p>
+     */
+    static MarketData align(String fundCode, String fundName, String indexCode, String indexName,
+                            List<FundNav> navList, List<IndexData> indexList, LocalDate startDate) {
+        int capacity = Math.min(navList.size(), indexList.size());
+        int[] days = new int[capacity];
+        double[] navs = new double[capacity];
+        double[] changes = new double[capacity];
+        int n = 0;
+        int j = 0;
+        double previousClose = Double.NaN;
+        for (FundNav nav : navList) {
+            if (nav.getUnitNav() == null) {
+                continue;
+            }
+            LocalDate navDate = nav.getNavDate();
+            while (j < indexList.size() && indexList.get(j).getTradeDate().isBefore(navDate)) {
+                previousClose = closeOf(indexList.get(j), previousClose);
+                j++;
+            }
+            if (j == indexList.size()) {
+                break;
+            }
+            IndexData index = indexList.get(j);
+            if (!index.getTradeDate().equals(navDate) || navDate.isBefore(startDate)) {
+                continue;
+            }
+            double change;
+            if (index.getDailyReturn() != null) {
+                change = index.getDailyReturn().doubleValue();
+            } else if (index.getClosePrice() != null && previousClose > 0) {
+                change = (index.getClosePrice().doubleValue() / previousClose - 1) * 100;
+            } else {
+                change = 0;
+            }
+            days[n] = (int) navDate.toEpochDay();
+            navs[n] = nav.getUnitNav().doubleValue();
+            changes[n] = change;
+            n++;
+        }
+        return new MarketData(fundCode, fundName, indexCode, indexName,
+                Arrays.copyOf(days, n), Arrays.copyOf(navs, n), Arrays.copyOf(changes, n));
+    }
+
+    /**
+     * 直接在映射的列上归并，语义与 {@link #align} 相同：只读取区间内的行，不构造实体列表
+     */
+    static MarketData alignArchived(ColumnarSeries fundSeries, ColumnarSeries indexSeries,
+                                    LocalDate startDate, LocalDate endDate) {
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        int first = fundSeries.indexOnOrAfter(startDay);
+        int last = fundSeries.indexOnOrAfter(endDay + 1);
+        int j = indexSeries.indexOnOrAfter((int) startDate.minusDays(15).toEpochDay());
+        int indexEnd = indexSeries.indexOnOrAfter(endDay + 1);
+        int capacity = Math.max(0, Math.min(last - first, indexEnd - j));
+        int[] days = new int[capacity];
+        double[] navs = new double[capacity];
+        double[] changes = new double[capacity];
+        int n = 0;
+        double previousClose = Double.NaN;
+        for (int i = first; i < last && n < capacity; i++) {
+            double nav = fundSeries.valueAt(SeriesArchiveService.FUND_UNIT_NAV, i);
+            if (Double.isNaN(nav)) {
+                continue;
+            }
+            int day = fundSeries.dayAt(i);
+            while (j < indexEnd && indexSeries.dayAt(j) < day) {
+                double close = indexSeries.valueAt(SeriesArchiveService.INDEX_CLOSE, j);
+                previousClose = Double.isNaN(close) ? previousClose : close;
+                j++;
+            }
+            if (j == indexEnd) {
+                break;
+            }
+            if (indexSeries.dayAt(j) != day) {
+                continue;
+            }
+            double change = indexSeries.valueAt(SeriesArchiveService.INDEX_DAILY_RETURN, j);
+            if (Double.isNaN(change)) {
+                double close = indexSeries.valueAt(SeriesArchiveService.INDEX_CLOSE, j);
+                change = !Double.isNaN(close) && previousClose > 0 ? (close / previousClose - 1) * 100 : 0;
+            }
+            days[n] = day;
+            navs[n] = nav;
+            changes[n] = change;
+            n++;
+        }
+        return new MarketData(fundSeries.getCode(), fundSeries.getName(), indexSeries.getCode(), indexSeries.getName(),
+                Arrays.copyOf(days, n), Arrays.copyOf(navs, n), Arrays.copyOf(changes, n));
+    }
+
+    private static double closeOf(IndexData index, double fallback) {
+        return index.getClosePrice() != null ? index.getClosePrice().doubleValue() : fallback;
+    }
+}
@@ -0,0 +1,95 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.SweepRequest.ParamRange;
+import com.sunlight.invest.fund.backtest.strategy.PreparedStrategy;
+
+/**
+ * 策略参数网格
+ * <p>
+ * 四个策略参数各自的取值区间按混合进制编号，组合序号 0..size()-1 与参数组合一一对应，
+ * 并行计算时只需分发序号。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+final class ParameterGrid {
+
+    private final ParamRange upThreshold;
+
+    private final ParamRange downThreshold;
+
+    private final ParamRange upPositionChange;
+
+    private final ParamRange downPositionChange;
+
+    private final int upThresholdCount;
+
+    private final int downThresholdCount;
+
+    private final int upChangeCount;
+
+    private final int downChangeCount;
+
+    ParameterGrid(ParamRange upThreshold, ParamRange downThreshold,
+                  ParamRange upPositionChange, ParamRange downPositionChange) {
+        this.upThreshold = upThreshold;
+        this.downThreshold = downThreshold;
+        this.upPositionChange = upPositionChange;
+        this.downPositionChange = downPositionChange;
+        this.upThresholdCount = upThreshold.count();
+        this.downThresholdCount = downThreshold.count();
+        this.upChangeCount = upPositionChange.count();
+        this.downChangeCount = downPositionChange.count();
+    }
+
+    /**
+     * 组合总数
+     */
+    long size() {
+        // 每个取值个数不超过 ParamRange.MAX_COUNT，四个相乘仍可能超出 long 范围
+        try {
+            return Math.multiplyExact(Math.multiplyExact((long) upThresholdCount, downThresholdCount),
+                    Math.multiplyExact((long) upChangeCount, downChangeCount));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("参数组合数过多");
+        }
+    }
+
+    double upThreshold(long combination) {
+        return upThreshold.valueAt((int) (combination / ((long) downThresholdCount * upChangeCount * downChangeCount)
+                % upThresholdCount));
+    }
+
+    double downThreshold(long combination) {
+        return downThreshold.valueAt((int) (combination / ((long) upChangeCount * downChangeCount)
+                % downThresholdCount));
+    }
+
+    double upPositionChange(long combination) {
+        return upPositionChange.valueAt((int) (combination / downChangeCount % upChangeCount));
+    }
+
+    double downPositionChange(long combination) {
+        return downPositionChange.valueAt((int) (combination % downChangeCount));
+    }
+
+    /**
+     * 组合对应的回测内核
+     */
+    BacktestKernel kernel(long combination, double initialCapital, double initialHoldings) {
+        return kernel(combination, initialCapital, initialHoldings, null);
+    }
+
+    /**
+     * 组合对应的回测内核，strategy 不为空时使用其按本组合参数生成的规则
+     */
+    BacktestKernel kernel(long combination, double initialCapital, double initialHoldings, PreparedStrategy strategy) {
+        double up = upThreshold(combination);
+        double down = downThreshold(combination);
+        double upChange = upPositionChange(combination);
+        double downChange = downPositionChange(combination);
+        BacktestKernel.Rule rule = strategy == null ? null : strategy.rule(up, down, upChange, downChange);
+        return new BacktestKernel(initialCapital, initialHoldings, up, down, upChange, downChange, rule);
+    }
+}
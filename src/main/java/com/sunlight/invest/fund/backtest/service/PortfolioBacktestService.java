@@ -0,0 +1,150 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.PortfolioRequest;
+import com.sunlight.invest.fund.backtest.dto.PortfolioResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 多基金组合回测服务
+ * <p>
+ * 各基金净值与信号指数对齐成净值矩阵后交给 {@link PortfolioKernel} 计算，
+ * 输出组合层面的收益、风险和换手指标。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class PortfolioBacktestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioBacktestService.class);
+
+    @Autowired
+    private MarketDataService marketDataService;
+
+    @Value("${backtest.portfolio.max-funds:100}")
+    private int maxFunds;
+
+    /**
+     * 执行组合回测
+     */
+    public PortfolioResponse runBacktest(PortfolioRequest request) {
+        List<String> fundCodes = validate(request);
+        LocalDate endDate = request.getEndDate() != null ? request.getEndDate() : LocalDate.now();
+        LocalDate startDate = request.getStartDate() != null ? request.getStartDate()
+                : endDate.minusMonths(request.getBacktestMonths());
+
+        PortfolioData data = marketDataService.loadPortfolio(fundCodes, request.getIndexCode(), startDate, endDate);
+        if (data.size() < 2) {
+            throw new IllegalArgumentException("组合内基金的共同交易日不足，无法回测");
+        }
+
+        long startTime = System.currentTimeMillis();
+        PortfolioKernel kernel = kernel(request);
+        double[] curve = new double[data.size()];
+        PortfolioKernel.Result result = kernel.run(data.navMatrix(), data.indexChangeArray(), curve);
+        long elapsed = System.currentTimeMillis() - startTime;
+        logger.info("组合回测完成: 基金 {} 只, 交易日 {} 个, 收益率 {}%, 耗时 {}ms",
+                data.fundCount(), data.size(), result.getReturnRate(), elapsed);
+        return buildResponse(request, data, result, curve, elapsed);
+    }
+
+    private List<String> validate(PortfolioRequest request) {
+        List<PortfolioRequest.FundWeight> funds = request.getFunds();
+        if (funds == null || funds.isEmpty()) {
+            throw new IllegalArgumentException("组合至少包含一只基金");
+        }
+        if (funds.size() > maxFunds) {
+            throw new IllegalArgumentException("组合基金数量 " + funds.size() + " 超过上限 " + maxFunds);
+        }
+        List<String> fundCodes = new ArrayList<>(funds.size());
+        Set<String> seen = new HashSet<>();
+        for (PortfolioRequest.FundWeight fund : funds) {
+            if (fund.getFundCode() == null || fund.getFundCode().trim().isEmpty()) {
+                throw new IllegalArgumentException("基金代码不能为空");
+            }
+            String fundCode = fund.getFundCode().trim();
+            if (!seen.add(fundCode)) {
+                throw new IllegalArgumentException("基金 " + fundCode + " 重复");
+            }
+            if (!(fund.getWeight() > 0)) {
+                throw new IllegalArgumentException("基金 " + fundCode + " 的权重必须大于0");
+            }
+            fundCodes.add(fundCode);
+        }
+        return fundCodes;
+    }
+
+    private PortfolioKernel kernel(PortfolioRequest request) {
+        List<PortfolioRequest.FundWeight> funds = request.getFunds();
+        double[] weights = new double[funds.size()];
+        for (int f = 0; f < weights.length; f++) {
+            weights[f] = funds.get(f).getWeight();
+        }
+        String mode = request.getRebalanceMode() != null ? request.getRebalanceMode() : PortfolioKernel.REBALANCE_NONE;
+        return new PortfolioKernel(weights, request.getInitialCapital(), request.getInitialHoldings(),
+                mode, request.getRebalanceInterval(), request.getDriftThreshold(),
+                request.isIndexSignal(), request.getUpThreshold(), request.getDownThreshold(),
+                request.getUpPositionChange(), request.getDownPositionChange());
+    }
+
+    private PortfolioResponse buildResponse(PortfolioRequest request, PortfolioData data,
+                                            PortfolioKernel.Result result, double[] curve, long elapsed) {
+        int n = data.size();
+        double initialAssets = request.getInitialCapital() + request.getInitialHoldings();
+        PortfolioResponse response = new PortfolioResponse();
+        response.setIndexCode(data.getIndexCode());
+        response.setStartDate(data.dateAt(0).toString());
+        response.setEndDate(data.dateAt(n - 1).toString());
+        response.setTradingDays(n);
+        response.setInitialAssets(initialAssets);
+        response.setTotalAssets(result.getTotalAssets());
+        response.setFinalCash(result.getFinalCash());
+        response.setReturnRate(result.getReturnRate());
+        response.setAnnualizedReturn(result.getAnnualizedReturn());
+        response.setVolatility(result.getVolatility());
+        response.setSharpeRatio(result.getSharpeRatio());
+        response.setMaxDrawdown(result.getMaxDrawdown() * 100);
+        response.setRebalanceCount(result.getRebalances());
+        response.setUpPositionChanges(result.getUpPositionChanges());
+        response.setDownPositionChanges(result.getDownPositionChanges());
+        response.setTurnover(initialAssets > 0 ? result.getTradedAmount() / initialAssets * 100 : 0);
+        response.setElapsedMillis(elapsed);
+
+        double weightSum = 0;
+        for (PortfolioRequest.FundWeight fund : request.getFunds()) {
+            weightSum += fund.getWeight();
+        }
+        double totalAssets = result.getTotalAssets();
+        List<PortfolioResponse.Position> positions = new ArrayList<>(data.fundCount());
+        for (int f = 0; f < data.fundCount(); f++) {
+            PortfolioResponse.Position position = new PortfolioResponse.Position();
+            position.setFundCode(data.fundCodeAt(f));
+            position.setFundName(data.fundNameAt(f));
+            position.setTargetWeight(request.getFunds().get(f).getWeight() / weightSum * 100);
+            position.setFinalValue(result.getFinalValue(f));
+            position.setFinalWeight(totalAssets > 0 ? result.getFinalValue(f) / totalAssets * 100 : 0);
+            position.setNavReturn((data.navAt(n - 1, f) / data.navAt(0, f) - 1) * 100);
+            positions.add(position);
+        }
+        response.setPositions(positions);
+
+        List<String> dates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dates.add(data.dateAt(i).toString());
+        }
+        response.setDates(dates);
+        response.setAssetCurve(curve);
+        return response;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import java.time.LocalDate;
+
+/**
+ * 组合回测行情数据
+ * <p>
+ * 多只基金的净值与信号指数涨跌幅按共同交易日对齐后的矩阵，净值按"交易日优先"展开为一维数组：
+ * 第 i 个交易日第 f 只基金的净值位于 {@code navs[i * fundCount + f]}，
+ * 回测内核逐日遍历时按顺序读取，日期为 epochDay。实例不可变，可被多次回测共享。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class PortfolioData {
+
+    private final String[] fundCodes;
+
+    private final String[] fundNames;
+
+    private final String indexCode;
+
+    private final int[] days;
+
+    private final double[] navs;
+
+    private final double[] indexChanges;
+
+    public PortfolioData(String[] fundCodes, String[] fundNames, String indexCode,
+                         int[] days, double[] navs, double[] indexChanges) {
+        if (fundCodes.length == 0 || fundNames.length != fundCodes.length) {
+            throw new IllegalArgumentException("基金列表无效");
+        }
+        if (navs.length != days.length * fundCodes.length || indexChanges.length != days.length) {
+            throw new IllegalArgumentException("行情数组长度不一致");
+        }
+        this.fundCodes = fundCodes;
+        this.fundNames = fundNames;
+        this.indexCode = indexCode;
+        this.days = days;
+        this.navs = navs;
+        this.indexChanges = indexChanges;
+    }
+
+    /**
+     * 基金数量
+     */
+    public int fundCount() {
+        return fundCodes.length;
+    }
+
+    /**
+     * 交易日数量
+     */
+    public int size() {
+        return days.length;
+    }
+
+    public String fundCodeAt(int fund) {
+        return fundCodes[fund];
+    }
+
+    public String fundNameAt(int fund) {
+        return fundNames[fund];
+    }
+
+    public String getIndexCode() {
+        return indexCode;
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    /**
+     * 指定交易日某只基金的单位净值
+     */
+    public double navAt(int index, int fund) {
+        return navs[index * fundCodes.length + fund];
+    }
+
+    /**
+     * 净值矩阵（不复制，供回测内核直接读取，调用方不得修改）
+     */
+    double[] navMatrix() {
+        return navs;
+    }
+
+    /**
+     * 指数涨跌幅数组（不复制，供回测内核直接读取，调用方不得修改）
+     */
+    double[] indexChangeArray() {
+        return indexChanges;
+    }
+}
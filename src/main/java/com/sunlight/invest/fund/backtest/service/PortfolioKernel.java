@@ -0,0 +1,362 @@
+package com.sunlight.invest.fund.backtest.service;
+
+/**
+ * 组合回测计算内核
+ * <p>
+ * 在 {@link PortfolioData} 的净值矩阵上逐日模拟多基金组合：初始持仓按目标权重买入，
+ * 之后可按固定交易日间隔或权重偏离阈值再平衡，并可叠加与单基金回测相同的指数阈值加减仓规则
+ * （加仓按目标权重分摊到各基金，减仓按当前市值比例从各基金卖出）。
+ * 再平衡只调整各基金之间的比例，不动用现金，现金仓位由指数信号决定。
+ * 每次回测只分配一个长度为基金数的份额数组，日循环内不创建对象。
+ * 内核实例只保存策略参数，不可变且线程安全。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class PortfolioKernel {
+
+    /**
+     * 不再平衡
+     */
+    public static final String REBALANCE_NONE = "none";
+
+    /**
+     * 每隔固定交易日再平衡
+     */
+    public static final String REBALANCE_PERIODIC = "periodic";
+
+    /**
+     * 任一基金权重偏离目标超过阈值时再平衡
+     */
+    public static final String REBALANCE_THRESHOLD = "threshold";
+
+    /**
+     * 年化使用的交易日数
+     */
+    static final int TRADING_DAYS_PER_YEAR = 252;
+
+    private final double[] targetWeights;
+
+    private final double initialCapital;
+
+    private final double initialHoldings;
+
+    private final String rebalanceMode;
+
+    private final int rebalanceInterval;
+
+    private final double driftThreshold;
+
+    private final boolean indexSignal;
+
+    private final double upThreshold;
+
+    private final double downThreshold;
+
+    private final double upPositionChange;
+
+    private final double downPositionChange;
+
+    /**
+     * @param targetWeights      各基金目标权重（正数，内部归一化）
+     * @param initialCapital     初始现金
+     * @param initialHoldings    初始持仓金额，按目标权重买入
+     * @param rebalanceMode      再平衡方式，见 REBALANCE_* 常量
+     * @param rebalanceInterval  定期再平衡间隔（交易日）
+     * @param driftThreshold     阈值再平衡的权重偏离（%）
+     * @param indexSignal        是否启用指数阈值加减仓
+     * @param upThreshold        前一日指数涨幅超过该值（%）时减仓
+     * @param downThreshold      前一日指数跌幅超过该值（%）时加仓
+     * @param upPositionChange   每次加仓金额
+     * @param downPositionChange 每次减仓金额
+     */
+    public PortfolioKernel(double[] targetWeights, double initialCapital, double initialHoldings,
+                           String rebalanceMode, int rebalanceInterval, double driftThreshold,
+                           boolean indexSignal, double upThreshold, double downThreshold,
+                           double upPositionChange, double downPositionChange) {
+        if (!REBALANCE_NONE.equals(rebalanceMode) && !REBALANCE_PERIODIC.equals(rebalanceMode)
+                && !REBALANCE_THRESHOLD.equals(rebalanceMode)) {
+            throw new IllegalArgumentException("不支持的再平衡方式: " + rebalanceMode);
+        }
+        if (REBALANCE_PERIODIC.equals(rebalanceMode) && rebalanceInterval < 1) {
+            throw new IllegalArgumentException("再平衡间隔必须大于0");
+        }
+        if (REBALANCE_THRESHOLD.equals(rebalanceMode) && driftThreshold <= 0) {
+            throw new IllegalArgumentException("再平衡偏离阈值必须大于0");
+        }
+        double sum = 0;
+        for (double weight : targetWeights) {
+            if (!(weight > 0)) {
+                throw new IllegalArgumentException("基金权重必须大于0");
+            }
+            sum += weight;
+        }
+        if (targetWeights.length == 0) {
+            throw new IllegalArgumentException("组合至少包含一只基金");
+        }
+        this.targetWeights = new double[targetWeights.length];
+        for (int f = 0; f < targetWeights.length; f++) {
+            this.targetWeights[f] = targetWeights[f] / sum;
+        }
+        this.initialCapital = initialCapital;
+        this.initialHoldings = initialHoldings;
+        this.rebalanceMode = rebalanceMode;
+        this.rebalanceInterval = rebalanceInterval;
+        this.driftThreshold = driftThreshold / 100;
+        this.indexSignal = indexSignal;
+        this.upThreshold = upThreshold;
+        this.downThreshold = downThreshold;
+        this.upPositionChange = upPositionChange;
+        this.downPositionChange = downPositionChange;
+    }
+
+    /**
+     * 执行组合回测
+     *
+     * @param navs         净值矩阵，交易日优先展开
+     * @param indexChanges 同一交易日的指数涨跌幅（%）
+     * @param curve        每日总资产输出，长度不小于交易日数；传 null 只计算汇总
+     * @return 汇总结果
+     */
+    public Result run(double[] navs, double[] indexChanges, double[] curve) {
+        int m = targetWeights.length;
+        int n = indexChanges.length;
+        if (n == 0 || navs.length != n * m) {
+            throw new IllegalArgumentException("行情矩阵与基金数量不一致");
+        }
+        if (curve != null && curve.length < n) {
+            throw new IllegalArgumentException("资产曲线数组容量不足: " + curve.length + " < " + n);
+        }
+
+        double[] shares = new double[m];
+        for (int f = 0; f < m; f++) {
+            shares[f] = initialHoldings * targetWeights[f] / navs[f];
+        }
+        double cash = initialCapital;
+        double initialAssets = initialCapital + initialHoldings;
+        double previousAsset = initialAssets;
+        double peakAsset = initialAssets;
+        double maxDrawdown = 0;
+        double traded = 0;
+        int rebalances = 0;
+        int upPositionChanges = 0;
+        int downPositionChanges = 0;
+        int lastRebalance = 0;
+        // Welford 在线计算日收益率均值和方差
+        double mean = 0;
+        double m2 = 0;
+        if (curve != null) {
+            curve[0] = initialAssets;
+        }
+
+        for (int i = 1; i < n; i++) {
+            int row = i * m;
+            double invested = 0;
+            for (int f = 0; f < m; f++) {
+                invested += shares[f] * navs[row + f];
+            }
+
+            // 指数阈值加减仓，规则与单基金回测一致
+            if (indexSignal) {
+                double previousChange = indexChanges[i - 1];
+                if (previousChange > upThreshold && invested > 0) {
+                    double amount = Math.min(downPositionChange, invested);
+                    double ratio = amount / invested;
+                    for (int f = 0; f < m; f++) {
+                        shares[f] -= shares[f] * ratio;
+                    }
+                    cash += amount;
+                    invested -= amount;
+                    traded += amount;
+                    downPositionChanges++;
+                } else if (previousChange < -downThreshold && cash > 0) {
+                    double amount = Math.min(upPositionChange, cash);
+                    for (int f = 0; f < m; f++) {
+                        shares[f] += amount * targetWeights[f] / navs[row + f];
+                    }
+                    cash -= amount;
+                    invested += amount;
+                    traded += amount;
+                    upPositionChanges++;
+                }
+            }
+
+            if (invested > 0 && shouldRebalance(shares, navs, row, invested, i - lastRebalance)) {
+                for (int f = 0; f < m; f++) {
+                    double nav = navs[row + f];
+                    double target = invested * targetWeights[f];
+                    traded += Math.abs(target - shares[f] * nav);
+                    shares[f] = target / nav;
+                }
+                rebalances++;
+                lastRebalance = i;
+            }
+
+            double totalAsset = cash + invested;
+            double dailyReturn = totalAsset / previousAsset - 1;
+            double delta = dailyReturn - mean;
+            mean += delta / i;
+            m2 += delta * (dailyReturn - mean);
+            previousAsset = totalAsset;
+            if (totalAsset > peakAsset) {
+                peakAsset = totalAsset;
+            }
+            double drawdown = (peakAsset - totalAsset) / peakAsset;
+            if (drawdown > maxDrawdown) {
+                maxDrawdown = drawdown;
+            }
+            if (curve != null) {
+                curve[i] = totalAsset;
+            }
+        }
+
+        int last = (n - 1) * m;
+        double[] finalValues = new double[m];
+        for (int f = 0; f < m; f++) {
+            finalValues[f] = shares[f] * navs[last + f];
+        }
+        double variance = n > 2 ? m2 / (n - 2) : 0;
+        return new Result(initialAssets, cash, finalValues, maxDrawdown, mean, Math.sqrt(variance), n,
+                traded, rebalances, upPositionChanges, downPositionChanges);
+    }
+
+    private boolean shouldRebalance(double[] shares, double[] navs, int row, double invested, int sinceLast) {
+        if (REBALANCE_PERIODIC.equals(rebalanceMode)) {
+            return sinceLast >= rebalanceInterval;
+        }
+        if (REBALANCE_THRESHOLD.equals(rebalanceMode)) {
+            for (int f = 0; f < shares.length; f++) {
+                if (Math.abs(shares[f] * navs[row + f] / invested - targetWeights[f]) > driftThreshold) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 组合回测汇总结果
+     */
+    public static final class Result {
+
+        private final double initialAssets;
+
+        private final double finalCash;
+
+        private final double[] finalValues;
+
+        private final double maxDrawdown;
+
+        private final double meanDailyReturn;
+
+        private final double dailyVolatility;
+
+        private final int tradingDays;
+
+        private final double tradedAmount;
+
+        private final int rebalances;
+
+        private final int upPositionChanges;
+
+        private final int downPositionChanges;
+
+        Result(double initialAssets, double finalCash, double[] finalValues, double maxDrawdown,
+               double meanDailyReturn, double dailyVolatility, int tradingDays, double tradedAmount,
+               int rebalances, int upPositionChanges, int downPositionChanges) {
+            this.initialAssets = initialAssets;
+            this.finalCash = finalCash;
+            this.finalValues = finalValues;
+            this.maxDrawdown = maxDrawdown;
+            this.meanDailyReturn = meanDailyReturn;
+            this.dailyVolatility = dailyVolatility;
+            this.tradingDays = tradingDays;
+            this.tradedAmount = tradedAmount;
+            this.rebalances = rebalances;
+            this.upPositionChanges = upPositionChanges;
+            this.downPositionChanges = downPositionChanges;
+        }
+
+        public double getFinalCash() {
+            return finalCash;
+        }
+
+        /**
+         * 期末某只基金的持仓市值
+         */
+        public double getFinalValue(int fund) {
+            return finalValues[fund];
+        }
+
+        public double getTotalAssets() {
+            double total = finalCash;
+            for (double value : finalValues) {
+                total += value;
+            }
+            return total;
+        }
+
+        /**
+         * 总收益率（%）
+         */
+        public double getReturnRate() {
+            return (getTotalAssets() / initialAssets - 1) * 100;
+        }
+
+        /**
+         * 年化收益率（%），按每年252个交易日折算
+         */
+        public double getAnnualizedReturn() {
+            if (tradingDays < 2) {
+                return 0;
+            }
+            double years = (tradingDays - 1) / (double) TRADING_DAYS_PER_YEAR;
+            return (Math.pow(getTotalAssets() / initialAssets, 1 / years) - 1) * 100;
+        }
+
+        /**
+         * 年化波动率（%）
+         */
+        public double getVolatility() {
+            return dailyVolatility * Math.sqrt(TRADING_DAYS_PER_YEAR) * 100;
+        }
+
+        /**
+         * 夏普比率（无风险利率按0计）
+         */
+        public double getSharpeRatio() {
+            return dailyVolatility > 0 ? meanDailyReturn / dailyVolatility * Math.sqrt(TRADING_DAYS_PER_YEAR) : 0;
+        }
+
+        /**
+         * 最大回撤（比例，非百分比）
+         */
+        public double getMaxDrawdown() {
+            return maxDrawdown;
+        }
+
+        public int getTradingDays() {
+            return tradingDays;
+        }
+
+        /**
+         * 累计成交金额（买卖双边合计）
+         */
+        public double getTradedAmount() {
+            return tradedAmount;
+        }
+
+        public int getRebalances() {
+            return rebalances;
+        }
+
+        public int getUpPositionChanges() {
+            return upPositionChanges;
+        }
+
+        public int getDownPositionChanges() {
+            return downPositionChanges;
+        }
+    }
+}
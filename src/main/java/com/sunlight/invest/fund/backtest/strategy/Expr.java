@@ -0,0 +1,45 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+/**
+ * 编译后的表达式节点
+ * <p>
+ * 表达式在编译时组合成 lambda 树，求值时只做数组读取和算术运算。
+ * 布尔结果用 1/0 表示，NaN（历史数据不足）视为假。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@FunctionalInterface
+interface Expr {
+
+    /**
+     * @param rule   绑定了行情数据和参数的规则
+     * @param day    交易日下标
+     * @param cash   当前现金
+     * @param shares 当前持仓份额
+     * @return 表达式的值
+     */
+    double eval(StrategyRule rule, int day, double cash, double shares);
+
+    /**
+     * 常量节点，编译时参与常量折叠
+     */
+    final class Const implements Expr {
+
+        final double value;
+
+        Const(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double eval(StrategyRule rule, int day, double cash, double shares) {
+            return value;
+        }
+    }
+
+    static boolean truthy(double value) {
+        return value != 0 && !Double.isNaN(value);
+    }
+}
@@ -0,0 +1,428 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 策略表达式解析器（递归下降）
+ * <p>
+ * 解析的同时直接生成 {@link Expr} lambda 树：变量和函数在编译时解析为数组下标读取，
+ * 常量子表达式折叠为 {@link Expr.Const}，滑动窗口指标登记到共享的指标列表，
+ * 求值时按槽位读取预先算好的整列。
+ * </p>
+ * <pre>
+ * or      := and ('||' and)*
+ * and     := compare ('&amp;&amp;' compare)*
+ * compare := sum (('&lt;' | '&lt;=' | '&gt;' | '&gt;=' | '==' | '!=') sum)?
+ * sum     := product (('+' | '-') product)*
+ * product := unary (('*' | '/') unary)*
+ * unary   := ('-' | '!') unary | primary
+ * primary := number | name | name '(' args ')' | '(' or ')'
+ * </pre>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+final class ExpressionParser {
+
+    /**
+     * 窗口长度上限（交易日）
+     */
+    static final int MAX_WINDOW = 2500;
+
+    /**
+     * 表达式长度上限（字符）
+     */
+    static final int MAX_LENGTH = 4096;
+
+    /**
+     * 表达式树深度和括号、一元运算符嵌套层数上限，避免解析和逐日求值时栈溢出
+     */
+    static final int MAX_DEPTH = 64;
+
+    private final String source;
+
+    private final Map<String, Integer> indicatorSlots;
+
+    private final List<IndicatorSpec> indicators;
+
+    /**
+     * 非常量节点的深度，未登记的叶子节点深度为 1
+     */
+    private final Map<Expr, Integer> depths = new IdentityHashMap<>();
+
+    private int pos;
+
+    private int nesting;
+
+    ExpressionParser(String source, Map<String, Integer> indicatorSlots, List<IndicatorSpec> indicators) {
+        this.source = source;
+        this.indicatorSlots = indicatorSlots;
+        this.indicators = indicators;
+    }
+
+    /**
+     * 解析完整表达式
+     */
+    Expr parse() {
+        Expr expr = parseOr();
+        skipSpaces();
+        if (pos < source.length()) {
+            throw error("无法识别的内容 '" + source.charAt(pos) + "'");
+        }
+        return expr;
+    }
+
+    private Expr parseOr() {
+        Expr left = parseAnd();
+        while (accept("||")) {
+            Expr l = left;
+            Expr r = parseAnd();
+            left = fold((rule, d, c, s) -> Expr.truthy(l.eval(rule, d, c, s)) || Expr.truthy(r.eval(rule, d, c, s)) ? 1 : 0,
+                    l, r);
+        }
+        return left;
+    }
+
+    private Expr parseAnd() {
+        Expr left = parseCompare();
+        while (accept("&&")) {
+            Expr l = left;
+            Expr r = parseCompare();
+            left = fold((rule, d, c, s) -> Expr.truthy(l.eval(rule, d, c, s)) && Expr.truthy(r.eval(rule, d, c, s)) ? 1 : 0,
+                    l, r);
+        }
+        return left;
+    }
+
+    private Expr parseCompare() {
+        Expr l = parseSum();
+        Expr compare;
+        if (accept("<=")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) <= r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        if (accept(">=")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) >= r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        if (accept("==")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) == r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        if (accept("!=")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) != r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        if (accept("<")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) < r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        if (accept(">")) {
+            Expr r = parseSum();
+            compare = (rule, d, c, s) -> l.eval(rule, d, c, s) > r.eval(rule, d, c, s) ? 1 : 0;
+            return fold(compare, l, r);
+        }
+        return l;
+    }
+
+    private Expr parseSum() {
+        Expr left = parseProduct();
+        while (true) {
+            Expr l = left;
+            if (accept("+")) {
+                Expr r = parseProduct();
+                left = fold((rule, d, c, s) -> l.eval(rule, d, c, s) + r.eval(rule, d, c, s), l, r);
+            } else if (accept("-")) {
+                Expr r = parseProduct();
+                left = fold((rule, d, c, s) -> l.eval(rule, d, c, s) - r.eval(rule, d, c, s), l, r);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr parseProduct() {
+        Expr left = parseUnary();
+        while (true) {
+            Expr l = left;
+            if (accept("*")) {
+                Expr r = parseUnary();
+                left = fold((rule, d, c, s) -> l.eval(rule, d, c, s) * r.eval(rule, d, c, s), l, r);
+            } else if (accept("/")) {
+                Expr r = parseUnary();
+                left = fold((rule, d, c, s) -> l.eval(rule, d, c, s) / r.eval(rule, d, c, s), l, r);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr parseUnary() {
+        if (accept("-")) {
+            enter();
+            Expr operand = parseUnary();
+            nesting--;
+            return fold((rule, d, c, s) -> -operand.eval(rule, d, c, s), operand);
+        }
+        if (accept("!")) {
+            enter();
+            Expr operand = parseUnary();
+            nesting--;
+            return fold((rule, d, c, s) -> Expr.truthy(operand.eval(rule, d, c, s)) ? 0 : 1, operand);
+        }
+        return parsePrimary();
+    }
+
+    private Expr parsePrimary() {
+        skipSpaces();
+        if (pos >= source.length()) {
+            throw error("表达式不完整");
+        }
+        char ch = source.charAt(pos);
+        if (ch == '(') {
+            pos++;
+            enter();
+            Expr inner = parseOr();
+            nesting--;
+            expect(")");
+            return inner;
+        }
+        if (Character.isDigit(ch) || ch == '.') {
+            return new Expr.Const(parseNumber());
+        }
+        if (Character.isLetter(ch)) {
+            int start = pos;
+            String name = parseName();
+            if (accept("(")) {
+                List<Expr> args = new ArrayList<>();
+                if (!accept(")")) {
+                    enter();
+                    do {
+                        args.add(parseOr());
+                    } while (accept(","));
+                    nesting--;
+                    expect(")");
+                }
+                return function(name, args, start);
+            }
+            return variable(name, start);
+        }
+        throw error("无法识别的内容 '" + ch + "'");
+    }
+
+    /**
+     * 变量：持仓状态和策略参数
+     */
+    private Expr variable(String name, int start) {
+        switch (name) {
+            case "cash":
+                return (rule, d, c, s) -> c;
+            case "shares":
+                return (rule, d, c, s) -> s;
+            case "price":
+                return (rule, d, c, s) -> rule.navs[d];
+            case "value":
+                return (rule, d, c, s) -> s * rule.navs[d];
+            case "total":
+                return (rule, d, c, s) -> c + s * rule.navs[d];
+            case "upThreshold":
+                return (rule, d, c, s) -> rule.upThreshold;
+            case "downThreshold":
+                return (rule, d, c, s) -> rule.downThreshold;
+            case "upPositionChange":
+                return (rule, d, c, s) -> rule.upPositionChange;
+            case "downPositionChange":
+                return (rule, d, c, s) -> rule.downPositionChange;
+            default:
+                throw error("未知变量 '" + name + "'", start);
+        }
+    }
+
+    /**
+     * 函数：行情回看、滑动窗口指标和数学函数
+     */
+    private Expr function(String name, List<Expr> args, int start) {
+        switch (name) {
+            case "idx": {
+                int lag = constantInt(name, args, 1, start);
+                return (rule, d, c, s) -> d >= lag ? rule.changes[d - lag] : Double.NaN;
+            }
+            case "ret": {
+                int lag = constantInt(name, args, 1, start);
+                return (rule, d, c, s) -> d > lag ? (rule.navs[d - lag] / rule.navs[d - lag - 1] - 1) * 100 : Double.NaN;
+            }
+            case "nav": {
+                int lag = constantInt(name, args, 1, start);
+                return (rule, d, c, s) -> d >= lag ? rule.navs[d - lag] : Double.NaN;
+            }
+            case "min": {
+                arity(name, args, 2, start);
+                Expr a = args.get(0);
+                Expr b = args.get(1);
+                return fold((rule, d, c, s) -> Math.min(a.eval(rule, d, c, s), b.eval(rule, d, c, s)), a, b);
+            }
+            case "max": {
+                arity(name, args, 2, start);
+                Expr a = args.get(0);
+                Expr b = args.get(1);
+                return fold((rule, d, c, s) -> Math.max(a.eval(rule, d, c, s), b.eval(rule, d, c, s)), a, b);
+            }
+            case "abs": {
+                arity(name, args, 1, start);
+                Expr a = args.get(0);
+                return fold((rule, d, c, s) -> Math.abs(a.eval(rule, d, c, s)), a);
+            }
+            default:
+                Indicator indicator = Indicator.of(name);
+                if (indicator == null) {
+                    throw error("未知函数 '" + name + "'", start);
+                }
+                int window = constantInt(name, args, indicator == Indicator.VOLATILITY ? 2 : 1, start);
+                int slot = slot(indicator, window);
+                return (rule, d, c, s) -> rule.columns[slot][d];
+        }
+    }
+
+    private int slot(Indicator indicator, int window) {
+        String key = indicator.function() + ":" + window;
+        Integer slot = indicatorSlots.get(key);
+        if (slot == null) {
+            slot = indicators.size();
+            indicators.add(new IndicatorSpec(indicator, window));
+            indicatorSlots.put(key, slot);
+        }
+        return slot;
+    }
+
+    private int constantInt(String name, List<Expr> args, int min, int start) {
+        arity(name, args, 1, start);
+        if (!(args.get(0) instanceof Expr.Const)) {
+            throw error(name + "() 的参数必须是常数", start);
+        }
+        double value = ((Expr.Const) args.get(0)).value;
+        if (value != Math.rint(value) || value < min || value > MAX_WINDOW) {
+            throw error(name + "() 的参数必须是 " + min + " 到 " + MAX_WINDOW + " 之间的整数", start);
+        }
+        return (int) value;
+    }
+
+    private void arity(String name, List<Expr> args, int expected, int start) {
+        if (args.size() != expected) {
+            throw error(name + "() 需要 " + expected + " 个参数", start);
+        }
+    }
+
+    /**
+     * 所有操作数都是常量时折叠为常量，否则登记节点深度
+     */
+    private Expr fold(Expr expr, Expr... operands) {
+        boolean constant = true;
+        int depth = 0;
+        for (Expr operand : operands) {
+            if (!(operand instanceof Expr.Const)) {
+                constant = false;
+            }
+            depth = Math.max(depth, depthOf(operand));
+        }
+        if (constant) {
+            return new Expr.Const(expr.eval(null, 0, 0, 0));
+        }
+        if (depth >= MAX_DEPTH) {
+            throw error("表达式层数超过 " + MAX_DEPTH);
+        }
+        depths.put(expr, depth + 1);
+        return expr;
+    }
+
+    private int depthOf(Expr expr) {
+        Integer depth = depths.get(expr);
+        return depth == null ? 1 : depth;
+    }
+
+    /**
+     * 进入一层括号、函数参数或一元运算符
+     */
+    private void enter() {
+        if (++nesting > MAX_DEPTH) {
+            throw error("表达式嵌套超过 " + MAX_DEPTH + " 层");
+        }
+    }
+
+    private double parseNumber() {
+        int start = pos;
+        while (pos < source.length() && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            return Double.parseDouble(source.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("数字格式错误", start);
+        }
+    }
+
+    private String parseName() {
+        int start = pos;
+        while (pos < source.length() && Character.isLetterOrDigit(source.charAt(pos))) {
+            pos++;
+        }
+        return source.substring(start, pos);
+    }
+
+    private boolean accept(String token) {
+        skipSpaces();
+        if (!source.startsWith(token, pos)) {
+            return false;
+        }
+        // 避免把 '<=' 拆成 '<' 和 '='，把 '!=' 当成 '!'
+        if ((token.equals("<") || token.equals(">") || token.equals("!"))
+                && source.startsWith("=", pos + 1)) {
+            return false;
+        }
+        pos += token.length();
+        return true;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("缺少 '" + token + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, pos);
+    }
+
+    private IllegalArgumentException error(String message, int position) {
+        return new IllegalArgumentException("策略表达式错误（第 " + (position + 1) + " 个字符）: " + message
+                + "，表达式: " + source);
+    }
+
+    /**
+     * 已登记的指标列
+     */
+    static final class IndicatorSpec {
+
+        final Indicator indicator;
+
+        final int window;
+
+        IndicatorSpec(Indicator indicator, int window) {
+            this.indicator = indicator;
+            this.window = window;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+import java.util.Arrays;
+
+/**
+ * 滑动窗口指标
+ * <p>
+ * 窗口统计在绑定行情数据时一次性算成整列（前缀和、单调队列，均为 O(n)），
+ * 第 d 个交易日的值只使用 [d-n, d-1] 的数据，不含当日，历史不足时为 NaN。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+enum Indicator {
+
+    /**
+     * 净值简单移动平均
+     */
+    SMA("sma"),
+
+    /**
+     * 窗口内最高净值
+     */
+    HIGH("high"),
+
+    /**
+     * 窗口内最低净值
+     */
+    LOW("low"),
+
+    /**
+     * 窗口内指数涨跌幅累计（%）
+     */
+    INDEX_SUM("idxsum"),
+
+    /**
+     * 窗口内基金日收益率标准差（%）
+     */
+    VOLATILITY("vol");
+
+    private final String function;
+
+    Indicator(String function) {
+        this.function = function;
+    }
+
+    String function() {
+        return function;
+    }
+
+    static Indicator of(String function) {
+        for (Indicator indicator : values()) {
+            if (indicator.function.equals(function)) {
+                return indicator;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 计算整列指标值
+     *
+     * @param navs    基金净值
+     * @param changes 指数涨跌幅（%）
+     * @param window  窗口长度
+     * @return 与行情等长的指标列
+     */
+    double[] compute(double[] navs, double[] changes, int window) {
+        int n = navs.length;
+        double[] column = new double[n];
+        Arrays.fill(column, Double.NaN);
+        switch (this) {
+            case SMA:
+                movingSum(navs, 0, window, column);
+                for (int d = window; d < n; d++) {
+                    column[d] /= window;
+                }
+                break;
+            case INDEX_SUM:
+                movingSum(changes, 0, window, column);
+                break;
+            case HIGH:
+            case LOW:
+                movingExtreme(navs, window, this == HIGH, column);
+                break;
+            case VOLATILITY:
+                volatility(navs, window, column);
+                break;
+            default:
+                throw new IllegalStateException(name());
+        }
+        return column;
+    }
+
+    /**
+     * column[d] = values[d-window] + ... + values[d-1]，要求 d-window >= first
+     */
+    private static void movingSum(double[] values, int first, int window, double[] column) {
+        double sum = 0;
+        for (int d = first; d < values.length; d++) {
+            if (d - first >= window) {
+                column[d] = sum;
+                sum -= values[d - window];
+            }
+            sum += values[d];
+        }
+    }
+
+    private static void movingExtreme(double[] values, int window, boolean max, double[] column) {
+        int[] deque = new int[values.length];
+        int head = 0;
+        int tail = 0;
+        for (int d = 0; d < values.length; d++) {
+            if (d >= window) {
+                while (deque[head] < d - window) {
+                    head++;
+                }
+                column[d] = values[deque[head]];
+            }
+            double value = values[d];
+            while (tail > head && (max ? values[deque[tail - 1]] <= value : values[deque[tail - 1]] >= value)) {
+                tail--;
+            }
+            deque[tail++] = d;
+        }
+    }
+
+    private static void volatility(double[] navs, int window, double[] column) {
+        if (window < 2) {
+            return;
+        }
+        int n = navs.length;
+        double[] returns = new double[n];
+        double[] squares = new double[n];
+        for (int d = 1; d < n; d++) {
+            returns[d] = (navs[d] / navs[d - 1] - 1) * 100;
+            squares[d] = returns[d] * returns[d];
+        }
+        double[] sums = new double[n];
+        double[] squareSums = new double[n];
+        Arrays.fill(sums, Double.NaN);
+        Arrays.fill(squareSums, Double.NaN);
+        movingSum(returns, 1, window, sums);
+        movingSum(squares, 1, window, squareSums);
+        for (int d = window + 1; d < n; d++) {
+            double mean = sums[d] / window;
+            double variance = (squareSums[d] - window * mean * mean) / (window - 1);
+            column[d] = Math.sqrt(Math.max(0, variance));
+        }
+    }
+}
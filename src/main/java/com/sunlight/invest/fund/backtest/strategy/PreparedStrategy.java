@@ -0,0 +1,53 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+import com.sunlight.invest.fund.backtest.service.BacktestKernel;
+
+/**
+ * 已绑定行情数据的策略
+ * <p>
+ * 策略引用的滑动窗口指标在构造时按整列算好，之后只读；
+ * 参数寻优时同一份行情只需准备一次，每个参数组合再生成各自的规则。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class PreparedStrategy {
+
+    private final StrategyProgram program;
+
+    private final double[] navs;
+
+    private final double[] changes;
+
+    private final double[][] columns;
+
+    PreparedStrategy(StrategyProgram program, double[] navs, double[] changes) {
+        if (navs.length != changes.length) {
+            throw new IllegalArgumentException("行情数组长度不一致");
+        }
+        this.program = program;
+        this.navs = navs;
+        this.changes = changes;
+        this.columns = new double[program.indicators.size()][];
+        for (int k = 0; k < columns.length; k++) {
+            ExpressionParser.IndicatorSpec spec = program.indicators.get(k);
+            columns[k] = spec.indicator.compute(navs, changes, spec.window);
+        }
+    }
+
+    /**
+     * 生成交易规则，表达式中的策略参数取本次给定的值
+     *
+     * @param upThreshold        涨幅阈值（%）
+     * @param downThreshold      跌幅阈值（%）
+     * @param upPositionChange   加仓金额
+     * @param downPositionChange 减仓金额
+     * @return 交易规则，须与准备时的行情数组一起传给回测内核
+     */
+    public BacktestKernel.Rule rule(double upThreshold, double downThreshold,
+                                    double upPositionChange, double downPositionChange) {
+        return new StrategyRule(program, navs, changes, columns,
+                upThreshold, downThreshold, upPositionChange, downPositionChange);
+    }
+}
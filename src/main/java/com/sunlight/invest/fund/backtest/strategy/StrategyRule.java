@@ -0,0 +1,57 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+import com.sunlight.invest.fund.backtest.service.BacktestKernel;
+
+/**
+ * 绑定了行情数据和策略参数的交易规则
+ * <p>
+ * 字段供编译后的表达式直接读取；实例不可变，可在多个回测线程间共享。
+ * 先判断减仓条件，再判断加仓条件，与内置规则的优先级一致；仓位金额非正或为 NaN 时视为不操作。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+final class StrategyRule implements BacktestKernel.Rule {
+
+    final double[] navs;
+
+    final double[] changes;
+
+    final double[][] columns;
+
+    final double upThreshold;
+
+    final double downThreshold;
+
+    final double upPositionChange;
+
+    final double downPositionChange;
+
+    private final StrategyProgram program;
+
+    StrategyRule(StrategyProgram program, double[] navs, double[] changes, double[][] columns,
+                 double upThreshold, double downThreshold, double upPositionChange, double downPositionChange) {
+        this.program = program;
+        this.navs = navs;
+        this.changes = changes;
+        this.columns = columns;
+        this.upThreshold = upThreshold;
+        this.downThreshold = downThreshold;
+        this.upPositionChange = upPositionChange;
+        this.downPositionChange = downPositionChange;
+    }
+
+    @Override
+    public double decide(int day, double capital, double holdings) {
+        if (Expr.truthy(program.sellWhen.eval(this, day, capital, holdings))) {
+            double amount = program.sellAmount.eval(this, day, capital, holdings);
+            return amount > 0 ? -amount : 0;
+        }
+        if (Expr.truthy(program.buyWhen.eval(this, day, capital, holdings))) {
+            double amount = program.buyAmount.eval(this, day, capital, holdings);
+            return amount > 0 ? amount : 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.sunlight.invest.fund.monitor.controller;
+
+import com.sunlight.invest.fund.monitor.service.CorrelationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 相关性分析控制器
+ * <p>
+ * 提供监控基金和指数之间的相关系数矩阵、高相关标的对查询和手动重算接口
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@RestController
+@RequestMapping("/api/fund/correlation")
+@CrossOrigin(origins = "*")
+public class CorrelationController {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrelationController.class);
+
+    @Autowired
+    private CorrelationService correlationService;
+
+    /**
+     * 获取相关系数矩阵
+     *
+     * @return 标的列表和矩阵
+     */
+    @GetMapping("/matrix")
+    public Map<String, Object> getMatrix() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("success", true);
+            result.put("data", correlationService.getMatrix());
+        } catch (Exception e) {
+            log.error("获取相关系数矩阵失败", e);
+            result.put("success", false);
+            result.put("message", "获取相关系数矩阵失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取相关性最高或最低的标的对
+     *
+     * @param limit 数量
+     * @param order desc-相关性最高，asc-相关性最低
+     * @return 标的对列表
+     */
+    @GetMapping("/top-pairs")
+    public Map<String, Object> getTopPairs(@RequestParam(defaultValue = "20") int limit,
+                                           @RequestParam(defaultValue = "desc") String order) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            List<Map<String, Object>> pairs = correlationService.getTopPairs(limit, !"asc".equalsIgnoreCase(order));
+
+            result.put("success", true);
+            result.put("data", pairs);
+            result.put("count", pairs.size());
+        } catch (Exception e) {
+            log.error("获取高相关标的对失败", e);
+            result.put("success", false);
+            result.put("message", "获取高相关标的对失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 获取相关性引擎状态
+     *
+     * @return 状态信息
+     */
+    @GetMapping("/status")
+    public Map<String, Object> getStatus() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", correlationService.getStatus());
+        return result;
+    }
+
+    /**
+     * 手动全量重算
+     *
+     * @return 重算后的状态
+     */
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            correlationService.rebuild();
+
+            result.put("success", true);
+            result.put("message", "相关系数矩阵已重算");
+            result.put("data", correlationService.getStatus());
+        } catch (Exception e) {
+            log.error("重算相关系数矩阵失败", e);
+            result.put("success", false);
+            result.put("message", "重算相关系数矩阵失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sunlight.invest.fund.monitor.controller;
+
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import com.sunlight.invest.fund.monitor.service.CrawlRetryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 抓取重试队列控制器
+ * <p>
+ * 提供重试任务查询、统计和死信重新投递接口
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@RestController
+@RequestMapping("/api/fund/crawl-retry")
+@CrossOrigin(origins = "*")
+public class CrawlRetryController {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlRetryController.class);
+
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+
+    /**
+     * 查询重试任务
+     *
+     * @param status 状态（PENDING/SUCCESS/DEAD，可选）
+     * @param limit  最大数量
+     * @return 任务列表
+     */
+    @GetMapping("/tasks")
+    public Map<String, Object> listTasks(@RequestParam(required = false) String status,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            List<CrawlRetryTask> tasks = crawlRetryService.listTasks(status, limit);
+
+            result.put("success", true);
+            result.put("data", tasks);
+            result.put("count", tasks.size());
+        } catch (Exception e) {
+            log.error("查询重试任务失败", e);
+            result.put("success", false);
+            result.put("message", "查询重试任务失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 统计待重试和死信任务数量
+     *
+     * @return 统计结果
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("success", true);
+            result.put("data", crawlRetryService.getStats());
+        } catch (Exception e) {
+            log.error("统计重试任务失败", e);
+            result.put("success", false);
+            result.put("message", "统计重试任务失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 重新投递死信任务
+     *
+     * @param ids 任务ID列表（为空时投递全部死信任务）
+     * @return 投递结果
+     */
+    @PostMapping("/redrive")
+    public Map<String, Object> redrive(@RequestBody(required = false) List<Long> ids) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            int count = crawlRetryService.redrive(ids);
+
+            result.put("success", true);
+            result.put("message", "已重新投递 " + count + " 个任务");
+            result.put("count", count);
+        } catch (Exception e) {
+            log.error("重新投递死信任务失败", e);
+            result.put("success", false);
+            result.put("message", "重新投递失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+}
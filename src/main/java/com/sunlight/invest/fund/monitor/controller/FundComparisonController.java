@@ -0,0 +1,81 @@
+package com.sunlight.invest.fund.monitor.controller;
+
+import com.sunlight.invest.fund.monitor.service.FundComparisonService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基金对比分析控制器
+ * <p>
+ * 提供多基金收益曲线、相关性、贝塔系数和回撤对比接口
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@RestController
+@RequestMapping("/api/fund/compare")
+@CrossOrigin(origins = "*")
+public class FundComparisonController {
+
+    private static final Logger log = LoggerFactory.getLogger(FundComparisonController.class);
+
+    @Autowired
+    private FundComparisonService fundComparisonService;
+
+    /**
+     * 对比多只基金
+     *
+     * @param codes     基金代码，逗号分隔
+     * @param days      对比区间天数
+     * @param indexCode 计算贝塔系数使用的指数代码
+     * @return 对比结果
+     */
+    @GetMapping
+    public Map<String, Object> compare(@RequestParam String codes,
+                                       @RequestParam(defaultValue = "365") int days,
+                                       @RequestParam(defaultValue = FundComparisonService.DEFAULT_INDEX_CODE) String indexCode) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            List<String> fundCodes = new ArrayList<>();
+            for (String code : codes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    fundCodes.add(code.trim());
+                }
+            }
+
+            result.put("success", true);
+            result.put("data", fundComparisonService.compare(fundCodes, days, indexCode));
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } catch (Exception e) {
+            log.error("基金对比分析失败: codes={}", codes, e);
+            result.put("success", false);
+            result.put("message", "基金对比分析失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 查询对比结果缓存统计
+     *
+     * @return 缓存统计
+     */
+    @GetMapping("/cache-stats")
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("data", fundComparisonService.getCacheStats());
+        return result;
+    }
+}
@@ -1,11 +1,16 @@
 package com.sunlight.invest.fund.monitor.controller;
 
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
 import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
 import com.sunlight.invest.fund.monitor.entity.MonitorFund;
 import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
 import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import com.sunlight.invest.fund.monitor.service.CrawlRetryService;
 import com.sunlight.invest.fund.monitor.service.FundCrawlerService;
 import com.sunlight.invest.fund.monitor.service.FundMonitorService;
+import com.sunlight.invest.fund.monitor.service.FundNavService;
+import com.sunlight.invest.fund.monitor.service.NavPollingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,9 +47,18 @@ public class FundMonitorController {
     @Autowired
     private FundNavMapper fundNavMapper;
 
+    @Autowired
+    private FundNavService fundNavService;
+
     @Autowired
     private MonitorFundMapper monitorFundMapper;
 
+    @Autowired
+    private NavPollingService navPollingService;
+
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+
     /**
      * 手动触发数据抓取
      *
@@ -67,8 +81,9 @@ public class FundMonitorController {
             LocalDate end = endDate != null ? LocalDate.parse(endDate) : LocalDate.now();
             LocalDate start = startDate != null ? LocalDate.parse(startDate) : end.minusYears(20);
             
-            // 按年分批抓取数据，每次抓取一年的数据
+            // 按年分批抓取数据，每次抓取一年的数据；某一年失败时加入重试队列，继续抓取其余年份
             int totalCount = 0;
+            int failedCount = 0;
             LocalDate currentEnd = end;
             
             // 循环20次，每次处理一年的数据
@@ -82,11 +97,18 @@ public class FundMonitorController {
                 log.info("开始抓取基金数据: fundCode={}, fundName={}, startDate={}, endDate={}", 
                         fundCode, fundName, currentStart, currentEnd);
                 
-                int count = fundCrawlerService.crawlAndSave(fundCode, fundName, currentStart, currentEnd);
-                totalCount += count;
-                
-                log.info("完成抓取基金数据: fundCode={}, fundName={}, startDate={}, endDate={}, count={}", 
-                        fundCode, fundName, currentStart, currentEnd, count);
+                try {
+                    int count = fundCrawlerService.crawlAndSave(fundCode, fundName, currentStart, currentEnd);
+                    totalCount += count;
+
+                    log.info("完成抓取基金数据: fundCode={}, fundName={}, startDate={}, endDate={}, count={}", 
+                            fundCode, fundName, currentStart, currentEnd, count);
+                } catch (Exception e) {
+                    failedCount++;
+                    log.error("抓取基金数据失败，加入重试队列: fundCode={}, startDate={}, endDate={}",
+                            fundCode, currentStart, currentEnd, e);
+                    crawlRetryService.enqueue(CrawlRetryTask.TYPE_FUND, fundCode, fundName, currentStart, currentEnd, e);
+                }
                 
                 // 更新下一批次的时间范围
                 currentEnd = currentStart.minusDays(1);
@@ -96,8 +118,11 @@ public class FundMonitorController {
             }
 
             result.put("success", true);
-            result.put("message", "数据抓取成功，总共更新记录数: " + totalCount);
+            result.put("message", failedCount == 0
+                    ? "数据抓取成功，总共更新记录数: " + totalCount
+                    : "数据抓取完成，总共更新记录数: " + totalCount + "，" + failedCount + " 个年度抓取失败，已加入重试队列");
             result.put("count", totalCount);
+            result.put("failedCount", failedCount);
             result.put("fundCode", fundCode);
             result.put("fundName", fundName);
         } catch (Exception e) {
@@ -330,11 +355,11 @@ public class FundMonitorController {
                 return result;
             }
 
-            // 如果监控基金表中没有，则尝试从基金净值表中查找
-            List<FundNav> fundNavs = fundNavMapper.selectByFundCode(fundCode, 1);
-            if (fundNavs != null && !fundNavs.isEmpty()) {
+            // 如果监控基金表中没有，则尝试从最新净值汇总表中查找
+            FundNavLatest latestNav = fundNavService.getLatest(fundCode);
+            if (latestNav != null) {
                 result.put("success", true);
-                result.put("fundName", fundNavs.get(0).getFundName());
+                result.put("fundName", latestNav.getFundName());
                 return result;
             }
 
@@ -359,8 +384,8 @@ public class FundMonitorController {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // 调用定时任务方法来执行所有基金的监控
-            fundMonitorService.scheduledMonitorTask();
+            // 手动触发不做交易日判断，直接执行所有基金的监控
+            fundMonitorService.runMonitorTask();
 
             result.put("success", true);
             result.put("message", "预警任务已触发，请查看日志了解执行详情");
@@ -372,6 +397,26 @@ public class FundMonitorController {
         return result;
     }
     
+    /**
+     * 查询晚间净值轮询状态
+     *
+     * @return 各基金的公布延迟、期望净值日期和退避状态
+     */
+    @GetMapping("/polling-status")
+    public Map<String, Object> getPollingStatus() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("success", true);
+            result.put("data", navPollingService.getPollingStatus());
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "查询轮询状态失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+    
     /**
      * 获取监控基金列表及其最新净值数据
      *
@@ -385,7 +430,13 @@ public class FundMonitorController {
             // 获取所有监控基金
             List<MonitorFund> funds = monitorFundMapper.selectAll();
             
-            // 为每个基金获取最新净值数据
+            // 一次查询所有基金的最新净值（主键读取汇总表）
+            List<String> fundCodes = new ArrayList<>();
+            for (MonitorFund fund : funds) {
+                fundCodes.add(fund.getFundCode());
+            }
+            Map<String, FundNavLatest> latestNavMap = fundNavService.getLatestMap(fundCodes);
+            
             List<Map<String, Object>> fundsWithNav = new ArrayList<>();
             for (MonitorFund fund : funds) {
                 Map<String, Object> fundData = new HashMap<>();
@@ -397,7 +448,7 @@ public class FundMonitorController {
                 fundData.put("updateTime", fund.getUpdateTime());
                 
                 // 获取基金最新净值
-                FundNav latestNav = fundNavMapper.selectLatest(fund.getFundCode());
+                FundNavLatest latestNav = latestNavMap.get(fund.getFundCode());
                 if (latestNav != null) {
                     fundData.put("latestNav", latestNav.getUnitNav());
                     fundData.put("latestReturn", latestNav.getDailyReturn());
@@ -0,0 +1,144 @@
+package com.sunlight.invest.fund.monitor.controller;
+
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+import com.sunlight.invest.fund.monitor.service.PerformanceMetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 业绩指标控制器
+ * <p>
+ * 提供基金和指数业绩指标的查询、排名和手动重算接口
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@RestController
+@RequestMapping("/api/fund/performance")
+@CrossOrigin(origins = "*")
+public class PerformanceMetricController {
+
+    private static final Logger log = LoggerFactory.getLogger(PerformanceMetricController.class);
+
+    @Autowired
+    private PerformanceMetricService performanceMetricService;
+
+    /**
+     * 查询某类标的的全部业绩指标
+     *
+     * @param type 标的类型（FUND/INDEX）
+     * @return 业绩指标列表
+     */
+    @GetMapping("/list")
+    public Map<String, Object> listMetrics(@RequestParam(defaultValue = PerformanceMetric.TYPE_FUND) String type) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            List<PerformanceMetric> metrics = performanceMetricService.listMetrics(type);
+
+            result.put("success", true);
+            result.put("data", metrics);
+            result.put("count", metrics.size());
+        } catch (Exception e) {
+            log.error("查询业绩指标失败", e);
+            result.put("success", false);
+            result.put("message", "查询业绩指标失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 查询单个标的的业绩指标
+     *
+     * @param type 标的类型（FUND/INDEX）
+     * @param code 基金代码或指数代码
+     * @return 业绩指标
+     */
+    @GetMapping("/detail")
+    public Map<String, Object> getMetric(@RequestParam(defaultValue = PerformanceMetric.TYPE_FUND) String type,
+                                         @RequestParam String code) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            PerformanceMetric metric = performanceMetricService.getMetric(type, code);
+            if (metric == null) {
+                result.put("success", false);
+                result.put("message", "暂无业绩指标: " + code);
+                return result;
+            }
+
+            result.put("success", true);
+            result.put("data", metric);
+        } catch (Exception e) {
+            log.error("查询业绩指标失败: {}", code, e);
+            result.put("success", false);
+            result.put("message", "查询业绩指标失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 按指标排名
+     *
+     * @param type   标的类型（FUND/INDEX）
+     * @param metric 指标名称（return1w/return1m/return3m/return6m/return1y/return3y/volatility1y/maxDrawdown1y/sharpe1y）
+     * @param limit  最大数量
+     * @return 排名列表
+     */
+    @GetMapping("/ranking")
+    public Map<String, Object> getRanking(@RequestParam(defaultValue = PerformanceMetric.TYPE_FUND) String type,
+                                          @RequestParam(defaultValue = "return1y") String metric,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            List<PerformanceMetric> ranking = performanceMetricService.getRanking(type, metric, limit);
+
+            result.put("success", true);
+            result.put("data", ranking);
+            result.put("count", ranking.size());
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } catch (Exception e) {
+            log.error("查询业绩排名失败", e);
+            result.put("success", false);
+            result.put("message", "查询业绩排名失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 手动全量重算业绩指标
+     *
+     * @return 重算结果
+     */
+    @PostMapping("/refresh")
+    public Map<String, Object> refresh() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            int count = performanceMetricService.refreshAll();
+
+            result.put("success", true);
+            result.put("message", "已重算 " + count + " 个标的的业绩指标");
+            result.put("count", count);
+        } catch (Exception e) {
+            log.error("重算业绩指标失败", e);
+            result.put("success", false);
+            result.put("message", "重算业绩指标失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sunlight.invest.fund.monitor.controller;
+
+import com.sunlight.invest.fund.monitor.service.SeriesArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 列式行情归档控制器
+ * <p>
+ * 提供基金净值和指数行情的归档导出及归档状态查询接口
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@RestController
+@RequestMapping("/api/fund/archive")
+@CrossOrigin(origins = "*")
+public class SeriesArchiveController {
+
+    private static final Logger log = LoggerFactory.getLogger(SeriesArchiveController.class);
+
+    @Autowired
+    private SeriesArchiveService seriesArchiveService;
+
+    /**
+     * 导出归档
+     * <p>
+     * 未指定代码时导出所有已入库净值的基金和支持的指数
+     * </p>
+     *
+     * @param fundCodes  基金代码，逗号分隔
+     * @param indexCodes 指数代码，逗号分隔
+     * @return 导出统计
+     */
+    @PostMapping("/export")
+    public Map<String, Object> export(@RequestParam(required = false) String fundCodes,
+                                      @RequestParam(required = false) String indexCodes) {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            if (isBlank(fundCodes) && isBlank(indexCodes)) {
+                result.put("data", seriesArchiveService.exportAll());
+            } else {
+                Map<String, Object> rows = new LinkedHashMap<>();
+                for (String code : split(fundCodes)) {
+                    rows.put("fund:" + code, seriesArchiveService.exportFund(code));
+                }
+                for (String code : split(indexCodes)) {
+                    rows.put("index:" + code, seriesArchiveService.exportIndex(code));
+                }
+                result.put("data", rows);
+            }
+            result.put("success", true);
+            result.put("message", "归档导出完成");
+        } catch (IllegalArgumentException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        } catch (Exception e) {
+            log.error("归档导出失败: fundCodes={}, indexCodes={}", fundCodes, indexCodes, e);
+            result.put("success", false);
+            result.put("message", "归档导出失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * 查询归档状态
+     *
+     * @return 归档目录和文件统计
+     */
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new HashMap<>();
+
+        try {
+            result.put("success", true);
+            result.put("data", seriesArchiveService.getStats());
+        } catch (Exception e) {
+            log.error("查询归档状态失败", e);
+            result.put("success", false);
+            result.put("message", "查询归档状态失败: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String[] split(String codes) {
+        if (isBlank(codes)) {
+            return new String[0];
+        }
+        return codes.trim().split("\\s*,\\s*");
+    }
+}
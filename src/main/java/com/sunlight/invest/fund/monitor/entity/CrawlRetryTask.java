@@ -0,0 +1,192 @@
+package com.sunlight.invest.fund.monitor.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 抓取重试任务实体类
+ * <p>
+ * 记录抓取失败的基金/指数，由定时任务按退避时间重试，超过最大次数后进入死信状态
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+public class CrawlRetryTask {
+
+    public static final String TYPE_FUND = "FUND";
+    public static final String TYPE_INDEX = "INDEX";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SUCCESS = "SUCCESS";
+    public static final String STATUS_DEAD = "DEAD";
+    
+    /**
+     * 主键ID
+     */
+    private Long id;
+    
+    /**
+     * 任务类型：FUND-基金净值，INDEX-指数行情
+     */
+    private String taskType;
+    
+    /**
+     * 基金代码或指数代码
+     */
+    private String targetCode;
+    
+    /**
+     * 基金名称或指数名称
+     */
+    private String targetName;
+    
+    /**
+     * 抓取开始日期
+     */
+    private LocalDate startDate;
+    
+    /**
+     * 抓取结束日期
+     */
+    private LocalDate endDate;
+    
+    /**
+     * 状态：PENDING-待重试，SUCCESS-已成功，DEAD-已放弃
+     */
+    private String status;
+    
+    /**
+     * 已重试次数
+     */
+    private Integer attempts;
+    
+    /**
+     * 下次重试时间
+     */
+    private LocalDateTime nextRetryTime;
+    
+    /**
+     * 最近一次错误信息
+     */
+    private String lastError;
+    
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTaskType() {
+        return taskType;
+    }
+
+    public void setTaskType(String taskType) {
+        this.taskType = taskType;
+    }
+
+    public String getTargetCode() {
+        return targetCode;
+    }
+
+    public void setTargetCode(String targetCode) {
+        this.targetCode = targetCode;
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    public void setTargetName(String targetName) {
+        this.targetName = targetName;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextRetryTime() {
+        return nextRetryTime;
+    }
+
+    public void setNextRetryTime(LocalDateTime nextRetryTime) {
+        this.nextRetryTime = nextRetryTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CrawlRetryTask{" +
+                "id=" + id +
+                ", taskType='" + taskType + '\'' +
+                ", targetCode='" + targetCode + '\'' +
+                ", status='" + status + '\'' +
+                ", attempts=" + attempts +
+                ", nextRetryTime=" + nextRetryTime +
+                '}';
+    }
+}
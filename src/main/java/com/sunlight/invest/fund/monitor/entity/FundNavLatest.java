@@ -0,0 +1,184 @@
+package com.sunlight.invest.fund.monitor.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 基金最新净值汇总实体类
+ * <p>
+ * 每只基金一行，保存最新净值及滚动统计，随净值写入同步维护，
+ * 查询最新净值时按主键读取，无需扫描净值明细表
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+public class FundNavLatest {
+    
+    /**
+     * 基金代码
+     */
+    private String fundCode;
+    
+    /**
+     * 基金名称
+     */
+    private String fundName;
+    
+    /**
+     * 最新净值日期
+     */
+    private LocalDate navDate;
+    
+    /**
+     * 最新单位净值
+     */
+    private BigDecimal unitNav;
+    
+    /**
+     * 最新日涨跌幅（百分比）
+     */
+    private BigDecimal dailyReturn;
+    
+    /**
+     * 净值记录数
+     */
+    private Integer navCount;
+    
+    /**
+     * 最早净值日期
+     */
+    private LocalDate firstNavDate;
+    
+    /**
+     * 近5个交易日涨跌幅（百分比）
+     */
+    private BigDecimal return5d;
+    
+    /**
+     * 近20个交易日涨跌幅（百分比）
+     */
+    private BigDecimal return20d;
+    
+    /**
+     * 近60个交易日最高净值
+     */
+    private BigDecimal high60d;
+    
+    /**
+     * 相对近60个交易日最高净值的回撤（百分比）
+     */
+    private BigDecimal drawdown60d;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 转换为净值对象，便于沿用按 FundNav 处理的逻辑
+     *
+     * @return 最新一条净值
+     */
+    public FundNav toFundNav() {
+        return new FundNav(fundCode, fundName, navDate, unitNav, dailyReturn);
+    }
+
+    // Getters and Setters
+    public String getFundCode() {
+        return fundCode;
+    }
+
+    public void setFundCode(String fundCode) {
+        this.fundCode = fundCode;
+    }
+
+    public String getFundName() {
+        return fundName;
+    }
+
+    public void setFundName(String fundName) {
+        this.fundName = fundName;
+    }
+
+    public LocalDate getNavDate() {
+        return navDate;
+    }
+
+    public void setNavDate(LocalDate navDate) {
+        this.navDate = navDate;
+    }
+
+    public BigDecimal getUnitNav() {
+        return unitNav;
+    }
+
+    public void setUnitNav(BigDecimal unitNav) {
+        this.unitNav = unitNav;
+    }
+
+    public BigDecimal getDailyReturn() {
+        return dailyReturn;
+    }
+
+    public void setDailyReturn(BigDecimal dailyReturn) {
+        this.dailyReturn = dailyReturn;
+    }
+
+    public Integer getNavCount() {
+        return navCount;
+    }
+
+    public void setNavCount(Integer navCount) {
+        this.navCount = navCount;
+    }
+
+    public LocalDate getFirstNavDate() {
+        return firstNavDate;
+    }
+
+    public void setFirstNavDate(LocalDate firstNavDate) {
+        this.firstNavDate = firstNavDate;
+    }
+
+    public BigDecimal getReturn5d() {
+        return return5d;
+    }
+
+    public void setReturn5d(BigDecimal return5d) {
+        this.return5d = return5d;
+    }
+
+    public BigDecimal getReturn20d() {
+        return return20d;
+    }
+
+    public void setReturn20d(BigDecimal return20d) {
+        this.return20d = return20d;
+    }
+
+    public BigDecimal getHigh60d() {
+        return high60d;
+    }
+
+    public void setHigh60d(BigDecimal high60d) {
+        this.high60d = high60d;
+    }
+
+    public BigDecimal getDrawdown60d() {
+        return drawdown60d;
+    }
+
+    public void setDrawdown60d(BigDecimal drawdown60d) {
+        this.drawdown60d = drawdown60d;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,217 @@
+package com.sunlight.invest.fund.monitor.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 业绩指标实体类
+ * <p>
+ * 每只基金或指数一行，保存各区间涨跌幅以及近1年的波动率、最大回撤和夏普比率，
+ * 由定时任务根据净值/行情数据预先计算
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public class PerformanceMetric {
+
+    public static final String TYPE_FUND = "FUND";
+    public static final String TYPE_INDEX = "INDEX";
+    
+    /**
+     * 标的类型：FUND-基金，INDEX-指数
+     */
+    private String targetType;
+    
+    /**
+     * 基金代码或指数代码
+     */
+    private String targetCode;
+    
+    /**
+     * 基金名称或指数名称
+     */
+    private String targetName;
+    
+    /**
+     * 计算基准日（最新净值/行情日期）
+     */
+    private LocalDate asOfDate;
+    
+    /**
+     * 近1周涨跌幅（百分比）
+     */
+    private BigDecimal return1w;
+    
+    /**
+     * 近1月涨跌幅（百分比）
+     */
+    private BigDecimal return1m;
+    
+    /**
+     * 近3月涨跌幅（百分比）
+     */
+    private BigDecimal return3m;
+    
+    /**
+     * 近6月涨跌幅（百分比）
+     */
+    private BigDecimal return6m;
+    
+    /**
+     * 近1年涨跌幅（百分比）
+     */
+    private BigDecimal return1y;
+    
+    /**
+     * 近3年涨跌幅（百分比）
+     */
+    private BigDecimal return3y;
+    
+    /**
+     * 近1年年化波动率（百分比）
+     */
+    private BigDecimal volatility1y;
+    
+    /**
+     * 近1年最大回撤（百分比，负数）
+     */
+    private BigDecimal maxDrawdown1y;
+    
+    /**
+     * 近1年夏普比率
+     */
+    private BigDecimal sharpe1y;
+    
+    /**
+     * 近1年参与计算的日收益样本数
+     */
+    private Integer sampleCount;
+    
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+
+    // Getters and Setters
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public void setTargetType(String targetType) {
+        this.targetType = targetType;
+    }
+
+    public String getTargetCode() {
+        return targetCode;
+    }
+
+    public void setTargetCode(String targetCode) {
+        this.targetCode = targetCode;
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    public void setTargetName(String targetName) {
+        this.targetName = targetName;
+    }
+
+    public LocalDate getAsOfDate() {
+        return asOfDate;
+    }
+
+    public void setAsOfDate(LocalDate asOfDate) {
+        this.asOfDate = asOfDate;
+    }
+
+    public BigDecimal getReturn1w() {
+        return return1w;
+    }
+
+    public void setReturn1w(BigDecimal return1w) {
+        this.return1w = return1w;
+    }
+
+    public BigDecimal getReturn1m() {
+        return return1m;
+    }
+
+    public void setReturn1m(BigDecimal return1m) {
+        this.return1m = return1m;
+    }
+
+    public BigDecimal getReturn3m() {
+        return return3m;
+    }
+
+    public void setReturn3m(BigDecimal return3m) {
+        this.return3m = return3m;
+    }
+
+    public BigDecimal getReturn6m() {
+        return return6m;
+    }
+
+    public void setReturn6m(BigDecimal return6m) {
+        this.return6m = return6m;
+    }
+
+    public BigDecimal getReturn1y() {
+        return return1y;
+    }
+
+    public void setReturn1y(BigDecimal return1y) {
+        this.return1y = return1y;
+    }
+
+    public BigDecimal getReturn3y() {
+        return return3y;
+    }
+
+    public void setReturn3y(BigDecimal return3y) {
+        this.return3y = return3y;
+    }
+
+    public BigDecimal getVolatility1y() {
+        return volatility1y;
+    }
+
+    public void setVolatility1y(BigDecimal volatility1y) {
+        this.volatility1y = volatility1y;
+    }
+
+    public BigDecimal getMaxDrawdown1y() {
+        return maxDrawdown1y;
+    }
+
+    public void setMaxDrawdown1y(BigDecimal maxDrawdown1y) {
+        this.maxDrawdown1y = maxDrawdown1y;
+    }
+
+    public BigDecimal getSharpe1y() {
+        return sharpe1y;
+    }
+
+    public void setSharpe1y(BigDecimal sharpe1y) {
+        this.sharpe1y = sharpe1y;
+    }
+
+    public Integer getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Integer sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -0,0 +1,188 @@
+package com.sunlight.invest.fund.monitor.mapper;
+
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 抓取重试任务Mapper接口
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Mapper
+public interface CrawlRetryTaskMapper {
+
+    /**
+     * 登记一次抓取失败
+     * <p>
+     * 同一目标只保留一条记录：仍在重试中的任务合并日期范围并保留重试进度，
+     * 已成功或已放弃的任务重新置为待重试。合并后的范围可能跨多年，重试时按年分段抓取。
+     * </p>
+     *
+     * @param task 重试任务
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO crawl_retry_task (task_type, target_code, target_name, start_date, end_date, " +
+            "status, attempts, next_retry_time, last_error, create_time, update_time) " +
+            "VALUES (#{taskType}, #{targetCode}, #{targetName}, #{startDate}, #{endDate}, " +
+            "'PENDING', 0, #{nextRetryTime}, #{lastError}, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "start_date = IF(status = 'PENDING', LEAST(start_date, VALUES(start_date)), VALUES(start_date)), " +
+            "end_date = IF(status = 'PENDING', GREATEST(end_date, VALUES(end_date)), VALUES(end_date)), " +
+            "attempts = IF(status = 'PENDING', attempts, 0), " +
+            "next_retry_time = IF(status = 'PENDING', next_retry_time, VALUES(next_retry_time)), " +
+            "target_name = VALUES(target_name), last_error = VALUES(last_error), " +
+            "status = 'PENDING', update_time = NOW()")
+    int upsertFailure(CrawlRetryTask task);
+
+    /**
+     * 根据ID查询重试任务
+     *
+     * @param id 主键ID
+     * @return 重试任务
+     */
+    @Select("SELECT * FROM crawl_retry_task WHERE id = #{id}")
+    @Results({
+            @Result(property = "id", column = "id"),
+            @Result(property = "taskType", column = "task_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "startDate", column = "start_date"),
+            @Result(property = "endDate", column = "end_date"),
+            @Result(property = "status", column = "status"),
+            @Result(property = "attempts", column = "attempts"),
+            @Result(property = "nextRetryTime", column = "next_retry_time"),
+            @Result(property = "lastError", column = "last_error"),
+            @Result(property = "createTime", column = "create_time"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    CrawlRetryTask selectById(@Param("id") Long id);
+
+    /**
+     * 查询已到重试时间的待重试任务
+     *
+     * @param now   当前时间
+     * @param limit 最大数量
+     * @return 重试任务列表
+     */
+    @Select("SELECT * FROM crawl_retry_task WHERE status = 'PENDING' AND next_retry_time <= #{now} " +
+            "ORDER BY next_retry_time ASC LIMIT #{limit}")
+    @Results({
+            @Result(property = "id", column = "id"),
+            @Result(property = "taskType", column = "task_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "startDate", column = "start_date"),
+            @Result(property = "endDate", column = "end_date"),
+            @Result(property = "status", column = "status"),
+            @Result(property = "attempts", column = "attempts"),
+            @Result(property = "nextRetryTime", column = "next_retry_time"),
+            @Result(property = "lastError", column = "last_error"),
+            @Result(property = "createTime", column = "create_time"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<CrawlRetryTask> selectDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 按状态查询重试任务
+     *
+     * @param status 状态，为空时查询全部
+     * @param limit  最大数量
+     * @return 重试任务列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM crawl_retry_task " +
+            "<if test='status != null and status != \"\"'>WHERE status = #{status} </if>" +
+            "ORDER BY update_time DESC LIMIT #{limit}" +
+            "</script>")
+    @Results({
+            @Result(property = "id", column = "id"),
+            @Result(property = "taskType", column = "task_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "startDate", column = "start_date"),
+            @Result(property = "endDate", column = "end_date"),
+            @Result(property = "status", column = "status"),
+            @Result(property = "attempts", column = "attempts"),
+            @Result(property = "nextRetryTime", column = "next_retry_time"),
+            @Result(property = "lastError", column = "last_error"),
+            @Result(property = "createTime", column = "create_time"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<CrawlRetryTask> selectByStatus(@Param("status") String status, @Param("limit") int limit);
+
+    /**
+     * 统计指定状态的任务数量
+     *
+     * @param status 状态
+     * @return 任务数量
+     */
+    @Select("SELECT COUNT(*) FROM crawl_retry_task WHERE status = #{status}")
+    int countByStatus(@Param("status") String status);
+
+    /**
+     * 更新重试结果
+     *
+     * @param id            主键ID
+     * @param status        新状态
+     * @param attempts      已重试次数
+     * @param nextRetryTime 下次重试时间
+     * @param lastError     错误信息
+     * @return 影响行数
+     */
+    @Update("UPDATE crawl_retry_task SET status = #{status}, attempts = #{attempts}, " +
+            "next_retry_time = #{nextRetryTime}, last_error = #{lastError}, update_time = NOW() " +
+            "WHERE id = #{id}")
+    int updateResult(@Param("id") Long id,
+                     @Param("status") String status,
+                     @Param("attempts") int attempts,
+                     @Param("nextRetryTime") LocalDateTime nextRetryTime,
+                     @Param("lastError") String lastError);
+
+    /**
+     * 记录分段重试进度，将开始日期推进到首个未成功的分段
+     * <p>
+     * 仅在开始日期未被并发登记的失败改动时生效，避免丢掉新合并进来的更早范围。
+     * </p>
+     *
+     * @param id           主键ID
+     * @param oldStartDate 读取任务时的开始日期
+     * @param startDate    新的开始日期
+     * @return 影响行数
+     */
+    @Update("UPDATE crawl_retry_task SET start_date = #{startDate}, update_time = NOW() " +
+            "WHERE id = #{id} AND status = 'PENDING' AND start_date = #{oldStartDate}")
+    int advanceStartDate(@Param("id") Long id,
+                         @Param("oldStartDate") LocalDate oldStartDate,
+                         @Param("startDate") LocalDate startDate);
+
+    /**
+     * 目标正常抓取成功后，关闭其待重试任务
+     *
+     * @param taskType   任务类型
+     * @param targetCode 目标代码
+     * @return 影响行数
+     */
+    @Update("UPDATE crawl_retry_task SET status = 'SUCCESS', update_time = NOW() " +
+            "WHERE task_type = #{taskType} AND target_code = #{targetCode} AND status = 'PENDING'")
+    int resolve(@Param("taskType") String taskType, @Param("targetCode") String targetCode);
+
+    /**
+     * 重新投递死信任务
+     *
+     * @param ids 任务ID列表，为空时投递全部死信任务
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE crawl_retry_task SET status = 'PENDING', attempts = 0, next_retry_time = NOW(), update_time = NOW() " +
+            "WHERE status = 'DEAD' " +
+            "<if test='ids != null and ids.size() > 0'>" +
+            "AND id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</if>" +
+            "</script>")
+    int redriveDead(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,196 @@
+package com.sunlight.invest.fund.monitor.mapper;
+
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基金最新净值汇总Mapper接口
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Mapper
+public interface FundNavLatestMapper {
+
+    /**
+     * 根据净值明细重新计算指定基金的汇总行
+     * <p>
+     * 每只基金取最新一条净值，并用窗口函数计算记录数、近5/20日涨跌幅和近60日最高净值、回撤。
+     * 需与净值写入在同一事务中调用。
+     * </p>
+     *
+     * @param fundCodes 基金代码集合，不能为空
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO fund_nav_latest (fund_code, fund_name, nav_date, unit_nav, daily_return, nav_count, " +
+            "first_nav_date, return_5d, return_20d, high_60d, drawdown_60d, update_time) " +
+            "SELECT fund_code, fund_name, nav_date, unit_nav, daily_return, nav_count, first_nav_date, " +
+            "CASE WHEN nav_5 > 0 THEN ROUND((unit_nav / nav_5 - 1) * 100, 4) END, " +
+            "CASE WHEN nav_20 > 0 THEN ROUND((unit_nav / nav_20 - 1) * 100, 4) END, " +
+            "high_60d, " +
+            "CASE WHEN high_60d > 0 THEN ROUND((unit_nav / high_60d - 1) * 100, 4) END, " +
+            "NOW() FROM (" +
+            "SELECT f.fund_code, f.fund_name, f.nav_date, f.unit_nav, f.daily_return, " +
+            "COUNT(*) OVER (PARTITION BY f.fund_code) AS nav_count, " +
+            "MIN(f.nav_date) OVER (PARTITION BY f.fund_code) AS first_nav_date, " +
+            "LAG(f.unit_nav, 5) OVER (PARTITION BY f.fund_code ORDER BY f.nav_date) AS nav_5, " +
+            "LAG(f.unit_nav, 20) OVER (PARTITION BY f.fund_code ORDER BY f.nav_date) AS nav_20, " +
+            "MAX(f.unit_nav) OVER (PARTITION BY f.fund_code ORDER BY f.nav_date " +
+            "ROWS BETWEEN 59 PRECEDING AND CURRENT ROW) AS high_60d, " +
+            "ROW_NUMBER() OVER (PARTITION BY f.fund_code ORDER BY f.nav_date DESC) AS rn " +
+            "FROM fund_nav f WHERE f.fund_code IN " +
+            "<foreach collection='fundCodes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            ") t WHERE t.rn = 1 " +
+            "ON DUPLICATE KEY UPDATE " +
+            "fund_name = VALUES(fund_name), nav_date = VALUES(nav_date), unit_nav = VALUES(unit_nav), " +
+            "daily_return = VALUES(daily_return), nav_count = VALUES(nav_count), " +
+            "first_nav_date = VALUES(first_nav_date), return_5d = VALUES(return_5d), " +
+            "return_20d = VALUES(return_20d), high_60d = VALUES(high_60d), " +
+            "drawdown_60d = VALUES(drawdown_60d), update_time = NOW()" +
+            "</script>")
+    int refreshByFundCodes(@Param("fundCodes") Collection<String> fundCodes);
+
+    /**
+     * 认领指定净值日期的预警评估
+     * <p>
+     * 只有该基金尚未评估过同一或更新的净值日期时才会更新成功。轮询、重试补抓和每日任务都先认领再评估，
+     * 保证同一净值日期的预警只发送一次。
+     * </p>
+     *
+     * @param fundCode 基金代码
+     * @param navDate  本次评估的最新净值日期
+     * @return 1 表示认领成功，0 表示该净值日期已评估过
+     */
+    @Update("UPDATE fund_nav_latest SET alerted_nav_date = #{navDate} " +
+            "WHERE fund_code = #{fundCode} AND (alerted_nav_date IS NULL OR alerted_nav_date < #{navDate})")
+    int claimAlert(@Param("fundCode") String fundCode, @Param("navDate") LocalDate navDate);
+
+    /**
+     * 记录业绩指标已按当前最新净值检查过但数据不足，有新净值入库前增量更新不再重算
+     *
+     * @param fundCode 基金代码
+     * @return 影响行数
+     */
+    @Update("UPDATE fund_nav_latest SET metric_checked_date = nav_date WHERE fund_code = #{fundCode}")
+    int markMetricInsufficient(@Param("fundCode") String fundCode);
+
+    /**
+     * 查询汇总行缺失或与净值明细不一致的基金代码
+     * <p>
+     * 用于启动时补齐汇总表，需要扫描净值明细表，不应在常规查询路径上使用。
+     * </p>
+     *
+     * @return 基金代码列表
+     */
+    @Select("SELECT n.fund_code FROM fund_nav n " +
+            "LEFT JOIN fund_nav_latest l ON l.fund_code = n.fund_code " +
+            "GROUP BY n.fund_code, l.nav_date, l.nav_count " +
+            "HAVING l.nav_date IS NULL OR MAX(n.nav_date) <> l.nav_date OR COUNT(*) <> l.nav_count")
+    List<String> selectStaleFundCodes();
+
+    /**
+     * 查询所有已入库净值的基金代码
+     *
+     * @return 基金代码列表，按代码排序
+     */
+    @Select("SELECT fund_code FROM fund_nav_latest ORDER BY fund_code ASC")
+    List<String> selectAllFundCodes();
+
+    /**
+     * 根据基金代码查询汇总行
+     *
+     * @param fundCode 基金代码
+     * @return 汇总行，不存在时返回null
+     */
+    @Select("SELECT * FROM fund_nav_latest WHERE fund_code = #{fundCode}")
+    @Results({
+            @Result(property = "fundCode", column = "fund_code"),
+            @Result(property = "fundName", column = "fund_name"),
+            @Result(property = "navDate", column = "nav_date"),
+            @Result(property = "unitNav", column = "unit_nav"),
+            @Result(property = "dailyReturn", column = "daily_return"),
+            @Result(property = "navCount", column = "nav_count"),
+            @Result(property = "firstNavDate", column = "first_nav_date"),
+            @Result(property = "return5d", column = "return_5d"),
+            @Result(property = "return20d", column = "return_20d"),
+            @Result(property = "high60d", column = "high_60d"),
+            @Result(property = "drawdown60d", column = "drawdown_60d"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    FundNavLatest selectByFundCode(@Param("fundCode") String fundCode);
+
+    /**
+     * 批量查询汇总行
+     *
+     * @param fundCodes 基金代码集合，不能为空
+     * @return 汇总行列表
+     */
+    @Select("<script>" +
+            "SELECT * FROM fund_nav_latest WHERE fund_code IN " +
+            "<foreach collection='fundCodes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            "</script>")
+    @Results({
+            @Result(property = "fundCode", column = "fund_code"),
+            @Result(property = "fundName", column = "fund_name"),
+            @Result(property = "navDate", column = "nav_date"),
+            @Result(property = "unitNav", column = "unit_nav"),
+            @Result(property = "dailyReturn", column = "daily_return"),
+            @Result(property = "navCount", column = "nav_count"),
+            @Result(property = "firstNavDate", column = "first_nav_date"),
+            @Result(property = "return5d", column = "return_5d"),
+            @Result(property = "return20d", column = "return_20d"),
+            @Result(property = "high60d", column = "high_60d"),
+            @Result(property = "drawdown60d", column = "drawdown_60d"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<FundNavLatest> selectByFundCodes(@Param("fundCodes") Collection<String> fundCodes);
+
+    /**
+     * 批量查询汇总行，按基金代码索引
+     *
+     * @param fundCodes 基金代码集合
+     * @return 基金代码到汇总行的映射，没有数据的基金不包含在内
+     */
+    default Map<String, FundNavLatest> selectMapByFundCodes(Collection<String> fundCodes) {
+        Map<String, FundNavLatest> result = new LinkedHashMap<>();
+        if (fundCodes == null || fundCodes.isEmpty()) {
+            return result;
+        }
+        for (FundNavLatest latest : selectByFundCodes(fundCodes)) {
+            result.put(latest.getFundCode(), latest);
+        }
+        return result;
+    }
+
+    /**
+     * 查询所有监控基金的汇总状态（未抓取过净值的基金相关字段为空）
+     *
+     * @return 汇总行列表，按基金代码排序
+     */
+    @Select("SELECT m.fund_code, m.fund_name, l.nav_date, l.unit_nav, l.daily_return, l.nav_count, " +
+            "l.first_nav_date, l.return_5d, l.return_20d, l.high_60d, l.drawdown_60d, l.update_time " +
+            "FROM fund_monitor m LEFT JOIN fund_nav_latest l ON l.fund_code = m.fund_code " +
+            "ORDER BY m.fund_code ASC")
+    @Results({
+            @Result(property = "fundCode", column = "fund_code"),
+            @Result(property = "fundName", column = "fund_name"),
+            @Result(property = "navDate", column = "nav_date"),
+            @Result(property = "unitNav", column = "unit_nav"),
+            @Result(property = "dailyReturn", column = "daily_return"),
+            @Result(property = "navCount", column = "nav_count"),
+            @Result(property = "firstNavDate", column = "first_nav_date"),
+            @Result(property = "return5d", column = "return_5d"),
+            @Result(property = "return20d", column = "return_20d"),
+            @Result(property = "high60d", column = "high_60d"),
+            @Result(property = "drawdown60d", column = "drawdown_60d"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<FundNavLatest> selectAllMonitored();
+}
@@ -4,7 +4,12 @@ import com.sunlight.invest.fund.monitor.entity.FundNav;
 import org.apache.ibatis.annotations.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 基金净值Mapper接口
@@ -86,6 +91,68 @@ public interface FundNavMapper {
     })
     List<FundNav> selectRecentDays(@Param("fundCode") String fundCode, @Param("days") int days);
 
+    /**
+     * 批量查询多只基金各自最近N条净值数据（一条SQL，避免逐个基金查询）
+     *
+     * @param fundCodes 基金代码集合，不能为空
+     * @param days      每只基金的条数
+     * @return 基金净值列表（按基金代码分组，组内按日期降序）
+     */
+    @Select("<script>" +
+            "SELECT id, fund_code, fund_name, nav_date, unit_nav, daily_return, create_time, update_time FROM (" +
+            "SELECT f.*, ROW_NUMBER() OVER (PARTITION BY f.fund_code ORDER BY f.nav_date DESC) AS rn " +
+            "FROM fund_nav f WHERE f.fund_code IN " +
+            "<foreach collection='fundCodes' item='code' open='(' separator=',' close=')'>#{code}</foreach>" +
+            ") t WHERE t.rn &lt;= #{days} " +
+            "ORDER BY fund_code ASC, nav_date DESC" +
+            "</script>")
+    @Results({
+            @Result(property = "id", column = "id"),
+            @Result(property = "fundCode", column = "fund_code"),
+            @Result(property = "fundName", column = "fund_name"),
+            @Result(property = "navDate", column = "nav_date"),
+            @Result(property = "unitNav", column = "unit_nav"),
+            @Result(property = "dailyReturn", column = "daily_return"),
+            @Result(property = "createTime", column = "create_time"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<FundNav> selectRecentDaysBatch(@Param("fundCodes") Collection<String> fundCodes, @Param("days") int days);
+
+    /**
+     * 批量查询多只基金最近N条净值，按基金代码分组
+     *
+     * @param fundCodes 基金代码集合
+     * @param days      每只基金的条数
+     * @return 基金代码到净值列表（按日期降序）的映射，没有数据的基金不包含在内
+     */
+    default Map<String, List<FundNav>> selectRecentDaysGrouped(Collection<String> fundCodes, int days) {
+        Map<String, List<FundNav>> grouped = new LinkedHashMap<>();
+        if (fundCodes == null || fundCodes.isEmpty()) {
+            return grouped;
+        }
+        for (FundNav nav : selectRecentDaysBatch(fundCodes, days)) {
+            grouped.computeIfAbsent(nav.getFundCode(), k -> new ArrayList<>()).add(nav);
+        }
+        return grouped;
+    }
+
+    /**
+     * 批量查询多只基金的最新一条净值
+     *
+     * @param fundCodes 基金代码集合
+     * @return 基金代码到最新净值的映射，没有数据的基金不包含在内
+     */
+    default Map<String, FundNav> selectLatestBatch(Collection<String> fundCodes) {
+        Map<String, FundNav> latest = new LinkedHashMap<>();
+        if (fundCodes == null || fundCodes.isEmpty()) {
+            return latest;
+        }
+        for (FundNav nav : selectRecentDaysBatch(fundCodes, 1)) {
+            latest.put(nav.getFundCode(), nav);
+        }
+        return latest;
+    }
+
     /**
      * 查询基金指定日期范围的净值数据
      *
@@ -160,4 +227,32 @@ public interface FundNavMapper {
      */
     @Delete("DELETE FROM fund_nav WHERE fund_code = #{fundCode} AND nav_date < #{date}")
     int deleteBeforeDate(@Param("fundCode") String fundCode, @Param("date") LocalDate date);
+
+    /**
+     * 记录轮询首次发现该净值的时间（已有记录时不覆盖）
+     *
+     * @param fundCode      基金代码
+     * @param navDate       净值日期
+     * @param firstSeenTime 发现时间
+     * @return 影响行数
+     */
+    @Update("UPDATE fund_nav SET first_seen_time = #{firstSeenTime} " +
+            "WHERE fund_code = #{fundCode} AND nav_date = #{navDate} AND first_seen_time IS NULL")
+    int updateFirstSeenTime(@Param("fundCode") String fundCode, @Param("navDate") LocalDate navDate,
+                            @Param("firstSeenTime") LocalDateTime firstSeenTime);
+
+    /**
+     * 查询最近若干条净值的公布延迟（净值日期零点到轮询首次发现时间的分钟数）
+     * <p>
+     * 用于学习各基金的净值公布时间。只使用轮询记录的发现时间，批量任务写入的净值没有该时间。
+     * </p>
+     *
+     * @param fundCode 基金代码
+     * @param limit    样本数量
+     * @return 延迟分钟数列表，按净值日期降序
+     */
+    @Select("SELECT TIMESTAMPDIFF(MINUTE, nav_date, first_seen_time) FROM fund_nav " +
+            "WHERE fund_code = #{fundCode} AND first_seen_time IS NOT NULL " +
+            "ORDER BY nav_date DESC LIMIT #{limit}")
+    List<Long> selectPublishDelayMinutes(@Param("fundCode") String fundCode, @Param("limit") int limit);
 }
@@ -182,4 +182,13 @@ public interface IndexDataMapper {
      */
     @Delete("DELETE FROM index_data WHERE index_code = #{indexCode} AND trade_date < #{date}")
     int deleteBeforeDate(@Param("indexCode") String indexCode, @Param("date") LocalDate date);
-}
\ No newline at end of file
+
+    /**
+     * 查询指数的全部交易日期
+     *
+     * @param indexCode 指数代码
+     * @return 交易日期列表，按日期升序
+     */
+    @Select("SELECT trade_date FROM index_data WHERE index_code = #{indexCode} ORDER BY trade_date ASC")
+    List<LocalDate> selectTradeDates(@Param("indexCode") String indexCode);
+}
@@ -0,0 +1,145 @@
+package com.sunlight.invest.fund.monitor.mapper;
+
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * 业绩指标Mapper接口
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Mapper
+public interface PerformanceMetricMapper {
+
+    /**
+     * 插入或更新业绩指标
+     *
+     * @param metric 业绩指标
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO performance_metric (target_type, target_code, target_name, as_of_date, " +
+            "return_1w, return_1m, return_3m, return_6m, return_1y, return_3y, " +
+            "volatility_1y, max_drawdown_1y, sharpe_1y, sample_count, update_time) " +
+            "VALUES (#{targetType}, #{targetCode}, #{targetName}, #{asOfDate}, " +
+            "#{return1w}, #{return1m}, #{return3m}, #{return6m}, #{return1y}, #{return3y}, " +
+            "#{volatility1y}, #{maxDrawdown1y}, #{sharpe1y}, #{sampleCount}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE target_name = VALUES(target_name), as_of_date = VALUES(as_of_date), " +
+            "return_1w = VALUES(return_1w), return_1m = VALUES(return_1m), return_3m = VALUES(return_3m), " +
+            "return_6m = VALUES(return_6m), return_1y = VALUES(return_1y), return_3y = VALUES(return_3y), " +
+            "volatility_1y = VALUES(volatility_1y), max_drawdown_1y = VALUES(max_drawdown_1y), " +
+            "sharpe_1y = VALUES(sharpe_1y), sample_count = VALUES(sample_count), update_time = NOW()")
+    int upsert(PerformanceMetric metric);
+
+    /**
+     * 查询单个标的的业绩指标
+     *
+     * @param targetType 标的类型
+     * @param targetCode 标的代码
+     * @return 业绩指标，不存在时返回null
+     */
+    @Select("SELECT * FROM performance_metric WHERE target_type = #{targetType} AND target_code = #{targetCode}")
+    @Results({
+            @Result(property = "targetType", column = "target_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "asOfDate", column = "as_of_date"),
+            @Result(property = "return1w", column = "return_1w"),
+            @Result(property = "return1m", column = "return_1m"),
+            @Result(property = "return3m", column = "return_3m"),
+            @Result(property = "return6m", column = "return_6m"),
+            @Result(property = "return1y", column = "return_1y"),
+            @Result(property = "return3y", column = "return_3y"),
+            @Result(property = "volatility1y", column = "volatility_1y"),
+            @Result(property = "maxDrawdown1y", column = "max_drawdown_1y"),
+            @Result(property = "sharpe1y", column = "sharpe_1y"),
+            @Result(property = "sampleCount", column = "sample_count"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    PerformanceMetric selectByTarget(@Param("targetType") String targetType, @Param("targetCode") String targetCode);
+
+    /**
+     * 查询某类标的的全部业绩指标
+     *
+     * @param targetType 标的类型
+     * @return 业绩指标列表，按代码排序
+     */
+    @Select("SELECT * FROM performance_metric WHERE target_type = #{targetType} ORDER BY target_code ASC")
+    @Results({
+            @Result(property = "targetType", column = "target_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "asOfDate", column = "as_of_date"),
+            @Result(property = "return1w", column = "return_1w"),
+            @Result(property = "return1m", column = "return_1m"),
+            @Result(property = "return3m", column = "return_3m"),
+            @Result(property = "return6m", column = "return_6m"),
+            @Result(property = "return1y", column = "return_1y"),
+            @Result(property = "return3y", column = "return_3y"),
+            @Result(property = "volatility1y", column = "volatility_1y"),
+            @Result(property = "maxDrawdown1y", column = "max_drawdown_1y"),
+            @Result(property = "sharpe1y", column = "sharpe_1y"),
+            @Result(property = "sampleCount", column = "sample_count"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<PerformanceMetric> selectByType(@Param("targetType") String targetType);
+
+    /**
+     * 按指定指标排名
+     *
+     * @param targetType  标的类型
+     * @param orderColumn 排序列名（必须由调用方从白名单中取得）
+     * @param limit       最大数量
+     * @return 业绩指标列表，按指标降序，空值排在最后
+     */
+    @Select("SELECT * FROM performance_metric WHERE target_type = #{targetType} AND ${orderColumn} IS NOT NULL " +
+            "ORDER BY ${orderColumn} DESC LIMIT #{limit}")
+    @Results({
+            @Result(property = "targetType", column = "target_type"),
+            @Result(property = "targetCode", column = "target_code"),
+            @Result(property = "targetName", column = "target_name"),
+            @Result(property = "asOfDate", column = "as_of_date"),
+            @Result(property = "return1w", column = "return_1w"),
+            @Result(property = "return1m", column = "return_1m"),
+            @Result(property = "return3m", column = "return_3m"),
+            @Result(property = "return6m", column = "return_6m"),
+            @Result(property = "return1y", column = "return_1y"),
+            @Result(property = "return3y", column = "return_3y"),
+            @Result(property = "volatility1y", column = "volatility_1y"),
+            @Result(property = "maxDrawdown1y", column = "max_drawdown_1y"),
+            @Result(property = "sharpe1y", column = "sharpe_1y"),
+            @Result(property = "sampleCount", column = "sample_count"),
+            @Result(property = "updateTime", column = "update_time")
+    })
+    List<PerformanceMetric> selectRanking(@Param("targetType") String targetType,
+                                          @Param("orderColumn") String orderColumn,
+                                          @Param("limit") int limit);
+
+    /**
+     * 查询业绩指标落后于最新净值的监控基金代码
+     * <p>
+     * 只包含监控基金，与每晚全量重算的范围一致；已按当前最新净值检查过且数据不足的基金不再返回。
+     * </p>
+     *
+     * @return 基金代码列表
+     */
+    @Select("SELECT l.fund_code FROM fund_nav_latest l " +
+            "LEFT JOIN performance_metric p ON p.target_type = 'FUND' AND p.target_code = l.fund_code " +
+            "WHERE l.fund_code IN (SELECT m.fund_code FROM fund_monitor m) " +
+            "AND (p.as_of_date IS NULL OR p.as_of_date < l.nav_date) " +
+            "AND (l.metric_checked_date IS NULL OR l.metric_checked_date < l.nav_date)")
+    List<String> selectStaleFundCodes();
+
+    /**
+     * 查询业绩指标落后于最新行情的指数代码
+     *
+     * @return 指数代码列表
+     */
+    @Select("SELECT d.index_code FROM " +
+            "(SELECT index_code, MAX(trade_date) AS max_date FROM index_data GROUP BY index_code) d " +
+            "LEFT JOIN performance_metric p ON p.target_type = 'INDEX' AND p.target_code = d.index_code " +
+            "WHERE p.as_of_date IS NULL OR p.as_of_date < d.max_date")
+    List<String> selectStaleIndexCodes();
+}
@@ -0,0 +1,120 @@
+package com.sunlight.invest.fund.monitor.schedule;
+
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import com.sunlight.invest.fund.monitor.service.CrawlRetryService;
+import com.sunlight.invest.fund.monitor.service.FundCrawlerService;
+import com.sunlight.invest.fund.monitor.service.FundMonitorService;
+import com.sunlight.invest.fund.monitor.service.IndexDataService;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 抓取重试定时任务
+ * <p>
+ * 定期取出已到重试时间的失败任务重新抓取，基金任务成功后立即补做监控检查
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Component
+public class CrawlRetryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlRetryScheduler.class);
+
+    // 每轮最多处理的任务数
+    private static final int BATCH_SIZE = 20;
+
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+
+    @Autowired
+    private FundCrawlerService fundCrawlerService;
+
+    @Autowired
+    private FundMonitorService fundMonitorService;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+
+    /**
+     * 每分钟检查一次重试队列
+     */
+    @Scheduled(fixedDelayString = "${crawl.retry.interval-ms:60000}")
+    public void processRetryTasks() {
+        List<CrawlRetryTask> tasks;
+        try {
+            tasks = crawlRetryService.findDueTasks(BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("查询重试队列失败: {}", e.getMessage());
+            return;
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        log.info("开始处理重试队列，本轮任务数: {}", tasks.size());
+        for (CrawlRetryTask task : tasks) {
+            try {
+                execute(task);
+                crawlRetryService.markSuccess(task);
+            } catch (Exception e) {
+                crawlRetryService.markFailure(task, e);
+                continue;
+            }
+
+            // 基金数据补抓成功后补做监控检查，失败不影响重试结果
+            if (CrawlRetryTask.TYPE_FUND.equals(task.getTaskType())) {
+                try {
+                    fundMonitorService.monitorFundIfNewNav(task.getTargetCode());
+                } catch (Exception e) {
+                    log.error("重试后监控基金失败: {}", task.getTargetCode(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一目标的多次失败会合并为一个可能跨多年的范围，按年分段重试；
+     * 某段失败时记录已完成的进度，下次从该段开始
+     */
+    private void execute(CrawlRetryTask task) {
+        if (!CrawlRetryTask.TYPE_FUND.equals(task.getTaskType()) && !CrawlRetryTask.TYPE_INDEX.equals(task.getTaskType())) {
+            throw new IllegalArgumentException("未知的重试任务类型: " + task.getTaskType());
+        }
+        int count = 0;
+        for (LocalDate[] chunk : CrawlRetryService.yearlyChunks(task.getStartDate(), task.getEndDate())) {
+            try {
+                count += executeRange(task, chunk[0], chunk[1]);
+            } catch (RuntimeException e) {
+                crawlRetryService.markProgress(task, chunk[0]);
+                throw e;
+            }
+        }
+        if (CrawlRetryTask.TYPE_FUND.equals(task.getTaskType())) {
+            log.info("重试抓取基金数据完成: {}, 记录数: {}", task.getTargetCode(), count);
+        } else {
+            log.info("重试抓取指数数据完成: {}, 记录数: {}", task.getTargetCode(), count);
+            if (TradingCalendarService.REFERENCE_INDEX_CODE.equals(task.getTargetCode())) {
+                tradingCalendarService.refresh();
+            }
+        }
+    }
+
+    private int executeRange(CrawlRetryTask task, LocalDate startDate, LocalDate endDate) {
+        if (CrawlRetryTask.TYPE_FUND.equals(task.getTaskType())) {
+            return fundCrawlerService.forceCrawlAndSave(task.getTargetCode(), task.getTargetName(), startDate, endDate);
+        }
+        return indexDataService.fetchAndSaveIndexData(task.getTargetCode(), startDate, endDate);
+    }
+}
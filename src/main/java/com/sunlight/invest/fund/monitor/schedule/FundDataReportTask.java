@@ -14,7 +14,9 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 基金数据报告定时任务
@@ -107,6 +109,13 @@ public class FundDataReportTask {
         htmlBuilder.append("监控基金数量: ").append(monitorFunds.size()).append(" 只</p>");
         htmlBuilder.append("</div>");
         
+        // 一次查询所有基金的近5日数据
+        List<String> fundCodes = new ArrayList<>();
+        for (MonitorFund fund : monitorFunds) {
+            fundCodes.add(fund.getFundCode());
+        }
+        Map<String, List<FundNav>> recentNavMap = fundNavMapper.selectRecentDaysGrouped(fundCodes, DAYS);
+        
         // 每行两个基金的数据
         for (int i = 0; i < monitorFunds.size(); i += 2) {
             htmlBuilder.append("<div class='fund-row'>");
@@ -117,7 +126,7 @@ public class FundDataReportTask {
             htmlBuilder.append("<h2>").append(fund1.getFundName()).append(" (").append(fund1.getFundCode()).append(")</h2>");
             
             // 获取近5日数据
-            List<FundNav> recentNavs1 = fundNavMapper.selectRecentDays(fund1.getFundCode(), DAYS);
+            List<FundNav> recentNavs1 = recentNavMap.get(fund1.getFundCode());
             
             if (recentNavs1 == null || recentNavs1.isEmpty()) {
                 htmlBuilder.append("<p>暂无数据</p>");
@@ -165,7 +174,7 @@ public class FundDataReportTask {
                 htmlBuilder.append("<h2>").append(fund2.getFundName()).append(" (").append(fund2.getFundCode()).append(")</h2>");
                 
                 // 获取近5日数据
-                List<FundNav> recentNavs2 = fundNavMapper.selectRecentDays(fund2.getFundCode(), DAYS);
+                List<FundNav> recentNavs2 = recentNavMap.get(fund2.getFundCode());
                 
                 if (recentNavs2 == null || recentNavs2.isEmpty()) {
                     htmlBuilder.append("<p>暂无数据</p>");
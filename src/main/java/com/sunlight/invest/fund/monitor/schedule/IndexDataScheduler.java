@@ -1,6 +1,9 @@
 package com.sunlight.invest.fund.monitor.schedule;
 
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import com.sunlight.invest.fund.monitor.service.CrawlRetryService;
 import com.sunlight.invest.fund.monitor.service.IndexDataService;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,21 +29,46 @@ public class IndexDataScheduler {
     @Autowired
     private IndexDataService indexDataService;
 
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+
     /**
      * 每日16点执行指数数据更新任务
      * 获取当天的指数数据并保存到数据库
      */
     @Scheduled(cron = "0 0 16 * * ?")
     public void scheduledIndexDataUpdate() {
+        LocalDate today = LocalDate.now();
+        if (!tradingCalendarService.isTradingDay(today)) {
+            log.info("{} 不是交易日，跳过指数数据更新任务", today);
+            return;
+        }
+
         log.info("开始执行指数数据更新任务");
 
         try {
-            LocalDate today = LocalDate.now();
             LocalDate startDate = today.minusDays(30); // 获取最近30天的数据
             
-            int count = indexDataService.fetchAndSaveAllIndexData(startDate, today);
+            // 逐个指数获取，失败的进入重试队列
+            int count = 0;
+            for (String indexCode : indexDataService.getSupportedIndexCodes()) {
+                try {
+                    count += indexDataService.fetchAndSaveIndexData(indexCode, startDate, today);
+                    crawlRetryService.resolve(CrawlRetryTask.TYPE_INDEX, indexCode);
+                } catch (Exception e) {
+                    log.error("获取并保存指数 {} 数据失败: {}", indexCode, e.getMessage(), e);
+                    crawlRetryService.enqueue(CrawlRetryTask.TYPE_INDEX, indexCode,
+                            indexDataService.getIndexName(indexCode), startDate, today, e);
+                }
+            }
             
             log.info("指数数据更新任务完成，共更新 {} 条记录", count);
+
+            // 新的交易日期入库后重建交易日历
+            tradingCalendarService.refresh();
         } catch (Exception e) {
             log.error("指数数据更新任务执行失败: {}", e.getMessage(), e);
         }
@@ -0,0 +1,51 @@
+package com.sunlight.invest.fund.monitor.schedule;
+
+import com.sunlight.invest.fund.monitor.service.PerformanceMetricService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 业绩指标定时任务
+ * <p>
+ * 每晚全量重算业绩指标，白天定期增量更新有新净值/行情的标的
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Component
+public class PerformanceMetricScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PerformanceMetricScheduler.class);
+
+    @Autowired
+    private PerformanceMetricService performanceMetricService;
+
+    /**
+     * 每晚全量重算，默认23:30执行
+     */
+    @Scheduled(cron = "${performance.metric.cron:0 30 23 * * ?}")
+    public void nightlyRefresh() {
+        log.info("========== 开始全量计算业绩指标 ==========");
+        try {
+            performanceMetricService.refreshAll();
+        } catch (Exception e) {
+            log.error("全量计算业绩指标失败", e);
+        }
+    }
+
+    /**
+     * 增量更新，默认每10分钟检查一次
+     */
+    @Scheduled(fixedDelayString = "${performance.metric.incremental-interval-ms:600000}")
+    public void incrementalRefresh() {
+        try {
+            performanceMetricService.refreshStale();
+        } catch (Exception e) {
+            log.warn("增量更新业绩指标失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 列式行情归档文件（内存映射只读视图）
+ * <p>
+ * 每个标的一个文件，按交易日升序存放一列日期（epochDay，int）和若干列定点数（int，按列记录小数位数），
+ * 缺失值用 {@link #MISSING} 表示。读取时整个文件通过 {@link MappedByteBuffer} 映射，
+ * 按下标直接读取文件页，不在堆上创建实体对象或数组副本；映射建立后不再占用文件句柄。
+ * 只使用绝对位置读取，不修改缓冲区状态，实例可在线程间共享。
+ * </p>
+ * <pre>
+ * int    magic      'NAVC'
+ * int    version    1
+ * int    rows
+ * int    columns
+ * short  codeLength + UTF-8 code
+ * short  nameLength + UTF-8 name
+ * int[columns]       各列小数位数
+ * int[rows]          日期列
+ * int[rows] x columns 数值列
+ * </pre>
+ * 字节序为小端。
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class ColumnarSeries {
+
+    static final int MAGIC = 0x4356414E;
+
+    static final int VERSION = 1;
+
+    /**
+     * 缺失值
+     */
+    static final int MISSING = Integer.MIN_VALUE;
+
+    private static final double[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private final ByteBuffer buffer;
+
+    private final String code;
+
+    private final String name;
+
+    private final int rows;
+
+    private final int columns;
+
+    private final double[] scales;
+
+    private final int daysOffset;
+
+    private final long modified;
+
+    private ColumnarSeries(ByteBuffer buffer, long modified) {
+        this.buffer = buffer;
+        this.modified = modified;
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("不是有效的行情归档文件");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("不支持的归档文件版本: " + buffer.getInt(4));
+        }
+        this.rows = buffer.getInt(8);
+        this.columns = buffer.getInt(12);
+        int offset = 16;
+        int codeLength = buffer.getShort(offset);
+        this.code = string(buffer, offset + 2, codeLength);
+        offset += 2 + codeLength;
+        int nameLength = buffer.getShort(offset);
+        this.name = string(buffer, offset + 2, nameLength);
+        offset += 2 + nameLength;
+        this.scales = new double[columns];
+        for (int c = 0; c < columns; c++) {
+            scales[c] = POWERS[buffer.getInt(offset)];
+            offset += 4;
+        }
+        this.daysOffset = offset;
+        long expected = (long) offset + 4L * rows * (columns + 1);
+        if (buffer.limit() != expected) {
+            throw new IllegalArgumentException("归档文件长度不正确: " + buffer.limit() + " != " + expected);
+        }
+    }
+
+    /**
+     * 以只读方式映射归档文件
+     *
+     * @param file 文件路径
+     * @return 映射视图
+     */
+    static ColumnarSeries open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return new ColumnarSeries(mapped, file.toFile().lastModified());
+        }
+    }
+
+    /**
+     * 写入归档文件
+     *
+     * @param file     文件路径
+     * @param code     标的代码
+     * @param name     标的名称
+     * @param days     日期（epochDay，严格升序）
+     * @param decimals 各列保留的小数位数（0-6）
+     * @param values   各列数值，NaN 表示缺失
+     */
+    static void write(Path file, String code, String name, int[] days, int[] decimals, double[][] values)
+            throws IOException {
+        if (decimals.length != values.length) {
+            throw new IllegalArgumentException("列数不一致");
+        }
+        byte[] codeBytes = code.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+        int rows = days.length;
+        int header = 16 + 2 + codeBytes.length + 2 + nameBytes.length + 4 * decimals.length;
+        ByteBuffer out = ByteBuffer.allocate(header + 4 * rows * (decimals.length + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(decimals.length);
+        out.putShort((short) codeBytes.length).put(codeBytes);
+        out.putShort((short) nameBytes.length).put(nameBytes);
+        for (int decimal : decimals) {
+            if (decimal < 0 || decimal >= POWERS.length) {
+                throw new IllegalArgumentException("小数位数超出范围: " + decimal);
+            }
+            out.putInt(decimal);
+        }
+        for (int i = 0; i < rows; i++) {
+            if (i > 0 && days[i] <= days[i - 1]) {
+                throw new IllegalArgumentException("日期必须严格升序");
+            }
+            out.putInt(days[i]);
+        }
+        for (int c = 0; c < values.length; c++) {
+            double scale = POWERS[decimals[c]];
+            double[] column = values[c];
+            for (int i = 0; i < rows; i++) {
+                double value = column[i];
+                if (Double.isNaN(value)) {
+                    out.putInt(MISSING);
+                    continue;
+                }
+                long fixed = Math.round(value * scale);
+                if (fixed <= MISSING || fixed > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(code + " 的数值超出定点数范围: " + value);
+                }
+                out.putInt((int) fixed);
+            }
+        }
+        out.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        }
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 行数
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * 数值列数
+     */
+    public int columnCount() {
+        return columns;
+    }
+
+    /**
+     * 文件修改时间，用作数据版本
+     */
+    public long getModified() {
+        return modified;
+    }
+
+    public int dayAt(int row) {
+        return buffer.getInt(daysOffset + 4 * row);
+    }
+
+    /**
+     * 读取数值，缺失时返回 NaN
+     */
+    public double valueAt(int column, int row) {
+        int fixed = buffer.getInt(daysOffset + 4 * (rows * (column + 1) + row));
+        return fixed == MISSING ? Double.NaN : fixed / scales[column];
+    }
+
+    /**
+     * 第一个不早于指定日期的行号，全部早于该日期时返回 size()
+     */
+    public int indexOnOrAfter(int epochDay) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayAt(mid) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String string(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
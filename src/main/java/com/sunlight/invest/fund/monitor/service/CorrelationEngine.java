@@ -0,0 +1,318 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * 增量协方差/相关系数引擎
+ * <p>
+ * 对 n 个序列的每一对维护滑动窗口内的累加和（Σx、Σy、Σx²、Σy²、Σxy 和共同样本数），
+ * 只统计两者当天都有数据的日子，缺失值用 NaN 表示。
+ * 新的一天到来时 O(n²) 加入当天数据并移出窗口外最早的一天，无需回扫历史；
+ * 初次计算使用分块方式按列遍历，按块并行。
+ * 成对数据以上三角压缩存储，1000 个序列约占用 24MB。
+ * </p>
+ * <p>
+ * 非线程安全，由调用方负责同步。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class CorrelationEngine {
+
+    // 分块计算的块大小
+    static final int TILE_SIZE = 64;
+
+    private final int size;
+
+    private final int window;
+
+    private final int minObservations;
+
+    private final double[] sumX;
+
+    private final double[] sumY;
+
+    private final double[] sumXX;
+
+    private final double[] sumYY;
+
+    private final double[] sumXY;
+
+    private final int[] count;
+
+    // 窗口内的每日数据，用于移出最早一天
+    private final Deque<double[]> days = new ArrayDeque<>();
+
+    /**
+     * @param size            序列数量
+     * @param window          滑动窗口天数
+     * @param minObservations 计算相关系数所需的最少共同样本数
+     */
+    public CorrelationEngine(int size, int window, int minObservations) {
+        if (size < 0 || window <= 0) {
+            throw new IllegalArgumentException("序列数量或窗口大小不合法: size=" + size + ", window=" + window);
+        }
+        this.size = size;
+        this.window = window;
+        this.minObservations = Math.max(2, minObservations);
+        int pairs = size * (size - 1) / 2;
+        this.sumX = new double[pairs];
+        this.sumY = new double[pairs];
+        this.sumXX = new double[pairs];
+        this.sumYY = new double[pairs];
+        this.sumXY = new double[pairs];
+        this.count = new int[pairs];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * 窗口内的天数
+     */
+    public int getDayCount() {
+        return days.size();
+    }
+
+    /**
+     * 批量载入历史数据（覆盖现有状态），只保留最近 window 天
+     *
+     * @param history 按日期升序的每日数据，每个数组长度为 size，缺失为 NaN
+     */
+    public void bulkLoad(List<double[]> history) {
+        days.clear();
+        int from = Math.max(0, history.size() - window);
+        for (int t = from; t < history.size(); t++) {
+            days.addLast(checkLength(history.get(t)));
+        }
+
+        // 转为按序列存储，块内按列连续访问
+        int t = days.size();
+        double[][] columns = new double[size][t];
+        int d = 0;
+        for (double[] day : days) {
+            for (int i = 0; i < size; i++) {
+                columns[i][d] = day[i];
+            }
+            d++;
+        }
+
+        int tiles = (size + TILE_SIZE - 1) / TILE_SIZE;
+        // 每个块 (bi, bj) 只写入自己负责的成对位置，可安全并行
+        IntStream.range(0, tiles * tiles).parallel().forEach(tile -> {
+            int bi = tile / tiles;
+            int bj = tile % tiles;
+            if (bj < bi) {
+                return;
+            }
+            int iEnd = Math.min(size, (bi + 1) * TILE_SIZE);
+            int jEnd = Math.min(size, (bj + 1) * TILE_SIZE);
+            for (int i = bi * TILE_SIZE; i < iEnd; i++) {
+                double[] x = columns[i];
+                for (int j = Math.max(i + 1, bj * TILE_SIZE); j < jEnd; j++) {
+                    double[] y = columns[j];
+                    double sx = 0;
+                    double sy = 0;
+                    double sxx = 0;
+                    double syy = 0;
+                    double sxy = 0;
+                    int n = 0;
+                    for (int k = 0; k < t; k++) {
+                        double xv = x[k];
+                        double yv = y[k];
+                        if (xv == xv && yv == yv) {
+                            sx += xv;
+                            sy += yv;
+                            sxx += xv * xv;
+                            syy += yv * yv;
+                            sxy += xv * yv;
+                            n++;
+                        }
+                    }
+                    int p = pairIndex(i, j);
+                    sumX[p] = sx;
+                    sumY[p] = sy;
+                    sumXX[p] = sxx;
+                    sumYY[p] = syy;
+                    sumXY[p] = sxy;
+                    count[p] = n;
+                }
+            }
+        });
+    }
+
+    /**
+     * 加入新的一天，窗口已满时移出最早的一天
+     *
+     * @param day 当天数据，长度为 size，缺失为 NaN
+     */
+    public void addDay(double[] day) {
+        accumulate(checkLength(day), 1);
+        days.addLast(day);
+        if (days.size() > window) {
+            accumulate(days.removeFirst(), -1);
+        }
+    }
+
+    /**
+     * 计算一对序列的相关系数
+     *
+     * @return 相关系数，共同样本不足或方差为0时返回 NaN
+     */
+    public double correlation(int i, int j) {
+        if (i == j) {
+            return 1.0;
+        }
+        int p = i < j ? pairIndex(i, j) : pairIndex(j, i);
+        int n = count[p];
+        if (n < minObservations) {
+            return Double.NaN;
+        }
+        double varX = n * sumXX[p] - sumX[p] * sumX[p];
+        double varY = n * sumYY[p] - sumY[p] * sumY[p];
+        if (varX <= 0 || varY <= 0) {
+            return Double.NaN;
+        }
+        double corr = (n * sumXY[p] - sumX[p] * sumY[p]) / Math.sqrt(varX * varY);
+        return Math.max(-1.0, Math.min(1.0, corr));
+    }
+
+    /**
+     * 计算一对序列的样本协方差
+     *
+     * @return 协方差，共同样本不足时返回 NaN
+     */
+    public double covariance(int i, int j) {
+        int p = i < j ? pairIndex(i, j) : pairIndex(j, i);
+        int n = count[p];
+        if (i == j || n < minObservations) {
+            return Double.NaN;
+        }
+        return (sumXY[p] - sumX[p] * sumY[p] / n) / (n - 1);
+    }
+
+    /**
+     * 一对序列的共同样本数
+     */
+    public int observations(int i, int j) {
+        return i == j ? 0 : count[i < j ? pairIndex(i, j) : pairIndex(j, i)];
+    }
+
+    /**
+     * 相关系数最高（或最低）的若干对
+     *
+     * @param limit   数量
+     * @param highest true 取相关性最高的，false 取最低（负相关最强）的
+     * @return 按相关系数排序的成对结果
+     */
+    public List<Pair> topPairs(int limit, boolean highest) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<Pair> order = Comparator.comparingDouble(Pair::getCorrelation);
+        // 小顶堆保留最大的 limit 个（取最低时反向）
+        PriorityQueue<Pair> heap = new PriorityQueue<>(limit + 1, highest ? order : order.reversed());
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double corr = correlation(i, j);
+                if (Double.isNaN(corr)) {
+                    continue;
+                }
+                heap.offer(new Pair(i, j, corr, count[pairIndex(i, j)]));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+        List<Pair> result = new ArrayList<>(heap);
+        result.sort(highest ? order.reversed() : order);
+        return result;
+    }
+
+    private void accumulate(double[] day, int sign) {
+        for (int i = 0; i < size; i++) {
+            double x = day[i];
+            if (x != x) {
+                continue;
+            }
+            int base = pairIndex(i, i + 1);
+            for (int j = i + 1; j < size; j++) {
+                double y = day[j];
+                if (y != y) {
+                    continue;
+                }
+                int p = base + (j - i - 1);
+                sumX[p] += sign * x;
+                sumY[p] += sign * y;
+                sumXX[p] += sign * x * x;
+                sumYY[p] += sign * y * y;
+                sumXY[p] += sign * x * y;
+                count[p] += sign;
+            }
+        }
+    }
+
+    private double[] checkLength(double[] day) {
+        if (day.length != size) {
+            throw new IllegalArgumentException("每日数据长度应为 " + size + "，实际为 " + day.length);
+        }
+        return day;
+    }
+
+    /**
+     * 上三角压缩存储的位置（要求 i < j）
+     */
+    private int pairIndex(int i, int j) {
+        return i * size - i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * 成对相关系数结果
+     */
+    public static final class Pair {
+
+        private final int first;
+
+        private final int second;
+
+        private final double correlation;
+
+        private final int observations;
+
+        Pair(int first, int second, double correlation, int observations) {
+            this.first = first;
+            this.second = second;
+            this.correlation = correlation;
+            this.observations = observations;
+        }
+
+        public int getFirst() {
+            return first;
+        }
+
+        public int getSecond() {
+            return second;
+        }
+
+        public double getCorrelation() {
+            return correlation;
+        }
+
+        public int getObservations() {
+            return observations;
+        }
+    }
+}
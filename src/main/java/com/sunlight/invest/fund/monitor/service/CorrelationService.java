@@ -0,0 +1,381 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.entity.MonitorFund;
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 监控标的相关性服务
+ * <p>
+ * 对所有监控基金和支持的指数，基于最近一段时间的日涨跌幅维护两两相关系数，用于分散度检查。
+ * 首次或标的列表变化时分块全量计算，之后每个交易日只增量加入新一天的数据，
+ * 并定期全量重算以消除浮点累计误差。
+ * 只有所有标的都已有数据（或已超过最大等待交易日数）的交易日才加入矩阵，
+ * 尾部尚未齐全的交易日（如晚一天公布的QDII基金）在下次更新时重新读取。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class CorrelationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrelationService.class);
+
+    // 按基金取净值时额外多取的条数，覆盖交易日历之外的日期
+    private static final int FETCH_BUFFER_ROWS = 10;
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private MonitorFundMapper monitorFundMapper;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+
+    @Value("${correlation.window-days:250}")
+    private int windowDays;
+
+    @Value("${correlation.min-observations:60}")
+    private int minObservations;
+
+    @Value("${correlation.rebuild-every-days:20}")
+    private int rebuildEveryDays;
+
+    @Value("${correlation.settle-days:3}")
+    private int settleDays;
+
+    private CorrelationEngine engine;
+
+    private List<Target> targets = Collections.emptyList();
+
+    private LocalDate lastDay;
+
+    private int incrementalDays;
+
+    /**
+     * 每天在上午和午后的净值抓取完成后更新
+     */
+    @Scheduled(cron = "${correlation.cron:0 30 15 * * ?}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("更新相关系数矩阵失败", e);
+        }
+    }
+
+    /**
+     * 更新相关系数：标的变化或到达重算周期时全量计算，否则只加入新的交易日
+     */
+    public synchronized void refresh() {
+        List<Target> currentTargets = loadTargets();
+        LocalDate endDate = tradingCalendarService.expectedNavDate(LocalDate.now());
+        if (engine == null || !currentTargets.equals(targets) || incrementalDays >= rebuildEveryDays) {
+            rebuild(currentTargets, endDate);
+        } else {
+            advance(endDate);
+        }
+    }
+
+    /**
+     * 全量重算
+     */
+    public synchronized void rebuild() {
+        rebuild(loadTargets(), tradingCalendarService.expectedNavDate(LocalDate.now()));
+    }
+
+    /**
+     * 获取相关系数矩阵
+     *
+     * @return 标的列表和矩阵，数据不足的位置为null
+     */
+    public synchronized Map<String, Object> getMatrix() {
+        ensureLoaded();
+        int n = targets.size();
+        List<List<Double>> matrix = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Double> row = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                row.add(round(engine.correlation(i, j)));
+            }
+            matrix.add(row);
+        }
+        Map<String, Object> result = status();
+        result.put("targets", targets);
+        result.put("matrix", matrix);
+        return result;
+    }
+
+    /**
+     * 获取相关性最高（或最低）的标的对
+     *
+     * @param limit   数量
+     * @param highest true 取最高，false 取最低
+     * @return 标的对列表
+     */
+    public synchronized List<Map<String, Object>> getTopPairs(int limit, boolean highest) {
+        ensureLoaded();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (CorrelationEngine.Pair pair : engine.topPairs(limit, highest)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("first", targets.get(pair.getFirst()));
+            item.put("second", targets.get(pair.getSecond()));
+            item.put("correlation", round(pair.getCorrelation()));
+            item.put("observations", pair.getObservations());
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 获取引擎状态
+     *
+     * @return 状态信息
+     */
+    public synchronized Map<String, Object> getStatus() {
+        return status();
+    }
+
+    private Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("asOfDate", lastDay);
+        status.put("targetCount", targets.size());
+        status.put("windowDays", windowDays);
+        status.put("dayCount", engine == null ? 0 : engine.getDayCount());
+        status.put("incrementalDays", incrementalDays);
+        return status;
+    }
+
+    private void ensureLoaded() {
+        if (engine == null) {
+            refresh();
+        }
+    }
+
+    private void rebuild(List<Target> newTargets, LocalDate endDate) {
+        long start = System.currentTimeMillis();
+        TradingCalendar calendar = tradingCalendarService.getCalendar();
+        // 多取 settleDays 天，尾部未齐全的交易日不载入时窗口仍然是满的
+        int dayCount = windowDays + settleDays;
+        List<LocalDate> dates = new ArrayList<>(dayCount);
+        for (LocalDate day = calendar.tradingDayOnOrBefore(endDate); dates.size() < dayCount;
+             day = calendar.previousTradingDay(day)) {
+            dates.add(day);
+        }
+        Collections.reverse(dates);
+
+        List<double[]> rows = loadRows(newTargets, dates);
+        int settled = settledCount(rows, settleDays);
+        CorrelationEngine newEngine = new CorrelationEngine(newTargets.size(), windowDays, minObservations);
+        newEngine.bulkLoad(rows.subList(0, settled));
+        engine = newEngine;
+        targets = newTargets;
+        lastDay = settled > 0 ? dates.get(settled - 1) : calendar.previousTradingDay(dates.get(0));
+        incrementalDays = 0;
+        log.info("相关系数矩阵全量计算完成: 标的 {} 个, 窗口 {} 个交易日, 截止 {}, 耗时 {} ms",
+                newTargets.size(), windowDays, lastDay, System.currentTimeMillis() - start);
+    }
+
+    private void advance(LocalDate endDate) {
+        List<LocalDate> dates = tradingCalendarService.getCalendar().tradingDaysBetween(lastDay.plusDays(1), endDate);
+        if (dates.isEmpty()) {
+            return;
+        }
+        List<double[]> rows = loadRows(targets, dates);
+        int settled = settledCount(rows, settleDays);
+        if (settled == 0) {
+            log.info("{} 之后的交易日数据尚未齐全，暂不更新相关系数矩阵", lastDay);
+            return;
+        }
+        for (double[] row : rows.subList(0, settled)) {
+            engine.addDay(row);
+        }
+        lastDay = dates.get(settled - 1);
+        incrementalDays += settled;
+        log.info("相关系数矩阵增量更新 {} 个交易日，截止 {}，尚未齐全 {} 个交易日",
+                settled, lastDay, dates.size() - settled);
+    }
+
+    /**
+     * 计算可以加入矩阵的前缀天数
+     * <p>
+     * 某天所有标的都有数据，或之后已经过去 settleDays 个交易日（仍缺失视为停牌等原因不再补齐），该天才算已确定；
+     * 遇到第一个未确定的交易日即停止，其后的交易日留到下次更新重新读取。
+     * </p>
+     *
+     * @param rows       按日期升序的每日数据，最后一行为期望的最新净值日期
+     * @param settleDays 最多等待的交易日数
+     * @return 已确定的前缀行数
+     */
+    static int settledCount(List<double[]> rows, int settleDays) {
+        int settled = 0;
+        for (int t = 0; t < rows.size(); t++) {
+            if (rows.size() - 1 - t < settleDays && !isComplete(rows.get(t))) {
+                break;
+            }
+            settled++;
+        }
+        return settled;
+    }
+
+    private static boolean isComplete(double[] row) {
+        for (double value : row) {
+            if (Double.isNaN(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按日期加载各标的的日涨跌幅，缺失为 NaN
+     *
+     * @param targetList 标的列表
+     * @param dates      交易日（升序）
+     * @return 每个交易日一行，每个标的一列
+     */
+    private List<double[]> loadRows(List<Target> targetList, List<LocalDate> dates) {
+        Map<LocalDate, Integer> dayIndex = new HashMap<>();
+        List<double[]> rows = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
+            dayIndex.put(date, rows.size());
+            double[] row = new double[targetList.size()];
+            Arrays.fill(row, Double.NaN);
+            rows.add(row);
+        }
+
+        List<String> fundCodes = new ArrayList<>();
+        Map<String, Integer> fundColumns = new HashMap<>();
+        for (int i = 0; i < targetList.size(); i++) {
+            Target target = targetList.get(i);
+            if (PerformanceMetric.TYPE_FUND.equals(target.getType())) {
+                fundCodes.add(target.getCode());
+                fundColumns.put(target.getCode(), i);
+            }
+        }
+        Map<String, List<FundNav>> navByFund =
+                fundNavMapper.selectRecentDaysGrouped(fundCodes, dates.size() + FETCH_BUFFER_ROWS);
+        for (Map.Entry<String, List<FundNav>> entry : navByFund.entrySet()) {
+            int column = fundColumns.get(entry.getKey());
+            for (FundNav nav : entry.getValue()) {
+                Integer row = dayIndex.get(nav.getNavDate());
+                if (row != null && nav.getDailyReturn() != null) {
+                    rows.get(row)[column] = nav.getDailyReturn().doubleValue();
+                }
+            }
+        }
+
+        LocalDate startDate = dates.get(0);
+        LocalDate endDate = dates.get(dates.size() - 1);
+        for (int i = 0; i < targetList.size(); i++) {
+            Target target = targetList.get(i);
+            if (!PerformanceMetric.TYPE_INDEX.equals(target.getType())) {
+                continue;
+            }
+            for (IndexData data : indexDataMapper.selectByDateRange(target.getCode(), startDate, endDate)) {
+                Integer row = dayIndex.get(data.getTradeDate());
+                if (row != null && data.getDailyReturn() != null) {
+                    rows.get(row)[i] = data.getDailyReturn().doubleValue();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private List<Target> loadTargets() {
+        List<Target> result = new ArrayList<>();
+        for (MonitorFund fund : monitorFundMapper.selectAllEnabled()) {
+            result.add(new Target(PerformanceMetric.TYPE_FUND, fund.getFundCode(), fund.getFundName()));
+        }
+        List<String> indexCodes = indexDataService.getSupportedIndexCodes();
+        Collections.sort(indexCodes);
+        for (String indexCode : indexCodes) {
+            result.add(new Target(PerformanceMetric.TYPE_INDEX, indexCode, indexDataService.getIndexName(indexCode)));
+        }
+        return result;
+    }
+
+    private static Double round(double value) {
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * 参与计算的标的
+     */
+    public static final class Target {
+
+        private final String type;
+
+        private final String code;
+
+        private final String name;
+
+        Target(String type, String code, String name) {
+            this.type = type;
+            this.code = code;
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Target)) {
+                return false;
+            }
+            Target other = (Target) o;
+            return type.equals(other.type) && code.equals(other.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, code);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import com.sunlight.invest.fund.monitor.mapper.CrawlRetryTaskMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 抓取重试队列服务
+ * <p>
+ * 负责失败任务的登记、退避时间计算（带随机抖动）和死信处理，
+ * 实际的重试执行由 CrawlRetryScheduler 完成。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Service
+public class CrawlRetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlRetryService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private CrawlRetryTaskMapper crawlRetryTaskMapper;
+
+    @Value("${crawl.retry.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${crawl.retry.backoff-base-minutes:5}")
+    private long backoffBaseMinutes;
+
+    @Value("${crawl.retry.backoff-max-minutes:240}")
+    private long backoffMaxMinutes;
+
+    /**
+     * 登记抓取失败，进入重试队列
+     *
+     * @param taskType   任务类型
+     * @param targetCode 基金代码或指数代码
+     * @param targetName 基金名称或指数名称
+     * @param startDate  抓取开始日期
+     * @param endDate    抓取结束日期
+     * @param error      失败原因
+     */
+    public void enqueue(String taskType, String targetCode, String targetName,
+                        LocalDate startDate, LocalDate endDate, Throwable error) {
+        try {
+            CrawlRetryTask task = new CrawlRetryTask();
+            task.setTaskType(taskType);
+            task.setTargetCode(targetCode);
+            task.setTargetName(targetName);
+            task.setStartDate(startDate);
+            task.setEndDate(endDate);
+            task.setNextRetryTime(LocalDateTime.now().plusSeconds(nextDelaySeconds(1)));
+            task.setLastError(errorMessage(error));
+            crawlRetryTaskMapper.upsertFailure(task);
+            log.info("抓取失败已加入重试队列: type={}, code={}, {} 至 {}", taskType, targetCode, startDate, endDate);
+        } catch (Exception e) {
+            log.error("加入重试队列失败: type={}, code={}", taskType, targetCode, e);
+        }
+    }
+
+    /**
+     * 查询已到重试时间的任务
+     *
+     * @param limit 最大数量
+     * @return 任务列表
+     */
+    public List<CrawlRetryTask> findDueTasks(int limit) {
+        return crawlRetryTaskMapper.selectDue(LocalDateTime.now(), limit);
+    }
+
+    /**
+     * 记录分段重试的进度，之前的分段已成功，下次从 nextStart 开始重试
+     *
+     * @param task      重试任务
+     * @param nextStart 首个未成功分段的开始日期
+     */
+    public void markProgress(CrawlRetryTask task, LocalDate nextStart) {
+        if (!nextStart.isAfter(task.getStartDate())) {
+            return;
+        }
+        try {
+            crawlRetryTaskMapper.advanceStartDate(task.getId(), task.getStartDate(), nextStart);
+        } catch (Exception e) {
+            log.warn("记录重试进度失败: type={}, code={}, error={}", task.getTaskType(), task.getTargetCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * 将日期范围按年切分，与手动抓取的单次请求范围一致
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 分段列表，每项为 {开始日期, 结束日期}，按日期升序
+     */
+    public static List<LocalDate[]> yearlyChunks(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate[]> chunks = new ArrayList<>();
+        LocalDate chunkStart = startDate;
+        while (!chunkStart.isAfter(endDate)) {
+            LocalDate chunkEnd = chunkStart.plusYears(1).minusDays(1);
+            if (chunkEnd.isAfter(endDate)) {
+                chunkEnd = endDate;
+            }
+            chunks.add(new LocalDate[]{chunkStart, chunkEnd});
+            chunkStart = chunkEnd.plusDays(1);
+        }
+        return chunks;
+    }
+
+    /**
+     * 记录重试成功
+     *
+     * @param task 重试任务
+     */
+    public void markSuccess(CrawlRetryTask task) {
+        int attempts = task.getAttempts() == null ? 1 : task.getAttempts() + 1;
+        crawlRetryTaskMapper.updateResult(task.getId(), CrawlRetryTask.STATUS_SUCCESS, attempts, null, task.getLastError());
+        log.info("重试成功: type={}, code={}, 第 {} 次重试", task.getTaskType(), task.getTargetCode(), attempts);
+    }
+
+    /**
+     * 记录重试失败，超过最大次数后进入死信状态
+     *
+     * @param task  重试任务
+     * @param error 失败原因
+     */
+    public void markFailure(CrawlRetryTask task, Throwable error) {
+        int attempts = task.getAttempts() == null ? 1 : task.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            crawlRetryTaskMapper.updateResult(task.getId(), CrawlRetryTask.STATUS_DEAD, attempts, null, errorMessage(error));
+            log.error("重试 {} 次仍失败，进入死信: type={}, code={}", attempts, task.getTaskType(), task.getTargetCode());
+        } else {
+            LocalDateTime nextRetryTime = LocalDateTime.now().plusSeconds(nextDelaySeconds(attempts + 1));
+            crawlRetryTaskMapper.updateResult(task.getId(), CrawlRetryTask.STATUS_PENDING, attempts, nextRetryTime, errorMessage(error));
+            log.warn("重试失败: type={}, code={}, 第 {} 次, 下次重试时间: {}",
+                    task.getTaskType(), task.getTargetCode(), attempts, nextRetryTime);
+        }
+    }
+
+    /**
+     * 目标正常抓取成功后关闭其待重试任务
+     *
+     * @param taskType   任务类型
+     * @param targetCode 目标代码
+     */
+    public void resolve(String taskType, String targetCode) {
+        try {
+            crawlRetryTaskMapper.resolve(taskType, targetCode);
+        } catch (Exception e) {
+            log.warn("关闭重试任务失败: type={}, code={}, error={}", taskType, targetCode, e.getMessage());
+        }
+    }
+
+    /**
+     * 按状态查询重试任务
+     *
+     * @param status 状态，为空时查询全部
+     * @param limit  最大数量
+     * @return 任务列表
+     */
+    public List<CrawlRetryTask> listTasks(String status, int limit) {
+        return crawlRetryTaskMapper.selectByStatus(status, limit);
+    }
+
+    /**
+     * 统计各状态任务数量
+     *
+     * @return 状态到数量的映射
+     */
+    public Map<String, Integer> getStats() {
+        Map<String, Integer> stats = new HashMap<>();
+        stats.put("pending", crawlRetryTaskMapper.countByStatus(CrawlRetryTask.STATUS_PENDING));
+        stats.put("dead", crawlRetryTaskMapper.countByStatus(CrawlRetryTask.STATUS_DEAD));
+        return stats;
+    }
+
+    /**
+     * 重新投递死信任务
+     *
+     * @param ids 任务ID列表，为空时投递全部死信任务
+     * @return 重新投递的数量
+     */
+    public int redrive(List<Long> ids) {
+        int count = crawlRetryTaskMapper.redriveDead(ids);
+        log.info("重新投递死信任务 {} 个", count);
+        return count;
+    }
+
+    /**
+     * 计算第N次重试前的等待时间：指数退避，并在后一半区间内随机抖动，
+     * 避免大量任务在同一时刻集中重试
+     *
+     * @param attempt 即将进行的重试序号（从1开始）
+     * @return 等待秒数
+     */
+    long nextDelaySeconds(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 16);
+        long capSeconds = Math.min(backoffBaseMinutes << shift, backoffMaxMinutes) * 60;
+        long half = capSeconds / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private String errorMessage(Throwable error) {
+        if (error == null) {
+            return null;
+        }
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,306 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.common.LruCache;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基金对比分析服务
+ * <p>
+ * 对多只基金在同一区间内做对比：按共同交易日对齐的累计收益曲线、日收益相关系数矩阵、
+ * 相对指定指数的贝塔系数以及回撤统计。数据加载和计算按基金并行执行，
+ * 结果按（基金代码、区间、指数、数据版本）缓存，数据有更新时自动失效。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class FundComparisonService {
+
+    private static final Logger log = LoggerFactory.getLogger(FundComparisonService.class);
+
+    // 单次最多对比的基金数量
+    static final int MAX_FUNDS = 10;
+
+    // 默认基准指数：沪深300
+    public static final String DEFAULT_INDEX_CODE = "000300";
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private FundNavService fundNavService;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Autowired
+    private SeriesArchiveService seriesArchiveService;
+
+    @Value("${fund.compare.threads:4}")
+    private int threads;
+
+    @Value("${fund.compare.cache-size:64}")
+    private int cacheSize;
+
+    private ExecutorService executor;
+
+    private LruCache<String, Map<String, Object>> cache;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "fund-compare-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        cache = new LruCache<>(Math.max(1, cacheSize));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 对比多只基金
+     *
+     * @param fundCodes 基金代码列表
+     * @param days      对比区间（自然日，截止今天）
+     * @param indexCode 计算贝塔系数使用的指数代码
+     * @return 对比结果
+     */
+    public Map<String, Object> compare(List<String> fundCodes, int days, String indexCode) {
+        List<String> codes = new ArrayList<>(new LinkedHashSet<>(fundCodes));
+        if (codes.isEmpty() || codes.size() > MAX_FUNDS) {
+            throw new IllegalArgumentException("对比基金数量需在1到" + MAX_FUNDS + "之间");
+        }
+        if (days < 7) {
+            throw new IllegalArgumentException("对比区间不能少于7天");
+        }
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(days);
+
+        // 数据版本取自最新净值汇总表和指数最新行情，均为主键或索引读取
+        Map<String, FundNavLatest> latestMap = fundNavService.getLatestMap(codes);
+        IndexData latestIndex = indexDataMapper.selectLatest(indexCode);
+        String cacheKey = String.join(",", codes) + "|" + startDate + "|" + endDate + "|" + indexCode
+                + "|" + dataVersion(codes, latestMap, latestIndex);
+        Map<String, Object> cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        long start = System.currentTimeMillis();
+        Map<String, Object> result = Collections.unmodifiableMap(
+                doCompare(codes, latestMap, indexCode, latestIndex, startDate, endDate));
+        cache.put(cacheKey, result);
+        log.info("基金对比完成: codes={}, days={}, index={}, 耗时 {} ms",
+                codes, days, indexCode, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 获取缓存统计
+     *
+     * @return 缓存大小和命中情况
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("capacity", cache.getCapacity());
+        stats.put("hits", cache.getHits());
+        stats.put("misses", cache.getMisses());
+        return stats;
+    }
+
+    private Map<String, Object> doCompare(List<String> codes, Map<String, FundNavLatest> latestMap,
+                                          String indexCode, IndexData latestIndex,
+                                          LocalDate startDate, LocalDate endDate) {
+        // 并行加载各基金净值和指数行情，归档包含最新数据的标的直接读取映射文件
+        List<CompletableFuture<PriceSeries>> fundFutures = new ArrayList<>();
+        for (String code : codes) {
+            FundNavLatest latest = latestMap.get(code);
+            String name = latest != null ? latest.getFundName() : code;
+            fundFutures.add(CompletableFuture.supplyAsync(() -> {
+                ColumnarSeries archive = seriesArchiveService.currentFund(code, latest);
+                return archive != null
+                        ? PriceSeries.ofArchive(archive, SeriesArchiveService.FUND_UNIT_NAV, startDate, endDate)
+                        : PriceSeries.ofFundNav(code, name, fundNavMapper.selectByDateRange(code, startDate, endDate));
+            }, executor));
+        }
+        CompletableFuture<PriceSeries> indexFuture = CompletableFuture.supplyAsync(() -> {
+            ColumnarSeries archive = seriesArchiveService.currentIndex(indexCode, latestIndex);
+            return archive != null
+                    ? PriceSeries.ofArchive(archive, SeriesArchiveService.INDEX_CLOSE, startDate, endDate)
+                    : PriceSeries.ofIndexData(indexCode, indexDataService.getIndexName(indexCode),
+                    indexDataMapper.selectByDateRange(indexCode, startDate, endDate));
+        }, executor);
+
+        List<PriceSeries> seriesList = join(fundFutures);
+        PriceSeries index = join(Collections.singletonList(indexFuture)).get(0);
+        for (PriceSeries series : seriesList) {
+            if (series.size() < 2) {
+                throw new IllegalArgumentException("基金 " + series.getCode() + " 在区间内的净值数据不足");
+            }
+        }
+
+        // 按共同交易日对齐，并行计算每只基金的指标
+        int[] commonDays = PriceSeries.commonDays(seriesList);
+        if (commonDays.length < 2) {
+            throw new IllegalArgumentException("所选基金在区间内没有足够的共同交易日");
+        }
+        List<CompletableFuture<FundResult>> resultFutures = new ArrayList<>();
+        for (PriceSeries series : seriesList) {
+            resultFutures.add(CompletableFuture.supplyAsync(() -> analyze(series, commonDays, index), executor));
+        }
+        List<FundResult> fundResults = join(resultFutures);
+
+        // 相关系数矩阵按行并行计算，只算上三角
+        int n = fundResults.size();
+        double[][] matrix = new double[n][n];
+        List<CompletableFuture<Void>> rowFutures = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            final int row = i;
+            rowFutures.add(CompletableFuture.runAsync(() -> {
+                matrix[row][row] = 1.0;
+                for (int col = row + 1; col < n; col++) {
+                    double corr = PriceSeries.correlation(fundResults.get(row).returns, fundResults.get(col).returns);
+                    matrix[row][col] = corr;
+                    matrix[col][row] = corr;
+                }
+            }, executor));
+        }
+        join(rowFutures);
+
+        List<LocalDate> dates = new ArrayList<>(commonDays.length);
+        for (int day : commonDays) {
+            dates.add(LocalDate.ofEpochDay(day));
+        }
+        List<Map<String, Object>> funds = new ArrayList<>();
+        for (FundResult fundResult : fundResults) {
+            funds.add(fundResult.data);
+        }
+        List<List<Double>> correlation = new ArrayList<>();
+        for (double[] row : matrix) {
+            List<Double> values = new ArrayList<>(n);
+            for (double value : row) {
+                values.add(round(value));
+            }
+            correlation.add(values);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startDate", startDate);
+        result.put("endDate", endDate);
+        result.put("indexCode", indexCode);
+        result.put("indexName", index.getName());
+        result.put("dates", dates);
+        result.put("funds", funds);
+        result.put("codes", codes);
+        result.put("correlation", correlation);
+        return result;
+    }
+
+    private FundResult analyze(PriceSeries series, int[] commonDays, PriceSeries index) {
+        double[] aligned = series.valuesOn(commonDays);
+        List<Double> cumulative = new ArrayList<>(aligned.length);
+        for (double value : aligned) {
+            cumulative.add(round((value / aligned[0] - 1) * 100));
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("fundCode", series.getCode());
+        data.put("fundName", series.getName());
+        data.put("dataPoints", series.size());
+        data.put("totalReturn", round((series.valueAt(series.size() - 1) / series.valueAt(0) - 1) * 100));
+        data.put("cumulativeReturns", cumulative);
+        data.put("beta", index.size() < 2 ? null : round(series.betaTo(index)));
+        PriceSeries.Drawdown drawdown = series.drawdown();
+        data.put("maxDrawdown", round(drawdown.getMaxDrawdown() * 100));
+        data.put("peakDate", drawdown.getPeakDate());
+        data.put("troughDate", drawdown.getTroughDate());
+        data.put("currentDrawdown", round(drawdown.getCurrentDrawdown() * 100));
+        return new FundResult(PriceSeries.returns(aligned), data);
+    }
+
+    private String dataVersion(List<String> codes, Map<String, FundNavLatest> latestMap, IndexData latestIndex) {
+        StringBuilder version = new StringBuilder();
+        for (String code : codes) {
+            FundNavLatest latest = latestMap.get(code);
+            if (latest != null) {
+                version.append(latest.getNavDate()).append('/').append(latest.getNavCount())
+                        .append('/').append(latest.getUpdateTime());
+            }
+            version.append(';');
+        }
+        if (latestIndex != null) {
+            version.append(latestIndex.getTradeDate()).append('/').append(latestIndex.getUpdateTime());
+        }
+        return version.toString();
+    }
+
+    private static <T> List<T> join(List<CompletableFuture<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static Double round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * 单只基金的计算结果
+     */
+    private static class FundResult {
+        private final double[] returns;
+        private final Map<String, Object> data;
+
+        FundResult(double[] returns, Map<String, Object> data) {
+            this.returns = returns;
+            this.data = data;
+        }
+    }
+}
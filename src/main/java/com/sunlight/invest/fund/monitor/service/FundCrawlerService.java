@@ -1,7 +1,7 @@
 package com.sunlight.invest.fund.monitor.service;
 
 import com.sunlight.invest.fund.monitor.entity.FundNav;
-import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -41,7 +41,10 @@ public class FundCrawlerService {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     @Autowired
-    private FundNavMapper fundNavMapper;
+    private FundNavService fundNavService;
+
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
 
     private final OkHttpClient httpClient = new OkHttpClient.Builder()
             .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
@@ -58,6 +61,25 @@ public class FundCrawlerService {
      * @return 基金净值列表
      */
     public List<FundNav> crawlFundNav(String fundCode, String fundName, LocalDate startDate, LocalDate endDate) {
+        try {
+            return fetchFundNav(fundCode, fundName, startDate, endDate);
+        } catch (Exception e) {
+            log.error("爬取基金数据失败: fundCode={}, error={}", fundCode, e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 爬取指定基金的净值数据，失败时抛出异常
+     *
+     * @param fundCode  基金代码
+     * @param fundName  基金名称
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 基金净值列表
+     * @throws Exception 网络请求或解析失败
+     */
+    private List<FundNav> fetchFundNav(String fundCode, String fundName, LocalDate startDate, LocalDate endDate) throws Exception {
         log.info("开始爬取基金数据: fundCode={}, startDate={}, endDate={}", fundCode, startDate, endDate);
 
         String url = URL_TEMPLATE
@@ -65,15 +87,10 @@ public class FundCrawlerService {
                 .replace("{startDate}", startDate.format(DATE_FORMATTER))
                 .replace("{endDate}", endDate.format(DATE_FORMATTER));
 
-        try {
-            String html = fetchHtml(url);
-            List<FundNav> navList = parseHtml(html, fundCode, fundName);
-            log.info("成功爬取基金数据: fundCode={}, count={}", fundCode, navList.size());
-            return navList;
-        } catch (Exception e) {
-            log.error("爬取基金数据失败: fundCode={}, error={}", fundCode, e.getMessage(), e);
-            return new ArrayList<>();
-        }
+        String html = fetchHtml(url);
+        List<FundNav> navList = parseHtml(html, fundCode, fundName);
+        log.info("成功爬取基金数据: fundCode={}, count={}", fundCode, navList.size());
+        return navList;
     }
 
     /**
@@ -212,29 +229,26 @@ public class FundCrawlerService {
      * @return true表示需要爬取，false表示不需要爬取
      */
     public boolean shouldCrawl(String fundCode, LocalDate endDate) {
-        // 首先检查是否有最新的数据
-        FundNav latestNav = fundNavMapper.selectLatest(fundCode);
+        // 首先检查是否有最新的数据（按主键读取汇总表）
+        FundNavLatest latestNav = fundNavService.getLatest(fundCode);
         
         // 如果没有最新数据，则需要爬取
         if (latestNav == null) {
             return true;
         }
         
-        // 如果有最新数据，检查数据是否足够新
+        // 如果有最新数据，按交易日历判断数据是否足够新
         LocalDate latestDate = latestNav.getNavDate();
-        LocalDate today = LocalDate.now();
-        LocalDate yesterday = today.minusDays(1);
-        
-        // 如果最新数据是今天或昨天，则不需要重新爬取
-        if (latestDate.equals(today) || latestDate.equals(yesterday)) {
-            log.info("基金{}已有最新数据，无需重新爬取: latestDate={}", fundCode, latestDate);
-            return false;
+        LocalDate expectedDate = tradingCalendarService.expectedNavDate(LocalDate.now());
+        LocalDate endTradingDate = tradingCalendarService.getCalendar().tradingDayOnOrBefore(endDate);
+        if (endTradingDate.isBefore(expectedDate)) {
+            expectedDate = endTradingDate;
         }
         
-        // 如果最新数据是前天或更早，但结束日期早于最新数据日期，则也不需要爬取
-        if (endDate.isBefore(latestDate)) {
-            log.info("基金{}的结束日期早于最新数据日期，无需爬取: endDate={}, latestDate={}", 
-                     fundCode, endDate, latestDate);
+        // 最新数据已覆盖期望的最新交易日（周末、节假日后无新净值），无需重新爬取
+        if (!latestDate.isBefore(expectedDate)) {
+            log.info("基金{}已有最新数据，无需重新爬取: latestDate={}, expectedDate={}",
+                     fundCode, latestDate, expectedDate);
             return false;
         }
         
@@ -257,14 +271,35 @@ public class FundCrawlerService {
             return 0;
         }
         
-        // 如果需要爬取，则进行爬取
-        List<FundNav> navList = crawlFundNav(fundCode, fundName, startDate, endDate);
+        return forceCrawlAndSave(fundCode, fundName, startDate, endDate);
+    }
+
+    /**
+     * 不检查已有数据，直接爬取并保存基金数据
+     * <p>
+     * 用于晚间轮询：期望的净值尚未公布时需要反复抓取当天数据。
+     * </p>
+     *
+     * @param fundCode  基金代码
+     * @param fundName  基金名称
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 保存成功的记录数
+     */
+    public int forceCrawlAndSave(String fundCode, String fundName, LocalDate startDate, LocalDate endDate) {
+        // 抓取失败时向上抛出，由调用方决定是否进入重试队列
+        List<FundNav> navList;
+        try {
+            navList = fetchFundNav(fundCode, fundName, startDate, endDate);
+        } catch (Exception e) {
+            throw new RuntimeException("爬取基金数据失败: " + e.getMessage(), e);
+        }
         if (navList.isEmpty()) {
             log.warn("未爬取到数据: fundCode={}", fundCode);
             return 0;
         }
 
-        int count = fundNavMapper.batchInsert(navList);
+        int count = fundNavService.saveAll(navList);
         log.info("保存基金数据成功: fundCode={}, count={}", fundCode, count);
         return count;
     }
@@ -2,13 +2,16 @@ package com.sunlight.invest.fund.monitor.service;
 
 import com.sunlight.ai.service.DeepSeekService;
 import com.sunlight.invest.fund.monitor.entity.AlarmRecord;
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
 import com.sunlight.invest.fund.monitor.entity.FundNav;
 import com.sunlight.invest.fund.monitor.entity.MonitorFund;
 import com.sunlight.invest.fund.monitor.mapper.AlarmRecordMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
 import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
 import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
 import com.sunlight.invest.notification.service.EmailNotificationService;
 import com.sunlight.invest.system.service.SystemConfigService;
+import com.sunlight.invest.system.service.SystemConfigSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +19,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -44,6 +48,9 @@ public class FundMonitorService {
     @Autowired
     private FundNavMapper fundNavMapper;
 
+    @Autowired
+    private FundNavLatestMapper fundNavLatestMapper;
+
     @Autowired
     private EmailNotificationService emailNotificationService;
 
@@ -62,6 +69,12 @@ public class FundMonitorService {
     @Autowired
     private DeepSeekService deepSeekService;
     
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+    
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+    
     // 内部类用于存储预警信息
     private static class AlertInfo {
         private String subject;
@@ -85,30 +98,66 @@ public class FundMonitorService {
 
     @Scheduled(cron = "#{systemConfigService.scheduleCron}")
     public void scheduledMonitorTask() {
+        // 前一天不是交易日则没有新净值，跳过抓取和规则评估
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if (!tradingCalendarService.isTradingDay(yesterday)) {
+            log.info("{} 不是交易日，无新净值，跳过基金监控定时任务", yesterday);
+            return;
+        }
+        runMonitorTask();
+    }
+
+    /**
+     * 执行所有启用基金的数据更新和监控检查（不做交易日判断，用于手动触发）
+     */
+    public void runMonitorTask() {
         // 从数据库获取所有启用的监控基金
         List<MonitorFund> monitorFunds = monitorFundMapper.selectAllEnabled();
         log.info("获取到 {} 个启用的监控基金", monitorFunds.size());
 
+        // 本轮任务统一使用同一份配置快照
+        SystemConfigSnapshot config = systemConfigService.getSnapshot();
+
         // 收集所有基金的预警信息
         List<AlertInfo> allAlerts = new ArrayList<>();
 
+        // 1. 逐个增量更新基金数据
+        List<String> updatedCodes = new ArrayList<>();
         for (MonitorFund monitorFund : monitorFunds) {
             String fundCode = monitorFund.getFundCode();
             String fundName = monitorFund.getFundName();
 
             try {
-                // 1. 增量更新基金数据
                 log.info("开始更新基金数据: {} - {}", fundCode, fundName);
                 int updateCount = fundCrawlerService.incrementalUpdate(fundCode, fundName);
                 log.info("基金数据更新完成: {} - {}, 更新记录数: {}", fundCode, fundName, updateCount);
-
-                // 2. 执行监控检查
-                log.info("开始监控基金: {} - {}", fundCode, fundName);
-                monitorFund(fundCode, allAlerts); // 传递全局预警列表
-                log.info("基金监控完成: {} - {}", fundCode, fundName);
-
+                crawlRetryService.resolve(CrawlRetryTask.TYPE_FUND, fundCode);
+                updatedCodes.add(fundCode);
             } catch (Exception e) {
+                // 抓取失败进入重试队列，补抓成功后会单独执行监控检查
                 log.error("处理基金失败: {} - {}", fundCode, fundName, e);
+                LocalDate today = LocalDate.now();
+                crawlRetryService.enqueue(CrawlRetryTask.TYPE_FUND, fundCode, fundName,
+                        today.minusMonths(1), today, e);
+            }
+        }
+
+        // 2. 一次查询所有基金最近配置天数的数据，逐个执行监控检查
+        Map<String, List<FundNav>> navByFund =
+                fundNavMapper.selectRecentDaysGrouped(updatedCodes, config.getMonitorDays());
+        for (String fundCode : updatedCodes) {
+            try {
+                List<FundNav> navList = navByFund.get(fundCode);
+                // 晚间轮询或重试补抓已评估过最新净值的基金不再重复预警
+                if (!claimAlert(fundCode, navList)) {
+                    log.info("基金 {} 最新净值已评估过预警，跳过", fundCode);
+                    continue;
+                }
+                log.info("开始监控基金: {}", fundCode);
+                evaluateFund(fundCode, navList, allAlerts, config); // 传递全局预警列表
+                log.info("基金监控完成: {}", fundCode);
+            } catch (Exception e) {
+                log.error("监控基金失败: {}", fundCode, e);
             }
         }
 
@@ -127,13 +176,33 @@ public class FundMonitorService {
      * @param allAlerts 全局预警信息列表
      */
     public void monitorFund(String fundCode, List<AlertInfo> allAlerts) {
+        monitorFund(fundCode, allAlerts, systemConfigService.getSnapshot());
+    }
+
+    /**
+     * 使用指定配置快照监控基金，并将预警信息添加到全局列表中
+     *
+     * @param fundCode  基金代码
+     * @param allAlerts 全局预警信息列表
+     * @param config    配置快照
+     */
+    private void monitorFund(String fundCode, List<AlertInfo> allAlerts, SystemConfigSnapshot config) {
         log.info("开始监控基金: {}", fundCode);
 
-        // 从配置服务获取监控天数
-        int monitorDays = systemConfigService.getMonitorDays();
-        
         // 获取最近配置天数的数据 降序
-        List<FundNav> navList = fundNavMapper.selectRecentDays(fundCode, monitorDays);
+        List<FundNav> navList = fundNavMapper.selectRecentDays(fundCode, config.getMonitorDays());
+        evaluateFund(fundCode, navList, allAlerts, config);
+    }
+
+    /**
+     * 对已查出的净值数据执行规则检查，并将预警信息添加到全局列表中
+     *
+     * @param fundCode  基金代码
+     * @param navList   最近配置天数的净值数据（按日期降序）
+     * @param allAlerts 全局预警信息列表
+     * @param config    配置快照
+     */
+    private void evaluateFund(String fundCode, List<FundNav> navList, List<AlertInfo> allAlerts, SystemConfigSnapshot config) {
         if (navList == null || navList.isEmpty()) {
             log.warn("基金 {} 没有数据", fundCode);
             return;
@@ -143,11 +212,11 @@ public class FundMonitorService {
         List<AlertInfo> fundAlerts = new ArrayList<>();
 
         // 执行五种规则检查并收集预警信息
-        checkRuleA(navList, fundAlerts);
-        checkRuleB(navList, fundAlerts);
-        checkRuleC(navList, fundAlerts);
+        checkRuleA(navList, fundAlerts, config);
+        checkRuleB(navList, fundAlerts, config);
+        checkRuleC(navList, fundAlerts, config);
         checkRuleD(navList, fundAlerts);
-        checkRuleE(navList, fundAlerts);
+        checkRuleE(navList, fundAlerts, config);
 
         // 将当前基金的预警信息添加到全局列表
         allAlerts.addAll(fundAlerts);
@@ -159,27 +228,47 @@ public class FundMonitorService {
      * @param fundCode 基金代码
      */
     public void monitorFund(String fundCode) {
+        monitorFund(fundCode, false);
+    }
+
+    /**
+     * 监控指定基金，最新净值日期已评估过预警时跳过
+     * <p>
+     * 供净值轮询和重试补抓使用，与每日监控任务共用 fund_nav_latest.alerted_nav_date，
+     * 同一净值日期无论由哪条路径先评估，预警都只发送一次。
+     * </p>
+     *
+     * @param fundCode 基金代码
+     */
+    public void monitorFundIfNewNav(String fundCode) {
+        monitorFund(fundCode, true);
+    }
+
+    private void monitorFund(String fundCode, boolean skipAlerted) {
         log.info("开始监控基金: {}", fundCode);
 
-        // 从配置服务获取监控天数
-        int monitorDays = systemConfigService.getMonitorDays();
+        SystemConfigSnapshot config = systemConfigService.getSnapshot();
         
         // 获取最近配置天数的数据 降序
-        List<FundNav> navList = fundNavMapper.selectRecentDays(fundCode, monitorDays);
+        List<FundNav> navList = fundNavMapper.selectRecentDays(fundCode, config.getMonitorDays());
         if (navList == null || navList.isEmpty()) {
             log.warn("基金 {} 没有数据", fundCode);
             return;
         }
+        if (skipAlerted && !claimAlert(fundCode, navList)) {
+            log.info("基金 {} 最新净值已评估过预警，跳过", fundCode);
+            return;
+        }
 
         // 收集所有预警信息
         List<AlertInfo> alerts = new ArrayList<>();
 
         // 执行五种规则检查并收集预警信息
-        checkRuleA(navList, alerts);
-        checkRuleB(navList, alerts);
-        checkRuleC(navList, alerts);
+        checkRuleA(navList, alerts, config);
+        checkRuleB(navList, alerts, config);
+        checkRuleC(navList, alerts, config);
         checkRuleD(navList, alerts);
-        checkRuleE(navList, alerts);
+        checkRuleE(navList, alerts, config);
 
         // 如果有预警信息，则集中发送
         if (!alerts.isEmpty()) {
@@ -187,6 +276,26 @@ public class FundMonitorService {
         }
     }
 
+    /**
+     * 认领基金最新净值日期的预警评估
+     *
+     * @param fundCode 基金代码
+     * @param navList  最近的净值数据
+     * @return true 表示尚未评估过，应继续评估；没有数据时也返回true，由后续评估记录告警日志
+     */
+    private boolean claimAlert(String fundCode, List<FundNav> navList) {
+        if (navList == null || navList.isEmpty()) {
+            return true;
+        }
+        LocalDate latestDate = null;
+        for (FundNav nav : navList) {
+            if (latestDate == null || nav.getNavDate().isAfter(latestDate)) {
+                latestDate = nav.getNavDate();
+            }
+        }
+        return fundNavLatestMapper.claimAlert(fundCode, latestDate) > 0;
+    }
+
     /**
      * 规则A：检测连续5天或以上上涨/下跌
      * <p>
@@ -204,15 +313,15 @@ public class FundMonitorService {
      *
      * @param navList 基金净值列表，按日期升序排列
      * @param alerts  预警信息收集列表
+     * @param config  配置快照
      */
-    private void checkRuleA(List<FundNav> navList, List<AlertInfo> alerts) {
+    private void checkRuleA(List<FundNav> navList, List<AlertInfo> alerts, SystemConfigSnapshot config) {
         int consecutiveDays = 1;
         boolean isRising = false;
         BigDecimal cumulativeReturn = BigDecimal.ZERO;
         
-        // 从配置服务获取阈值
-        BigDecimal threshold5Percent = systemConfigService.getThreshold5Percent();
-        int monitorDays = systemConfigService.getMonitorDays();
+        // 从配置快照获取监控天数
+        int monitorDays = config.getMonitorDays();
 
         for (int i = 1; i < navList.size(); i++) {
             FundNav current = navList.get(i);
@@ -263,10 +372,11 @@ public class FundMonitorService {
      *
      * @param navList 基金净值列表，按日期升序排列
      * @param alerts  预警信息收集列表
+     * @param config  配置快照
      */
-    private void checkRuleB(List<FundNav> navList, List<AlertInfo> alerts) {
-        // 从配置服务获取阈值
-        BigDecimal threshold5Percent = systemConfigService.getThreshold5Percent();
+    private void checkRuleB(List<FundNav> navList, List<AlertInfo> alerts, SystemConfigSnapshot config) {
+        // 从配置快照获取阈值
+        BigDecimal threshold5Percent = config.getThreshold5Percent();
         
         if (navList.get(0).getDailyReturn() != null &&
                 navList.get(0).getDailyReturn().abs().compareTo(threshold5Percent) >= 0) {
@@ -284,10 +394,11 @@ public class FundMonitorService {
      *
      * @param navList 基金净值列表，按日期升序排列
      * @param alerts  预警信息收集列表
+     * @param config  配置快照
      */
-    private void checkRuleC(List<FundNav> navList, List<AlertInfo> alerts) {
-        // 从配置服务获取阈值
-        BigDecimal threshold4Percent = systemConfigService.getThreshold4Percent();
+    private void checkRuleC(List<FundNav> navList, List<AlertInfo> alerts, SystemConfigSnapshot config) {
+        // 从配置快照获取阈值
+        BigDecimal threshold4Percent = config.getThreshold4Percent();
         
         // 检查连续2天
 //        for (int i = 0; i < navList.size(); i++) {
@@ -337,10 +448,11 @@ public class FundMonitorService {
      *
      * @param navList 基金净值列表，按日期升序排列
      * @param alerts  预警信息收集列表
+     * @param config  配置快照
      */
-    private void checkRuleE(List<FundNav> navList, List<AlertInfo> alerts) {
-        // 从配置服务获取阈值
-        BigDecimal threshold5Percent = systemConfigService.getThreshold5Percent();
+    private void checkRuleE(List<FundNav> navList, List<AlertInfo> alerts, SystemConfigSnapshot config) {
+        // 从配置快照获取阈值
+        BigDecimal threshold5Percent = config.getThreshold5Percent();
         
         // 检查连续4天
         FundNav current = navList.get(0);
@@ -719,6 +831,15 @@ public class FundMonitorService {
             alertsByFund.computeIfAbsent(fundCode, k -> new ArrayList<>()).add(alert);
         }
 
+        // 一次查询所有预警基金近60天的数据，用于AI分析
+        Map<String, List<FundNav>> aiNavByFund;
+        try {
+            aiNavByFund = fundNavMapper.selectRecentDaysGrouped(alertsByFund.keySet(), 60);
+        } catch (Exception e) {
+            log.error("查询预警基金历史净值失败", e);
+            aiNavByFund = new HashMap<>();
+        }
+
         // 添加每个基金的预警信息
         for (Map.Entry<String, List<AlertInfo>> entry : alertsByFund.entrySet()) {
             String fundCode = entry.getKey();
@@ -761,7 +882,7 @@ public class FundMonitorService {
                 
                 // 为每个基金添加AI智能分析报告
                 try {
-                    List<FundNav> fundNavList = fundNavMapper.selectRecentDays(fundCode, 60);
+                    List<FundNav> fundNavList = aiNavByFund.get(fundCode);
                     String aiAnalysis = generateFundAIAnalysis(fundNavList, fundCode, fundName);
                     
                     htmlBuilder.append("<div class='ai-analysis'>");
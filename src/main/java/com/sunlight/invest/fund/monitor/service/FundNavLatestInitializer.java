@@ -0,0 +1,32 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 最新净值汇总表初始化器
+ * 在应用启动时补齐历史数据对应的汇总行
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Component
+public class FundNavLatestInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(FundNavLatestInitializer.class);
+
+    @Autowired
+    private FundNavService fundNavService;
+
+    @Override
+    public void run(String... args) {
+        try {
+            fundNavService.rebuildStale();
+        } catch (Exception e) {
+            log.error("补齐最新净值汇总表失败", e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基金净值服务
+ * <p>
+ * 统一净值写入入口：净值明细和最新净值汇总表在同一事务中更新，
+ * 读取最新净值时直接按主键查询汇总表。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Service
+public class FundNavService {
+
+    private static final Logger log = LoggerFactory.getLogger(FundNavService.class);
+
+    // 补齐汇总表时每批处理的基金数量
+    private static final int REBUILD_BATCH_SIZE = 50;
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    /**
+     * 批量保存净值并刷新相关基金的最新净值汇总
+     *
+     * @param navList 净值列表
+     * @return 净值表影响行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int saveAll(List<FundNav> navList) {
+        if (navList == null || navList.isEmpty()) {
+            return 0;
+        }
+        int count = fundNavMapper.batchInsert(navList);
+        Set<String> fundCodes = new LinkedHashSet<>();
+        for (FundNav nav : navList) {
+            fundCodes.add(nav.getFundCode());
+        }
+        fundNavLatestMapper.refreshByFundCodes(fundCodes);
+        return count;
+    }
+
+    /**
+     * 查询基金最新净值汇总
+     *
+     * @param fundCode 基金代码
+     * @return 汇总行，没有净值数据时返回null
+     */
+    public FundNavLatest getLatest(String fundCode) {
+        return fundNavLatestMapper.selectByFundCode(fundCode);
+    }
+
+    /**
+     * 批量查询基金最新净值汇总
+     *
+     * @param fundCodes 基金代码集合
+     * @return 基金代码到汇总行的映射
+     */
+    public Map<String, FundNavLatest> getLatestMap(Collection<String> fundCodes) {
+        return fundNavLatestMapper.selectMapByFundCodes(fundCodes);
+    }
+
+    /**
+     * 查询所有监控基金的最新净值状态
+     *
+     * @return 汇总行列表
+     */
+    public List<FundNavLatest> getAllMonitoredStatus() {
+        return fundNavLatestMapper.selectAllMonitored();
+    }
+
+    /**
+     * 补齐缺失或与净值明细不一致的汇总行
+     *
+     * @return 重新计算的基金数量
+     */
+    public int rebuildStale() {
+        List<String> staleCodes = fundNavLatestMapper.selectStaleFundCodes();
+        for (int from = 0; from < staleCodes.size(); from += REBUILD_BATCH_SIZE) {
+            List<String> batch = staleCodes.subList(from, Math.min(from + REBUILD_BATCH_SIZE, staleCodes.size()));
+            fundNavLatestMapper.refreshByFundCodes(batch);
+        }
+        if (!staleCodes.isEmpty()) {
+            log.info("最新净值汇总表已补齐，基金数量: {}", staleCodes.size());
+        }
+        return staleCodes.size();
+    }
+}
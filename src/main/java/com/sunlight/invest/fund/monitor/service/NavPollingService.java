@@ -0,0 +1,300 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.entity.MonitorFund;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基金净值晚间轮询服务
+ * <p>
+ * 各基金净值公布时间不同（QDII基金通常晚一天），固定时间抓取要么太早拿不到数据，
+ * 要么太晚导致预警延迟。轮询模式下：
+ * 1. 根据轮询首次发现新净值的时间学习每只基金的公布延迟，推算当前应已公布的净值日期；
+ * 2. 只重新抓取期望净值仍缺失的基金，失败或未公布时按指数退避；
+ * 3. 新净值入库后立即对该基金执行规则检查并发送预警。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-02
+ */
+@Service
+public class NavPollingService {
+
+    private static final Logger log = LoggerFactory.getLogger(NavPollingService.class);
+
+    // 学习公布时间使用的样本数量
+    private static final int DELAY_SAMPLE_SIZE = 20;
+
+    // 样本不足时的最少数量
+    private static final int MIN_DELAY_SAMPLES = 3;
+
+    // 有效延迟上限（5天），超过的视为历史补录数据
+    private static final long MAX_VALID_DELAY_MINUTES = 5 * 24 * 60;
+
+    // 默认公布延迟：净值日当天20:00
+    static final long DEFAULT_DELAY_MINUTES = 20 * 60;
+
+    @Autowired
+    private MonitorFundMapper monitorFundMapper;
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private FundNavService fundNavService;
+
+    @Autowired
+    private FundCrawlerService fundCrawlerService;
+
+    @Autowired
+    private FundMonitorService fundMonitorService;
+
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+
+    @Value("${fund.nav-polling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${fund.nav-polling.backoff-base-minutes:5}")
+    private long backoffBaseMinutes;
+
+    @Value("${fund.nav-polling.backoff-max-minutes:120}")
+    private long backoffMaxMinutes;
+
+    @Value("${fund.nav-polling.default-delay-minutes:" + DEFAULT_DELAY_MINUTES + "}")
+    private long defaultDelayMinutes;
+
+    // 各基金的轮询状态
+    private final Map<String, PollState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 轮询任务，默认每天17点到23点每5分钟执行一次
+     */
+    @Scheduled(cron = "${fund.nav-polling.cron:0 */5 17-23 * * ?}")
+    public void pollTick() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<MonitorFund> monitorFunds = monitorFundMapper.selectAllEnabled();
+        for (MonitorFund monitorFund : monitorFunds) {
+            try {
+                pollFund(monitorFund.getFundCode(), monitorFund.getFundName(), now);
+            } catch (Exception e) {
+                log.error("轮询基金净值失败: {} - {}", monitorFund.getFundCode(), monitorFund.getFundName(), e);
+            }
+        }
+    }
+
+    /**
+     * 轮询单只基金
+     *
+     * @param fundCode 基金代码
+     * @param fundName 基金名称
+     * @param now      当前时间
+     */
+    void pollFund(String fundCode, String fundName, LocalDateTime now) {
+        PollState state = states.computeIfAbsent(fundCode, k -> new PollState());
+        LocalDate today = now.toLocalDate();
+
+        // 公布延迟每天学习一次
+        if (!today.equals(state.delayLearnedOn)) {
+            state.delayMinutes = learnDelayMinutes(fundCode);
+            state.delayLearnedOn = today;
+        }
+
+        LocalDate expectedDate = expectedNavDate(tradingCalendarService.getCalendar(), now, state.delayMinutes);
+        if (!expectedDate.equals(state.expectedDate)) {
+            // 进入新的期望净值日，重置退避
+            state.expectedDate = expectedDate;
+            state.attempts = 0;
+            state.nextAttemptAt = null;
+        }
+
+        FundNavLatest latest = fundNavService.getLatest(fundCode);
+        LocalDate latestDate = latest != null ? latest.getNavDate() : null;
+
+        // 期望净值已入库（由本轮询或其他任务抓取），无需处理
+        if (latestDate != null && !latestDate.isBefore(expectedDate)) {
+            return;
+        }
+        if (state.nextAttemptAt != null && now.isBefore(state.nextAttemptAt)) {
+            return;
+        }
+
+        try {
+            fundCrawlerService.forceCrawlAndSave(fundCode, fundName, expectedDate.minusDays(7), today);
+        } catch (Exception e) {
+            // 抓取失败与未公布同样处理，按退避时间重试
+            log.warn("轮询抓取基金 {} 失败: {}", fundCode, e.getMessage());
+        }
+        latest = fundNavService.getLatest(fundCode);
+        LocalDate newLatestDate = latest != null ? latest.getNavDate() : null;
+        recordFirstSeen(fundCode, state, latestDate, newLatestDate, now);
+        if (newLatestDate == null || newLatestDate.isBefore(expectedDate)) {
+            state.attempts++;
+            state.nextAttemptAt = now.plusMinutes(backoffMinutes(state.attempts, backoffBaseMinutes, backoffMaxMinutes));
+            log.info("基金 {} 期望净值 {} 尚未公布，第 {} 次尝试，下次轮询时间: {}",
+                    fundCode, expectedDate, state.attempts, state.nextAttemptAt);
+            return;
+        }
+        log.info("基金 {} 净值 {} 已公布，第 {} 次尝试获取成功", fundCode, newLatestDate, state.attempts + 1);
+        state.attempts = 0;
+        state.nextAttemptAt = null;
+
+        // 新净值刚入库，立即执行规则检查；已由每日任务或重试评估过的净值日期会在监控服务中跳过
+        if (!newLatestDate.equals(state.lastEvaluatedDate)) {
+            state.lastEvaluatedDate = newLatestDate;
+            fundMonitorService.monitorFundIfNewNav(fundCode);
+        }
+    }
+
+    /**
+     * 记录轮询首次发现新净值的时间
+     * <p>
+     * 只有上一次轮询（不超过最大退避间隔之前）确认净值尚未出现、本次才出现时，发现时间才能代表公布时间；
+     * 批量任务写入或隔夜后第一次轮询就拿到的净值不作为样本。
+     * </p>
+     */
+    private void recordFirstSeen(String fundCode, PollState state, LocalDate latestDate, LocalDate newLatestDate,
+                                 LocalDateTime now) {
+        boolean found = newLatestDate != null && latestDate != null && newLatestDate.isAfter(latestDate);
+        if (!found) {
+            state.lastMissAt = now;
+            return;
+        }
+        LocalDateTime lastMissAt = state.lastMissAt;
+        state.lastMissAt = null;
+        if (lastMissAt == null || lastMissAt.isBefore(now.minusMinutes(backoffMaxMinutes))) {
+            return;
+        }
+        try {
+            fundNavMapper.updateFirstSeenTime(fundCode, newLatestDate, now);
+        } catch (Exception e) {
+            log.warn("记录基金 {} 净值 {} 的发现时间失败: {}", fundCode, newLatestDate, e.getMessage());
+        }
+    }
+
+    /**
+     * 根据轮询首次发现时间学习基金的公布延迟
+     *
+     * @param fundCode 基金代码
+     * @return 延迟分钟数
+     */
+    private long learnDelayMinutes(String fundCode) {
+        try {
+            List<Long> samples = fundNavMapper.selectPublishDelayMinutes(fundCode, DELAY_SAMPLE_SIZE);
+            long delay = medianDelayMinutes(samples, defaultDelayMinutes);
+            log.debug("基金 {} 学习到的净值公布延迟: {} 分钟", fundCode, delay);
+            return delay;
+        } catch (Exception e) {
+            log.warn("学习基金 {} 的净值公布时间失败，使用默认值: {}", fundCode, e.getMessage());
+            return defaultDelayMinutes;
+        }
+    }
+
+    /**
+     * 计算有效样本的延迟中位数
+     *
+     * @param samples      延迟样本（分钟）
+     * @param defaultDelay 有效样本不足时使用的默认延迟
+     * @return 延迟中位数，有效样本不足时返回默认值
+     */
+    static long medianDelayMinutes(List<Long> samples, long defaultDelay) {
+        List<Long> valid = new ArrayList<>();
+        if (samples != null) {
+            for (Long sample : samples) {
+                if (sample != null && sample >= 0 && sample <= MAX_VALID_DELAY_MINUTES) {
+                    valid.add(sample);
+                }
+            }
+        }
+        if (valid.size() < MIN_DELAY_SAMPLES) {
+            return defaultDelay;
+        }
+        Collections.sort(valid);
+        return valid.get(valid.size() / 2);
+    }
+
+    /**
+     * 推算当前应已公布的最新净值日期
+     * <p>
+     * 取满足 交易日零点 + 公布延迟 ≤ 当前时间 的最近交易日。
+     * </p>
+     *
+     * @param calendar     交易日历
+     * @param now          当前时间
+     * @param delayMinutes 公布延迟（分钟）
+     * @return 期望的净值日期
+     */
+    static LocalDate expectedNavDate(TradingCalendar calendar, LocalDateTime now, long delayMinutes) {
+        LocalDate candidate = calendar.tradingDayOnOrBefore(now.toLocalDate());
+        while (candidate.atStartOfDay().plusMinutes(delayMinutes).isAfter(now)) {
+            candidate = calendar.previousTradingDay(candidate);
+        }
+        return candidate;
+    }
+
+    /**
+     * 计算指数退避时间
+     *
+     * @param attempts    已失败次数
+     * @param baseMinutes 基础间隔
+     * @param maxMinutes  最大间隔
+     * @return 退避分钟数
+     */
+    static long backoffMinutes(int attempts, long baseMinutes, long maxMinutes) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 16);
+        return Math.min(baseMinutes << shift, maxMinutes);
+    }
+
+    /**
+     * 获取各基金的轮询状态
+     *
+     * @return 基金代码到状态的映射
+     */
+    public Map<String, Object> getPollingStatus() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, PollState> entry : states.entrySet()) {
+            PollState state = entry.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("delayMinutes", state.delayMinutes);
+            item.put("expectedDate", state.expectedDate);
+            item.put("attempts", state.attempts);
+            item.put("nextAttemptAt", state.nextAttemptAt);
+            item.put("lastEvaluatedDate", state.lastEvaluatedDate);
+            result.put(entry.getKey(), item);
+        }
+        return result;
+    }
+
+    /**
+     * 单只基金的轮询状态
+     */
+    private static class PollState {
+        private long delayMinutes = DEFAULT_DELAY_MINUTES;
+        private LocalDate delayLearnedOn;
+        private LocalDate expectedDate;
+        private int attempts;
+        private LocalDateTime nextAttemptAt;
+        private LocalDate lastEvaluatedDate;
+        // 最近一次轮询未发现新净值的时间
+        private LocalDateTime lastMissAt;
+    }
+}
@@ -0,0 +1,140 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 业绩指标计算器
+ * <p>
+ * 纯计算逻辑，不依赖数据库。区间涨跌幅按自然日回溯取基准日当天或之前最近的价格，
+ * 历史数据不足覆盖区间时该项为空；波动率、最大回撤和夏普比率基于近1年的日收益计算。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class PerformanceCalculator {
+
+    // 年化使用的交易日数量
+    static final int TRADING_DAYS_PER_YEAR = 252;
+
+    // 计算波动率和夏普比率所需的最少日收益样本
+    static final int MIN_SAMPLES = 20;
+
+    private PerformanceCalculator() {
+    }
+
+    /**
+     * 计算业绩指标
+     *
+     * @param dates        日期列表（升序）
+     * @param prices       与日期一一对应的净值或收盘价
+     * @param riskFreeRate 年化无风险利率（小数，如0.015）
+     * @return 业绩指标，仅填充计算字段；没有数据时返回null
+     */
+    public static PerformanceMetric calculate(List<LocalDate> dates, double[] prices, double riskFreeRate) {
+        int n = dates.size();
+        if (n == 0 || prices.length != n) {
+            return null;
+        }
+        LocalDate asOf = dates.get(n - 1);
+        double last = prices[n - 1];
+
+        PerformanceMetric metric = new PerformanceMetric();
+        metric.setAsOfDate(asOf);
+        metric.setReturn1w(periodReturn(dates, prices, asOf.minusWeeks(1), last));
+        metric.setReturn1m(periodReturn(dates, prices, asOf.minusMonths(1), last));
+        metric.setReturn3m(periodReturn(dates, prices, asOf.minusMonths(3), last));
+        metric.setReturn6m(periodReturn(dates, prices, asOf.minusMonths(6), last));
+        metric.setReturn1y(periodReturn(dates, prices, asOf.minusYears(1), last));
+        metric.setReturn3y(periodReturn(dates, prices, asOf.minusYears(3), last));
+
+        // 近1年窗口：从1年前的基准点开始，历史不足1年时使用全部数据
+        int start = indexOnOrBefore(dates, asOf.minusYears(1));
+        if (start < 0) {
+            start = 0;
+        }
+        int samples = n - 1 - start;
+        metric.setSampleCount(samples);
+        metric.setMaxDrawdown1y(samples > 0 ? scale(maxDrawdown(prices, start, n) * 100) : null);
+        if (samples < MIN_SAMPLES) {
+            return metric;
+        }
+
+        double sum = 0;
+        double sumSq = 0;
+        for (int i = start + 1; i < n; i++) {
+            double r = prices[i] / prices[i - 1] - 1;
+            sum += r;
+            sumSq += r * r;
+        }
+        double mean = sum / samples;
+        double variance = (sumSq - samples * mean * mean) / (samples - 1);
+        double stdDev = Math.sqrt(Math.max(variance, 0));
+        metric.setVolatility1y(scale(stdDev * Math.sqrt(TRADING_DAYS_PER_YEAR) * 100));
+        if (stdDev > 0) {
+            double excess = mean - riskFreeRate / TRADING_DAYS_PER_YEAR;
+            metric.setSharpe1y(scale(excess / stdDev * Math.sqrt(TRADING_DAYS_PER_YEAR)));
+        }
+        return metric;
+    }
+
+    /**
+     * 计算从基准日到最新日期的涨跌幅
+     */
+    private static BigDecimal periodReturn(List<LocalDate> dates, double[] prices, LocalDate baseDate, double last) {
+        int index = indexOnOrBefore(dates, baseDate);
+        if (index < 0 || prices[index] <= 0) {
+            return null;
+        }
+        return scale((last / prices[index] - 1) * 100);
+    }
+
+    /**
+     * 计算区间内的最大回撤（小数，0或负数）
+     */
+    static double maxDrawdown(double[] prices, int from, int to) {
+        double peak = prices[from];
+        double maxDrawdown = 0;
+        for (int i = from; i < to; i++) {
+            if (prices[i] > peak) {
+                peak = prices[i];
+            } else if (peak > 0) {
+                maxDrawdown = Math.min(maxDrawdown, prices[i] / peak - 1);
+            }
+        }
+        return maxDrawdown;
+    }
+
+    /**
+     * 二分查找不晚于指定日期的最后一个位置
+     *
+     * @return 位置，所有日期都晚于指定日期时返回-1
+     */
+    static int indexOnOrBefore(List<LocalDate> dates, LocalDate date) {
+        int low = 0;
+        int high = dates.size() - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (dates.get(mid).isAfter(date)) {
+                high = mid - 1;
+            } else {
+                result = mid;
+                low = mid + 1;
+            }
+        }
+        return result;
+    }
+
+    private static BigDecimal scale(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return null;
+        }
+        return BigDecimal.valueOf(value).setScale(4, RoundingMode.HALF_UP);
+    }
+}
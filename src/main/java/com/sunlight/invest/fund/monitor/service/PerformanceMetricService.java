@@ -0,0 +1,240 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.entity.MonitorFund;
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import com.sunlight.invest.fund.monitor.mapper.PerformanceMetricMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 业绩指标服务
+ * <p>
+ * 根据净值/行情数据计算并保存基金和指数的业绩指标。
+ * 每晚全量重算一次，白天按最新数据日期增量更新，查询时直接读取指标表。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class PerformanceMetricService {
+
+    private static final Logger log = LoggerFactory.getLogger(PerformanceMetricService.class);
+
+    // 计算3年涨跌幅时额外多取的天数，保证基准日前后有数据
+    private static final int LOOKBACK_BUFFER_DAYS = 15;
+
+    // 可排名的指标及其对应的列名
+    private static final Map<String, String> RANKING_COLUMNS = new HashMap<>();
+
+    static {
+        RANKING_COLUMNS.put("return1w", "return_1w");
+        RANKING_COLUMNS.put("return1m", "return_1m");
+        RANKING_COLUMNS.put("return3m", "return_3m");
+        RANKING_COLUMNS.put("return6m", "return_6m");
+        RANKING_COLUMNS.put("return1y", "return_1y");
+        RANKING_COLUMNS.put("return3y", "return_3y");
+        RANKING_COLUMNS.put("volatility1y", "volatility_1y");
+        RANKING_COLUMNS.put("maxDrawdown1y", "max_drawdown_1y");
+        RANKING_COLUMNS.put("sharpe1y", "sharpe_1y");
+    }
+
+    @Autowired
+    private PerformanceMetricMapper performanceMetricMapper;
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private MonitorFundMapper monitorFundMapper;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Value("${performance.metric.risk-free-rate:0.015}")
+    private double riskFreeRate;
+
+    /**
+     * 重新计算单只基金的业绩指标
+     *
+     * @param fundCode 基金代码
+     * @return 计算结果，没有净值数据时返回null
+     */
+    public PerformanceMetric refreshFund(String fundCode) {
+        LocalDate endDate = LocalDate.now();
+        List<FundNav> navList = fundNavMapper.selectByDateRange(fundCode, lookbackStart(endDate), endDate);
+        if (navList.isEmpty()) {
+            // 近3年没有净值（如已停止更新的基金），记录已检查，避免增量更新每轮重算
+            fundNavLatestMapper.markMetricInsufficient(fundCode);
+            return null;
+        }
+        List<LocalDate> dates = new ArrayList<>(navList.size());
+        double[] prices = new double[navList.size()];
+        for (int i = 0; i < navList.size(); i++) {
+            dates.add(navList.get(i).getNavDate());
+            prices[i] = navList.get(i).getUnitNav().doubleValue();
+        }
+        String fundName = navList.get(navList.size() - 1).getFundName();
+        return save(PerformanceMetric.TYPE_FUND, fundCode, fundName, dates, prices);
+    }
+
+    /**
+     * 重新计算单个指数的业绩指标
+     *
+     * @param indexCode 指数代码
+     * @return 计算结果，没有行情数据时返回null
+     */
+    public PerformanceMetric refreshIndex(String indexCode) {
+        LocalDate endDate = LocalDate.now();
+        List<IndexData> dataList = indexDataMapper.selectByDateRange(indexCode, lookbackStart(endDate), endDate);
+        List<LocalDate> dates = new ArrayList<>(dataList.size());
+        List<Double> closes = new ArrayList<>(dataList.size());
+        for (IndexData data : dataList) {
+            if (data.getClosePrice() != null) {
+                dates.add(data.getTradeDate());
+                closes.add(data.getClosePrice().doubleValue());
+            }
+        }
+        if (dates.isEmpty()) {
+            return null;
+        }
+        double[] prices = new double[closes.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = closes.get(i);
+        }
+        return save(PerformanceMetric.TYPE_INDEX, indexCode, indexDataService.getIndexName(indexCode), dates, prices);
+    }
+
+    /**
+     * 全量重算所有监控基金和支持的指数
+     *
+     * @return 更新的标的数量
+     */
+    public int refreshAll() {
+        List<String> fundCodes = new ArrayList<>();
+        for (MonitorFund fund : monitorFundMapper.selectAll()) {
+            fundCodes.add(fund.getFundCode());
+        }
+        int count = refreshFunds(fundCodes) + refreshIndices(indexDataService.getSupportedIndexCodes());
+        log.info("业绩指标全量计算完成，更新标的数量: {}", count);
+        return count;
+    }
+
+    /**
+     * 增量更新：只重算指标日期落后于最新净值/行情的标的，范围与全量重算一致
+     *
+     * @return 更新的标的数量
+     */
+    public int refreshStale() {
+        List<String> indexCodes = performanceMetricMapper.selectStaleIndexCodes();
+        indexCodes.retainAll(indexDataService.getSupportedIndexCodes());
+        int count = refreshFunds(performanceMetricMapper.selectStaleFundCodes()) + refreshIndices(indexCodes);
+        if (count > 0) {
+            log.info("业绩指标增量更新完成，更新标的数量: {}", count);
+        }
+        return count;
+    }
+
+    /**
+     * 查询单个标的的业绩指标
+     *
+     * @param targetType 标的类型
+     * @param targetCode 标的代码
+     * @return 业绩指标，不存在时返回null
+     */
+    public PerformanceMetric getMetric(String targetType, String targetCode) {
+        return performanceMetricMapper.selectByTarget(targetType, targetCode);
+    }
+
+    /**
+     * 查询某类标的的全部业绩指标
+     *
+     * @param targetType 标的类型
+     * @return 业绩指标列表
+     */
+    public List<PerformanceMetric> listMetrics(String targetType) {
+        return performanceMetricMapper.selectByType(targetType);
+    }
+
+    /**
+     * 按指标排名
+     *
+     * @param targetType 标的类型
+     * @param metric     指标名称，如 return1y、sharpe1y
+     * @param limit      最大数量
+     * @return 业绩指标列表，按指标降序
+     */
+    public List<PerformanceMetric> getRanking(String targetType, String metric, int limit) {
+        String column = RANKING_COLUMNS.get(metric);
+        if (column == null) {
+            throw new IllegalArgumentException("不支持的排名指标: " + metric);
+        }
+        return performanceMetricMapper.selectRanking(targetType, column, limit);
+    }
+
+    private int refreshFunds(List<String> fundCodes) {
+        int count = 0;
+        for (String fundCode : fundCodes) {
+            try {
+                if (refreshFund(fundCode) != null) {
+                    count++;
+                }
+            } catch (Exception e) {
+                log.error("计算基金业绩指标失败: {}", fundCode, e);
+            }
+        }
+        return count;
+    }
+
+    private int refreshIndices(List<String> indexCodes) {
+        int count = 0;
+        for (String indexCode : indexCodes) {
+            try {
+                if (refreshIndex(indexCode) != null) {
+                    count++;
+                }
+            } catch (Exception e) {
+                log.error("计算指数业绩指标失败: {}", indexCode, e);
+            }
+        }
+        return count;
+    }
+
+    private PerformanceMetric save(String targetType, String targetCode, String targetName,
+                                   List<LocalDate> dates, double[] prices) {
+        PerformanceMetric metric = PerformanceCalculator.calculate(dates, prices, riskFreeRate);
+        if (metric == null) {
+            return null;
+        }
+        metric.setTargetType(targetType);
+        metric.setTargetCode(targetCode);
+        metric.setTargetName(targetName);
+        performanceMetricMapper.upsert(metric);
+        return metric;
+    }
+
+    private LocalDate lookbackStart(LocalDate endDate) {
+        return endDate.minusYears(3).minusDays(LOOKBACK_BUFFER_DAYS);
+    }
+}
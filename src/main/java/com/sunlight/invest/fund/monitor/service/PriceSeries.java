@@ -0,0 +1,339 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 价格序列
+ * <p>
+ * 以基本类型数组保存按日期升序排列的净值或收盘价（日期为 epochDay），
+ * 多个序列之间通过有序归并按日期对齐，避免逐日的Map查找和装箱。
+ * 实例不可变，可在线程间共享。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class PriceSeries {
+
+    private final String code;
+
+    private final String name;
+
+    private final int[] days;
+
+    private final double[] values;
+
+    /**
+     * @param code   标的代码
+     * @param name   标的名称
+     * @param days   日期（epochDay，严格升序）
+     * @param values 与日期一一对应的价格
+     */
+    public PriceSeries(String code, String name, int[] days, double[] values) {
+        if (days.length != values.length) {
+            throw new IllegalArgumentException("日期与价格数量不一致: " + days.length + " != " + values.length);
+        }
+        this.code = code;
+        this.name = name;
+        this.days = days;
+        this.values = values;
+    }
+
+    /**
+     * 由基金净值列表构建（列表需按日期升序）
+     */
+    public static PriceSeries ofFundNav(String code, String name, List<FundNav> navList) {
+        int[] days = new int[navList.size()];
+        double[] values = new double[navList.size()];
+        int n = 0;
+        for (FundNav nav : navList) {
+            if (nav.getUnitNav() != null) {
+                days[n] = (int) nav.getNavDate().toEpochDay();
+                values[n] = nav.getUnitNav().doubleValue();
+                n++;
+            }
+        }
+        return new PriceSeries(code, name, Arrays.copyOf(days, n), Arrays.copyOf(values, n));
+    }
+
+    /**
+     * 由指数行情列表构建（列表需按日期升序），使用收盘价
+     */
+    public static PriceSeries ofIndexData(String code, String name, List<IndexData> dataList) {
+        int[] days = new int[dataList.size()];
+        double[] values = new double[dataList.size()];
+        int n = 0;
+        for (IndexData data : dataList) {
+            if (data.getClosePrice() != null) {
+                days[n] = (int) data.getTradeDate().toEpochDay();
+                values[n] = data.getClosePrice().doubleValue();
+                n++;
+            }
+        }
+        return new PriceSeries(code, name, Arrays.copyOf(days, n), Arrays.copyOf(values, n));
+    }
+
+    /**
+     * 由列式归档的某一列构建，只复制 [startDate, endDate] 区间内的行，跳过缺失值
+     */
+    public static PriceSeries ofArchive(ColumnarSeries archive, int column, LocalDate startDate, LocalDate endDate) {
+        int first = archive.indexOnOrAfter((int) startDate.toEpochDay());
+        int last = archive.indexOnOrAfter((int) endDate.toEpochDay() + 1);
+        int[] days = new int[last - first];
+        double[] values = new double[last - first];
+        int n = 0;
+        for (int row = first; row < last; row++) {
+            double value = archive.valueAt(column, row);
+            if (!Double.isNaN(value)) {
+                days[n] = archive.dayAt(row);
+                values[n] = value;
+                n++;
+            }
+        }
+        return new PriceSeries(archive.getCode(), archive.getName(), Arrays.copyOf(days, n), Arrays.copyOf(values, n));
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    /**
+     * 求多个序列共同拥有的日期（逐个两两有序归并求交集）
+     *
+     * @param seriesList 序列列表
+     * @return 共同日期（epochDay，升序）
+     */
+    public static int[] commonDays(List<PriceSeries> seriesList) {
+        if (seriesList.isEmpty()) {
+            return new int[0];
+        }
+        int[] common = seriesList.get(0).days;
+        for (int s = 1; s < seriesList.size() && common.length > 0; s++) {
+            common = intersect(common, seriesList.get(s).days);
+        }
+        return common;
+    }
+
+    /**
+     * 两个有序日期数组求交集
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * 取指定日期上的价格（有序归并，日期必须都在本序列中）
+     *
+     * @param targetDays 目标日期（epochDay，升序）
+     * @return 对应价格
+     */
+    public double[] valuesOn(int[] targetDays) {
+        double[] result = new double[targetDays.length];
+        int j = 0;
+        for (int i = 0; i < targetDays.length; i++) {
+            while (j < days.length && days[j] < targetDays[i]) {
+                j++;
+            }
+            if (j == days.length || days[j] != targetDays[i]) {
+                throw new IllegalArgumentException(code + " 缺少日期 " + LocalDate.ofEpochDay(targetDays[i]) + " 的数据");
+            }
+            result[i] = values[j];
+        }
+        return result;
+    }
+
+    /**
+     * 计算相邻价格之间的简单收益率
+     *
+     * @param prices 价格序列
+     * @return 收益率序列，长度比价格少1
+     */
+    public static double[] returns(double[] prices) {
+        if (prices.length < 2) {
+            return new double[0];
+        }
+        double[] result = new double[prices.length - 1];
+        for (int i = 1; i < prices.length; i++) {
+            result[i - 1] = prices[i] / prices[i - 1] - 1;
+        }
+        return result;
+    }
+
+    /**
+     * 计算皮尔逊相关系数
+     *
+     * @return 相关系数，样本不足或方差为0时返回NaN
+     */
+    public static double correlation(double[] x, double[] y) {
+        int n = Math.min(x.length, y.length);
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double meanX = 0;
+        double meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+        double cov = 0;
+        double varX = 0;
+        double varY = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = x[i] - meanX;
+            double dy = y[i] - meanY;
+            cov += dx * dy;
+            varX += dx * dx;
+            varY += dy * dy;
+        }
+        if (varX == 0 || varY == 0) {
+            return Double.NaN;
+        }
+        return cov / Math.sqrt(varX * varY);
+    }
+
+    /**
+     * 计算本序列相对基准的贝塔系数，只使用两者共同的日期
+     *
+     * @param benchmark 基准序列
+     * @return 贝塔系数，样本不足或基准方差为0时返回NaN
+     */
+    public double betaTo(PriceSeries benchmark) {
+        int[] common = intersect(days, benchmark.days);
+        double[] assetReturns = returns(valuesOn(common));
+        double[] benchmarkReturns = returns(benchmark.valuesOn(common));
+        int n = assetReturns.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double meanA = 0;
+        double meanB = 0;
+        for (int i = 0; i < n; i++) {
+            meanA += assetReturns[i];
+            meanB += benchmarkReturns[i];
+        }
+        meanA /= n;
+        meanB /= n;
+        double cov = 0;
+        double varB = 0;
+        for (int i = 0; i < n; i++) {
+            double db = benchmarkReturns[i] - meanB;
+            cov += (assetReturns[i] - meanA) * db;
+            varB += db * db;
+        }
+        return varB == 0 ? Double.NaN : cov / varB;
+    }
+
+    /**
+     * 计算最大回撤
+     *
+     * @return 回撤统计，序列为空时返回null
+     */
+    public Drawdown drawdown() {
+        if (values.length == 0) {
+            return null;
+        }
+        int peak = 0;
+        int maxPeak = 0;
+        int maxTrough = 0;
+        double maxDrawdown = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[peak]) {
+                peak = i;
+            } else {
+                double drawdown = values[i] / values[peak] - 1;
+                if (drawdown < maxDrawdown) {
+                    maxDrawdown = drawdown;
+                    maxPeak = peak;
+                    maxTrough = i;
+                }
+            }
+        }
+        double current = values[values.length - 1] / values[peak] - 1;
+        return new Drawdown(maxDrawdown, dateAt(maxPeak), dateAt(maxTrough), current);
+    }
+
+    /**
+     * 回撤统计
+     */
+    public static final class Drawdown {
+
+        private final double maxDrawdown;
+
+        private final LocalDate peakDate;
+
+        private final LocalDate troughDate;
+
+        private final double currentDrawdown;
+
+        Drawdown(double maxDrawdown, LocalDate peakDate, LocalDate troughDate, double currentDrawdown) {
+            this.maxDrawdown = maxDrawdown;
+            this.peakDate = peakDate;
+            this.troughDate = troughDate;
+            this.currentDrawdown = currentDrawdown;
+        }
+
+        /**
+         * 最大回撤（小数，0或负数）
+         */
+        public double getMaxDrawdown() {
+            return maxDrawdown;
+        }
+
+        public LocalDate getPeakDate() {
+            return peakDate;
+        }
+
+        public LocalDate getTroughDate() {
+            return troughDate;
+        }
+
+        /**
+         * 当前相对历史最高点的回撤（小数）
+         */
+        public double getCurrentDrawdown() {
+            return currentDrawdown;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 行情列式归档服务
+ * <p>
+ * 将数据库中基金净值和指数行情的全部历史导出为每个标的一个列式文件（见 {@link ColumnarSeries}），
+ * 回测和分析服务开启归档读取后优先从内存映射文件读取，不再查询数据库，也不在堆上构造实体列表。
+ * 导出先写临时文件再原子替换，已映射旧文件的读取方不受影响，下次打开时按修改时间重新映射。
+ * 导出后又有新数据入库时归档视为过期，读取方回退到数据库，直到下次导出。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class SeriesArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(SeriesArchiveService.class);
+
+    /**
+     * 基金归档列：单位净值
+     */
+    public static final int FUND_UNIT_NAV = 0;
+
+    /**
+     * 基金归档列：日涨跌幅（%）
+     */
+    public static final int FUND_DAILY_RETURN = 1;
+
+    /**
+     * 指数归档列：收盘价
+     */
+    public static final int INDEX_CLOSE = 0;
+
+    /**
+     * 指数归档列：日涨跌幅（%）
+     */
+    public static final int INDEX_DAILY_RETURN = 1;
+
+    private static final int[] FUND_DECIMALS = {4, 4};
+
+    private static final int[] INDEX_DECIMALS = {3, 4};
+
+    private static final LocalDate HISTORY_START = LocalDate.of(1990, 1, 1);
+
+    private static final Pattern CODE_PATTERN = Pattern.compile("[A-Za-z0-9._-]{1,32}");
+
+    private static final String FUND_DIR = "fund";
+
+    private static final String INDEX_DIR = "index";
+
+    private static final String SUFFIX = ".col";
+
+    @Autowired
+    private FundNavMapper fundNavMapper;
+
+    @Autowired
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private IndexDataService indexDataService;
+
+    @Value("${fund.archive.dir:data/archive}")
+    private String archiveDir;
+
+    @Value("${fund.archive.read-enabled:false}")
+    private boolean readEnabled;
+
+    // 已映射的归档文件，文件被重新导出（修改时间变化）后重新映射
+    private final ConcurrentHashMap<Path, ColumnarSeries> mapped = new ConcurrentHashMap<>();
+
+    /**
+     * 是否启用归档读取
+     */
+    public boolean isReadEnabled() {
+        return readEnabled;
+    }
+
+    /**
+     * 获取基金净值归档，未启用归档读取或文件不存在时返回 null
+     *
+     * @param fundCode 基金代码
+     * @return 映射视图
+     */
+    public ColumnarSeries fund(String fundCode) {
+        return readEnabled ? open(file(FUND_DIR, fundCode)) : null;
+    }
+
+    /**
+     * 获取指数行情归档，未启用归档读取或文件不存在时返回 null
+     *
+     * @param indexCode 指数代码
+     * @return 映射视图
+     */
+    public ColumnarSeries index(String indexCode) {
+        return readEnabled ? open(file(INDEX_DIR, indexCode)) : null;
+    }
+
+    /**
+     * 获取包含数据库最新数据的基金净值归档
+     * <p>
+     * 归档最后一天早于汇总表的最新净值日期（导出后有新净值入库），或行数少于入库记录数（导出后补抓了更早的净值）时视为过期。
+     * </p>
+     *
+     * @param fundCode  基金代码
+     * @param latestNav 基金最新净值汇总，为 null 时视为过期
+     * @return 映射视图，未启用、文件不存在或已过期时返回 null
+     */
+    public ColumnarSeries currentFund(String fundCode, FundNavLatest latestNav) {
+        ColumnarSeries series = fund(fundCode);
+        if (series == null || latestNav == null) {
+            return null;
+        }
+        boolean stale = endsBefore(series, latestNav.getNavDate())
+                || (latestNav.getNavCount() != null && series.size() < latestNav.getNavCount());
+        if (stale) {
+            log.debug("基金 {} 归档已过期，最新净值日期 {}", fundCode, latestNav.getNavDate());
+            return null;
+        }
+        return series;
+    }
+
+    /**
+     * 获取包含数据库最新行情的指数归档
+     *
+     * @param indexCode   指数代码
+     * @param latestIndex 指数最新一条行情，为 null 时视为过期
+     * @return 映射视图，未启用、文件不存在或归档最后一天早于最新行情日期时返回 null
+     */
+    public ColumnarSeries currentIndex(String indexCode, IndexData latestIndex) {
+        ColumnarSeries series = index(indexCode);
+        if (series == null || latestIndex == null) {
+            return null;
+        }
+        if (endsBefore(series, latestIndex.getTradeDate())) {
+            log.debug("指数 {} 归档已过期，最新行情日期 {}", indexCode, latestIndex.getTradeDate());
+            return null;
+        }
+        return series;
+    }
+
+    private static boolean endsBefore(ColumnarSeries series, LocalDate latestDate) {
+        return series.size() == 0 || series.dayAt(series.size() - 1) < latestDate.toEpochDay();
+    }
+
+    /**
+     * 导出单只基金的全部净值
+     *
+     * @param fundCode 基金代码
+     * @return 导出行数
+     */
+    public int exportFund(String fundCode) {
+        List<FundNav> navList = fundNavMapper.selectByDateRange(fundCode, HISTORY_START, LocalDate.now());
+        int[] days = new int[navList.size()];
+        double[][] values = new double[2][navList.size()];
+        int n = 0;
+        String name = fundCode;
+        for (FundNav nav : navList) {
+            if (nav.getUnitNav() == null) {
+                continue;
+            }
+            days[n] = (int) nav.getNavDate().toEpochDay();
+            values[FUND_UNIT_NAV][n] = nav.getUnitNav().doubleValue();
+            values[FUND_DAILY_RETURN][n] = nav.getDailyReturn() != null ? nav.getDailyReturn().doubleValue() : Double.NaN;
+            if (nav.getFundName() != null) {
+                name = nav.getFundName();
+            }
+            n++;
+        }
+        write(file(FUND_DIR, fundCode), fundCode, name, days, n, FUND_DECIMALS, values);
+        return n;
+    }
+
+    /**
+     * 导出单个指数的全部行情
+     *
+     * @param indexCode 指数代码
+     * @return 导出行数
+     */
+    public int exportIndex(String indexCode) {
+        List<IndexData> dataList = indexDataMapper.selectByDateRange(indexCode, HISTORY_START, LocalDate.now());
+        int[] days = new int[dataList.size()];
+        double[][] values = new double[2][dataList.size()];
+        int n = 0;
+        for (IndexData data : dataList) {
+            days[n] = (int) data.getTradeDate().toEpochDay();
+            values[INDEX_CLOSE][n] = data.getClosePrice() != null ? data.getClosePrice().doubleValue() : Double.NaN;
+            values[INDEX_DAILY_RETURN][n] = data.getDailyReturn() != null
+                    ? data.getDailyReturn().doubleValue() : Double.NaN;
+            n++;
+        }
+        write(file(INDEX_DIR, indexCode), indexCode, indexDataService.getIndexName(indexCode),
+                days, n, INDEX_DECIMALS, values);
+        return n;
+    }
+
+    /**
+     * 导出所有已入库净值的基金和支持的指数
+     *
+     * @return 导出统计
+     */
+    public Map<String, Object> exportAll() {
+        long start = System.currentTimeMillis();
+        int funds = 0;
+        int indexes = 0;
+        long rows = 0;
+        int failed = 0;
+        for (String fundCode : fundNavLatestMapper.selectAllFundCodes()) {
+            try {
+                rows += exportFund(fundCode);
+                funds++;
+            } catch (Exception e) {
+                failed++;
+                log.error("导出基金 {} 归档失败", fundCode, e);
+            }
+        }
+        for (String indexCode : indexDataService.getSupportedIndexCodes()) {
+            try {
+                rows += exportIndex(indexCode);
+                indexes++;
+            } catch (Exception e) {
+                failed++;
+                log.error("导出指数 {} 归档失败", indexCode, e);
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("funds", funds);
+        stats.put("indexes", indexes);
+        stats.put("rows", rows);
+        stats.put("failed", failed);
+        stats.put("elapsedMillis", System.currentTimeMillis() - start);
+        log.info("行情归档导出完成: {}", stats);
+        return stats;
+    }
+
+    /**
+     * 归档目录状态
+     *
+     * @return 目录、是否启用读取、文件数和总字节数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dir", Paths.get(archiveDir).toAbsolutePath().toString());
+        stats.put("readEnabled", readEnabled);
+        stats.put("fundFiles", countFiles(FUND_DIR));
+        stats.put("indexFiles", countFiles(INDEX_DIR));
+        stats.put("mapped", mapped.size());
+        return stats;
+    }
+
+    private ColumnarSeries open(Path file) {
+        if (!Files.isRegularFile(file)) {
+            mapped.remove(file);
+            return null;
+        }
+        long modified = file.toFile().lastModified();
+        ColumnarSeries series = mapped.get(file);
+        if (series != null && series.getModified() == modified) {
+            return series;
+        }
+        try {
+            series = ColumnarSeries.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档文件失败: " + file, e);
+        }
+        mapped.put(file, series);
+        return series;
+    }
+
+    private void write(Path file, String code, String name, int[] days, int n, int[] decimals, double[][] values) {
+        int[] rowsDays = n == days.length ? days : Arrays.copyOf(days, n);
+        double[][] rowsValues = new double[values.length][];
+        for (int c = 0; c < values.length; c++) {
+            rowsValues[c] = n == values[c].length ? values[c] : Arrays.copyOf(values[c], n);
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            ColumnarSeries.write(temp, code, name, rowsDays, decimals, rowsValues);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档文件失败: " + file, e);
+        }
+    }
+
+    private Path file(String type, String code) {
+        if (code == null || !CODE_PATTERN.matcher(code).matches()) {
+            throw new IllegalArgumentException("代码格式不正确: " + code);
+        }
+        return Paths.get(archiveDir, type, code + SUFFIX);
+    }
+
+    private long countFiles(String type) {
+        Path dir = Paths.get(archiveDir, type);
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.toString().endsWith(SUFFIX)).count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
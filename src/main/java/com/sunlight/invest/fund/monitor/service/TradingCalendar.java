@@ -0,0 +1,162 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A股交易日历
+ * <p>
+ * 不可变对象，判定规则：
+ * 1. 在已观测到的指数交易日区间内，以实际出现过行情的日期为准；
+ * 2. 区间之外（通常是未来日期），周末和配置的节假日为非交易日，其余为交易日。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+public final class TradingCalendar {
+
+    // 向前/向后查找交易日的最大跨度，防止配置错误导致死循环
+    private static final int MAX_SEARCH_DAYS = 60;
+
+    private final Set<LocalDate> observedDates;
+    private final Set<LocalDate> holidays;
+    private final LocalDate observedStart;
+    private final LocalDate observedEnd;
+
+    /**
+     * 构建交易日历
+     *
+     * @param observedDates 已观测到的交易日（来自指数行情）
+     * @param holidays      节假日休市日期
+     */
+    public TradingCalendar(Collection<LocalDate> observedDates, Collection<LocalDate> holidays) {
+        this.observedDates = Collections.unmodifiableSet(new HashSet<>(observedDates));
+        this.holidays = Collections.unmodifiableSet(new HashSet<>(holidays));
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate date : this.observedDates) {
+            if (start == null || date.isBefore(start)) {
+                start = date;
+            }
+            if (end == null || date.isAfter(end)) {
+                end = date;
+            }
+        }
+        this.observedStart = start;
+        this.observedEnd = end;
+    }
+
+    /**
+     * 判断是否为交易日
+     *
+     * @param date 日期
+     * @return 是否为交易日
+     */
+    public boolean isTradingDay(LocalDate date) {
+        if (observedStart != null && !date.isBefore(observedStart) && !date.isAfter(observedEnd)) {
+            return observedDates.contains(date);
+        }
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+            return false;
+        }
+        return !holidays.contains(date);
+    }
+
+    /**
+     * 获取指定日期之前（不含当天）最近的交易日
+     *
+     * @param date 日期
+     * @return 上一个交易日
+     */
+    public LocalDate previousTradingDay(LocalDate date) {
+        return tradingDayOnOrBefore(date.minusDays(1));
+    }
+
+    /**
+     * 获取指定日期之后（不含当天）最近的交易日
+     *
+     * @param date 日期
+     * @return 下一个交易日
+     */
+    public LocalDate nextTradingDay(LocalDate date) {
+        LocalDate current = date.plusDays(1);
+        for (int i = 0; i < MAX_SEARCH_DAYS; i++) {
+            if (isTradingDay(current)) {
+                return current;
+            }
+            current = current.plusDays(1);
+        }
+        return current;
+    }
+
+    /**
+     * 获取不晚于指定日期的最近交易日（含当天）
+     *
+     * @param date 日期
+     * @return 交易日
+     */
+    public LocalDate tradingDayOnOrBefore(LocalDate date) {
+        LocalDate current = date;
+        for (int i = 0; i < MAX_SEARCH_DAYS; i++) {
+            if (isTradingDay(current)) {
+                return current;
+            }
+            current = current.minusDays(1);
+        }
+        return current;
+    }
+
+    /**
+     * 获取日期区间内的所有交易日（含首尾）
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 交易日列表，按日期升序
+     */
+    public List<LocalDate> tradingDaysBetween(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> result = new ArrayList<>();
+        for (LocalDate current = startDate; !current.isAfter(endDate); current = current.plusDays(1)) {
+            if (isTradingDay(current)) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在当天开盘前，最新可获得的基金净值日期
+     * <p>
+     * 基金净值在交易日收盘后公布，因此当天早上能拿到的最新净值是上一个交易日的。
+     * </p>
+     *
+     * @param today 当天日期
+     * @return 期望的最新净值日期
+     */
+    public LocalDate expectedNavDate(LocalDate today) {
+        return previousTradingDay(today);
+    }
+
+    public LocalDate getObservedStart() {
+        return observedStart;
+    }
+
+    public LocalDate getObservedEnd() {
+        return observedEnd;
+    }
+
+    public int getObservedCount() {
+        return observedDates.size();
+    }
+
+    public Set<LocalDate> getHolidays() {
+        return holidays;
+    }
+}
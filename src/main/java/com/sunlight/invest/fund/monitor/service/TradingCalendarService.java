@@ -0,0 +1,143 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.system.service.SystemConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 交易日历服务
+ * <p>
+ * 以上证指数已入库的交易日期为准，结合系统配置中的节假日列表（trading_holidays）
+ * 构建A股交易日历，供爬虫、监控、指数任务和回测跳过非交易日。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-03
+ */
+@Service
+public class TradingCalendarService {
+
+    private static final Logger log = LoggerFactory.getLogger(TradingCalendarService.class);
+
+    /**
+     * 作为交易日参照的指数（上证指数）
+     */
+    public static final String REFERENCE_INDEX_CODE = "000001";
+
+    /**
+     * 节假日配置键，格式：2025-01-01,2025-01-28~2025-02-04
+     */
+    public static final String HOLIDAYS_CONFIG_KEY = "trading_holidays";
+
+    @Autowired
+    private IndexDataMapper indexDataMapper;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    private volatile TradingCalendar calendar =
+            new TradingCalendar(Collections.<LocalDate>emptyList(), Collections.<LocalDate>emptyList());
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        systemConfigService.addListener((oldSnapshot, newSnapshot) -> {
+            if (!Objects.equals(oldSnapshot.get(HOLIDAYS_CONFIG_KEY), newSnapshot.get(HOLIDAYS_CONFIG_KEY))) {
+                log.info("节假日配置发生变化，重建交易日历");
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * 从数据库重新构建交易日历
+     */
+    public void refresh() {
+        List<LocalDate> observed = Collections.emptyList();
+        try {
+            List<LocalDate> tradeDates = indexDataMapper.selectTradeDates(REFERENCE_INDEX_CODE);
+            if (tradeDates != null) {
+                observed = tradeDates;
+            }
+        } catch (Exception e) {
+            log.warn("加载指数交易日期失败，仅按周末和节假日配置判断: {}", e.getMessage());
+        }
+        List<LocalDate> holidays = parseHolidays(systemConfigService.getConfigValue(HOLIDAYS_CONFIG_KEY));
+        calendar = new TradingCalendar(observed, holidays);
+        log.info("交易日历构建完成，已观测交易日 {} 个 ({} 至 {})，节假日 {} 个",
+                observed.size(), calendar.getObservedStart(), calendar.getObservedEnd(), holidays.size());
+    }
+
+    /**
+     * 解析节假日配置
+     *
+     * @param value 配置值，逗号分隔，支持 起始~结束 的区间写法
+     * @return 节假日列表
+     */
+    static List<LocalDate> parseHolidays(String value) {
+        List<LocalDate> holidays = new ArrayList<>();
+        if (value == null || value.trim().isEmpty()) {
+            return holidays;
+        }
+        for (String item : value.split("[,，\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                int sep = item.indexOf('~');
+                if (sep < 0) {
+                    holidays.add(LocalDate.parse(item));
+                } else {
+                    LocalDate start = LocalDate.parse(item.substring(0, sep));
+                    LocalDate end = LocalDate.parse(item.substring(sep + 1));
+                    for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+                        holidays.add(d);
+                    }
+                }
+            } catch (DateTimeParseException e) {
+                log.warn("节假日配置格式错误，已忽略: {}", item);
+            }
+        }
+        return holidays;
+    }
+
+    /**
+     * 获取当前交易日历
+     *
+     * @return 交易日历
+     */
+    public TradingCalendar getCalendar() {
+        return calendar;
+    }
+
+    /**
+     * 判断是否为交易日
+     *
+     * @param date 日期
+     * @return 是否为交易日
+     */
+    public boolean isTradingDay(LocalDate date) {
+        return calendar.isTradingDay(date);
+    }
+
+    /**
+     * 获取当天可获得的最新基金净值日期
+     *
+     * @param today 当天日期
+     * @return 期望的最新净值日期
+     */
+    public LocalDate expectedNavDate(LocalDate today) {
+        return calendar.expectedNavDate(today);
+    }
+}
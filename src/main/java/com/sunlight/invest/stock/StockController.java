@@ -1,18 +1,30 @@
 package com.sunlight.invest.stock;
 
+import com.sunlight.invest.stock.service.ScreenCondition;
+import com.sunlight.invest.stock.service.StockScreenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/stock")
 @CrossOrigin(origins = "*")
 public class StockController {
     
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     @Autowired
     private StockService stockService;
     
+    @Autowired
+    private StockScreenService stockScreenService;
+    
     /**
      * 获取股票历史数据
      * @param stockCode 股票代码
@@ -51,6 +63,29 @@ public class StockController {
         }
     }
     
+    /**
+     * 批量获取自选股最近N天的数据
+     * @param codes 股票代码，逗号分隔
+     * @param days 天数
+     * @return 股票代码到数据列表的映射
+     */
+    @GetMapping("/watchlist")
+    public ApiResponse<Map<String, List<StockData>>> getWatchlistData(
+            @RequestParam String codes,
+            @RequestParam(defaultValue = "30") int days) {
+        try {
+            List<String> stockCodes = new ArrayList<>();
+            for (String code : codes.split(",")) {
+                if (!code.trim().isEmpty()) {
+                    stockCodes.add(code.trim());
+                }
+            }
+            return ApiResponse.success(stockService.getWatchlistData(stockCodes, days));
+        } catch (Exception e) {
+            return ApiResponse.error("获取自选股数据失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取股票AI分析报告
      * @param stockCode 股票代码
@@ -68,4 +103,49 @@ public class StockController {
             return ApiResponse.error("获取AI分析失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 技术选股：扫描全部已入库股票，返回命中列表
+     * @param conditions 选股条件，分号分隔，如 new-high:20;ma-cross:5,20;rsi:14,0,30;volume-spike:20,2
+     * @param matchAll 是否需满足全部条件
+     * @return 选股结果
+     */
+    @GetMapping("/screen")
+    public ApiResponse<StockScreenService.Result> screen(
+            @RequestParam String conditions,
+            @RequestParam(defaultValue = "true") boolean matchAll) {
+        try {
+            return ApiResponse.success(stockScreenService.screen(ScreenCondition.parseAll(conditions), matchAll));
+        } catch (Exception e) {
+            return ApiResponse.error("选股失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 流式技术选股：以 NDJSON 输出，每行一只命中股票，最后一行为汇总
+     */
+    @GetMapping("/screen/stream")
+    public ResponseEntity<?> streamScreen(
+            @RequestParam String conditions,
+            @RequestParam(defaultValue = "true") boolean matchAll) {
+        try {
+            StreamingResponseBody body = stockScreenService.streamScreen(ScreenCondition.parseAll(conditions), matchAll);
+            return ResponseEntity.ok().contentType(NDJSON).body(body);
+        } catch (Exception e) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                    .body(ApiResponse.error("选股失败: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * 获取最近一次每日收盘后自动选股的结果
+     */
+    @GetMapping("/screen/latest")
+    public ApiResponse<StockScreenService.Result> getLatestScreen() {
+        StockScreenService.Result latest = stockScreenService.getLatest();
+        if (latest == null) {
+            return ApiResponse.error("每日选股尚未执行");
+        }
+        return ApiResponse.success(latest);
+    }
+}
@@ -1,20 +1,107 @@
 package com.sunlight.invest.stock;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 股票行情抓取客户端
+ * <p>
+ * 所有请求共用一个带连接池的 OkHttp 客户端，设置连接、读取和整体超时；
+ * 异步请求由 OkHttp 调度器并发执行，同时进行的请求数受 max-concurrency 限制，
+ * 发起速率按 rate-per-second 匀速排队（预约发送时刻，到点再入队，不占用等待线程）。
+ * 自选股批量模式一次发起所有代码的请求，并行返回后按代码汇总。
+ * </p>
+ */
 @Component
 public class StockDataFetcher {
     private static final Logger logger = LoggerFactory.getLogger(StockDataFetcher.class);
-    
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Value("${stock.fetch.base-url:https://q.stock.sohu.com/hisHq}")
+    private String baseUrl;
+
+    @Value("${stock.fetch.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${stock.fetch.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    @Value("${stock.fetch.call-timeout-ms:15000}")
+    private long callTimeoutMs;
+
+    @Value("${stock.fetch.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${stock.fetch.rate-per-second:20}")
+    private int ratePerSecond;
+
+    private OkHttpClient httpClient;
+
+    private ScheduledExecutorService scheduler;
+
+    private long intervalNanos;
+
+    // 下一个可用的发送时刻（System.nanoTime）
+    private final AtomicLong nextSlot = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int concurrency = Math.max(1, maxConcurrency);
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(concurrency);
+        dispatcher.setMaxRequestsPerHost(concurrency);
+        httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(concurrency, 5, TimeUnit.MINUTES))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+        intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+        nextSlot.set(System.nanoTime());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-fetch-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        httpClient.dispatcher().cancelAll();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+    }
+
     /**
      * 获取股票历史数据
      * @param stockCode 股票代码，如"000001"
@@ -24,32 +111,50 @@ public class StockDataFetcher {
      */
     public String fetchStockHistoryData(String stockCode, String startDate, String endDate) {
         try {
-            String fullCode = "cn_" + stockCode;
-            String urlStr = "https://q.stock.sohu.com/hisHq?code=" + fullCode + 
-                           "&start=" + startDate + "&end=" + endDate +
-                           "&stat=1&order=D&period=d&callback=historySearchHandler&rt=jsonp";
-            
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0");
-            
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String inputLine;
-            
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            
-            in.close();
-            return response.toString();
-        } catch (Exception e) {
-            logger.error("获取股票数据失败: ", e);
+            return fetchStockHistoryDataAsync(stockCode, startDate, endDate).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("获取股票数据失败: {}", stockCode, e.getCause());
             return null;
         }
     }
-    
+
+    /**
+     * 异步获取股票历史数据
+     * @param stockCode 股票代码
+     * @param startDate 开始日期，格式yyyyMMdd
+     * @param endDate 结束日期，格式yyyyMMdd
+     * @return 股票历史数据JSON字符串，请求失败或超时时异常完成
+     */
+    public CompletableFuture<String> fetchStockHistoryDataAsync(String stockCode, String startDate, String endDate) {
+        HttpUrl url = HttpUrl.get(baseUrl).newBuilder()
+                .addQueryParameter("code", "cn_" + stockCode)
+                .addQueryParameter("start", startDate)
+                .addQueryParameter("end", endDate)
+                .addQueryParameter("stat", "1")
+                .addQueryParameter("order", "D")
+                .addQueryParameter("period", "d")
+                .addQueryParameter("callback", "historySearchHandler")
+                .addQueryParameter("rt", "jsonp")
+                .build();
+        Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", "Mozilla/5.0")
+                .get()
+                .build();
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long delay = reserveSlot();
+        if (delay <= 0) {
+            enqueue(request, future);
+        } else {
+            scheduler.schedule(() -> enqueue(request, future), delay, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
     /**
      * 获取最近N天的股票数据
      * @param stockCode 股票代码
@@ -57,13 +162,78 @@ public class StockDataFetcher {
      * @return 股票历史数据
      */
     public String fetchRecentStockData(String stockCode, int days) {
+        String[] range = recentRange(days);
+        return fetchStockHistoryData(stockCode, range[0], range[1]);
+    }
+
+    /**
+     * 批量获取自选股最近N天的数据
+     * <p>
+     * 所有代码的请求一次发起，在并发和速率限制下并行执行；单只股票失败不影响其他股票。
+     * </p>
+     * @param stockCodes 股票代码
+     * @param days 天数
+     * @return 股票代码到JSON字符串的映射（保持传入顺序，失败的为 null）
+     */
+    public Map<String, String> fetchRecentWatchlist(Collection<String> stockCodes, int days) {
+        String[] range = recentRange(days);
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String stockCode : new LinkedHashSet<>(stockCodes)) {
+            futures.put(stockCode, fetchStockHistoryDataAsync(stockCode, range[0], range[1])
+                    .exceptionally(e -> {
+                        logger.warn("获取股票 {} 数据失败: {}", stockCode, e.getMessage());
+                        return null;
+                    }));
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().join());
+        }
+        return result;
+    }
+
+    /**
+     * 预约发送时刻，返回需要等待的纳秒数
+     */
+    private long reserveSlot() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long next = nextSlot.get();
+            long slot = next - now > 0 ? next : now;
+            if (nextSlot.compareAndSet(next, slot + intervalNanos)) {
+                return slot - now;
+            }
+        }
+    }
+
+    private void enqueue(Request request, CompletableFuture<String> future) {
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        future.completeExceptionally(new IOException("HTTP " + response.code()));
+                    } else {
+                        future.complete(body.string());
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static String[] recentRange(int days) {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(days);
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-        String startDateStr = startDate.format(formatter);
-        String endDateStr = endDate.format(formatter);
-        
-        return fetchStockHistoryData(stockCode, startDateStr, endDateStr);
+        return new String[]{startDate.format(DATE_FORMATTER), endDate.format(DATE_FORMATTER)};
     }
-}
\ No newline at end of file
+}
@@ -1,99 +1,234 @@
 package com.sunlight.invest.stock;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 搜狐行情接口数据解析器
+ * <p>
+ * 用 Jackson 流式解析：在原字符串上跳过 JSONP 前缀，不截取子串、不构建 JsonNode 树；
+ * 价格直接从解析器的字符缓冲区转成 double，不经过正则清洗和中间字符串。
+ * </p>
+ */
 @Component
 public class StockDataParser {
     private static final Logger logger = LoggerFactory.getLogger(StockDataParser.class);
-    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String JSONP_PREFIX = "historySearchHandler(";
+
+    // 精确表示的 10 的幂，尾数不超过 2^53 时一次除法即得到与 Double.parseDouble 相同的结果
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
     
     /**
      * 解析股票数据
      * @param jsonData 从搜狐接口获取的原始JSON数据
-     * @return 解析后的股票数据列表
+     * @return 解析后的股票数据列表，出错时为空列表
      */
     public List<StockData> parseStockData(String jsonData) {
-        List<StockData> stockDataList = new ArrayList<>();
-        
+        List<StockData> stockDataList = parseHistory(jsonData);
+        return stockDataList != null ? stockDataList : new ArrayList<>();
+    }
+    
+    /**
+     * 解析股票数据，区分"区间内没有行情"和"接口出错"
+     * <p>
+     * 状态码为0但没有 hq 记录（区间内全部停牌等）返回空列表；数据为空、格式错误或状态码非0时返回 null。
+     * </p>
+     * @param jsonData 从搜狐接口获取的原始JSON数据
+     * @return 解析后的股票数据列表，出错时返回 null
+     */
+    public List<StockData> parseHistory(String jsonData) {
         // 处理null或空数据
         if (jsonData == null || jsonData.isEmpty()) {
             logger.warn("收到空的JSON数据");
-            return stockDataList;
+            return null;
         }
         
+        List<StockData> stockDataList = new ArrayList<>();
+        StringReader reader = new StringReader(jsonData);
         try {
-            // 移除JSONP包装
-            String jsonStr = jsonData;
-            if (jsonData.startsWith("historySearchHandler(") && jsonData.endsWith(")")) {
-                jsonStr = jsonData.substring(21, jsonData.length() - 1);
+            // 跳过JSONP包装：解析器读完首个值即停止，结尾的 ")" 不会被读取
+            if (jsonData.startsWith(JSONP_PREFIX) && jsonData.endsWith(")")) {
+                reader.skip(JSONP_PREFIX.length());
             }
-            
-            JsonNode rootNode = objectMapper.readTree(jsonStr);
-            
-            // 检查是否有数据
-            if (rootNode != null && rootNode.isArray() && rootNode.size() > 0) {
-                JsonNode dataNode = rootNode.get(0);
-                if (dataNode != null) {
-                    // 检查状态码
-                    JsonNode statusNode = dataNode.get("status");
-                    if (statusNode != null && statusNode.asInt() != 0) {
-                        logger.warn("股票数据接口返回错误状态: {}", statusNode.asInt());
-                        return stockDataList;
-                    }
-                    
-                    JsonNode hqNode = dataNode.get("hq");
-                    
-                    if (hqNode != null && hqNode.isArray()) {
-                        // 解析每条记录
-                        for (JsonNode record : hqNode) {
-                            if (record != null && record.isArray() && record.size() >= 5) {
-                                StockData stockData = new StockData();
-                                stockData.setDate(record.get(0).asText());
-                                
-                                // 解析价格数据，去除百分比符号
-                                stockData.setOpenPrice(parseDoubleValue(record.get(1).asText()));
-                                stockData.setClosePrice(parseDoubleValue(record.get(2).asText()));
-                                stockData.setHighPrice(parseDoubleValue(record.get(3).asText()));
-                                stockData.setLowPrice(parseDoubleValue(record.get(4).asText()));
-                                
-                                stockDataList.add(stockData);
-                            }
-                        }
-                    }
+            try (JsonParser parser = jsonFactory.createParser(reader)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    logger.warn("股票数据格式不正确");
+                    return null;
                 }
+                // 只解析数组中的第一个对象，空数组视为没有数据
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    return parseDataObject(parser, stockDataList) ? stockDataList : null;
+                }
+                return token == JsonToken.END_ARRAY ? stockDataList : null;
             }
         } catch (Exception e) {
             logger.error("解析股票数据失败: ", e);
+            return null;
+        }
+    }
+    
+    /**
+     * 解析数据对象中的 status 和 hq 字段
+     *
+     * @return 状态码是否为0
+     */
+    private boolean parseDataObject(JsonParser parser, List<StockData> stockDataList) throws IOException {
+        int status = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("status".equals(field)) {
+                status = token.isScalarValue() ? parser.getValueAsInt(0) : 0;
+                parser.skipChildren();
+            } else if ("hq".equals(field) && token == JsonToken.START_ARRAY) {
+                stockDataList.clear();
+                parseRecords(parser, stockDataList);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (status != 0) {
+            logger.warn("股票数据接口返回错误状态: {}", status);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * 解析 hq 数组，每条记录依次为日期、开盘、收盘、最高、最低，不足5项的记录跳过
+     */
+    private void parseRecords(JsonParser parser, List<StockData> stockDataList) throws IOException {
+        double[] prices = new double[4];
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            String date = null;
+            int size = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (size == 0) {
+                    date = token.isScalarValue() ? parser.getText() : "";
+                } else if (size <= prices.length) {
+                    prices[size - 1] = parseDoubleValue(parser, token);
+                }
+                parser.skipChildren();
+                size++;
+            }
+            if (size >= 5) {
+                StockData stockData = new StockData();
+                stockData.setDate(date);
+                stockData.setOpenPrice(prices[0]);
+                stockData.setClosePrice(prices[1]);
+                stockData.setHighPrice(prices[2]);
+                stockData.setLowPrice(prices[3]);
+                stockDataList.add(stockData);
+            }
+        }
+    }
+    
+    /**
+     * 读取当前值为double，字符串值忽略百分号等非数字字符
+     */
+    private double parseDoubleValue(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                return parseDoubleValue(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            default:
+                return 0.0;
         }
-        
-        return stockDataList;
     }
     
     /**
      * 解析double值，去除可能的百分比符号或其他非数字字符
-     * @param value 字符串值
-     * @return 解析后的double值
+     * <p>
+     * 只保留数字、小数点、负号：常见的 "-0.78%"、"1,234.5" 直接累加尾数后按小数位数相除；
+     * 负号不在开头、多个小数点或位数过多时构造清洗后的字符串交给 Double.parseDouble。
+     * </p>
+     * @param chars 字符缓冲区
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 解析后的double值，无法解析时为0
      */
-    private double parseDoubleValue(String value) {
-        if (value == null || value.isEmpty()) {
-            return 0.0;
+    static double parseDoubleValue(char[] chars, int offset, int length) {
+        long mantissa = 0;
+        int scale = 0;
+        int kept = 0;
+        int digits = 0;
+        boolean negative = false;
+        boolean point = false;
+        boolean exact = true;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    scale++;
+                }
+                if (mantissa > MAX_EXACT_MANTISSA || scale >= POW10.length) {
+                    exact = false;
+                    break;
+                }
+            } else if (c == '.') {
+                if (point) {
+                    exact = false;
+                    break;
+                }
+                point = true;
+            } else if (c == '-') {
+                if (kept > 0) {
+                    exact = false;
+                    break;
+                }
+                negative = true;
+            } else {
+                continue;
+            }
+            kept++;
+        }
+        if (exact && digits > 0) {
+            double value = mantissa / POW10[scale];
+            return negative ? -value : value;
+        }
+        return parseCleaned(chars, offset, length);
+    }
+    
+    private static double parseCleaned(char[] chars, int offset, int length) {
+        StringBuilder cleanValue = new StringBuilder(length);
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if ((c >= '0' && c <= '9') || c == '.' || c == '-') {
+                cleanValue.append(c);
+            }
         }
-        
-        // 去除百分比符号和其他非数字字符，只保留数字、小数点、负号
-        String cleanValue = value.replaceAll("[^\\d.-]", "");
-        
         try {
-            return Double.parseDouble(cleanValue);
+            return Double.parseDouble(cleanValue.toString());
         } catch (NumberFormatException e) {
-            logger.warn("无法解析数值: {}, 原始值: {}", cleanValue, value);
+            logger.warn("无法解析数值: {}, 原始值: {}", cleanValue, new String(chars, offset, length));
             return 0.0;
         }
     }
-}
\ No newline at end of file
+}
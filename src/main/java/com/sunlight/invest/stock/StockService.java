@@ -1,20 +1,34 @@
 package com.sunlight.invest.stock;
 
 import com.sunlight.ai.service.DeepSeekService;
+import com.sunlight.invest.fund.monitor.service.TradingCalendar;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
 import com.sunlight.invest.stock.service.StockDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 @Service
 public class StockService {
     private static final Logger log = LoggerFactory.getLogger(StockService.class);
     
+    private static final Pattern STOCK_CODE_PATTERN = Pattern.compile("[0-9A-Za-z]{1,10}");
+    
     @Autowired
     private StockDataFetcher stockDataFetcher;
     
@@ -27,62 +41,142 @@ public class StockService {
     @Autowired
     private StockDataService stockDataService;
     
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+    
+    @Value("${stock.fetch.watchlist-max-size:200}")
+    private int watchlistMaxSize;
+    
     /**
      * 获取股票历史数据
+     * 已入库的日期区间直接读库，只抓取缺失的子区间
      * @param stockCode 股票代码
      * @param startDate 开始日期 yyyyMMdd
      * @param endDate 结束日期 yyyyMMdd
-     * @return 股票数据列表
+     * @return 股票数据列表（按日期升序）
      */
     public List<StockData> getStockHistory(String stockCode, String startDate, String endDate) {
-        // 先尝试从数据库获取数据
+        LocalDate start;
+        LocalDate end;
         try {
-            LocalDate start = LocalDate.parse(startDate, DateTimeFormatter.BASIC_ISO_DATE);
-            LocalDate end = LocalDate.parse(endDate, DateTimeFormatter.BASIC_ISO_DATE);
-            
-            // 检查数据库中是否已有数据
-            List<StockData> dbData = stockDataService.getStockDataByDateRangeFromDB(stockCode, start, end);
-            if (!dbData.isEmpty()) {
-                return dbData;
-            }
-        } catch (Exception e) {
-            // 解析日期失败，继续从网络获取
-        }
-        
-        // 从网络获取数据
-        String jsonData = stockDataFetcher.fetchStockHistoryData(stockCode, startDate, endDate);
-        List<StockData> stockData = stockDataParser.parseStockData(jsonData);
-        
-        // 保存到数据库
-        if (stockData != null && !stockData.isEmpty()) {
-            stockDataService.saveStockData(stockData, stockCode, "未知股票");
+            start = LocalDate.parse(startDate, DateTimeFormatter.BASIC_ISO_DATE);
+            end = LocalDate.parse(endDate, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式应为yyyyMMdd: " + startDate + " - " + endDate);
         }
-        
-        return stockData;
+        fillMissingRanges(Collections.singletonList(stockCode), start, end);
+        return stockDataService.getStockDataByDateRangeFromDB(stockCode, start, end);
     }
     
     /**
      * 获取最近N天的股票数据
      * @param stockCode 股票代码
-     * @param days 天数
-     * @return 股票数据列表
+     * @param days 天数（自然日）
+     * @return 股票数据列表（按日期降序）
      */
     public List<StockData> getRecentStockData(String stockCode, int days) {
-        // 先尝试从数据库获取数据
-        List<StockData> dbData = stockDataService.getRecentStockDataFromDB(stockCode, days);
-        if (!dbData.isEmpty()) {
-            return dbData;
+        LocalDate end = LocalDate.now();
+        LocalDate start = end.minusDays(days);
+        fillMissingRanges(Collections.singletonList(stockCode), start, end);
+        return recentFromDB(stockCode, start, end);
+    }
+    
+    /**
+     * 批量获取自选股最近N天的数据
+     * 所有股票的缺失区间一次并行抓取后入库，再统一读库
+     * @param stockCodes 股票代码列表
+     * @param days 天数（自然日）
+     * @return 股票代码到数据列表的映射（保持传入顺序，获取失败的为空列表）
+     */
+    public Map<String, List<StockData>> getWatchlistData(List<String> stockCodes, int days) {
+        LinkedHashSet<String> codes = new LinkedHashSet<>(stockCodes);
+        if (codes.isEmpty() || codes.size() > watchlistMaxSize) {
+            throw new IllegalArgumentException("自选股数量需在1到" + watchlistMaxSize + "之间");
+        }
+        for (String stockCode : codes) {
+            if (!STOCK_CODE_PATTERN.matcher(stockCode).matches()) {
+                throw new IllegalArgumentException("股票代码格式不正确: " + stockCode);
+            }
         }
         
-        // 从网络获取数据
-        String jsonData = stockDataFetcher.fetchRecentStockData(stockCode, days);
-        List<StockData> stockData = stockDataParser.parseStockData(jsonData);
+        LocalDate end = LocalDate.now();
+        LocalDate start = end.minusDays(days);
+        fillMissingRanges(codes, start, end);
+        Map<String, List<StockData>> result = new LinkedHashMap<>();
+        for (String stockCode : codes) {
+            result.put(stockCode, recentFromDB(stockCode, start, end));
+        }
+        return result;
+    }
+    
+    /**
+     * 抓取并入库各股票在日期范围内尚未覆盖的子区间
+     * <p>
+     * 不含交易日的缺口直接记为已覆盖；其余缺口一次并行抓取，全部入库后记入覆盖区间。
+     * 接口正常返回但区间内没有行情（如全部停牌）同样记为已覆盖；请求失败或接口返回错误状态的缺口不记录，下次请求时重试。
+     * </p>
+     */
+    private void fillMissingRanges(Collection<String> stockCodes, LocalDate startDate, LocalDate endDate) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = endDate.isAfter(today) ? today : endDate;
+        TradingCalendar calendar = tradingCalendarService.getCalendar();
         
-        // 保存到数据库
-        if (stockData != null && !stockData.isEmpty()) {
-            stockDataService.saveStockData(stockData, stockCode, "未知股票");
+        List<String> gapCodes = new ArrayList<>();
+        List<LocalDate[]> gaps = new ArrayList<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String stockCode : stockCodes) {
+            for (LocalDate[] gap : stockDataService.findMissingRanges(stockCode, startDate, end)) {
+                if (calendar != null && calendar.tradingDaysBetween(gap[0], gap[1]).isEmpty()) {
+                    markCovered(stockCode, gap);
+                    continue;
+                }
+                gapCodes.add(stockCode);
+                gaps.add(gap);
+                futures.add(stockDataFetcher.fetchStockHistoryDataAsync(stockCode,
+                                gap[0].format(DateTimeFormatter.BASIC_ISO_DATE),
+                                gap[1].format(DateTimeFormatter.BASIC_ISO_DATE))
+                        .exceptionally(e -> {
+                            log.warn("获取股票 {} 数据失败: {}", stockCode, e.getMessage());
+                            return null;
+                        }));
+            }
+        }
+        if (futures.isEmpty()) {
+            return;
         }
         
+        long start = System.currentTimeMillis();
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            String jsonData = futures.get(i).join();
+            List<StockData> stockData = jsonData != null ? stockDataParser.parseHistory(jsonData) : null;
+            if (stockData == null) {
+                failed++;
+                continue;
+            }
+            // 没有行情时直接记录覆盖；有行写入失败时不记录覆盖，下次请求重新补齐
+            if (stockDataService.saveStockData(stockData, gapCodes.get(i), "未知股票")) {
+                markCovered(gapCodes.get(i), gaps.get(i));
+            } else {
+                failed++;
+            }
+        }
+        log.info("补齐股票缺失区间: 共 {} 段，失败 {} 段，耗时 {} ms",
+                futures.size(), failed, System.currentTimeMillis() - start);
+    }
+    
+    private void markCovered(String stockCode, LocalDate[] range) {
+        try {
+            stockDataService.markCovered(stockCode, range[0], range[1]);
+        } catch (Exception e) {
+            log.warn("记录股票 {} 覆盖区间失败: {}", stockCode, e.getMessage());
+        }
+    }
+    
+    private List<StockData> recentFromDB(String stockCode, LocalDate startDate, LocalDate endDate) {
+        List<StockData> stockData = new ArrayList<>(
+                stockDataService.getStockDataByDateRangeFromDB(stockCode, startDate, endDate));
+        Collections.reverse(stockData);
         return stockData;
     }
     
@@ -0,0 +1,44 @@
+package com.sunlight.invest.stock.entity;
+
+import java.time.LocalDate;
+
+/**
+ * 股票数据已覆盖的日期区间（含首尾），区间内的交易日数据均已入库
+ */
+public class StockDataCoverage {
+    private String stockCode;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public StockDataCoverage() {}
+
+    public StockDataCoverage(String stockCode, LocalDate startDate, LocalDate endDate) {
+        this.stockCode = stockCode;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+
+    public String getStockCode() {
+        return stockCode;
+    }
+
+    public void setStockCode(String stockCode) {
+        this.stockCode = stockCode;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+}
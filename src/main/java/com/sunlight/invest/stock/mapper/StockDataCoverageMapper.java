@@ -0,0 +1,60 @@
+package com.sunlight.invest.stock.mapper;
+
+import com.sunlight.invest.stock.entity.StockDataCoverage;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+@Mapper
+public interface StockDataCoverageMapper {
+
+    /**
+     * 创建股票数据覆盖区间表
+     */
+    @Update("CREATE TABLE IF NOT EXISTS `stock_data_coverage` (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+            "stock_code VARCHAR(20) NOT NULL COMMENT '股票代码'," +
+            "start_date DATE NOT NULL COMMENT '区间开始日期'," +
+            "end_date DATE NOT NULL COMMENT '区间结束日期'," +
+            "UNIQUE KEY uk_stock_start (stock_code, start_date)" +
+            ") COMMENT '股票数据覆盖区间表'")
+    void createTable();
+
+    /**
+     * 查询股票的全部覆盖区间
+     *
+     * @param stockCode 股票代码
+     * @return 覆盖区间列表（按开始日期升序）
+     */
+    @Select("SELECT stock_code, start_date, end_date FROM stock_data_coverage " +
+            "WHERE stock_code = #{stockCode} ORDER BY start_date ASC")
+    @Results({
+            @Result(property = "stockCode", column = "stock_code"),
+            @Result(property = "startDate", column = "start_date"),
+            @Result(property = "endDate", column = "end_date")
+    })
+    List<StockDataCoverage> selectByStockCode(@Param("stockCode") String stockCode);
+
+    /**
+     * 删除股票的全部覆盖区间
+     *
+     * @param stockCode 股票代码
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM stock_data_coverage WHERE stock_code = #{stockCode}")
+    int deleteByStockCode(@Param("stockCode") String stockCode);
+
+    /**
+     * 批量插入覆盖区间
+     *
+     * @param coverages 覆盖区间列表
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO stock_data_coverage (stock_code, start_date, end_date) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.stockCode}, #{item.startDate}, #{item.endDate})" +
+            "</foreach>" +
+            "</script>")
+    int batchInsert(@Param("list") List<StockDataCoverage> coverages);
+}
@@ -2,6 +2,7 @@ package com.sunlight.invest.stock.mapper;
 
 import com.sunlight.invest.stock.entity.StockDataEntity;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -40,6 +41,27 @@ public interface StockDataMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     int insert(StockDataEntity stockData);
 
+    /**
+     * 插入或更新单条股票数据记录
+     * <p>
+     * 供 BATCH 执行器复用同一条语句，开启 rewriteBatchedStatements 后由驱动改写为多值插入。
+     * </p>
+     *
+     * @param stockData 股票数据对象
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO stock_data (stock_code, stock_name, trade_date, open_price, close_price, high_price, low_price, volume, amount, create_time, update_time) " +
+            "VALUES (#{stockCode}, #{stockName}, #{tradeDate}, #{openPrice}, #{closePrice}, #{highPrice}, #{lowPrice}, #{volume}, #{amount}, #{createTime}, #{updateTime})" +
+            " ON DUPLICATE KEY UPDATE " +
+            "open_price = VALUES(open_price), " +
+            "close_price = VALUES(close_price), " +
+            "high_price = VALUES(high_price), " +
+            "low_price = VALUES(low_price), " +
+            "volume = VALUES(volume), " +
+            "amount = VALUES(amount), " +
+            "update_time = VALUES(update_time)")
+    int upsert(StockDataEntity stockData);
+
     /**
      * 批量插入股票数据记录（使用ON DUPLICATE KEY UPDATE避免重复）
      *
@@ -142,4 +164,33 @@ public interface StockDataMapper {
     List<StockDataEntity> selectByDateRange(@Param("stockCode") String stockCode, 
                                            @Param("startDate") LocalDate startDate, 
                                            @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+
+    /**
+     * 查询有行情数据的全部股票代码
+     *
+     * @return 股票代码列表
+     */
+    @Select("SELECT DISTINCT stock_code FROM stock_data ORDER BY stock_code")
+    List<String> selectAllStockCodes();
+
+    /**
+     * 流式读取股票最近N条日线（按日期降序），逐行交给处理器，不在内存中保留结果列表
+     *
+     * @param stockCode 股票代码
+     * @param limit     最多条数
+     * @param handler   结果处理器
+     */
+    @Select("SELECT trade_date, high_price, close_price, volume FROM stock_data " +
+            "WHERE stock_code = #{stockCode} " +
+            "ORDER BY trade_date DESC " +
+            "LIMIT #{limit}")
+    @Results({
+            @Result(property = "tradeDate", column = "trade_date"),
+            @Result(property = "highPrice", column = "high_price"),
+            @Result(property = "closePrice", column = "close_price"),
+            @Result(property = "volume", column = "volume")
+    })
+    @ResultType(StockDataEntity.class)
+    void streamRecentBars(@Param("stockCode") String stockCode, @Param("limit") int limit,
+                          ResultHandler<StockDataEntity> handler);
+}
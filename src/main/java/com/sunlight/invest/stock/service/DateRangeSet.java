@@ -0,0 +1,118 @@
+package com.sunlight.invest.stock.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 不可变的日期区间集合
+ * <p>
+ * 以 epochDay 存放按开始日期升序、互不相交且不相邻的闭区间，相邻或重叠的区间在加入时合并。
+ * 查询缺口时二分定位起点，只扫描与查询区间相交的部分。
+ * </p>
+ */
+public final class DateRangeSet {
+
+    private static final DateRangeSet EMPTY = new DateRangeSet(new long[0], new long[0]);
+
+    private final long[] starts;
+
+    private final long[] ends;
+
+    private DateRangeSet(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static DateRangeSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 区间个数
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    public LocalDate startAt(int index) {
+        return LocalDate.ofEpochDay(starts[index]);
+    }
+
+    public LocalDate endAt(int index) {
+        return LocalDate.ofEpochDay(ends[index]);
+    }
+
+    /**
+     * 是否完整覆盖 [startDate, endDate]
+     */
+    public boolean covers(LocalDate startDate, LocalDate endDate) {
+        return missing(startDate, endDate).isEmpty();
+    }
+
+    /**
+     * 计算 [startDate, endDate] 中未被覆盖的子区间
+     *
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 缺口列表，每项为 {开始日期, 结束日期}，按日期升序
+     */
+    public List<LocalDate[]> missing(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        if (start > end) {
+            return Collections.emptyList();
+        }
+        List<LocalDate[]> gaps = new ArrayList<>();
+        long cursor = start;
+        for (int i = firstEndingOnOrAfter(start); i < starts.length && starts[i] <= end; i++) {
+            if (starts[i] > cursor) {
+                gaps.add(new LocalDate[]{LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(starts[i] - 1)});
+            }
+            cursor = Math.max(cursor, ends[i] + 1);
+        }
+        if (cursor <= end) {
+            gaps.add(new LocalDate[]{LocalDate.ofEpochDay(cursor), LocalDate.ofEpochDay(end)});
+        }
+        return gaps;
+    }
+
+    /**
+     * 加入区间 [startDate, endDate]，返回合并后的新集合
+     */
+    public DateRangeSet plus(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        if (start > end) {
+            return this;
+        }
+        // [from, to) 为与新区间重叠或相邻的已有区间
+        int from = firstEndingOnOrAfter(start - 1);
+        int to = from;
+        while (to < starts.length && starts[to] <= end + 1) {
+            start = Math.min(start, starts[to]);
+            end = Math.max(end, ends[to]);
+            to++;
+        }
+        int length = starts.length - (to - from) + 1;
+        long[] newStarts = new long[length];
+        long[] newEnds = new long[length];
+        System.arraycopy(starts, 0, newStarts, 0, from);
+        System.arraycopy(ends, 0, newEnds, 0, from);
+        newStarts[from] = start;
+        newEnds[from] = end;
+        System.arraycopy(starts, to, newStarts, from + 1, starts.length - to);
+        System.arraycopy(ends, to, newEnds, from + 1, starts.length - to);
+        return new DateRangeSet(newStarts, newEnds);
+    }
+
+    /**
+     * 第一个结束日期不早于 day 的区间下标
+     */
+    private int firstEndingOnOrAfter(long day) {
+        int index = Arrays.binarySearch(ends, day);
+        return index >= 0 ? index : -index - 1;
+    }
+}
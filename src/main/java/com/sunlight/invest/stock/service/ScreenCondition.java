@@ -0,0 +1,255 @@
+package com.sunlight.invest.stock.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 技术选股条件
+ * <p>
+ * 以文本描述，多个条件用分号分隔：
+ * <ul>
+ *     <li>new-high:N —— 最新收盘价创 N 日新高</li>
+ *     <li>ma-cross:F,S —— 最新交易日 F 日均线上穿 S 日均线</li>
+ *     <li>rsi:P,L,U —— P 日 RSI 位于 [L, U]</li>
+ *     <li>volume-spike:N,R —— 最新成交量不低于前 N 日均量的 R 倍</li>
+ * </ul>
+ * 周期参数必须是不超过 {@value #MAX_PERIOD} 的整数。
+ * 所有计算直接在 {@link StockSeries} 的基本类型数组上完成，只看序列末尾所需的窗口。
+ * </p>
+ */
+public final class ScreenCondition {
+
+    public enum Type {
+        NEW_HIGH("new-high", 1),
+        MA_CROSS("ma-cross", 2),
+        RSI("rsi", 3),
+        VOLUME_SPIKE("volume-spike", 2);
+
+        private final String key;
+        private final int arity;
+
+        Type(String key, int arity) {
+            this.key = key;
+            this.arity = arity;
+        }
+    }
+
+    /**
+     * 周期参数上限（交易日）
+     */
+    public static final int MAX_PERIOD = 1000;
+
+    // RSI 使用 Wilder 平滑，取 4 倍周期的数据使结果基本收敛
+    private static final int RSI_WARMUP_FACTOR = 4;
+
+    private final Type type;
+
+    private final double[] params;
+
+    private ScreenCondition(Type type, double[] params) {
+        this.type = type;
+        this.params = params;
+    }
+
+    /**
+     * 解析条件描述
+     *
+     * @param spec 条件描述，如 "new-high:20;ma-cross:5,20"
+     * @return 条件列表
+     */
+    public static List<ScreenCondition> parseAll(String spec) {
+        List<ScreenCondition> conditions = new ArrayList<>();
+        if (spec != null) {
+            for (String part : spec.split(";")) {
+                if (!part.trim().isEmpty()) {
+                    conditions.add(parse(part.trim()));
+                }
+            }
+        }
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("选股条件不能为空");
+        }
+        return conditions;
+    }
+
+    /**
+     * 解析单个条件描述
+     *
+     * @param spec 条件描述，如 "rsi:14,0,30"
+     * @return 条件
+     */
+    public static ScreenCondition parse(String spec) {
+        int colon = spec.indexOf(':');
+        String key = (colon < 0 ? spec : spec.substring(0, colon)).trim().toLowerCase(Locale.ROOT);
+        Type type = null;
+        for (Type candidate : Type.values()) {
+            if (candidate.key.equals(key)) {
+                type = candidate;
+            }
+        }
+        if (type == null || colon < 0) {
+            throw new IllegalArgumentException("无法识别的选股条件: " + spec);
+        }
+        String[] parts = spec.substring(colon + 1).split(",");
+        if (parts.length != type.arity) {
+            throw new IllegalArgumentException("选股条件参数个数不正确: " + spec);
+        }
+        double[] params = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                params[i] = Double.parseDouble(parts[i].trim());
+                if (Double.isNaN(params[i]) || Double.isInfinite(params[i])) {
+                    throw new NumberFormatException();
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("选股条件参数不是数字: " + spec);
+        }
+        ScreenCondition condition = new ScreenCondition(type, params);
+        condition.validate(spec);
+        return condition;
+    }
+
+    private void validate(String spec) {
+        boolean valid;
+        switch (type) {
+            case NEW_HIGH:
+                valid = isPeriod(0) && period(0) >= 2;
+                break;
+            case MA_CROSS:
+                valid = isPeriod(0) && isPeriod(1) && period(0) >= 1 && period(1) > period(0);
+                break;
+            case RSI:
+                valid = isPeriod(0) && period(0) >= 2 && params[1] >= 0 && params[1] <= params[2] && params[2] <= 100;
+                break;
+            default:
+                valid = isPeriod(0) && period(0) >= 1 && params[1] > 0;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("选股条件参数超出范围: " + spec);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * 计算条件所需的最少交易日数
+     */
+    public int requiredBars() {
+        switch (type) {
+            case NEW_HIGH:
+                return period(0);
+            case MA_CROSS:
+                return period(1) + 1;
+            case RSI:
+                return period(0) * RSI_WARMUP_FACTOR + 1;
+            default:
+                return period(0) + 1;
+        }
+    }
+
+    /**
+     * 判断序列最新交易日是否满足条件，数据不足时不满足
+     */
+    public boolean matches(StockSeries series) {
+        if (series.size() < requiredBars()) {
+            return false;
+        }
+        switch (type) {
+            case NEW_HIGH:
+                return newHigh(series.closeArray(), period(0));
+            case MA_CROSS:
+                return maCross(series.closeArray(), period(0), period(1));
+            case RSI:
+                double rsi = rsi(series.closeArray(), period(0));
+                return rsi >= params[1] && rsi <= params[2];
+            default:
+                return volumeSpike(series.volumeArray(), period(0), params[1]);
+        }
+    }
+
+    /**
+     * 参数是否为不超过上限的整数周期，小数不截断
+     */
+    private boolean isPeriod(int index) {
+        return params[index] == Math.rint(params[index]) && params[index] <= MAX_PERIOD;
+    }
+
+    private int period(int index) {
+        return (int) params[index];
+    }
+
+    static boolean newHigh(double[] closes, int n) {
+        int last = closes.length - 1;
+        for (int i = last - n + 1; i < last; i++) {
+            if (closes[i] >= closes[last]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean maCross(double[] closes, int fast, int slow) {
+        int last = closes.length - 1;
+        double fastSum = 0;
+        double slowSum = 0;
+        for (int i = 0; i < slow; i++) {
+            double close = closes[last - 1 - i];
+            slowSum += close;
+            if (i < fast) {
+                fastSum += close;
+            }
+        }
+        boolean belowBefore = fastSum / fast <= slowSum / slow;
+        fastSum += closes[last] - closes[last - fast];
+        slowSum += closes[last] - closes[last - slow];
+        return belowBefore && fastSum / fast > slowSum / slow;
+    }
+
+    static double rsi(double[] closes, int period) {
+        int from = Math.max(1, closes.length - period * RSI_WARMUP_FACTOR);
+        double gain = 0;
+        double loss = 0;
+        for (int i = from; i < from + period; i++) {
+            double change = closes[i] - closes[i - 1];
+            gain += Math.max(change, 0);
+            loss += Math.max(-change, 0);
+        }
+        gain /= period;
+        loss /= period;
+        for (int i = from + period; i < closes.length; i++) {
+            double change = closes[i] - closes[i - 1];
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+        }
+        if (loss == 0) {
+            return gain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    static boolean volumeSpike(long[] volumes, int n, double ratio) {
+        int last = volumes.length - 1;
+        long sum = 0;
+        for (int i = last - n; i < last; i++) {
+            sum += volumes[i];
+        }
+        return sum > 0 && volumes[last] >= ratio * sum / n;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(type.key).append(':');
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            double value = params[i];
+            text.append(value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value));
+        }
+        return text.toString();
+    }
+}
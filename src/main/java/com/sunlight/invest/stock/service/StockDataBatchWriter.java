@@ -0,0 +1,134 @@
+package com.sunlight.invest.stock.service;
+
+import com.sunlight.invest.stock.entity.StockDataEntity;
+import com.sunlight.invest.stock.mapper.StockDataMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 股票数据批量写入器
+ * <p>
+ * 使用 MyBatis BATCH 执行器按块提交 upsert，连接串开启 rewriteBatchedStatements 后
+ * 每块只需一次往返。某块因数据错误（SQLState 22/23 类）失败时回滚并二分重试，只把真正出错的行定位到单行，
+ * 其余行仍按批写入，不会退化为逐行插入；连接中断等其他错误与具体行无关，直接抛出。
+ * </p>
+ */
+@Component
+public class StockDataBatchWriter {
+    private static final Logger log = LoggerFactory.getLogger(StockDataBatchWriter.class);
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Value("${stock.batch.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 批量写入股票数据
+     *
+     * @param entities 股票数据列表
+     * @return 写入结果（成功行数与失败行）
+     */
+    public Result write(List<StockDataEntity> entities) {
+        Result result = new Result();
+        int size = Math.max(1, chunkSize);
+        for (int from = 0; from < entities.size(); from += size) {
+            writeChunk(entities.subList(from, Math.min(from + size, entities.size())), result);
+        }
+        return result;
+    }
+
+    private void writeChunk(List<StockDataEntity> chunk, Result result) {
+        try {
+            executeBatch(chunk);
+            result.written += chunk.size();
+        } catch (RuntimeException e) {
+            if (!isDataError(e)) {
+                throw e;
+            }
+            if (chunk.size() == 1) {
+                StockDataEntity entity = chunk.get(0);
+                log.warn("股票数据写入失败: {} {} - {}", entity.getStockCode(), entity.getTradeDate(), rootMessage(e));
+                result.failed.add(entity);
+                return;
+            }
+            int mid = chunk.size() / 2;
+            writeChunk(chunk.subList(0, mid), result);
+            writeChunk(chunk.subList(mid, chunk.size()), result);
+        }
+    }
+
+    /**
+     * 在独立的 BATCH 会话中执行一块写入并提交，失败时整块回滚
+     */
+    void executeBatch(List<StockDataEntity> chunk) {
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            StockDataMapper mapper = session.getMapper(StockDataMapper.class);
+            try {
+                for (StockDataEntity entity : chunk) {
+                    mapper.upsert(entity);
+                }
+                session.flushStatements();
+                session.commit();
+            } catch (RuntimeException e) {
+                session.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 是否为个别行数据导致的错误：约束冲突、数据截断、格式错误等（SQLState 22/23 类）
+     */
+    static boolean isDataError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * 批量写入结果
+     */
+    public static class Result {
+        private int written;
+        private final List<StockDataEntity> failed = new ArrayList<>();
+
+        public int getWritten() {
+            return written;
+        }
+
+        public List<StockDataEntity> getFailed() {
+            return failed;
+        }
+    }
+}
@@ -1,24 +1,51 @@
 package com.sunlight.invest.stock.service;
 
 import com.sunlight.invest.stock.StockData;
+import com.sunlight.invest.stock.entity.StockDataCoverage;
 import com.sunlight.invest.stock.entity.StockDataEntity;
+import com.sunlight.invest.stock.mapper.StockDataCoverageMapper;
 import com.sunlight.invest.stock.mapper.StockDataMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 @Service
 public class StockDataService {
+    private static final Logger log = LoggerFactory.getLogger(StockDataService.class);
+
+    /**
+     * 收盘数据落定时间，此前当天的行情仍可能变化，不计入覆盖区间
+     */
+    private static final LocalTime MARKET_SETTLED_TIME = LocalTime.of(15, 30);
 
     @Autowired
     private StockDataMapper stockDataMapper;
 
+    @Autowired
+    private StockDataCoverageMapper stockDataCoverageMapper;
+
+    @Autowired
+    private StockDataBatchWriter stockDataBatchWriter;
+
+    /**
+     * 股票代码 -> 已入库的日期区间，首次访问时从覆盖区间表加载
+     */
+    private final ConcurrentMap<String, DateRangeSet> coverageCache = new ConcurrentHashMap<>();
+
     /**
      * 初始化数据库表
      */
@@ -29,6 +56,11 @@ public class StockDataService {
         } catch (Exception e) {
             // 表可能已经存在，忽略异常
         }
+        try {
+            stockDataCoverageMapper.createTable();
+        } catch (Exception e) {
+            // 表可能已经存在，忽略异常
+        }
     }
 
     /**
@@ -81,29 +113,24 @@ public class StockDataService {
 
     /**
      * 保存股票数据到数据库
+     * 按批 upsert，个别行失败时只跳过这些行并记录日志
+     * @return 是否全部入库
      */
-    public void saveStockData(List<StockData> stockDataList, String stockCode, String stockName) {
+    public boolean saveStockData(List<StockData> stockDataList, String stockCode, String stockName) {
         if (stockDataList == null || stockDataList.isEmpty()) {
-            return;
+            return true;
         }
 
         List<StockDataEntity> entities = stockDataList.stream()
                 .map(data -> convertToEntity(data, stockCode, stockName))
                 .collect(Collectors.toList());
 
-        // 批量插入数据
-        try {
-            stockDataMapper.batchInsert(entities);
-        } catch (Exception e) {
-            // 如果批量插入失败，逐个插入
-            for (StockDataEntity entity : entities) {
-                try {
-                    stockDataMapper.insert(entity);
-                } catch (Exception ex) {
-                    // 忽略单个插入失败的情况（可能是重复数据）
-                }
-            }
+        StockDataBatchWriter.Result result = stockDataBatchWriter.write(entities);
+        if (!result.getFailed().isEmpty()) {
+            log.warn("股票 {} 数据入库: 成功 {} 条，失败 {} 条", stockCode,
+                    result.getWritten(), result.getFailed().size());
         }
+        return result.getFailed().isEmpty();
     }
 
     /**
@@ -133,4 +160,87 @@ public class StockDataService {
         StockDataEntity entity = stockDataMapper.selectByCodeAndDate(stockCode, tradeDate);
         return entity != null;
     }
-}
\ No newline at end of file
+
+    /**
+     * 计算指定日期范围内尚未入库的子区间
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     * @return 缺口列表，每项为 {开始日期, 结束日期}，按日期升序
+     */
+    public List<LocalDate[]> findMissingRanges(String stockCode, LocalDate startDate, LocalDate endDate) {
+        DateRangeSet coverage;
+        try {
+            coverage = coverage(stockCode);
+        } catch (Exception e) {
+            // 加载失败不缓存，本次按整段缺失处理，下次请求重新加载
+            log.warn("加载股票 {} 覆盖区间失败，按整段缺失处理: {}", stockCode, e.getMessage());
+            coverage = DateRangeSet.empty();
+        }
+        return coverage.missing(startDate, endDate);
+    }
+
+    /**
+     * 记录日期范围内的数据已完整入库
+     * <p>
+     * 尚未收盘落定的日期（当天 15:30 之前的当天及以后）不计入，下次请求会重新抓取。
+     * 已有覆盖区间加载失败或写入失败时抛出异常，缓存和表中的区间都保持不变。
+     * </p>
+     *
+     * @param stockCode 股票代码
+     * @param startDate 开始日期
+     * @param endDate   结束日期
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void markCovered(String stockCode, LocalDate startDate, LocalDate endDate) {
+        LocalDate settled = lastSettledDate(LocalDateTime.now());
+        LocalDate end = endDate.isAfter(settled) ? settled : endDate;
+        if (startDate.isAfter(end)) {
+            return;
+        }
+        coverageCache.compute(stockCode, (code, current) -> {
+            DateRangeSet base = current != null ? current : loadCoverage(code);
+            if (base.covers(startDate, end)) {
+                return base;
+            }
+            DateRangeSet merged = base.plus(startDate, end);
+            persistCoverage(code, merged);
+            return merged;
+        });
+    }
+
+    /**
+     * 最后一个行情已落定的日期
+     */
+    static LocalDate lastSettledDate(LocalDateTime now) {
+        return now.toLocalTime().isBefore(MARKET_SETTLED_TIME) ? now.toLocalDate().minusDays(1) : now.toLocalDate();
+    }
+
+    private DateRangeSet coverage(String stockCode) {
+        return coverageCache.computeIfAbsent(stockCode, this::loadCoverage);
+    }
+
+    /**
+     * 从覆盖区间表加载，失败时抛出异常：不能把空集合写入缓存，否则后续 markCovered 会用它覆盖表中已有的区间
+     */
+    private DateRangeSet loadCoverage(String stockCode) {
+        DateRangeSet set = DateRangeSet.empty();
+        for (StockDataCoverage coverage : stockDataCoverageMapper.selectByStockCode(stockCode)) {
+            set = set.plus(coverage.getStartDate(), coverage.getEndDate());
+        }
+        return set;
+    }
+
+    /**
+     * 整体替换股票的覆盖区间，删除和插入在调用方 markCovered 的事务内完成
+     */
+    private void persistCoverage(String stockCode, DateRangeSet set) {
+        List<StockDataCoverage> coverages = new ArrayList<>(set.size());
+        for (int i = 0; i < set.size(); i++) {
+            coverages.add(new StockDataCoverage(stockCode, set.startAt(i), set.endAt(i)));
+        }
+        stockDataCoverageMapper.deleteByStockCode(stockCode);
+        stockDataCoverageMapper.batchInsert(coverages);
+    }
+}
@@ -0,0 +1,371 @@
+package com.sunlight.invest.stock.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunlight.invest.fund.monitor.service.TradingCalendar;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
+import com.sunlight.invest.stock.mapper.StockDataMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 股票技术选股服务
+ * <p>
+ * 按股票代码划分任务，在线程池中并行执行：每只股票流式读取最近所需条数的日线到基本类型数组，
+ * 计算选股条件后立即把命中结果交给调用方，不等待全部股票扫描结束。
+ * 最新日线早于最近已收盘交易日（可配置允许落后的交易日数）的股票视为数据过期，不参与选股。
+ * 每个交易日收盘后按配置的条件自动筛选一次，保留最近一次结果。
+ * </p>
+ */
+@Service
+public class StockScreenService {
+    private static final Logger log = LoggerFactory.getLogger(StockScreenService.class);
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    @Autowired
+    private StockDataMapper stockDataMapper;
+
+    @Autowired
+    private TradingCalendarService tradingCalendarService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${stock.screen.threads:8}")
+    private int threads;
+
+    @Value("${stock.screen.daily-enabled:true}")
+    private boolean dailyEnabled;
+
+    @Value("${stock.screen.daily-conditions:new-high:20;ma-cross:5,20}")
+    private String dailyConditions;
+
+    @Value("${stock.screen.daily-match-all:false}")
+    private boolean dailyMatchAll;
+
+    @Value("${stock.screen.max-stale-days:0}")
+    private int maxStaleDays;
+
+    private ExecutorService executor;
+
+    private volatile Result latest;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "stock-screen-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 执行选股并收集全部命中结果
+     *
+     * @param conditions 选股条件
+     * @param matchAll   true 需满足全部条件，false 满足任一条件
+     * @return 选股结果（命中按股票代码排序）
+     */
+    public Result screen(List<ScreenCondition> conditions, boolean matchAll) {
+        List<Match> matches = new ArrayList<>();
+        Result result = screen(conditions, matchAll, matches::add);
+        matches.sort(Comparator.comparing(Match::getStockCode));
+        result.matches = matches;
+        return result;
+    }
+
+    /**
+     * 执行选股，命中结果产生后立即交给 sink
+     * <p>
+     * sink 的调用已串行化，无需自行加锁。
+     * </p>
+     *
+     * @param conditions 选股条件
+     * @param matchAll   true 需满足全部条件，false 满足任一条件
+     * @param sink       命中结果接收者
+     * @return 选股统计（不含命中列表）
+     */
+    public Result screen(List<ScreenCondition> conditions, boolean matchAll, Consumer<Match> sink) {
+        return screen(conditions, matchAll, sink, minTradeDate(LocalDateTime.now()));
+    }
+
+    /**
+     * 执行选股，最新日线早于 minTradeDate 的股票跳过
+     *
+     * @param minTradeDate 允许的最早最新日线日期，为 null 时不检查
+     */
+    Result screen(List<ScreenCondition> conditions, boolean matchAll, Consumer<Match> sink, LocalDate minTradeDate) {
+        long start = System.currentTimeMillis();
+        int bars = 0;
+        for (ScreenCondition condition : conditions) {
+            bars = Math.max(bars, condition.requiredBars());
+        }
+        int limit = bars;
+
+        List<String> stockCodes = stockDataMapper.selectAllStockCodes();
+        AtomicInteger matched = new AtomicInteger();
+        AtomicInteger stale = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(stockCodes.size());
+        for (String stockCode : stockCodes) {
+            futures.add(executor.submit(() -> {
+                StockSeries series = load(stockCode, limit);
+                // 长期未更新的股票不能当作当天命中
+                if (series.size() == 0 || (minTradeDate != null && series.lastDate().isBefore(minTradeDate))) {
+                    stale.incrementAndGet();
+                    return;
+                }
+                Match match = evaluate(series, conditions, matchAll);
+                if (match != null) {
+                    matched.incrementAndGet();
+                    synchronized (sink) {
+                        sink.accept(match);
+                    }
+                }
+            }));
+        }
+
+        int failed = 0;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("股票 {} 选股计算失败: {}", stockCodes.get(i), e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("选股任务被中断");
+        }
+
+        Result result = new Result();
+        result.conditions = conditions.toString();
+        result.matchAll = matchAll;
+        result.scanned = stockCodes.size();
+        result.matched = matched.get();
+        result.stale = stale.get();
+        result.failed = failed;
+        result.elapsedMs = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * 流式选股
+     * <p>
+     * 条件在调用时解析（出错直接抛出，便于返回错误信息）；返回的输出体每命中一只股票写一行（NDJSON），
+     * 扫描结束后写一行汇总。
+     * </p>
+     *
+     * @param conditions 选股条件
+     * @param matchAll   true 需满足全部条件，false 满足任一条件
+     * @return NDJSON 输出体
+     */
+    public StreamingResponseBody streamScreen(List<ScreenCondition> conditions, boolean matchAll) {
+        return out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            AtomicReference<IOException> writeError = new AtomicReference<>();
+            Result result = screen(conditions, matchAll, match -> {
+                if (writeError.get() != null) {
+                    return;
+                }
+                try {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("type", "match");
+                    line.putAll(objectMapper.convertValue(match, MAP_TYPE));
+                    generator.writeObject(line);
+                    generator.writeRaw('\n');
+                    generator.flush();
+                } catch (IOException e) {
+                    // 客户端断开等写出失败，不再写出后续结果
+                    writeError.set(e);
+                }
+            });
+            if (writeError.get() != null) {
+                throw writeError.get();
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("type", "summary");
+            summary.putAll(objectMapper.convertValue(result, MAP_TYPE));
+            summary.remove("matches");
+            generator.writeObject(summary);
+            generator.writeRaw('\n');
+            generator.flush();
+        };
+    }
+
+    /**
+     * 交易日收盘后按配置条件自动选股
+     */
+    @Scheduled(cron = "${stock.screen.cron:0 0 16 * * MON-FRI}")
+    public void runDaily() {
+        if (!dailyEnabled || !tradingCalendarService.isTradingDay(LocalDate.now())) {
+            return;
+        }
+        try {
+            Result result = screen(ScreenCondition.parseAll(dailyConditions), dailyMatchAll);
+            latest = result;
+            log.info("每日选股完成: 条件 {}，扫描 {} 只，命中 {} 只，数据过期 {} 只，失败 {} 只，耗时 {} ms",
+                    result.conditions, result.scanned, result.matched, result.stale, result.failed, result.elapsedMs);
+        } catch (Exception e) {
+            log.error("每日选股失败", e);
+        }
+    }
+
+    /**
+     * 最近一次每日选股结果，尚未执行时为 null
+     */
+    public Result getLatest() {
+        return latest;
+    }
+
+    /**
+     * 参与选股的最新日线最早日期：最近已收盘交易日往前 maxStaleDays 个交易日
+     *
+     * @return 最早日期，maxStaleDays 为负数时返回 null（不检查）
+     */
+    LocalDate minTradeDate(LocalDateTime now) {
+        if (maxStaleDays < 0) {
+            return null;
+        }
+        TradingCalendar calendar = tradingCalendarService.getCalendar();
+        LocalDate day = calendar.tradingDayOnOrBefore(StockDataService.lastSettledDate(now));
+        for (int i = 0; i < maxStaleDays; i++) {
+            day = calendar.previousTradingDay(day);
+        }
+        return day;
+    }
+
+    private StockSeries load(String stockCode, int limit) {
+        StockSeries.Collector collector = new StockSeries.Collector(stockCode, limit);
+        stockDataMapper.streamRecentBars(stockCode, limit, collector);
+        return collector.toSeries();
+    }
+
+    static Match evaluate(StockSeries series, List<ScreenCondition> conditions, boolean matchAll) {
+        List<String> hits = new ArrayList<>(conditions.size());
+        for (ScreenCondition condition : conditions) {
+            if (condition.matches(series)) {
+                hits.add(condition.toString());
+            } else if (matchAll) {
+                return null;
+            }
+        }
+        if (hits.isEmpty()) {
+            return null;
+        }
+        Match match = new Match();
+        match.stockCode = series.getStockCode();
+        match.tradeDate = series.lastDate();
+        match.closePrice = series.closeArray()[series.size() - 1];
+        match.conditions = hits;
+        return match;
+    }
+
+    /**
+     * 选股命中结果
+     */
+    public static class Match {
+        private String stockCode;
+        private LocalDate tradeDate;
+        private double closePrice;
+        private List<String> conditions = Collections.emptyList();
+
+        public String getStockCode() {
+            return stockCode;
+        }
+
+        public LocalDate getTradeDate() {
+            return tradeDate;
+        }
+
+        public double getClosePrice() {
+            return closePrice;
+        }
+
+        public List<String> getConditions() {
+            return conditions;
+        }
+    }
+
+    /**
+     * 选股统计结果
+     */
+    public static class Result {
+        private String conditions;
+        private boolean matchAll;
+        private int scanned;
+        private int matched;
+        private int stale;
+        private int failed;
+        private long elapsedMs;
+        private List<Match> matches;
+
+        public String getConditions() {
+            return conditions;
+        }
+
+        public boolean isMatchAll() {
+            return matchAll;
+        }
+
+        public int getScanned() {
+            return scanned;
+        }
+
+        public int getMatched() {
+            return matched;
+        }
+
+        public int getStale() {
+            return stale;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public List<Match> getMatches() {
+            return matches;
+        }
+    }
+}
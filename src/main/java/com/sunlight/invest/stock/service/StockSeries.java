@@ -0,0 +1,111 @@
+package com.sunlight.invest.stock.service;
+
+import com.sunlight.invest.stock.entity.StockDataEntity;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 单只股票的日线序列
+ * <p>
+ * 按日期升序以基本类型数组保存日期（epochDay）、最高价、收盘价和成交量，供选股条件计算。
+ * </p>
+ */
+public final class StockSeries {
+
+    private final String stockCode;
+
+    private final int[] days;
+
+    private final double[] highs;
+
+    private final double[] closes;
+
+    private final long[] volumes;
+
+    private StockSeries(String stockCode, int[] days, double[] highs, double[] closes, long[] volumes) {
+        this.stockCode = stockCode;
+        this.days = days;
+        this.highs = highs;
+        this.closes = closes;
+        this.volumes = volumes;
+    }
+
+    /**
+     * 由升序数组构建序列
+     */
+    public static StockSeries of(String stockCode, int[] days, double[] highs, double[] closes, long[] volumes) {
+        if (days.length != highs.length || days.length != closes.length || days.length != volumes.length) {
+            throw new IllegalArgumentException("序列长度不一致");
+        }
+        return new StockSeries(stockCode, days, highs, closes, volumes);
+    }
+
+    public String getStockCode() {
+        return stockCode;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public LocalDate lastDate() {
+        return days.length == 0 ? null : LocalDate.ofEpochDay(days[days.length - 1]);
+    }
+
+    double[] highArray() {
+        return highs;
+    }
+
+    double[] closeArray() {
+        return closes;
+    }
+
+    long[] volumeArray() {
+        return volumes;
+    }
+
+    /**
+     * 按日期降序接收查询结果并倒序填入数组，不保留行对象
+     */
+    static final class Collector implements ResultHandler<StockDataEntity> {
+        private final String stockCode;
+        private final int[] days;
+        private final double[] highs;
+        private final double[] closes;
+        private final long[] volumes;
+        private int count;
+
+        Collector(String stockCode, int capacity) {
+            this.stockCode = stockCode;
+            this.days = new int[capacity];
+            this.highs = new double[capacity];
+            this.closes = new double[capacity];
+            this.volumes = new long[capacity];
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends StockDataEntity> context) {
+            StockDataEntity row = context.getResultObject();
+            if (count == days.length || row.getTradeDate() == null || row.getClosePrice() == null) {
+                return;
+            }
+            int i = days.length - 1 - count++;
+            days[i] = (int) row.getTradeDate().toEpochDay();
+            closes[i] = row.getClosePrice().doubleValue();
+            highs[i] = row.getHighPrice() != null ? row.getHighPrice().doubleValue() : closes[i];
+            volumes[i] = row.getVolume() != null ? row.getVolume() : 0L;
+        }
+
+        StockSeries toSeries() {
+            int from = days.length - count;
+            return new StockSeries(stockCode,
+                    Arrays.copyOfRange(days, from, days.length),
+                    Arrays.copyOfRange(highs, from, highs.length),
+                    Arrays.copyOfRange(closes, from, closes.length),
+                    Arrays.copyOfRange(volumes, from, volumes.length));
+        }
+    }
+}
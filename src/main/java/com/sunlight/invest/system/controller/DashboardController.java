@@ -2,7 +2,10 @@ package com.sunlight.invest.system.controller;
 
 import com.sunlight.invest.alert.entity.AlertRecord;
 import com.sunlight.invest.alert.mapper.AlertRecordMapper;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
 import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import com.sunlight.invest.fund.monitor.service.CrawlRetryService;
+import com.sunlight.invest.fund.monitor.service.FundNavService;
 import com.sunlight.invest.notification.mapper.EmailRecipientMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +42,12 @@ public class DashboardController {
     @Autowired
     private EmailRecipientMapper emailRecipientMapper;
 
+    @Autowired
+    private CrawlRetryService crawlRetryService;
+
+    @Autowired
+    private FundNavService fundNavService;
+
     /**
      * 获取仪表板统计数据
      */
@@ -65,6 +74,18 @@ public class DashboardController {
             data.put("recipientCount", recipientCount);
             data.put("systemStatus", "🟢");
             
+            // 抓取重试队列中待重试和已放弃的任务数量
+            try {
+                Map<String, Integer> retryStats = crawlRetryService.getStats();
+                data.put("retryPending", retryStats.get("pending"));
+                data.put("retryDead", retryStats.get("dead"));
+                if (retryStats.get("dead") > 0) {
+                    data.put("systemStatus", "🟡");
+                }
+            } catch (Exception e) {
+                log.warn("获取重试队列统计失败: {}", e.getMessage());
+            }
+            
             result.put("success", true);
             result.put("data", data);
         } catch (Exception e) {
@@ -94,4 +115,25 @@ public class DashboardController {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取所有监控基金的最新净值状态
+     */
+    @GetMapping("/fund-status")
+    public Map<String, Object> getFundStatus() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            // 读取最新净值汇总表，无需扫描净值明细
+            List<FundNavLatest> statusList = fundNavService.getAllMonitoredStatus();
+            
+            result.put("success", true);
+            result.put("count", statusList.size());
+            result.put("data", statusList);
+        } catch (Exception e) {
+            log.error("获取基金最新净值状态失败", e);
+            result.put("success", false);
+            result.put("message", "获取基金状态失败: " + e.getMessage());
+        }
+        return result;
+    }
+}
@@ -2,6 +2,7 @@ package com.sunlight.invest.system.controller;
 
 import com.sunlight.invest.system.entity.SystemConfig;
 import com.sunlight.invest.system.service.SystemConfigService;
+import com.sunlight.invest.system.service.SystemConfigSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,51 @@ public class SystemConfigController {
         return result;
     }
     
+    /**
+     * 获取当前生效的配置快照
+     *
+     * @return 配置快照
+     */
+    @GetMapping("/snapshot")
+    public Map<String, Object> getSnapshot() {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            SystemConfigSnapshot snapshot = systemConfigService.getSnapshot();
+            
+            result.put("success", true);
+            result.put("data", snapshot);
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "获取配置快照失败: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
+    /**
+     * 从数据库重新加载配置
+     *
+     * @return 重新加载后的配置快照
+     */
+    @PostMapping("/reload")
+    public Map<String, Object> reloadConfigs() {
+        Map<String, Object> result = new HashMap<>();
+        
+        try {
+            systemConfigService.loadAllConfigs();
+            
+            result.put("success", true);
+            result.put("message", "配置重新加载成功");
+            result.put("data", systemConfigService.getSnapshot());
+        } catch (Exception e) {
+            result.put("success", false);
+            result.put("message", "配置重新加载失败: " + e.getMessage());
+        }
+        
+        return result;
+    }
+    
     /**
      * 根据ID获取配置项
      *
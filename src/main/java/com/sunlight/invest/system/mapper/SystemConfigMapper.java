@@ -123,4 +123,24 @@ public interface SystemConfigMapper {
      */
     @Delete("DELETE FROM system_config WHERE config_key = #{configKey}")
     int deleteByConfigKey(@Param("configKey") String configKey);
-}
\ No newline at end of file
+
+    /**
+     * 查询配置版本号
+     * <p>
+     * 每次配置变更都会递增版本号，各节点轮询该值判断是否需要重新加载配置。
+     * </p>
+     *
+     * @return 版本号，没有记录时返回null
+     */
+    @Select("SELECT version FROM system_config_version WHERE id = 1")
+    Long selectVersion();
+
+    /**
+     * 递增配置版本号
+     *
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO system_config_version (id, version, update_time) VALUES (1, 1, NOW()) " +
+            "ON DUPLICATE KEY UPDATE version = version + 1, update_time = NOW()")
+    int incrementVersion();
+}
@@ -44,6 +44,16 @@ public class DatabaseInitializer {
     @Value("classpath:init.sql")
     private Resource initResource;
 
+    /**
+     * 已有库需要补充的字段：{表名, 字段名, 字段定义}
+     * 新库由schema.sql中的CREATE TABLE直接建出，这里只负责旧库升级
+     */
+    private static final String[][] COLUMN_MIGRATIONS = {
+            {"fund_nav", "first_seen_time", "DATETIME NULL COMMENT '轮询首次发现时间（用于学习公布时间）'"},
+            {"fund_nav_latest", "alerted_nav_date", "DATE COMMENT '已评估预警的最新净值日期' AFTER drawdown_60d"},
+            {"fund_nav_latest", "metric_checked_date", "DATE COMMENT '业绩指标数据不足时已检查的最新净值日期' AFTER alerted_nav_date"}
+    };
+
     @Value("${spring.datasource.url}")
     private String dbUrl;
 
@@ -76,6 +86,9 @@ public class DatabaseInitializer {
                 log.info("未找到schema.sql文件，跳过表结构初始化");
             }
 
+            // 旧库补充新增字段
+            migrateColumns();
+
             // 执行初始数据初始化
             if (initResource.exists()) {
                 executeSqlScript(initResource, "init.sql");
@@ -219,6 +232,36 @@ public class DatabaseInitializer {
         }
     }
 
+    /**
+     * 为已有表补充缺失的字段
+     * 先查询information_schema.COLUMNS，字段已存在时不执行ALTER
+     */
+    private void migrateColumns() {
+        for (String[] migration : COLUMN_MIGRATIONS) {
+            String tableName = migration[0];
+            String columnName = migration[1];
+            try {
+                if (columnExists(tableName, columnName)) {
+                    continue;
+                }
+                jdbcTemplate.execute("ALTER TABLE `" + tableName + "` ADD COLUMN " + columnName + " " + migration[2]);
+                log.info("表 {} 已补充字段 {}", tableName, columnName);
+            } catch (Exception e) {
+                log.warn("表 {} 补充字段 {} 失败: {}", tableName, columnName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 检查字段是否存在
+     */
+    private boolean columnExists(String tableName, String columnName) {
+        String checkSql = "SELECT COUNT(*) FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, tableName, columnName);
+        return count != null && count > 0;
+    }
+
     /**
      * 分割SQL语句
      *
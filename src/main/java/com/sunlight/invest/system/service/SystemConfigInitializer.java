@@ -26,6 +26,9 @@ public class SystemConfigInitializer implements CommandLineRunner {
     @Autowired
     private SystemConfigMapper systemConfigMapper;
     
+    @Autowired
+    private SystemConfigService systemConfigService;
+    
     @Override
     public void run(String... args) throws Exception {
         log.info("开始初始化系统配置...");
@@ -35,20 +38,30 @@ public class SystemConfigInitializer implements CommandLineRunner {
             new SystemConfig("threshold_5_percent", "5.0", "5%阈值"),
             new SystemConfig("threshold_4_percent", "4.0", "4%阈值"),
             new SystemConfig("monitor_days", "7", "监控天数"),
-            new SystemConfig("schedule_cron", "0 0 9 * * ?", "定时任务cron表达式")
+            new SystemConfig("schedule_cron", "0 0 9 * * ?", "定时任务cron表达式"),
+            new SystemConfig("trading_holidays",
+                "2025-01-01,2025-01-28~2025-02-04,2025-04-04,2025-05-01~2025-05-05,2025-06-02,2025-10-01~2025-10-08,2026-01-01~2026-01-02,2026-02-16~2026-02-20,2026-02-23,2026-04-06,2026-05-01~2026-05-05,2026-06-19,2026-09-25,2026-10-01~2026-10-07",
+                "A股休市日期，逗号分隔，支持 起始~结束 区间")
         );
         
         // 检查并插入默认配置项
+        int insertedCount = 0;
         for (SystemConfig config : defaultConfigs) {
             SystemConfig existingConfig = systemConfigMapper.selectByConfigKey(config.getConfigKey());
             if (existingConfig == null) {
                 systemConfigMapper.insert(config);
+                insertedCount++;
                 log.info("初始化配置项: {} = {}", config.getConfigKey(), config.getConfigValue());
             } else {
                 log.info("配置项已存在，跳过: {}", config.getConfigKey());
             }
         }
         
+        // 有新增配置项时刷新配置快照，使其立即生效
+        if (insertedCount > 0) {
+            systemConfigService.loadAllConfigs();
+        }
+        
         log.info("系统配置初始化完成");
     }
 }
\ No newline at end of file
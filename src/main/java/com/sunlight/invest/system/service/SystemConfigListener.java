@@ -0,0 +1,21 @@
+package com.sunlight.invest.system.service;
+
+/**
+ * 系统配置变更监听器
+ * <p>
+ * 配置快照重建后回调，用于需要热加载配置的组件。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-04
+ */
+public interface SystemConfigListener {
+
+    /**
+     * 配置变更回调
+     *
+     * @param oldSnapshot 变更前的快照
+     * @param newSnapshot 变更后的快照
+     */
+    void onConfigChanged(SystemConfigSnapshot oldSnapshot, SystemConfigSnapshot newSnapshot);
+}
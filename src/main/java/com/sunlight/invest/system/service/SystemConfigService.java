@@ -5,13 +5,16 @@ import com.sunlight.invest.system.mapper.SystemConfigMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 系统配置服务类
@@ -27,14 +30,15 @@ public class SystemConfigService {
     @Autowired
     private SystemConfigMapper systemConfigMapper;
     
-    // 缓存配置项，避免每次都查询数据库
-    private final Map<String, String> configCache = new ConcurrentHashMap<>();
+    // 当前配置快照，变更时整体替换，读取方无需加锁
+    private final AtomicReference<SystemConfigSnapshot> snapshotRef =
+            new AtomicReference<>(SystemConfigSnapshot.empty());
     
-    // 默认配置值
-    private static final String DEFAULT_THRESHOLD_5_PERCENT = "5.0";
-    private static final String DEFAULT_THRESHOLD_4_PERCENT = "4.0";
-    private static final String DEFAULT_MONITOR_DAYS = "7";
-    private static final String DEFAULT_SCHEDULE_CRON = "0 0 9 * * ?";
+    // 配置变更监听器
+    private final List<SystemConfigListener> listeners = new CopyOnWriteArrayList<>();
+    
+    // 串行化快照重建，避免轮询与本地更新并发时旧数据覆盖新数据
+    private final Object reloadLock = new Object();
     
     /**
      * 初始化配置缓存
@@ -45,37 +49,110 @@ public class SystemConfigService {
     }
     
     /**
-     * 加载所有启用的配置到缓存
+     * 加载所有启用的配置，重建配置快照
      */
     public void loadAllConfigs() {
+        synchronized (reloadLock) {
+            try {
+                long version = queryVersion();
+                List<SystemConfig> configs = systemConfigMapper.selectAllEnabled();
+                Map<String, String> values = new HashMap<>();
+                for (SystemConfig config : configs) {
+                    values.put(config.getConfigKey(), config.getConfigValue());
+                }
+                SystemConfigSnapshot newSnapshot = SystemConfigSnapshot.of(version, values);
+                SystemConfigSnapshot oldSnapshot = snapshotRef.getAndSet(newSnapshot);
+                log.info("系统配置缓存加载完成，共加载 {} 个配置项，版本: {}", configs.size(), version);
+                if (!oldSnapshot.getValues().equals(newSnapshot.getValues())) {
+                    notifyListeners(oldSnapshot, newSnapshot);
+                }
+            } catch (Exception e) {
+                log.error("加载系统配置缓存失败", e);
+            }
+        }
+    }
+    
+    /**
+     * 定时轮询配置版本号，其他节点修改配置后自动重新加载
+     */
+    @Scheduled(fixedDelayString = "${system.config.refresh-interval-ms:30000}",
+            initialDelayString = "${system.config.refresh-interval-ms:30000}")
+    public void refreshIfChanged() {
         try {
-            List<SystemConfig> configs = systemConfigMapper.selectAllEnabled();
-            configCache.clear();
-            for (SystemConfig config : configs) {
-                configCache.put(config.getConfigKey(), config.getConfigValue());
+            long version = queryVersion();
+            if (version != snapshotRef.get().getVersion()) {
+                log.info("检测到系统配置版本变化: {} -> {}，重新加载配置", snapshotRef.get().getVersion(), version);
+                loadAllConfigs();
             }
-            log.info("系统配置缓存加载完成，共加载 {} 个配置项", configs.size());
         } catch (Exception e) {
-            log.error("加载系统配置缓存失败", e);
+            log.warn("轮询系统配置版本失败: {}", e.getMessage());
         }
     }
     
     /**
-     * 获取5%阈值配置
+     * 获取当前配置快照
+     * <p>
+     * 一次处理过程中应只取一次快照并传递下去，保证使用的是同一版本的配置。
+     * </p>
      *
-     * @return 5%阈值
+     * @return 配置快照
      */
-    public BigDecimal getThreshold5Percent() {
-        String value = configCache.get("threshold_5_percent");
-        if (value == null) {
-            value = DEFAULT_THRESHOLD_5_PERCENT;
+    public SystemConfigSnapshot getSnapshot() {
+        return snapshotRef.get();
+    }
+    
+    /**
+     * 注册配置变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void addListener(SystemConfigListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * 移除配置变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeListener(SystemConfigListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private void notifyListeners(SystemConfigSnapshot oldSnapshot, SystemConfigSnapshot newSnapshot) {
+        for (SystemConfigListener listener : listeners) {
+            try {
+                listener.onConfigChanged(oldSnapshot, newSnapshot);
+            } catch (Exception e) {
+                log.error("配置变更监听器执行失败: {}", listener.getClass().getName(), e);
+            }
         }
+    }
+    
+    private long queryVersion() {
+        Long version = systemConfigMapper.selectVersion();
+        return version != null ? version : 0L;
+    }
+    
+    /**
+     * 配置写入数据库后递增版本号并重建本地快照
+     */
+    private void afterConfigChanged() {
         try {
-            return new BigDecimal(value);
-        } catch (NumberFormatException e) {
-            log.warn("5%阈值配置格式错误，使用默认值: {}", DEFAULT_THRESHOLD_5_PERCENT);
-            return new BigDecimal(DEFAULT_THRESHOLD_5_PERCENT);
+            systemConfigMapper.incrementVersion();
+        } catch (Exception e) {
+            log.warn("递增系统配置版本失败，其他节点将无法感知本次变更: {}", e.getMessage());
         }
+        loadAllConfigs();
+    }
+    
+    /**
+     * 获取5%阈值配置
+     *
+     * @return 5%阈值
+     */
+    public BigDecimal getThreshold5Percent() {
+        return snapshotRef.get().getThreshold5Percent();
     }
     
     /**
@@ -84,16 +161,7 @@ public class SystemConfigService {
      * @return 4%阈值
      */
     public BigDecimal getThreshold4Percent() {
-        String value = configCache.get("threshold_4_percent");
-        if (value == null) {
-            value = DEFAULT_THRESHOLD_4_PERCENT;
-        }
-        try {
-            return new BigDecimal(value);
-        } catch (NumberFormatException e) {
-            log.warn("4%阈值配置格式错误，使用默认值: {}", DEFAULT_THRESHOLD_4_PERCENT);
-            return new BigDecimal(DEFAULT_THRESHOLD_4_PERCENT);
-        }
+        return snapshotRef.get().getThreshold4Percent();
     }
     
     /**
@@ -102,16 +170,7 @@ public class SystemConfigService {
      * @return 监控天数
      */
     public int getMonitorDays() {
-        String value = configCache.get("monitor_days");
-        if (value == null) {
-            value = DEFAULT_MONITOR_DAYS;
-        }
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            log.warn("监控天数配置格式错误，使用默认值: {}", DEFAULT_MONITOR_DAYS);
-            return Integer.parseInt(DEFAULT_MONITOR_DAYS);
-        }
+        return snapshotRef.get().getMonitorDays();
     }
     
     /**
@@ -120,11 +179,7 @@ public class SystemConfigService {
      * @return cron表达式
      */
     public String getScheduleCron() {
-        String value = configCache.get("schedule_cron");
-        if (value == null) {
-            value = DEFAULT_SCHEDULE_CRON;
-        }
-        return value;
+        return snapshotRef.get().getScheduleCron();
     }
     
     /**
@@ -134,7 +189,7 @@ public class SystemConfigService {
      * @return 配置值
      */
     public String getConfigValue(String configKey) {
-        return configCache.get(configKey);
+        return snapshotRef.get().get(configKey);
     }
     
     /**
@@ -145,8 +200,7 @@ public class SystemConfigService {
      * @return 配置值
      */
     public String getConfigValue(String configKey, String defaultValue) {
-        String value = configCache.get(configKey);
-        return value != null ? value : defaultValue;
+        return snapshotRef.get().get(configKey, defaultValue);
     }
     
     /**
@@ -163,8 +217,7 @@ public class SystemConfigService {
                 config.setConfigValue(configValue);
                 int result = systemConfigMapper.update(config);
                 if (result > 0) {
-                    // 更新缓存
-                    configCache.put(configKey, configValue);
+                    afterConfigChanged();
                     return true;
                 }
             }
@@ -213,8 +266,7 @@ public class SystemConfigService {
             
             int result = systemConfigMapper.update(systemConfig);
             if (result > 0) {
-                // 更新缓存
-                configCache.put(systemConfig.getConfigKey(), systemConfig.getConfigValue());
+                afterConfigChanged();
                 return true;
             }
         } catch (Exception e) {
@@ -235,8 +287,7 @@ public class SystemConfigService {
             if (config != null) {
                 int result = systemConfigMapper.deleteById(id);
                 if (result > 0) {
-                    // 更新缓存
-                    configCache.remove(config.getConfigKey());
+                    afterConfigChanged();
                     return true;
                 }
             }
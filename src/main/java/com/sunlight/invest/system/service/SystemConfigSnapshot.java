@@ -0,0 +1,151 @@
+package com.sunlight.invest.system.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 系统配置快照
+ * <p>
+ * 不可变对象，构建时一次性完成类型解析，读取方拿到后在整个处理过程中
+ * 看到的都是同一版本的配置，不会出现一半新一半旧的情况。
+ * </p>
+ *
+ * @author System
+ * @since 2024-12-04
+ */
+public final class SystemConfigSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(SystemConfigSnapshot.class);
+
+    // 默认配置值
+    static final String DEFAULT_THRESHOLD_5_PERCENT = "5.0";
+    static final String DEFAULT_THRESHOLD_4_PERCENT = "4.0";
+    static final String DEFAULT_MONITOR_DAYS = "7";
+    static final String DEFAULT_SCHEDULE_CRON = "0 0 9 * * ?";
+
+    private final long version;
+    private final Map<String, String> values;
+    private final BigDecimal threshold5Percent;
+    private final BigDecimal threshold4Percent;
+    private final int monitorDays;
+    private final String scheduleCron;
+
+    private SystemConfigSnapshot(long version, Map<String, String> values) {
+        this.version = version;
+        this.values = Collections.unmodifiableMap(new HashMap<>(values));
+        this.threshold5Percent = parseDecimal("threshold_5_percent", DEFAULT_THRESHOLD_5_PERCENT);
+        this.threshold4Percent = parseDecimal("threshold_4_percent", DEFAULT_THRESHOLD_4_PERCENT);
+        this.monitorDays = parseInt("monitor_days", DEFAULT_MONITOR_DAYS);
+        String cron = this.values.get("schedule_cron");
+        this.scheduleCron = cron != null ? cron : DEFAULT_SCHEDULE_CRON;
+    }
+
+    /**
+     * 根据配置键值构建快照
+     *
+     * @param version 配置版本号
+     * @param values  配置键值
+     * @return 配置快照
+     */
+    public static SystemConfigSnapshot of(long version, Map<String, String> values) {
+        return new SystemConfigSnapshot(version, values);
+    }
+
+    /**
+     * 空快照，全部使用默认值
+     *
+     * @return 配置快照
+     */
+    public static SystemConfigSnapshot empty() {
+        return new SystemConfigSnapshot(0L, Collections.<String, String>emptyMap());
+    }
+
+    private BigDecimal parseDecimal(String key, String defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return new BigDecimal(defaultValue);
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("配置项 {} 格式错误: {}，使用默认值: {}", key, value, defaultValue);
+            return new BigDecimal(defaultValue);
+        }
+    }
+
+    private int parseInt(String key, String defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return Integer.parseInt(defaultValue);
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("配置项 {} 格式错误: {}，使用默认值: {}", key, value, defaultValue);
+            return Integer.parseInt(defaultValue);
+        }
+    }
+
+    /**
+     * 根据配置键获取配置值
+     *
+     * @param configKey 配置键
+     * @return 配置值，不存在时返回null
+     */
+    public String get(String configKey) {
+        return values.get(configKey);
+    }
+
+    /**
+     * 根据配置键获取配置值，如果不存在则返回默认值
+     *
+     * @param configKey    配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public String get(String configKey, String defaultValue) {
+        String value = values.get(configKey);
+        return value != null ? value : defaultValue;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public BigDecimal getThreshold5Percent() {
+        return threshold5Percent;
+    }
+
+    public BigDecimal getThreshold4Percent() {
+        return threshold4Percent;
+    }
+
+    public int getMonitorDays() {
+        return monitorDays;
+    }
+
+    public String getScheduleCron() {
+        return scheduleCron;
+    }
+
+    @Override
+    public String toString() {
+        return "SystemConfigSnapshot{" +
+                "version=" + version +
+                ", threshold5Percent=" + threshold5Percent +
+                ", threshold4Percent=" + threshold4Percent +
+                ", monitorDays=" + monitorDays +
+                ", scheduleCron='" + scheduleCron + '\'' +
+                ", size=" + values.size() +
+                '}';
+    }
+}
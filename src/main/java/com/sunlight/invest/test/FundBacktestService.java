@@ -1,5 +1,7 @@
 package com.sunlight.invest.test;
 
+import com.sunlight.invest.fund.backtest.service.BacktestKernel;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -7,7 +9,6 @@ import java.io.PrintWriter;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 基金回测服务类
@@ -74,6 +75,10 @@ public class FundBacktestService {
     
     /**
      * 执行回测
+     * <p>
+     * 两组数据按日期升序转成基本类型数组后线性归并出共同交易日，交易由共享的 {@link BacktestKernel} 执行：
+     * 基金市值以初始资金建仓，另备同等现金用于加仓，减仓不超过持仓（基金总额不能为负）。
+     * </p>
      * 
      * @param indexDataList 指数数据列表
      * @param fundDataList 基金数据列表
@@ -82,60 +87,67 @@ public class FundBacktestService {
     public List<BacktestResult> backtest(List<IndexData> indexDataList, List<Fund> fundDataList) {
         System.out.println("开始执行回测...");
         
-        // 合并数据
-        Map<LocalDate, IndexData> indexMap = indexDataList.stream()
-                .collect(Collectors.toMap(IndexData::getTradeDate, data -> data));
-        
-        Map<LocalDate, Fund> fundMap = fundDataList.stream()
-                .collect(Collectors.toMap(Fund::getTradeDate, fund -> fund));
-        
-        // 获取共同的交易日期
-        Set<LocalDate> commonDates = new HashSet<>(indexMap.keySet());
-        commonDates.retainAll(fundMap.keySet());
+        List<IndexData> sortedIndex = new ArrayList<>(indexDataList);
+        sortedIndex.sort(Comparator.comparing(IndexData::getTradeDate));
+        int[] indexDays = new int[sortedIndex.size()];
+        double[] shPercents = new double[sortedIndex.size()];
+        for (int i = 0; i < sortedIndex.size(); i++) {
+            indexDays[i] = (int) sortedIndex.get(i).getTradeDate().toEpochDay();
+            Double shPercent = sortedIndex.get(i).getShPercent();
+            shPercents[i] = shPercent != null ? shPercent : Double.NaN;
+        }
+        List<Fund> sortedFund = new ArrayList<>(fundDataList);
+        sortedFund.sort(Comparator.comparing(Fund::getTradeDate));
+        int[] fundDays = new int[sortedFund.size()];
+        double[] fundNavs = new double[sortedFund.size()];
+        for (int i = 0; i < sortedFund.size(); i++) {
+            fundDays[i] = (int) sortedFund.get(i).getTradeDate().toEpochDay();
+            fundNavs[i] = sortedFund.get(i).getNav();
+        }
         
-        // 筛选出回测起始日期之后的数据
-        List<LocalDate> backtestDates = commonDates.stream()
-                .filter(date -> !date.isBefore(BACKTEST_START))
-                .sorted()
-                .collect(Collectors.toList());
+        // 获取回测起始日期之后的共同交易日
+        int from = lowerBound(fundDays, (int) BACKTEST_START.toEpochDay());
+        int[] backtestDays = Arrays.copyOfRange(fundDays, from, fundDays.length);
+        int capacity = Math.min(backtestDays.length, indexDays.length);
+        int[] fundIndex = new int[capacity];
+        int[] indexIndex = new int[capacity];
+        int n = BacktestKernel.mergeAlign(backtestDays, indexDays, fundIndex, indexIndex);
+        List<BacktestResult> results = new ArrayList<>(n);
+        if (n == 0) {
+            System.out.println("回测完成，共生成0条记录");
+            return results;
+        }
+        double[] navs = new double[n];
+        double[] changes = new double[n];
+        for (int i = 0; i < n; i++) {
+            navs[i] = fundNavs[from + fundIndex[i]];
+        }
+        BacktestKernel.gather(shPercents, indexIndex, n, changes);
         
-        // 执行回测逻辑
-        double fundAmount = INIT_CASH;
-        List<BacktestResult> results = new ArrayList<>();
+        // 上证涨幅>1%加仓1W，跌幅<-1%减仓1W（按当日涨跌幅、当日净值成交）
+        BacktestKernel.Rule rule = (day, capital, holdings) ->
+                changes[day] > 1 ? TRADE_UNIT : changes[day] < -1 ? -TRADE_UNIT : 0;
+        BacktestKernel.Trace trace = new BacktestKernel.Trace(n);
+        new BacktestKernel(INIT_CASH, INIT_CASH, 0, 0, TRADE_UNIT, TRADE_UNIT, rule).run(navs, changes, trace);
         
-        for (LocalDate date : backtestDates) {
-            IndexData indexData = indexMap.get(date);
-            Fund fund = fundMap.get(date);
-            
-            // 获取上证指数涨跌幅
-            Double shPercent = indexData.getShPercent();
-            double nav = fund.getNav();
-            
-            String action = "持有";
-            double change = 0;
-            
-            if (shPercent != null) {
-                if (shPercent > 1) {
-                    // 上证涨幅>1%加仓1W
-                    fundAmount += TRADE_UNIT;
-                    action = "加仓" + (int)(TRADE_UNIT/10000) + "万";
-                    change = TRADE_UNIT;
-                } else if (shPercent < -1) {
-                    // 上证跌幅<-1%减仓1W
-                    fundAmount -= TRADE_UNIT;
-                    fundAmount = Math.max(fundAmount, 0); // 基金总额不能为负
-                    action = "减仓" + (int)(TRADE_UNIT/10000) + "万";
-                    change = -TRADE_UNIT;
-                }
-            }
-            
-            results.add(new BacktestResult(date, nav, fundAmount, action, change));
+        for (int i = 0; i < n; i++) {
+            byte action = trace.actionAt(i);
+            double change = i == 0 ? 0 : trace.capitalAt(i - 1) - trace.capitalAt(i);
+            String actionName = action == BacktestKernel.ACTION_BUY ? "加仓" + (int) (TRADE_UNIT / 10000) + "万"
+                    : action == BacktestKernel.ACTION_SELL ? "减仓" + (int) (TRADE_UNIT / 10000) + "万" : "持有";
+            results.add(new BacktestResult(LocalDate.ofEpochDay(backtestDays[fundIndex[i]]), navs[i],
+                    trace.holdingsAt(i) * navs[i], actionName, change));
         }
         
         System.out.println("回测完成，共生成" + results.size() + "条记录");
         return results;
     }
     
+    private static int lowerBound(int[] days, int day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index : -index - 1;
+    }
+    
     /**
      * 将回测结果输出到CSV文件
      * 
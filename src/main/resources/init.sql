@@ -32,6 +32,11 @@ INSERT INTO `system_config` VALUES (2, 'threshold_4_percent', '4.0', '4%阈值',
 INSERT INTO `system_config` VALUES (3, 'monitor_days', '5', '监控天数', 1, '2025-12-04 15:04:28', '2025-12-04 15:08:54');
 INSERT INTO `system_config` VALUES (4, 'schedule_cron', '0 0 14 * * ?', '定时任务cron表达式', 1, '2025-12-04 15:04:28', '2025-12-04 15:12:29');
 
+-- ----------------------------
+-- Records of system_config_version
+-- ----------------------------
+INSERT IGNORE INTO `system_config_version` (id, version) VALUES (1, 1);
+
 INSERT INTO `user` VALUES (1, 'admin', 'Test#x86', 'admin@example.com', '系统管理员', 1, '2025-12-06 09:48:28', '2025-12-06 09:50:42');
 INSERT INTO `user` VALUES (2, 'test', 'Test#x86', 'admin@example.com', '系统管理员', 1, '2025-12-06 09:48:28', '2025-12-06 09:50:42');
 
@@ -8,9 +8,50 @@ CREATE TABLE IF NOT EXISTS `fund_nav` (
     daily_return DECIMAL(10,4) COMMENT '日涨跌幅',
     create_time DATETIME COMMENT '创建时间',
     update_time DATETIME COMMENT '更新时间',
+    first_seen_time DATETIME NULL COMMENT '轮询首次发现时间（用于学习公布时间）',
     UNIQUE KEY uk_fund_date (fund_code, nav_date)
 ) COMMENT '基金净值表';
 
+-- 基金最新净值汇总表（随净值写入在同一事务内维护）
+CREATE TABLE IF NOT EXISTS `fund_nav_latest` (
+    fund_code VARCHAR(20) NOT NULL PRIMARY KEY COMMENT '基金代码',
+    fund_name VARCHAR(100) NOT NULL COMMENT '基金名称',
+    nav_date DATE NOT NULL COMMENT '最新净值日期',
+    unit_nav DECIMAL(10,4) NOT NULL COMMENT '最新单位净值',
+    daily_return DECIMAL(10,4) COMMENT '最新日涨跌幅',
+    nav_count INT NOT NULL DEFAULT 0 COMMENT '净值记录数',
+    first_nav_date DATE COMMENT '最早净值日期',
+    return_5d DECIMAL(10,4) COMMENT '近5个交易日涨跌幅(%)',
+    return_20d DECIMAL(10,4) COMMENT '近20个交易日涨跌幅(%)',
+    high_60d DECIMAL(10,4) COMMENT '近60个交易日最高净值',
+    drawdown_60d DECIMAL(10,4) COMMENT '相对近60个交易日最高净值的回撤(%)',
+    alerted_nav_date DATE COMMENT '已评估预警的最新净值日期',
+    metric_checked_date DATE COMMENT '业绩指标数据不足时已检查的最新净值日期',
+    update_time DATETIME COMMENT '更新时间'
+) COMMENT '基金最新净值汇总表';
+
+-- 业绩指标表（基金和指数的区间收益、波动率、最大回撤、夏普比率）
+CREATE TABLE IF NOT EXISTS `performance_metric` (
+    target_type VARCHAR(20) NOT NULL COMMENT '标的类型 (FUND:基金, INDEX:指数)',
+    target_code VARCHAR(20) NOT NULL COMMENT '基金代码或指数代码',
+    target_name VARCHAR(100) COMMENT '基金名称或指数名称',
+    as_of_date DATE NOT NULL COMMENT '计算基准日',
+    return_1w DECIMAL(12,4) COMMENT '近1周涨跌幅(%)',
+    return_1m DECIMAL(12,4) COMMENT '近1月涨跌幅(%)',
+    return_3m DECIMAL(12,4) COMMENT '近3月涨跌幅(%)',
+    return_6m DECIMAL(12,4) COMMENT '近6月涨跌幅(%)',
+    return_1y DECIMAL(12,4) COMMENT '近1年涨跌幅(%)',
+    return_3y DECIMAL(12,4) COMMENT '近3年涨跌幅(%)',
+    volatility_1y DECIMAL(12,4) COMMENT '近1年年化波动率(%)',
+    max_drawdown_1y DECIMAL(12,4) COMMENT '近1年最大回撤(%)',
+    sharpe_1y DECIMAL(12,4) COMMENT '近1年夏普比率',
+    sample_count INT COMMENT '近1年日收益样本数',
+    update_time DATETIME COMMENT '更新时间',
+    PRIMARY KEY (target_type, target_code),
+    INDEX idx_type_return_1y (target_type, return_1y),
+    INDEX idx_type_sharpe_1y (target_type, sharpe_1y)
+) COMMENT '业绩指标表';
+
 -- 基金监控表
 CREATE TABLE IF NOT EXISTS `fund_monitor` (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -60,6 +101,24 @@ CREATE TABLE IF NOT EXISTS `alarm_record` (
     INDEX idx_create_time (create_time)
 ) COMMENT '告警记录表';
 
+-- 抓取重试队列表
+CREATE TABLE IF NOT EXISTS `crawl_retry_task` (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_type VARCHAR(20) NOT NULL COMMENT '任务类型 (FUND:基金净值, INDEX:指数行情)',
+    target_code VARCHAR(20) NOT NULL COMMENT '基金代码或指数代码',
+    target_name VARCHAR(100) COMMENT '基金名称或指数名称',
+    start_date DATE NOT NULL COMMENT '抓取开始日期',
+    end_date DATE NOT NULL COMMENT '抓取结束日期',
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态 (PENDING:待重试, SUCCESS:已成功, DEAD:已放弃)',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已重试次数',
+    next_retry_time DATETIME COMMENT '下次重试时间',
+    last_error VARCHAR(1000) COMMENT '最近一次错误信息',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_type_code (task_type, target_code),
+    INDEX idx_status_next (status, next_retry_time)
+) COMMENT '抓取重试队列表';
+
 -- 邮件接收人表
 CREATE TABLE IF NOT EXISTS `email_recipient` (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -88,6 +147,15 @@ CREATE TABLE IF NOT EXISTS `stock_data` (
     UNIQUE KEY uk_stock_date (stock_code, trade_date)
 ) COMMENT '股票数据表';
 
+-- 股票数据覆盖区间表（区间内的交易日数据均已入库）
+CREATE TABLE IF NOT EXISTS `stock_data_coverage` (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stock_code VARCHAR(20) NOT NULL COMMENT '股票代码',
+    start_date DATE NOT NULL COMMENT '区间开始日期',
+    end_date DATE NOT NULL COMMENT '区间结束日期',
+    UNIQUE KEY uk_stock_start (stock_code, start_date)
+) COMMENT '股票数据覆盖区间表';
+
 -- 系统配置表
 CREATE TABLE IF NOT EXISTS `system_config` (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -100,6 +168,13 @@ CREATE TABLE IF NOT EXISTS `system_config` (
     UNIQUE KEY uk_config_key (config_key)
 ) COMMENT '系统配置表';
 
+-- 系统配置版本表（单行，配置变更时递增，供多节点轮询热加载）
+CREATE TABLE IF NOT EXISTS `system_config_version` (
+    id INT PRIMARY KEY COMMENT '固定为1',
+    version BIGINT NOT NULL DEFAULT 0 COMMENT '配置版本号',
+    update_time DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) COMMENT '系统配置版本表';
+
 -- 用户表
 CREATE TABLE IF NOT EXISTS `user` (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
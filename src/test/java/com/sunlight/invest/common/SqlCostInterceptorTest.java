@@ -1,10 +1,25 @@
 package com.sunlight.invest.common;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
 
 /**
  * SQL执行耗时拦截器测试类
@@ -66,4 +81,50 @@ class SqlCostInterceptorTest {
         // 日期格式应该是 'yyyy-MM-dd HH:mm:ss'
         assertTrue(result5.matches("'\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}'"));
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testIntercept_MetricsModeRecordsTimerByStatementId() throws Throwable {
+        // Given: metrics 模式，不抽样，慢SQL阈值很高
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlCostInterceptor interceptor = new SqlCostInterceptor(registry, SqlCostInterceptor.Mode.METRICS, 60000, 0, 16);
+        RoutingStatementHandler handler = statementHandler();
+        
+        // When: 同一语句执行3次
+        for (int i = 0; i < 3; i++) {
+            interceptor.intercept(new Invocation(handler, Object.class.getMethod("hashCode"), new Object[0]));
+        }
+        
+        // Then
+        Timer timer = registry.find(SqlCostInterceptor.TIMER_NAME)
+                .tag("statement", "com.sunlight.invest.stock.mapper.StockDataMapper.selectByCodeAndDate").timer();
+        assertNotNull(timer);
+        assertEquals(3, timer.count());
+    }
+    
+    @Test
+    void testGetExecutableSql_FillsParametersInOrder() {
+        SqlCostInterceptor interceptor = new SqlCostInterceptor();
+        RoutingStatementHandler handler = statementHandler();
+        
+        String sql = interceptor.getExecutableSql(handler.getBoundSql(), new Configuration());
+        
+        // 参数值中的问号不会被后续参数替换
+        assertEquals("SELECT * FROM stock_data WHERE stock_code = 'a?b' AND days = 5", sql);
+    }
+    
+    private static RoutingStatementHandler statementHandler() {
+        Configuration configuration = new Configuration();
+        StaticSqlSource sqlSource = new StaticSqlSource(configuration,
+                "  SELECT *\n   FROM stock_data\n  WHERE stock_code = ? AND days = ?  ",
+                Arrays.asList(new ParameterMapping.Builder(configuration, "stockCode", String.class).build(),
+                        new ParameterMapping.Builder(configuration, "days", Integer.class).build()));
+        MappedStatement mappedStatement = new MappedStatement.Builder(configuration,
+                "com.sunlight.invest.stock.mapper.StockDataMapper.selectByCodeAndDate", sqlSource, SqlCommandType.SELECT)
+                .build();
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("stockCode", "a?b");
+        parameter.put("days", 5);
+        return new RoutingStatementHandler(mock(Executor.class), mappedStatement, parameter,
+                RowBounds.DEFAULT, null, null);
+    }
+}
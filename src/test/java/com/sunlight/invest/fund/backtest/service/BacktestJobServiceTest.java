@@ -0,0 +1,141 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回测异步任务服务测试类
+ */
+class BacktestJobServiceTest {
+
+    private BacktestJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new BacktestJobService();
+        ReflectionTestUtils.setField(jobService, "threads", 1);
+        ReflectionTestUtils.setField(jobService, "retain", 50);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 5);
+        ReflectionTestUtils.setField(jobService, "maxQueuedPerUser", 3);
+        jobService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.destroy();
+    }
+
+    @Test
+    void testSubmit_RoundRobinAcrossUsers() throws Exception {
+        // Given: 唯一的工作线程先被占住，A 连续提交3个任务后 B 提交1个
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        jobService.submit("blocker", "test", job -> {
+            started.countDown();
+            await(release);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<BacktestJob> jobs = new ArrayList<>();
+        for (String name : Arrays.asList("A1", "A2", "A3")) {
+            jobs.add(jobService.submit("A", "test", job -> order.add(name)));
+        }
+        jobs.add(jobService.submit("B", "test", job -> order.add("B1")));
+
+        // When
+        release.countDown();
+        for (BacktestJob job : jobs) {
+            waitFinished(job);
+        }
+
+        // Then: B 的任务不必等 A 的全部任务执行完
+        assertEquals(Arrays.asList("A1", "B1", "A2", "A3"), order);
+        assertEquals(BacktestJob.STATUS_SUCCESS, jobs.get(0).getStatus());
+        assertEquals(100.0, jobs.get(0).getProgress(), 1e-9);
+    }
+
+    @Test
+    void testSubmit_EnforcesPerUserAndTotalLimits() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        jobService.submit("blocker", "test", job -> {
+            started.countDown();
+            await(release);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 3; i++) {
+            jobService.submit("A", "test", job -> null);
+        }
+        assertThrows(IllegalStateException.class, () -> jobService.submit("A", "test", job -> null));
+        jobService.submit("B", "test", job -> null);
+        jobService.submit("C", "test", job -> null);
+        assertThrows(IllegalStateException.class, () -> jobService.submit("D", "test", job -> null));
+        assertEquals(5, jobService.getStats().get("queued"));
+
+        release.countDown();
+    }
+
+    @Test
+    void testSubmit_RecordsFailureAndCompletedJobs() throws Exception {
+        BacktestJob failed = jobService.submit("A", "test", job -> {
+            throw new IllegalArgumentException("数据不足");
+        });
+        waitFinished(failed);
+        assertEquals(BacktestJob.STATUS_FAILED, failed.getStatus());
+        assertEquals("数据不足", failed.getMessage());
+
+        BacktestJob cached = jobService.completed("test", "结果");
+        assertTrue(cached.isCached());
+        assertSame(cached, jobService.getJob(cached.getJobId()));
+        assertEquals("结果", cached.getResult());
+    }
+
+    @Test
+    void testSubmit_ErrorFailsJobAndKeepsWorkerAlive() throws Exception {
+        // Given: 任务抛出 Error 而不是 Exception
+        BacktestJob failed = jobService.submit("A", "test", job -> {
+            throw new StackOverflowError();
+        });
+        waitFinished(failed);
+
+        // When: 唯一的工作线程继续处理后续任务
+        BacktestJob next = jobService.submit("A", "test", job -> "ok");
+        waitFinished(next);
+
+        // Then
+        assertEquals(BacktestJob.STATUS_FAILED, failed.getStatus());
+        assertEquals("StackOverflowError", failed.getMessage());
+        assertEquals("ok", next.getResult());
+    }
+
+    private static void waitFinished(BacktestJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(job.isFinished());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
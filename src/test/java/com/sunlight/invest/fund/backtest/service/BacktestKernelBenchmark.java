@@ -0,0 +1,188 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回测内核基准测试
+ * <p>
+ * 模拟20年（约5000个交易日）的基金净值和指数行情，对比原先按 LocalDate 建 HashMap 求交集的对齐方式
+ * 与数组线性归并 + 列式内核的每日耗时（avgt，ns/交易日）和吞吐量（thrpt，交易日/纳秒）。
+ * 类名不以 Test 结尾，不会随 mvn test 执行；需要时在 IDE 中运行 main 方法，或执行：
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.sunlight.invest.fund.backtest.service.BacktestKernelBenchmark
+ * </pre>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OperationsPerInvocation(BacktestKernelBenchmark.TRADING_DAYS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BacktestKernelBenchmark {
+
+    static final int TRADING_DAYS = 5000;
+
+    private final BacktestKernel kernel = new BacktestKernel(100000, 100000, 2, 0.5, 10000, 10000);
+
+    private int[] fundDays;
+
+    private double[] fundNavs;
+
+    private int[] indexDays;
+
+    private double[] indexChanges;
+
+    private List<LocalDate> fundDates;
+
+    private List<LocalDate> indexDates;
+
+    private int[] fundIndex;
+
+    private int[] indexIndex;
+
+    private double[] alignedNavs;
+
+    private double[] alignedChanges;
+
+    private BacktestKernel.Trace trace;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20241203L);
+        // 指数比基金多出少量交易日，基金偶有缺失，使对齐真正发生
+        int indexCount = TRADING_DAYS + TRADING_DAYS / 50;
+        indexDays = new int[indexCount];
+        indexChanges = new double[indexCount];
+        indexDates = new ArrayList<>(indexCount);
+        int[] fundDayBuffer = new int[indexCount];
+        double[] fundNavBuffer = new double[indexCount];
+        fundDates = new ArrayList<>(indexCount);
+        int day = (int) LocalDate.of(2004, 1, 2).toEpochDay();
+        double nav = 1.0;
+        int fundCount = 0;
+        for (int i = 0; i < indexCount; i++) {
+            day += random.nextInt(7) == 0 ? 3 : 1;
+            double change = random.nextGaussian() * 1.3;
+            indexDays[i] = day;
+            indexChanges[i] = change;
+            indexDates.add(LocalDate.ofEpochDay(day));
+            nav *= 1 + change / 100 * 0.8 + random.nextGaussian() * 0.002;
+            if (random.nextInt(50) != 0) {
+                fundDayBuffer[fundCount] = day;
+                fundNavBuffer[fundCount] = nav;
+                fundDates.add(LocalDate.ofEpochDay(day));
+                fundCount++;
+            }
+        }
+        fundDays = Arrays.copyOf(fundDayBuffer, fundCount);
+        fundNavs = Arrays.copyOf(fundNavBuffer, fundCount);
+
+        fundIndex = new int[fundCount];
+        indexIndex = new int[fundCount];
+        alignedNavs = new double[fundCount];
+        alignedChanges = new double[fundCount];
+        trace = new BacktestKernel.Trace(fundCount);
+    }
+
+    /**
+     * 原方式：两个 HashMap + HashSet 求交集，排序后逐日三次查表
+     */
+    @Benchmark
+    public double hashMapAlignAndLoop() {
+        Map<LocalDate, Double> navMap = new HashMap<>();
+        for (int i = 0; i < fundDates.size(); i++) {
+            navMap.put(fundDates.get(i), fundNavs[i]);
+        }
+        Map<LocalDate, Double> changeMap = new HashMap<>();
+        for (int i = 0; i < indexDates.size(); i++) {
+            changeMap.put(indexDates.get(i), indexChanges[i]);
+        }
+        Set<LocalDate> common = new HashSet<>(changeMap.keySet());
+        common.retainAll(navMap.keySet());
+        List<LocalDate> sorted = new ArrayList<>(common);
+        sorted.sort(LocalDate::compareTo);
+
+        double capital = 100000;
+        double holdings = 100000 / navMap.get(sorted.get(0));
+        for (int i = 1; i < sorted.size(); i++) {
+            double currentNav = navMap.get(sorted.get(i));
+            double previousChange = changeMap.get(sorted.get(i - 1));
+            if (previousChange > 2) {
+                double sellShares = Math.min(10000 / currentNav, holdings);
+                holdings -= sellShares;
+                capital += sellShares * currentNav;
+            } else if (previousChange < -0.5) {
+                double purchaseAmount = Math.min(10000, capital);
+                holdings += purchaseAmount / currentNav;
+                capital -= purchaseAmount;
+            }
+        }
+        return capital + holdings * navMap.get(sorted.get(sorted.size() - 1));
+    }
+
+    /**
+     * 数组线性归并对齐
+     */
+    @Benchmark
+    public int mergeAlign() {
+        return BacktestKernel.mergeAlign(fundDays, indexDays, fundIndex, indexIndex);
+    }
+
+    /**
+     * 对齐 + 内核（只算汇总）
+     */
+    @Benchmark
+    public double alignAndRunSummary() {
+        int n = BacktestKernel.mergeAlign(fundDays, indexDays, fundIndex, indexIndex);
+        BacktestKernel.gather(fundNavs, fundIndex, n, alignedNavs);
+        BacktestKernel.gather(indexChanges, indexIndex, n, alignedChanges);
+        return kernel.run(alignedNavs, alignedChanges, n, null).getTotalAssets();
+    }
+
+    /**
+     * 对齐 + 内核（写入每日明细）
+     */
+    @Benchmark
+    public double alignAndRunWithTrace() {
+        int n = BacktestKernel.mergeAlign(fundDays, indexDays, fundIndex, indexIndex);
+        BacktestKernel.gather(fundNavs, fundIndex, n, alignedNavs);
+        BacktestKernel.gather(indexChanges, indexIndex, n, alignedChanges);
+        return kernel.run(alignedNavs, alignedChanges, n, trace).getTotalAssets();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BacktestKernelBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
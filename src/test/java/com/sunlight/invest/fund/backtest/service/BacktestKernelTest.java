@@ -0,0 +1,82 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回测计算内核测试类
+ */
+class BacktestKernelTest {
+
+    @Test
+    void testMergeAlign_KeepsOnlyCommonDays() {
+        // Given: 两组升序日期，部分重叠
+        int[] fundDays = {1, 2, 4, 5, 8, 9};
+        int[] indexDays = {0, 2, 3, 5, 6, 9, 10};
+        int[] fundIndex = new int[6];
+        int[] indexIndex = new int[6];
+
+        // When
+        int n = BacktestKernel.mergeAlign(fundDays, indexDays, fundIndex, indexIndex);
+
+        // Then
+        assertEquals(3, n);
+        assertArrayEquals(new int[]{1, 3, 5}, Arrays.copyOf(fundIndex, n));
+        assertArrayEquals(new int[]{1, 3, 5}, Arrays.copyOf(indexIndex, n));
+    }
+
+    @Test
+    void testRun_AdjustsPositionByPreviousIndexChange() {
+        // Given: 初始资金和持仓各1万，涨超2%减仓，跌超1%加仓，每次1000元
+        BacktestKernel kernel = new BacktestKernel(10000, 10000, 2, 1, 1000, 1000);
+        double[] navs = {1.0, 1.0, 2.0, 2.0};
+        double[] changes = {-1.5, 3.0, 0.2, 0.0};
+        BacktestKernel.Trace trace = new BacktestKernel.Trace(navs.length);
+
+        // When
+        BacktestKernel.Result result = kernel.run(navs, changes, trace);
+
+        // Then: 第1天加仓1000份，第2天以净值2卖出500份，第3天持有
+        assertEquals(BacktestKernel.ACTION_BUY, trace.actionAt(1));
+        assertEquals(BacktestKernel.ACTION_SELL, trace.actionAt(2));
+        assertEquals(BacktestKernel.ACTION_HOLD, trace.actionAt(3));
+        assertEquals(11000, trace.holdingsAt(1), 1e-9);
+        assertEquals(10500, trace.holdingsAt(2), 1e-9);
+        assertEquals(10000, trace.capitalAt(2), 1e-9);
+        assertEquals(1, result.getUpPositionChanges());
+        assertEquals(1, result.getDownPositionChanges());
+        assertEquals(2.0, result.getFinalNav(), 1e-12);
+        assertEquals(31000, result.getTotalAssets(), 1e-9);
+        assertEquals(55.0, result.getReturnRate(), 1e-9);
+        assertEquals(11000, result.getPeakHoldings(), 1e-9);
+        assertEquals(0.0, result.getMaxDrawdown(), 1e-12);
+    }
+
+    @Test
+    void testRun_SummaryOnlyMatchesTracedRun() {
+        // Given
+        BacktestKernel kernel = new BacktestKernel(100000, 100000, 1, 0.5, 10000, 10000);
+        double[] navs = {1.00, 0.95, 0.90, 1.02, 0.97, 1.05};
+        double[] changes = {-0.8, -1.2, 1.5, -0.6, 2.0, 0.1};
+
+        // When
+        BacktestKernel.Result traced = kernel.run(navs, changes, new BacktestKernel.Trace(navs.length));
+        BacktestKernel.Result summary = kernel.run(navs, changes, null);
+
+        // Then
+        assertEquals(traced.getTotalAssets(), summary.getTotalAssets(), 1e-12);
+        assertEquals(traced.getMaxDrawdown(), summary.getMaxDrawdown(), 1e-12);
+        assertTrue(summary.getMaxDrawdown() > 0);
+    }
+
+    @Test
+    void testRun_RejectsShortTrace() {
+        BacktestKernel kernel = new BacktestKernel(1, 1, 1, 1, 1, 1);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                kernel.run(new double[]{1, 1, 1}, new double[]{0, 0, 0}, new BacktestKernel.Trace(2)));
+    }
+}
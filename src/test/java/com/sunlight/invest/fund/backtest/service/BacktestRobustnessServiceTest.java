@@ -0,0 +1,197 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
+import com.sunlight.invest.fund.backtest.dto.MonteCarloRequest;
+import com.sunlight.invest.fund.backtest.dto.SweepRequest;
+import com.sunlight.invest.fund.backtest.dto.WalkForwardRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回测稳健性分析服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class BacktestRobustnessServiceTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 10, 17);
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @Mock
+    private BacktestJobService jobService;
+
+    @InjectMocks
+    private BacktestRobustnessService robustnessService;
+
+    private BacktestSweepService sweepService;
+
+    @BeforeEach
+    void setUp() {
+        sweepService = new BacktestSweepService();
+        ReflectionTestUtils.setField(sweepService, "parallelism", 2);
+        sweepService.init();
+        ReflectionTestUtils.setField(robustnessService, "sweepService", sweepService);
+        ReflectionTestUtils.setField(robustnessService, "maxCombinations", 1000);
+        ReflectionTestUtils.setField(robustnessService, "maxPaths", 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweepService.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWalkForward_PicksInSampleBestAndScoresOutOfSample() {
+        // Given: 3年日频数据，样本内12个月、样本外6个月，3×3参数网格
+        MarketData data = syntheticData(3 * 365);
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), eq(END_DATE))).thenReturn(data);
+        WalkForwardRequest request = new WalkForwardRequest();
+        request.setStartDate(END_DATE.minusYears(3));
+        request.setEndDate(END_DATE);
+        request.setInSampleMonths(12);
+        request.setOutOfSampleMonths(6);
+        request.setUpThreshold(new SweepRequest.ParamRange(1.0, 2.0, 0.5));
+        request.setDownThreshold(new SweepRequest.ParamRange(0.5, 1.5, 0.5));
+        BacktestJob job = new BacktestJob("test", BacktestRobustnessService.JOB_WALK_FORWARD);
+
+        // When
+        Map<String, Object> result = robustnessService.walkForward(request, job);
+
+        // Then: 窗口起点为0、6、12、18个月
+        List<Map<String, Object>> folds = (List<Map<String, Object>>) result.get("folds");
+        assertEquals(4, folds.size());
+        assertEquals(4 * 9, job.getTotal());
+        assertEquals(job.getTotal(), job.getCompleted());
+
+        // 第一个窗口选中的参数就是样本内暴力搜索的最优
+        Map<String, Object> first = folds.get(0);
+        int from = data.indexOnOrAfter(END_DATE.minusYears(3));
+        int split = data.indexOnOrAfter(END_DATE.minusYears(2));
+        double bestReturn = Double.NEGATIVE_INFINITY;
+        for (double up = 1.0; up <= 2.0 + 1e-9; up += 0.5) {
+            for (double down = 0.5; down <= 1.5 + 1e-9; down += 0.5) {
+                double value = new BacktestKernel(100000, 100000, up, down, 10000, 10000)
+                        .run(data.navArray(), data.indexChangeArray(), from, split, null).getReturnRate();
+                bestReturn = Math.max(bestReturn, value);
+            }
+        }
+        assertEquals(bestReturn, (Double) first.get("inSampleReturn"), 1e-4);
+        assertEquals(data.dateAt(split).toString(), first.get("outOfSampleStart"));
+
+        Map<String, Object> summary = (Map<String, Object>) result.get("summary");
+        assertEquals(4, summary.get("foldCount"));
+        assertTrue(((Map<String, Double>) summary.get("outOfSampleReturnPercentiles")).containsKey("p50"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMonteCarlo_ReproducibleWithSeed() {
+        // Given
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), eq(END_DATE)))
+                .thenReturn(syntheticData(500));
+        MonteCarloRequest request = new MonteCarloRequest();
+        request.setEndDate(END_DATE);
+        request.setPaths(200);
+        request.setBlockSize(10);
+        request.setSeed(42L);
+
+        // When
+        BacktestJob job = new BacktestJob("a", BacktestRobustnessService.JOB_MONTE_CARLO);
+        Map<String, Object> first = robustnessService.monteCarlo(request, job);
+        Map<String, Object> second = robustnessService.monteCarlo(request,
+                new BacktestJob("b", BacktestRobustnessService.JOB_MONTE_CARLO));
+
+        // Then
+        assertEquals(200, job.getCompleted());
+        assertEquals(first.get("returnPercentiles"), second.get("returnPercentiles"));
+        assertEquals(first.get("maxDrawdownPercentiles"), second.get("maxDrawdownPercentiles"));
+        Map<String, Double> returns = (Map<String, Double>) first.get("returnPercentiles");
+        assertTrue(returns.get("p5") <= returns.get("p50"));
+        assertTrue(returns.get("p50") <= returns.get("p95"));
+        Map<String, Double> drawdowns = (Map<String, Double>) first.get("maxDrawdownPercentiles");
+        assertTrue(drawdowns.get("p5") >= 0);
+    }
+
+    @Test
+    void testResample_KeepsSignalAndReturnPairs() {
+        // Given: 每个交易日的基金收益与前一日指数涨跌幅可一一对应
+        int n = 50;
+        double[] navs = new double[n];
+        double[] changes = new double[n];
+        double[] navReturns = new double[n];
+        navs[0] = 1.0;
+        for (int k = 1; k < n; k++) {
+            changes[k - 1] = k;
+            navReturns[k] = k / 1000.0;
+            navs[k] = navs[k - 1] * (1 + navReturns[k]);
+        }
+        double[] simNavs = new double[n];
+        double[] simChanges = new double[n];
+
+        // When
+        BacktestRobustnessService.resample(1.0, navReturns, changes, 7, new SplittableRandom(1L), simNavs, simChanges);
+
+        // Then
+        for (int i = 1; i < n; i++) {
+            double simulatedReturn = simNavs[i] / simNavs[i - 1] - 1;
+            assertEquals(simChanges[i - 1] / 1000.0, simulatedReturn, 1e-12);
+        }
+    }
+
+    @Test
+    void testPercentiles_LinearInterpolation() {
+        Map<String, Double> result = BacktestRobustnessService.percentiles(new double[]{4, 1, 3, 2, 5});
+
+        assertEquals(1.2, result.get("p5"), 1e-9);
+        assertEquals(2.0, result.get("p25"), 1e-9);
+        assertEquals(3.0, result.get("p50"), 1e-9);
+        assertEquals(4.8, result.get("p95"), 1e-9);
+    }
+
+    @Test
+    void testSubmit_RejectsInvalidRequestBeforeQueueing() {
+        WalkForwardRequest request = new WalkForwardRequest();
+        request.setObjective("sharpe");
+
+        assertThrows(IllegalArgumentException.class, () -> robustnessService.submitWalkForward(request, "u1"));
+        MonteCarloRequest monteCarlo = new MonteCarloRequest();
+        monteCarlo.setPaths(100000);
+        assertThrows(IllegalArgumentException.class, () -> robustnessService.submitMonteCarlo(monteCarlo, "u1"));
+        verifyNoInteractions(jobService, marketDataService);
+    }
+
+    private MarketData syntheticData(int days) {
+        Random random = new Random(11L);
+        int[] dayArray = new int[days];
+        double[] navs = new double[days];
+        double[] changes = new double[days];
+        int day = (int) END_DATE.toEpochDay() - days + 1;
+        double nav = 1.0;
+        for (int i = 0; i < days; i++) {
+            dayArray[i] = day + i;
+            changes[i] = random.nextGaussian() * 1.5;
+            nav *= 1 + changes[i] / 100 * 0.7 + random.nextGaussian() * 0.003;
+            navs[i] = nav;
+        }
+        return new MarketData("006195", "基金", "000001", "上证指数", dayArray, navs, changes);
+    }
+}
@@ -0,0 +1,199 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.backtest.dto.StrategyDefinition;
+import com.sunlight.invest.fund.backtest.dto.SweepRequest;
+import com.sunlight.invest.fund.backtest.dto.SweepResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回测参数寻优服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class BacktestSweepServiceTest {
+
+    private static final LocalDate END_DATE = LocalDate.of(2025, 10, 17);
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @InjectMocks
+    private BacktestSweepService sweepService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sweepService, "parallelism", 2);
+        ReflectionTestUtils.setField(sweepService, "maxCombinations", 1000);
+        sweepService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweepService.destroy();
+    }
+
+    @Test
+    void testSweep_RanksAllCombinationsOnSharedData() {
+        // Given: 2个窗口 × 3×3 阈值 × 2 加仓金额 = 36 个组合，行情只加载一次
+        MarketData data = syntheticData(400);
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), eq(END_DATE)))
+                .thenReturn(data);
+        SweepRequest request = new SweepRequest();
+        request.setEndDate(END_DATE);
+        request.setBacktestMonths(new SweepRequest.ParamRange(6, 12, 6));
+        request.setUpThreshold(new SweepRequest.ParamRange(1.0, 2.0, 0.5));
+        request.setDownThreshold(new SweepRequest.ParamRange(0.3, 0.5, 0.1));
+        request.setUpPositionChange(new SweepRequest.ParamRange(5000, 10000, 5000));
+        request.setTopN(5);
+
+        // When
+        SweepResponse response = sweepService.sweep(request);
+
+        // Then
+        assertEquals(36, response.getCombinations());
+        assertEquals(5, response.getRows().size());
+        for (int i = 1; i < response.getRows().size(); i++) {
+            assertTrue(response.getRows().get(i - 1).getReturnRate() >= response.getRows().get(i).getReturnRate());
+        }
+        verify(marketDataService, times(1)).load("006195", "000001", END_DATE.minusMonths(12), END_DATE);
+
+        // 排名第一的组合与单独回测结果一致
+        SweepResponse.Row best = response.getRows().get(0);
+        int from = data.indexOnOrAfter(END_DATE.minusMonths(best.getBacktestMonths()));
+        BacktestKernel.Result expected = new BacktestKernel(100000, 100000, best.getUpThreshold(),
+                best.getDownThreshold(), best.getUpPositionChange(), best.getDownPositionChange())
+                .run(data.navArray(), data.indexChangeArray(), from, data.size(), null);
+        assertEquals(expected.getReturnRate(), best.getReturnRate(), 1e-9);
+        assertEquals(data.size() - from, best.getTradingDays());
+    }
+
+    @Test
+    void testSweep_SortsByTradeCount() {
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), eq(END_DATE)))
+                .thenReturn(syntheticData(300));
+        SweepRequest request = new SweepRequest();
+        request.setEndDate(END_DATE);
+        request.setUpThreshold(new SweepRequest.ParamRange(0.5, 3.0, 0.5));
+        request.setSortBy("tradeCount");
+
+        SweepResponse response = sweepService.sweep(request);
+
+        assertEquals(6, response.getRows().size());
+        assertEquals(3.0, response.getRows().get(0).getUpThreshold(), 1e-9);
+        for (int i = 1; i < response.getRows().size(); i++) {
+            assertTrue(response.getRows().get(i - 1).getTradeCount() <= response.getRows().get(i).getTradeCount());
+        }
+    }
+
+    @Test
+    void testSweep_CustomStrategyUsesSweptParameters() {
+        // Given: 与内置规则等价的表达式，阈值参数按区间取值
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), eq(END_DATE)))
+                .thenReturn(syntheticData(300));
+        SweepRequest builtIn = new SweepRequest();
+        builtIn.setEndDate(END_DATE);
+        builtIn.setUpThreshold(new SweepRequest.ParamRange(0.5, 3.0, 0.5));
+        SweepRequest custom = new SweepRequest();
+        custom.setEndDate(END_DATE);
+        custom.setUpThreshold(new SweepRequest.ParamRange(0.5, 3.0, 0.5));
+        StrategyDefinition strategy = new StrategyDefinition();
+        strategy.setSellWhen("idx(1) > upThreshold");
+        strategy.setBuyWhen("idx(1) < -downThreshold");
+        custom.setStrategy(strategy);
+
+        // When
+        SweepResponse expected = sweepService.sweep(builtIn);
+        SweepResponse actual = sweepService.sweep(custom);
+
+        // Then
+        assertEquals(expected.getRows().size(), actual.getRows().size());
+        for (int i = 0; i < expected.getRows().size(); i++) {
+            assertEquals(expected.getRows().get(i).getUpThreshold(), actual.getRows().get(i).getUpThreshold(), 1e-12);
+            assertEquals(expected.getRows().get(i).getReturnRate(), actual.getRows().get(i).getReturnRate(), 1e-9);
+        }
+    }
+
+    @Test
+    void testSweep_RejectsInvalidStrategyBeforeLoadingData() {
+        SweepRequest request = new SweepRequest();
+        StrategyDefinition strategy = new StrategyDefinition();
+        strategy.setBuyWhen("idx(1) <");
+        request.setStrategy(strategy);
+
+        assertThrows(IllegalArgumentException.class, () -> sweepService.sweep(request));
+        verifyNoInteractions(marketDataService);
+    }
+
+    @Test
+    void testSweep_RejectsTooManyCombinations() {
+        SweepRequest request = new SweepRequest();
+        request.setUpThreshold(new SweepRequest.ParamRange(0.1, 5.0, 0.1));
+        request.setDownThreshold(new SweepRequest.ParamRange(0.1, 5.0, 0.1));
+
+        assertThrows(IllegalArgumentException.class, () -> sweepService.sweep(request));
+        verifyNoInteractions(marketDataService);
+    }
+
+    @Test
+    void testParamRange_CountToleratesFloatingStep() {
+        assertEquals(50, new SweepRequest.ParamRange(0.1, 5.0, 0.1).count());
+        assertEquals(1, new SweepRequest.ParamRange(2.0, 2.0, 0).count());
+        assertThrows(IllegalArgumentException.class, () -> new SweepRequest.ParamRange(1.0, 2.0, 0).count());
+    }
+
+    @Test
+    void testSweep_RejectsTinyStepWithoutOverflow() {
+        // Given: 步长极小，取值个数远超 int 范围
+        SweepRequest request = new SweepRequest();
+        request.setUpThreshold(new SweepRequest.ParamRange(0.0, 10.0, 1e-12));
+
+        // When & Then: 以参数错误拒绝，不会溢出为负数或绕过组合数上限
+        assertThrows(IllegalArgumentException.class, request::combinations);
+        assertThrows(IllegalArgumentException.class, () -> sweepService.sweep(request));
+        verifyNoInteractions(marketDataService);
+    }
+
+    @Test
+    void testCombinations_RejectsProductBeyondLong() {
+        // Given: 每个参数都在单参数上限内，但乘积超出 long 范围
+        SweepRequest request = new SweepRequest();
+        SweepRequest.ParamRange wide = new SweepRequest.ParamRange(1, SweepRequest.ParamRange.MAX_COUNT, 1);
+        request.setBacktestMonths(wide);
+        request.setUpThreshold(wide);
+        request.setDownThreshold(wide);
+        request.setUpPositionChange(wide);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, request::combinations);
+    }
+
+    private MarketData syntheticData(int days) {
+        Random random = new Random(7L);
+        int[] dayArray = new int[days];
+        double[] navs = new double[days];
+        double[] changes = new double[days];
+        int day = (int) END_DATE.toEpochDay() - days + 1;
+        double nav = 1.0;
+        for (int i = 0; i < days; i++) {
+            dayArray[i] = day + i;
+            changes[i] = random.nextGaussian() * 1.5;
+            nav *= 1 + changes[i] / 100;
+            navs[i] = nav;
+        }
+        return new MarketData("006195", "基金", "000001", "上证指数", dayArray, navs, changes);
+    }
+}
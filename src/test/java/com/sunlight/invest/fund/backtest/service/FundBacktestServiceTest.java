@@ -0,0 +1,145 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sunlight.invest.fund.backtest.dto.BacktestJob;
+import com.sunlight.invest.fund.backtest.dto.BacktestRequest;
+import com.sunlight.invest.fund.backtest.dto.BacktestResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 基金回测服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class FundBacktestServiceTest {
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @Mock
+    private BacktestJobService jobService;
+
+    @InjectMocks
+    private FundBacktestService backtestService;
+
+    private BacktestRequest request;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(backtestService, "resultCacheSize", 8);
+        backtestService.init();
+        request = new BacktestRequest();
+        request.setStartDate(LocalDate.of(2025, 10, 14));
+        request.setEndDate(LocalDate.of(2025, 10, 17));
+    }
+
+    @Test
+    void testRunBacktest_CachesByRequestAndDataVersion() {
+        // Given
+        when(marketDataService.dataVersion("006195", "000001")).thenReturn("v1", "v1", "v1", "v2");
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(marketData());
+
+        // When: 相同请求两次、改参数一次、数据更新后一次
+        BacktestResponse first = backtestService.runBacktest(request);
+        BacktestResponse second = backtestService.runBacktest(request);
+        request.setUpThreshold(1.0);
+        backtestService.runBacktest(request);
+        request.setUpThreshold(2.0);
+        BacktestResponse afterUpdate = backtestService.runBacktest(request);
+
+        // Then
+        assertSame(first, second);
+        assertNotSame(first, afterUpdate);
+        verify(marketDataService, times(3)).load(eq("006195"), eq("000001"), any(LocalDate.class), any(LocalDate.class));
+        assertEquals(3, first.getDailyDetails().size());
+    }
+
+    @Test
+    void testSubmitBacktest_ReturnsCompletedJobOnCacheHit() {
+        // Given
+        when(marketDataService.dataVersion("006195", "000001")).thenReturn("v1");
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(marketData());
+        BacktestResponse response = backtestService.runBacktest(request);
+        BacktestJob cachedJob = new BacktestJob("cached", FundBacktestService.JOB_BACKTEST);
+        when(jobService.completed(FundBacktestService.JOB_BACKTEST, response)).thenReturn(cachedJob);
+
+        // When
+        BacktestJob job = backtestService.submitBacktest(request, "u1");
+
+        // Then
+        assertSame(cachedJob, job);
+        verify(jobService, never()).submit(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testSubmitBacktest_ReusesRunningJobForIdenticalRequest() {
+        // Given
+        when(marketDataService.dataVersion("006195", "000001")).thenReturn("v1");
+        BacktestJob running = new BacktestJob("running", FundBacktestService.JOB_BACKTEST);
+        when(jobService.submit(eq("u1"), eq(FundBacktestService.JOB_BACKTEST), any())).thenReturn(running);
+
+        // When
+        BacktestJob first = backtestService.submitBacktest(request, "u1");
+        BacktestJob second = backtestService.submitBacktest(request, "u2");
+
+        // Then
+        assertSame(running, first);
+        assertSame(running, second);
+        verify(jobService, times(1)).submit(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testStreamBacktest_WritesSummaryThenDailyRows() throws Exception {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper();
+        ReflectionTestUtils.setField(backtestService, "objectMapper", objectMapper);
+        when(marketDataService.load(eq("006195"), eq("000001"), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(marketData());
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        backtestService.streamBacktest(request).writeTo(out);
+
+        // Then: 一行汇总 + 3行明细，与非流式结果一致
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(4, lines.length);
+        JsonNode header = objectMapper.readTree(lines[0]);
+        assertEquals("summary", header.get("type").asText());
+        assertFalse(header.has("dailyDetails"));
+        BacktestResponse expected = FundBacktestService.performBacktest(request, marketData());
+        assertEquals(expected.getTotalAssets(), header.get("totalAssets").asDouble(), 1e-9);
+        for (int i = 1; i < lines.length; i++) {
+            JsonNode row = objectMapper.readTree(lines[i]);
+            BacktestResponse.DailyDetail detail = expected.getDailyDetails().get(i - 1);
+            assertEquals("day", row.get("type").asText());
+            assertEquals(detail.getDate(), row.get("date").asText());
+            assertEquals(detail.getTotalAssets(), row.get("totalAssets").asDouble(), 1e-9);
+            assertEquals(detail.getAction(), row.get("action").asText());
+        }
+    }
+
+    private MarketData marketData() {
+        int start = (int) LocalDate.of(2025, 10, 14).toEpochDay();
+        return new MarketData("006195", "基金", "000001", "上证指数",
+                new int[]{start, start + 1, start + 2, start + 3},
+                new double[]{1.0, 1.01, 0.99, 1.02},
+                new double[]{-1.0, 2.5, 0.3, 0.1});
+    }
+}
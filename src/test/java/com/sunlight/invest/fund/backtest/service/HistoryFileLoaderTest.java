@@ -0,0 +1,124 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 历史行情文件加载器测试类
+ */
+class HistoryFileLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReadCsv_QuotedThousandsPercentAndDescendingDates() throws Exception {
+        // Given: 带 BOM 和 CRLF 的导出文件，按日期降序，收盘价带千分位，涨跌幅在最后一列
+        String csv = "\uFEFF\"日期\",\"收盘\",\"开盘\",\"交易量\",\"涨跌幅\"\r\n"
+                + "\"2025年10月17日\",\"3,839.76\",\"3,900.00\",\"6.01B\",\"-1.95%\"\r\n"
+                + "\"2025-10-16\",\"3,916.23\",\"3,900.00\",\"5.90B\",\"0.10%\"\r\n"
+                + "\"2025/10/15\",\"3,912.21\",\"3,880.00\",\"6.20B\",\"1.22%\"\r\n";
+
+        // When
+        HistoryFileLoader.Series changes = HistoryFileLoader.readCsv(new StringReader(csv), 0, -1);
+        HistoryFileLoader.Series closes = HistoryFileLoader.readCsv(new StringReader(csv), 0, 1);
+
+        // Then
+        assertEquals(3, changes.size());
+        assertEquals(1, changes.getSkippedRows());
+        assertEquals(LocalDate.of(2025, 10, 15), changes.dateAt(0));
+        assertEquals(LocalDate.of(2025, 10, 17), changes.dateAt(2));
+        assertEquals(1.22, changes.valueAt(0), 1e-12);
+        assertEquals(-1.95, changes.valueAt(2), 1e-12);
+        assertEquals(3839.76, closes.valueAt(2), 1e-9);
+    }
+
+    @Test
+    void testReadCsv_SkipsInvalidRowsAndKeepsLastDuplicate() throws Exception {
+        String csv = "date,nav\n"
+                + "20250103,1.03\n"
+                + "2025-01-01 15:00:00,1.01\n"
+                + "2023-02-29,9.99\n"
+                + "2025-01-02,abc\n"
+                + "2025-1-2,1.02\n"
+                + "20250103,1.031\n"
+                + "\n"
+                + "25-01-04,1.04";
+
+        HistoryFileLoader.Series series = HistoryFileLoader.readCsv(new StringReader(csv), 0, 1);
+
+        assertEquals(3, series.size());
+        assertEquals(LocalDate.of(2025, 1, 1), series.dateAt(0));
+        assertEquals(1.02, series.valueAt(1), 1e-12);
+        assertEquals(1.031, series.valueAt(2), 1e-12);
+        assertEquals(4, series.getSkippedRows());
+        assertEquals(1, series.between(LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 2)).size());
+    }
+
+    @Test
+    void testReadXlsx_DateCellsAndNumbers() throws Exception {
+        // Given: 日期单元格使用非 ISO 显示格式，中间有空行
+        Path file = dir.resolve("nav.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("m/d/yy"));
+            Sheet sheet = workbook.createSheet();
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("净值日期");
+            header.createCell(1).setCellValue("单位净值");
+            for (int i = 0; i < 3; i++) {
+                Row row = sheet.createRow(i * 2 + 1);
+                row.createCell(0).setCellValue(LocalDate.of(2025, 3, 3 + i));
+                row.getCell(0).setCellStyle(dateStyle);
+                row.createCell(1).setCellValue(1.5 + i / 10.0);
+            }
+            workbook.write(out);
+        }
+
+        // When
+        HistoryFileLoader.Series series = HistoryFileLoader.load(file, 0, 1);
+
+        // Then
+        assertEquals(3, series.size());
+        assertEquals(LocalDate.of(2025, 3, 3), series.dateAt(0));
+        assertEquals(LocalDate.of(2025, 3, 5), series.dateAt(2));
+        assertEquals(1.7, series.valueAt(2), 1e-12);
+    }
+
+    @Test
+    void testEpochDay_MatchesLocalDate() {
+        for (LocalDate date = LocalDate.of(1900, 1, 1); date.getYear() < 2101; date = date.plusDays(13)) {
+            assertEquals(date.toEpochDay(),
+                    HistoryFileLoader.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+        }
+        assertEquals(LocalDate.of(2000, 2, 29).toEpochDay(), HistoryFileLoader.epochDay(2000, 2, 29));
+        assertEquals(Integer.MIN_VALUE, HistoryFileLoader.epochDay(1900, 2, 29));
+        assertEquals(Integer.MIN_VALUE, HistoryFileLoader.epochDay(2025, 13, 1));
+    }
+
+    @Test
+    void testMarketDataOf_AlignsOnCommonDays() {
+        HistoryFileLoader.Series fund = HistoryFileLoader.Series.of(new int[]{1, 2, 4}, new double[]{1.0, 1.1, 1.2});
+        HistoryFileLoader.Series index = HistoryFileLoader.Series.of(new int[]{2, 3, 4}, new double[]{0.5, -0.2, 1.0});
+
+        MarketData data = MarketData.of("F", "基金", "I", "指数", fund, index);
+
+        assertArrayEquals(new int[]{2, 4}, data.dayArray());
+        assertArrayEquals(new double[]{1.1, 1.2}, data.navArray(), 1e-12);
+        assertArrayEquals(new double[]{0.5, 1.0}, data.indexChangeArray(), 1e-12);
+        assertThrows(IllegalArgumentException.class,
+                () -> HistoryFileLoader.Series.of(new int[]{2, 1}, new double[]{1, 1}));
+    }
+}
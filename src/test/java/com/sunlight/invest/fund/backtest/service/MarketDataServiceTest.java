@@ -0,0 +1,282 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.entity.IndexData;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.fund.monitor.service.FundNavService;
+import com.sunlight.invest.fund.monitor.service.IndexDataService;
+import com.sunlight.invest.fund.monitor.service.SeriesArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 回测行情数据服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class MarketDataServiceTest {
+
+    @Mock
+    private FundNavMapper fundNavMapper;
+
+    @Mock
+    private IndexDataMapper indexDataMapper;
+
+    @Mock
+    private FundNavService fundNavService;
+
+    @Mock
+    private IndexDataService indexDataService;
+
+    @Mock
+    private SeriesArchiveService seriesArchiveService;
+
+    @InjectMocks
+    private MarketDataService marketDataService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(marketDataService, "cacheSize", 4);
+        ReflectionTestUtils.setField(marketDataService, "portfolioCacheSize", 2);
+        marketDataService.init();
+    }
+
+    @Test
+    void testAlign_MergesOnCommonDatesAndDerivesMissingChange() {
+        // Given: 基金缺10-15，指数缺10-16；10-17的指数涨跌幅需由收盘价推算
+        List<FundNav> navList = Arrays.asList(
+                nav("2025-10-14", "1.0000"), nav("2025-10-15", "1.0100"),
+                nav("2025-10-16", "1.0200"), nav("2025-10-17", "1.0300"));
+        List<IndexData> indexList = Arrays.asList(
+                index("2025-10-13", "3000", "0.10"), index("2025-10-14", "3030", "1.00"),
+                index("2025-10-15", "3000", "-0.99"), index("2025-10-17", "3060", null));
+
+        // When
+        MarketData data = MarketDataService.align("006195", "基金", "000001", "上证指数",
+                navList, indexList, LocalDate.of(2025, 10, 14));
+
+        // Then
+        assertEquals(3, data.size());
+        assertEquals(LocalDate.of(2025, 10, 14), data.dateAt(0));
+        assertEquals(LocalDate.of(2025, 10, 15), data.dateAt(1));
+        assertEquals(LocalDate.of(2025, 10, 17), data.dateAt(2));
+        assertEquals(1.03, data.navAt(2), 1e-12);
+        assertEquals(1.0, data.indexChangeAt(0), 1e-12);
+        assertEquals(2.0, data.indexChangeAt(2), 1e-9);
+    }
+
+    @Test
+    void testLoad_CachesUntilDataVersionChanges() {
+        // Given
+        LocalDate start = LocalDate.of(2025, 10, 14);
+        LocalDate end = LocalDate.of(2025, 10, 17);
+        FundNavLatest latest = new FundNavLatest();
+        latest.setFundName("基金");
+        latest.setNavCount(4);
+        latest.setUpdateTime(LocalDateTime.of(2025, 10, 17, 21, 0));
+        when(fundNavService.getLatest("006195")).thenReturn(latest);
+        when(indexDataMapper.selectLatest("000001")).thenReturn(index("2025-10-17", "3060", null));
+        when(fundNavMapper.selectByDateRange("006195", start, end))
+                .thenReturn(Arrays.asList(nav("2025-10-14", "1.0"), nav("2025-10-17", "1.1")));
+        when(indexDataMapper.selectByDateRange(eq("000001"), any(LocalDate.class), eq(end)))
+                .thenReturn(Arrays.asList(index("2025-10-14", "3000", "1.00"), index("2025-10-17", "3060", "2.00")));
+
+        // When
+        MarketData first = marketDataService.load("006195", "000001", start, end);
+        MarketData second = marketDataService.load("006195", "000001", start, end);
+        latest.setUpdateTime(LocalDateTime.of(2025, 10, 18, 21, 0));
+        marketDataService.load("006195", "000001", start, end);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(2, first.size());
+        verify(fundNavMapper, times(2)).selectByDateRange("006195", start, end);
+    }
+
+    @Test
+    void testLoadPortfolio_IntersectsTradingDaysAcrossFunds() {
+        // Given: 基金A缺10-16，基金B缺10-15，指数齐全
+        LocalDate start = LocalDate.of(2025, 10, 14);
+        LocalDate end = LocalDate.of(2025, 10, 17);
+        FundNavLatest latest = new FundNavLatest();
+        latest.setFundName("基金");
+        latest.setNavCount(3);
+        when(fundNavService.getLatest(anyString())).thenReturn(latest);
+        when(indexDataMapper.selectLatest("000001")).thenReturn(index("2025-10-17", "3060", null));
+        when(fundNavMapper.selectByDateRange("000001A", start, end)).thenReturn(Arrays.asList(
+                nav("2025-10-14", "1.0"), nav("2025-10-15", "1.1"), nav("2025-10-17", "1.2")));
+        when(fundNavMapper.selectByDateRange("000002B", start, end)).thenReturn(Arrays.asList(
+                nav("2025-10-14", "2.0"), nav("2025-10-16", "2.1"), nav("2025-10-17", "2.2")));
+        when(indexDataMapper.selectByDateRange(eq("000001"), any(LocalDate.class), eq(end))).thenReturn(Arrays.asList(
+                index("2025-10-14", "3000", "1.00"), index("2025-10-15", "3010", "0.33"),
+                index("2025-10-16", "3020", "0.33"), index("2025-10-17", "3060", "1.32")));
+
+        // When
+        PortfolioData data = marketDataService.loadPortfolio(Arrays.asList("000001A", "000002B"), "000001", start, end);
+
+        // Then: 只保留两只基金都有净值的交易日，矩阵按交易日优先展开
+        assertEquals(2, data.fundCount());
+        assertEquals(2, data.size());
+        assertEquals(LocalDate.of(2025, 10, 17), data.dateAt(1));
+        assertArrayEquals(new double[]{1.0, 2.0, 1.2, 2.2}, data.navMatrix(), 1e-12);
+        assertArrayEquals(new double[]{1.0, 1.32}, data.indexChangeArray(), 1e-12);
+    }
+
+    @Test
+    void testLoadPortfolio_CachesWholePortfolioBeyondSingleFundCache() {
+        // Given: 基金数超过单基金缓存容量（4）
+        LocalDate start = LocalDate.of(2025, 10, 14);
+        LocalDate end = LocalDate.of(2025, 10, 15);
+        FundNavLatest latest = new FundNavLatest();
+        latest.setFundName("基金");
+        latest.setNavCount(2);
+        when(fundNavService.getLatest(anyString())).thenReturn(latest);
+        when(indexDataMapper.selectLatest("000001")).thenReturn(index("2025-10-15", "3010", null));
+        when(fundNavMapper.selectByDateRange(anyString(), eq(start), eq(end))).thenReturn(Arrays.asList(
+                nav("2025-10-14", "1.0"), nav("2025-10-15", "1.1")));
+        when(indexDataMapper.selectByDateRange(eq("000001"), any(LocalDate.class), eq(end))).thenReturn(Arrays.asList(
+                index("2025-10-14", "3000", "1.00"), index("2025-10-15", "3010", "0.33")));
+        List<String> codes = Arrays.asList("F1", "F2", "F3", "F4", "F5", "F6");
+
+        // When
+        PortfolioData first = marketDataService.loadPortfolio(codes, "000001", start, end);
+        PortfolioData second = marketDataService.loadPortfolio(codes, "000001", start, end);
+
+        // Then: 第二次只查询汇总表，不再读取净值明细
+        assertSame(first, second);
+        verify(fundNavMapper, times(6)).selectByDateRange(anyString(), eq(start), eq(end));
+
+        // When: 某只基金有新净值入库，数据版本改变
+        FundNavLatest updated = new FundNavLatest();
+        updated.setFundName("基金");
+        updated.setNavCount(3);
+        when(fundNavService.getLatest("F6")).thenReturn(updated);
+        PortfolioData third = marketDataService.loadPortfolio(codes, "000001", start, end);
+
+        // Then
+        assertNotSame(first, third);
+    }
+
+    @Test
+    void testLoad_ReadsArchiveWithSameAlignmentAsDatabase(@TempDir Path dir) throws Exception {
+        // Given: 与 testAlign 相同的数据导出为归档，10-17的指数涨跌幅缺失
+        List<FundNav> navList = Arrays.asList(
+                nav("2025-10-14", "1.0000"), nav("2025-10-15", "1.0100"),
+                nav("2025-10-16", "1.0200"), nav("2025-10-17", "1.0300"));
+        List<IndexData> indexList = Arrays.asList(
+                index("2025-10-13", "3000", "0.10"), index("2025-10-14", "3030", "1.00"),
+                index("2025-10-15", "3000", "-0.99"), index("2025-10-17", "3060", null));
+        exportArchive(dir, navList, indexList);
+        when(fundNavService.getLatest("006195")).thenReturn(latest("2025-10-17", 4));
+        when(indexDataMapper.selectLatest("000001")).thenReturn(index("2025-10-17", "3060", null));
+        LocalDate start = LocalDate.of(2025, 10, 14);
+        LocalDate end = LocalDate.of(2025, 10, 17);
+
+        // When
+        MarketData expected = MarketDataService.align("006195", "基金", "000001", "上证指数", navList, indexList, start);
+        MarketData actual = marketDataService.load("006195", "000001", start, end);
+
+        // Then: 只在导出时读取过净值明细，结果与数据库路径一致
+        verify(fundNavMapper, times(1)).selectByDateRange(eq("006195"), any(LocalDate.class), any(LocalDate.class));
+        assertEquals("基金", actual.getFundName());
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.dayArray(), actual.dayArray());
+        assertArrayEquals(expected.navArray(), actual.navArray(), 1e-12);
+        assertArrayEquals(expected.indexChangeArray(), actual.indexChangeArray(), 1e-9);
+        assertTrue(marketDataService.dataVersion("006195", "000001").startsWith("archive:"));
+    }
+
+    @Test
+    void testLoad_FallsBackToDatabaseWhenArchiveIsStale(@TempDir Path dir) throws Exception {
+        // Given: 归档导出到 10-16，之后 10-17 的净值和行情入库
+        exportArchive(dir,
+                Arrays.asList(nav("2025-10-15", "1.0100"), nav("2025-10-16", "1.0200")),
+                Arrays.asList(index("2025-10-15", "3000", "-0.99"), index("2025-10-16", "3030", "1.00")));
+        FundNavLatest latest = latest("2025-10-17", 3);
+        when(fundNavService.getLatest("006195")).thenReturn(latest);
+        when(indexDataMapper.selectLatest("000001")).thenReturn(index("2025-10-17", "3060", null));
+        LocalDate start = LocalDate.of(2025, 10, 15);
+        LocalDate end = LocalDate.of(2025, 10, 17);
+        when(fundNavMapper.selectByDateRange("006195", start, end)).thenReturn(Arrays.asList(
+                nav("2025-10-15", "1.0100"), nav("2025-10-16", "1.0200"), nav("2025-10-17", "1.0300")));
+        when(indexDataMapper.selectByDateRange(eq("000001"), any(LocalDate.class), eq(end))).thenReturn(Arrays.asList(
+                index("2025-10-15", "3000", "-0.99"), index("2025-10-16", "3030", "1.00"), index("2025-10-17", "3060", null)));
+
+        // When
+        MarketData data = marketDataService.load("006195", "000001", start, end);
+
+        // Then: 从数据库读取到新入库的 10-17，数据版本也不再是归档版本
+        assertEquals(3, data.size());
+        assertEquals(LocalDate.of(2025, 10, 17).toEpochDay(), data.dayArray()[2]);
+        assertFalse(marketDataService.dataVersion("006195", "000001").startsWith("archive:"));
+    }
+
+    @Test
+    void testLoad_RejectsFundWithoutStoredData() {
+        when(fundNavService.getLatest("999999")).thenReturn(null);
+
+        assertThrows(IllegalArgumentException.class, () ->
+                marketDataService.load("999999", "000001", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 10, 1)));
+        verifyNoInteractions(fundNavMapper);
+    }
+
+    private void exportArchive(Path dir, List<FundNav> navList, List<IndexData> indexList) {
+        SeriesArchiveService archive = new SeriesArchiveService();
+        ReflectionTestUtils.setField(archive, "fundNavMapper", fundNavMapper);
+        ReflectionTestUtils.setField(archive, "indexDataMapper", indexDataMapper);
+        ReflectionTestUtils.setField(archive, "indexDataService", indexDataService);
+        ReflectionTestUtils.setField(archive, "archiveDir", dir.toString());
+        ReflectionTestUtils.setField(archive, "readEnabled", true);
+        ReflectionTestUtils.setField(marketDataService, "seriesArchiveService", archive);
+        when(fundNavMapper.selectByDateRange(eq("006195"), eq(LocalDate.of(1990, 1, 1)), any(LocalDate.class)))
+                .thenReturn(navList);
+        when(indexDataMapper.selectByDateRange(eq("000001"), eq(LocalDate.of(1990, 1, 1)), any(LocalDate.class)))
+                .thenReturn(indexList);
+        when(indexDataService.getIndexName("000001")).thenReturn("上证指数");
+        archive.exportFund("006195");
+        archive.exportIndex("000001");
+    }
+
+    private FundNavLatest latest(String navDate, int navCount) {
+        FundNavLatest latest = new FundNavLatest();
+        latest.setFundCode("006195");
+        latest.setFundName("基金");
+        latest.setNavDate(LocalDate.parse(navDate));
+        latest.setNavCount(navCount);
+        latest.setUpdateTime(LocalDateTime.of(2025, 10, 17, 21, 0));
+        return latest;
+    }
+
+    private FundNav nav(String date, String unitNav) {
+        return new FundNav("006195", "基金", LocalDate.parse(date), new BigDecimal(unitNav), null);
+    }
+
+    private IndexData index(String date, String close, String dailyReturn) {
+        IndexData data = new IndexData();
+        data.setIndexCode("000001");
+        data.setTradeDate(LocalDate.parse(date));
+        data.setClosePrice(new BigDecimal(close));
+        data.setDailyReturn(dailyReturn == null ? null : new BigDecimal(dailyReturn));
+        return data;
+    }
+}
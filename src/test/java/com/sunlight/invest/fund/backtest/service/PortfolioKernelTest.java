@@ -0,0 +1,118 @@
+package com.sunlight.invest.fund.backtest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 组合回测计算内核测试类
+ */
+class PortfolioKernelTest {
+
+    // 两只基金、3个交易日：A 先涨一倍再跌回，B 不变
+    private static final double[] TWO_FUND_NAVS = {
+            1.0, 1.0,
+            2.0, 1.0,
+            1.0, 1.0};
+
+    private static final double[] FLAT_CHANGES = {0, 0, 0};
+
+    @Test
+    void testRun_SingleFundMatchesSingleFundKernel() {
+        // Given: 单只基金、不再平衡时应与单基金回测完全一致
+        Random random = new Random(7L);
+        int n = 500;
+        double[] navs = new double[n];
+        double[] changes = new double[n];
+        double nav = 1.0;
+        for (int i = 0; i < n; i++) {
+            changes[i] = random.nextGaussian() * 1.5;
+            nav *= 1 + changes[i] / 100 * 0.8;
+            navs[i] = nav;
+        }
+        PortfolioKernel portfolio = new PortfolioKernel(new double[]{1}, 100000, 100000,
+                PortfolioKernel.REBALANCE_NONE, 0, 0, true, 2, 0.5, 10000, 10000);
+        BacktestKernel single = new BacktestKernel(100000, 100000, 2, 0.5, 10000, 10000);
+
+        // When
+        PortfolioKernel.Result result = portfolio.run(navs, changes, null);
+        BacktestKernel.Result expected = single.run(navs, changes, null);
+
+        // Then
+        assertEquals(expected.getTotalAssets(), result.getTotalAssets(), 1e-6);
+        assertEquals(expected.getFinalCapital(), result.getFinalCash(), 1e-6);
+        assertEquals(expected.getMaxDrawdown(), result.getMaxDrawdown(), 1e-12);
+        assertEquals(expected.getUpPositionChanges(), result.getUpPositionChanges());
+        assertEquals(expected.getDownPositionChanges(), result.getDownPositionChanges());
+        assertEquals(0, result.getRebalances());
+    }
+
+    @Test
+    void testRun_PeriodicRebalanceRestoresTargetWeights() {
+        // Given: 各50%，每个交易日再平衡
+        PortfolioKernel kernel = new PortfolioKernel(new double[]{1, 1}, 0, 100,
+                PortfolioKernel.REBALANCE_PERIODIC, 1, 0, false, 2, 0.5, 0, 0);
+        double[] curve = new double[3];
+
+        // When
+        PortfolioKernel.Result result = kernel.run(TWO_FUND_NAVS, FLAT_CHANGES, curve);
+
+        // Then: 第1天 150 再平衡为 75/75，第2天 A 腰斩为 37.5 后再平衡为 56.25/56.25
+        assertArrayEquals(new double[]{100, 150, 112.5}, curve, 1e-9);
+        assertEquals(2, result.getRebalances());
+        assertEquals(56.25, result.getFinalValue(0), 1e-9);
+        assertEquals(56.25, result.getFinalValue(1), 1e-9);
+        assertEquals(50 + 37.5, result.getTradedAmount(), 1e-9);
+        assertEquals(0.25, result.getMaxDrawdown(), 1e-12);
+    }
+
+    @Test
+    void testRun_ThresholdRebalanceOnlyWhenDriftExceeded() {
+        // Given: 第1天 A 占比升到 66.7%，偏离目标 16.7 个百分点
+        PortfolioKernel tight = new PortfolioKernel(new double[]{1, 1}, 0, 100,
+                PortfolioKernel.REBALANCE_THRESHOLD, 0, 10, false, 2, 0.5, 0, 0);
+        PortfolioKernel loose = new PortfolioKernel(new double[]{1, 1}, 0, 100,
+                PortfolioKernel.REBALANCE_THRESHOLD, 0, 20, false, 2, 0.5, 0, 0);
+
+        // When
+        PortfolioKernel.Result tightResult = tight.run(TWO_FUND_NAVS, FLAT_CHANGES, null);
+        PortfolioKernel.Result looseResult = loose.run(TWO_FUND_NAVS, FLAT_CHANGES, null);
+
+        // Then
+        assertEquals(2, tightResult.getRebalances());
+        assertEquals(112.5, tightResult.getTotalAssets(), 1e-9);
+        assertEquals(0, looseResult.getRebalances());
+        assertEquals(100, looseResult.getTotalAssets(), 1e-9);
+    }
+
+    @Test
+    void testRun_IndexSignalSpreadsTradesAcrossFunds() {
+        // Given: 前一日指数大跌，加仓100元按目标权重 3:1 分摊
+        PortfolioKernel kernel = new PortfolioKernel(new double[]{3, 1}, 100, 100,
+                PortfolioKernel.REBALANCE_NONE, 0, 0, true, 2, 1, 100, 50);
+        double[] navs = {1, 1, 1, 1, 1, 1};
+        double[] changes = {-3, 5, 0};
+
+        // When
+        PortfolioKernel.Result result = kernel.run(navs, changes, null);
+
+        // Then: 第2天再按市值比例减仓50元
+        assertEquals(1, result.getUpPositionChanges());
+        assertEquals(1, result.getDownPositionChanges());
+        assertEquals(50, result.getFinalCash(), 1e-9);
+        assertEquals(150 - 37.5, result.getFinalValue(0), 1e-9);
+        assertEquals(50 - 12.5, result.getFinalValue(1), 1e-9);
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new PortfolioKernel(new double[]{1, 0}, 0, 100,
+                PortfolioKernel.REBALANCE_NONE, 0, 0, false, 2, 0.5, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PortfolioKernel(new double[]{1}, 0, 100,
+                PortfolioKernel.REBALANCE_PERIODIC, 0, 0, false, 2, 0.5, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PortfolioKernel(new double[]{1}, 0, 100,
+                "monthly", 20, 0, false, 2, 0.5, 0, 0));
+    }
+}
@@ -0,0 +1,156 @@
+package com.sunlight.invest.fund.backtest.strategy;
+
+import com.sunlight.invest.fund.backtest.dto.StrategyDefinition;
+import com.sunlight.invest.fund.backtest.service.BacktestKernel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 回测策略表达式测试类
+ */
+class StrategyProgramTest {
+
+    @Test
+    void testCompile_DefaultStrategyMatchesBuiltInRule() {
+        // Given: 表达式全部留空，等价于内置规则
+        double[][] market = syntheticMarket(1000);
+        StrategyProgram program = StrategyProgram.compile(new StrategyDefinition());
+        BacktestKernel.Rule rule = program.prepare(market[0], market[1]).rule(2, 0.5, 10000, 8000);
+
+        // When
+        BacktestKernel.Result expected = new BacktestKernel(100000, 100000, 2, 0.5, 10000, 8000)
+                .run(market[0], market[1], null);
+        BacktestKernel.Result actual = new BacktestKernel(100000, 100000, 2, 0.5, 10000, 8000, rule)
+                .run(market[0], market[1], null);
+
+        // Then
+        assertEquals(expected.getTotalAssets(), actual.getTotalAssets(), 1e-9);
+        assertEquals(expected.getUpPositionChanges(), actual.getUpPositionChanges());
+        assertEquals(expected.getDownPositionChanges(), actual.getDownPositionChanges());
+        assertEquals(expected.getMaxDrawdown(), actual.getMaxDrawdown(), 1e-12);
+    }
+
+    @Test
+    void testRule_EvaluatesIndicatorsAndSizing() {
+        // Given: 昨日净值低于3日均线时按总资产10%加仓，昨日净值创近4日新高时卖出一半持仓市值
+        double[] navs = {1.0, 1.1, 1.2, 1.0, 1.3, 1.4};
+        double[] changes = new double[navs.length];
+        StrategyProgram program = StrategyProgram.compile(
+                "nav(1) < sma(3)", "nav(1) >= high(4) && nav(1) > 0", "total * 0.1", "value / 2");
+        BacktestKernel.Rule rule = program.prepare(navs, changes).rule(2, 0.5, 0, 0);
+
+        // Then: 第3天之前均线历史不足；第5天昨日净值1.0低于均线1.1，按当日净值1.3计算总资产后加仓
+        assertEquals(0, rule.decide(2, 100, 100), 1e-12);
+        assertEquals(0, rule.decide(3, 100, 100), 1e-12);
+        assertEquals((100 + 100 * 1.3) * 0.1, rule.decide(4, 100, 100), 1e-12);
+        // 第6天昨日净值1.3为近4日新高
+        assertEquals(-100 * 1.4 / 2, rule.decide(5, 100, 100), 1e-12);
+    }
+
+    @Test
+    void testIndicator_ColumnsMatchNaiveWindows() {
+        double[][] market = syntheticMarket(300);
+        double[] navs = market[0];
+        double[] changes = market[1];
+        int window = 7;
+
+        double[] sma = Indicator.SMA.compute(navs, changes, window);
+        double[] high = Indicator.HIGH.compute(navs, changes, window);
+        double[] low = Indicator.LOW.compute(navs, changes, window);
+        double[] indexSum = Indicator.INDEX_SUM.compute(navs, changes, window);
+        double[] vol = Indicator.VOLATILITY.compute(navs, changes, window);
+
+        assertTrue(Double.isNaN(sma[window - 1]));
+        assertTrue(Double.isNaN(vol[window]));
+        for (int d = window + 1; d < navs.length; d++) {
+            double sum = 0;
+            double max = Double.NEGATIVE_INFINITY;
+            double min = Double.POSITIVE_INFINITY;
+            double changeSum = 0;
+            double[] returns = new double[window];
+            double returnSum = 0;
+            for (int k = d - window; k < d; k++) {
+                sum += navs[k];
+                max = Math.max(max, navs[k]);
+                min = Math.min(min, navs[k]);
+                changeSum += changes[k];
+                returns[k - d + window] = (navs[k] / navs[k - 1] - 1) * 100;
+                returnSum += returns[k - d + window];
+            }
+            double mean = returnSum / window;
+            double squares = 0;
+            for (double value : returns) {
+                squares += (value - mean) * (value - mean);
+            }
+            assertEquals(sum / window, sma[d], 1e-12);
+            assertEquals(max, high[d], 0);
+            assertEquals(min, low[d], 0);
+            assertEquals(changeSum, indexSum[d], 1e-9);
+            assertEquals(Math.sqrt(squares / (window - 1)), vol[d], 1e-9);
+        }
+    }
+
+    @Test
+    void testCompile_FoldsConstantsAndHonoursPrecedence() {
+        StrategyProgram program = StrategyProgram.compile("1 + 2 * 3 == 7 && !(2 > 3)", "0", "max(-1, abs(-5)) - 1", null);
+
+        assertTrue(program.buyWhen instanceof Expr.Const);
+        assertTrue(program.buyAmount instanceof Expr.Const);
+        BacktestKernel.Rule rule = program.prepare(new double[]{1, 1}, new double[]{0, 0}).rule(2, 0.5, 0, 0);
+        assertEquals(4, rule.decide(1, 100, 0), 1e-12);
+    }
+
+    @Test
+    void testCompile_RejectsInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile("idx(1) >", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile("foo > 1", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile("sma(cash) > 1", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile("idx(0) > 1", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile("(idx(1) > 1", null, null, null));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> StrategyProgram.compile(null, "idx(1) > 1 $", null, null));
+        assertTrue(error.getMessage().contains("第 12 个字符"));
+    }
+
+    @Test
+    void testCompile_RejectsOversizedExpressions() {
+        // Given: 超长的加法链、过深的加法树、括号嵌套和一元运算符嵌套
+        String tooLong = "price" + repeat("+price", 700);
+        String tooDeep = "price" + repeat("+price", 64);
+        String parens = repeat("(", 65) + "price" + repeat(")", 65);
+        String negations = repeat("-", 65) + "price";
+
+        // When & Then: 编译时直接拒绝，不会在解析或回测时栈溢出
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile(tooLong, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile(tooDeep, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile(parens, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> StrategyProgram.compile(null, null, negations, null));
+        assertNotNull(StrategyProgram.compile("price" + repeat("+price", 60), null, null, null));
+        // 常量子表达式折叠后不计入深度
+        assertNotNull(StrategyProgram.compile("1" + repeat("+1", 200) + " > price", null, null, null));
+    }
+
+    private static String repeat(String token, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(token);
+        }
+        return sb.toString();
+    }
+
+    private static double[][] syntheticMarket(int days) {
+        Random random = new Random(3L);
+        double[] navs = new double[days];
+        double[] changes = new double[days];
+        double nav = 1.0;
+        for (int i = 0; i < days; i++) {
+            changes[i] = random.nextGaussian() * 1.5;
+            nav *= 1 + changes[i] / 100 * 0.7 + random.nextGaussian() * 0.003;
+            navs[i] = nav;
+        }
+        return new double[][]{navs, changes};
+    }
+}
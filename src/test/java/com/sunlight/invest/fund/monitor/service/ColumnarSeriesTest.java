@@ -0,0 +1,78 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式行情归档文件测试类
+ */
+class ColumnarSeriesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWriteAndOpen_RoundTripsFixedPointColumns() throws Exception {
+        // Given: 两列数值，第二列有缺失
+        Path file = dir.resolve("006195.col");
+        int[] days = {20000, 20001, 20004, 20005};
+        double[][] values = {{1.0123, 1.0234, 0.9987, 1.1}, {0.35, Double.NaN, -2.41, 10.14}};
+
+        // When
+        ColumnarSeries.write(file, "006195", "中文基金名称", days, new int[]{4, 2}, values);
+        ColumnarSeries series = ColumnarSeries.open(file);
+
+        // Then
+        assertEquals("006195", series.getCode());
+        assertEquals("中文基金名称", series.getName());
+        assertEquals(4, series.size());
+        assertEquals(2, series.columnCount());
+        assertEquals(20004, series.dayAt(2));
+        assertEquals(0.9987, series.valueAt(0, 2), 1e-12);
+        assertEquals(-2.41, series.valueAt(1, 2), 1e-12);
+        assertTrue(Double.isNaN(series.valueAt(1, 1)));
+    }
+
+    @Test
+    void testIndexOnOrAfter_BinarySearchesDayColumn() throws Exception {
+        Path file = dir.resolve("000001.col");
+        ColumnarSeries.write(file, "000001", "上证指数", new int[]{10, 12, 15},
+                new int[]{3}, new double[][]{{3000, 3010, 3020}});
+        ColumnarSeries series = ColumnarSeries.open(file);
+
+        assertEquals(0, series.indexOnOrAfter(5));
+        assertEquals(1, series.indexOnOrAfter(11));
+        assertEquals(1, series.indexOnOrAfter(12));
+        assertEquals(3, series.indexOnOrAfter(16));
+    }
+
+    @Test
+    void testOpen_RejectsInvalidFiles() throws Exception {
+        Path file = dir.resolve("bad.col");
+        Files.write(file, new byte[32]);
+        assertThrows(IllegalArgumentException.class, () -> ColumnarSeries.open(file));
+        assertThrows(IllegalArgumentException.class, () -> ColumnarSeries.write(dir.resolve("x.col"), "x", "x",
+                new int[]{2, 1}, new int[]{0}, new double[][]{{1, 2}}));
+    }
+
+    @Test
+    void testPriceSeriesOfArchive_CopiesOnlyRequestedRange() throws Exception {
+        Path file = dir.resolve("fund.col");
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        int start = (int) base.toEpochDay();
+        ColumnarSeries.write(file, "A", "基金A", new int[]{start, start + 1, start + 2, start + 5},
+                new int[]{4}, new double[][]{{1.0, Double.NaN, 1.2, 1.3}});
+
+        PriceSeries series = PriceSeries.ofArchive(ColumnarSeries.open(file), 0, base, base.plusDays(4));
+
+        assertEquals(2, series.size());
+        assertEquals(base.plusDays(2), series.dateAt(1));
+        assertEquals(1.2, series.valueAt(1), 1e-12);
+    }
+}
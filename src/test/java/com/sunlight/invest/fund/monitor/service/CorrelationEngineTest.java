@@ -0,0 +1,86 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量相关系数引擎测试类
+ */
+class CorrelationEngineTest {
+
+    @Test
+    void testIncrementalMatchesBulkWithSlidingWindow() {
+        // Given: 跨越多个分块的序列数量，带缺失值
+        int size = CorrelationEngine.TILE_SIZE + 7;
+        List<double[]> history = randomHistory(size, 80, 42L);
+
+        // When: 一个引擎分块全量载入，另一个逐日加入（窗口为50天）
+        CorrelationEngine bulk = new CorrelationEngine(size, 50, 10);
+        bulk.bulkLoad(history);
+        CorrelationEngine incremental = new CorrelationEngine(size, 50, 10);
+        for (double[] day : history) {
+            incremental.addDay(day);
+        }
+
+        // Then
+        assertEquals(50, bulk.getDayCount());
+        assertEquals(50, incremental.getDayCount());
+        for (int i = 0; i < size; i += 5) {
+            for (int j = 0; j < size; j += 3) {
+                assertEquals(bulk.observations(i, j), incremental.observations(i, j));
+                double expected = bulk.correlation(i, j);
+                double actual = incremental.correlation(i, j);
+                if (Double.isNaN(expected)) {
+                    assertTrue(Double.isNaN(actual));
+                } else {
+                    assertEquals(expected, actual, 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCorrelationAndTopPairs() {
+        // Given: 序列1与序列0完全正相关，序列2完全负相关，序列3缺失过多
+        CorrelationEngine engine = new CorrelationEngine(4, 10, 3);
+        double[] base = {0.5, -1.2, 0.8, 0.1, -0.4};
+        for (int t = 0; t < base.length; t++) {
+            engine.addDay(new double[]{base[t], base[t] * 2 + 0.1, -base[t], t == 0 ? 1.0 : Double.NaN});
+        }
+
+        // Then
+        assertEquals(1.0, engine.correlation(0, 1), 1e-12);
+        assertEquals(-1.0, engine.correlation(0, 2), 1e-12);
+        assertTrue(Double.isNaN(engine.correlation(0, 3)));
+        assertEquals(1, engine.observations(0, 3));
+
+        List<CorrelationEngine.Pair> highest = engine.topPairs(1, true);
+        assertEquals(1, highest.size());
+        assertEquals(0, highest.get(0).getFirst());
+        assertEquals(1, highest.get(0).getSecond());
+
+        List<CorrelationEngine.Pair> lowest = engine.topPairs(2, false);
+        assertEquals(-1.0, lowest.get(0).getCorrelation(), 1e-12);
+        assertEquals(-1.0, lowest.get(1).getCorrelation(), 1e-12);
+    }
+
+    private List<double[]> randomHistory(int size, int days, long seed) {
+        Random random = new Random(seed);
+        double[] factor = new double[days];
+        List<double[]> history = new ArrayList<>();
+        for (int t = 0; t < days; t++) {
+            factor[t] = random.nextGaussian();
+            double[] day = new double[size];
+            for (int i = 0; i < size; i++) {
+                day[i] = random.nextInt(10) == 0 ? Double.NaN : factor[t] * (i % 3) + random.nextGaussian();
+            }
+            history.add(day);
+        }
+        return history;
+    }
+}
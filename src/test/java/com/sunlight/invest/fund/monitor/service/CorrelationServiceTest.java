@@ -0,0 +1,53 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 相关性服务测试类
+ */
+class CorrelationServiceTest {
+
+    private static final double NAN = Double.NaN;
+
+    @Test
+    void testSettledCount_StopsAtIncompleteTrailingDay() {
+        // Given: 最新一天 QDII 基金（第2列）尚未公布
+        List<double[]> rows = Arrays.asList(
+                new double[]{0.1, 0.2},
+                new double[]{0.3, 0.4},
+                new double[]{0.5, NAN});
+
+        // When & Then: 最新一天留到下次更新重新读取
+        assertEquals(2, CorrelationService.settledCount(rows, 3));
+    }
+
+    @Test
+    void testSettledCount_IncompleteDayBlocksLaterDays() {
+        // Given: 中间一天缺失，之后的交易日即使齐全也不能越过它
+        List<double[]> rows = Arrays.asList(
+                new double[]{0.1, 0.2},
+                new double[]{0.3, NAN},
+                new double[]{0.5, 0.6});
+
+        // When & Then
+        assertEquals(1, CorrelationService.settledCount(rows, 3));
+    }
+
+    @Test
+    void testSettledCount_AcceptsGapOlderThanSettleDays() {
+        // Given: 缺失已超过最大等待交易日数，视为停牌
+        List<double[]> rows = Arrays.asList(
+                new double[]{0.1, NAN},
+                new double[]{0.3, 0.4},
+                new double[]{0.5, 0.6},
+                new double[]{0.7, NAN});
+
+        // When & Then
+        assertEquals(3, CorrelationService.settledCount(rows, 2));
+    }
+}
@@ -0,0 +1,131 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.CrawlRetryTask;
+import com.sunlight.invest.fund.monitor.mapper.CrawlRetryTaskMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * 抓取重试队列服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class CrawlRetryServiceTest {
+
+    @Mock
+    private CrawlRetryTaskMapper crawlRetryTaskMapper;
+
+    @InjectMocks
+    private CrawlRetryService crawlRetryService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(crawlRetryService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(crawlRetryService, "backoffBaseMinutes", 5L);
+        ReflectionTestUtils.setField(crawlRetryService, "backoffMaxMinutes", 60L);
+    }
+
+    @Test
+    void testYearlyChunks_SplitsMergedRange() {
+        // Given: 两个相隔多年的年度失败合并后的范围
+        List<LocalDate[]> chunks = CrawlRetryService.yearlyChunks(LocalDate.of(2010, 3, 1), LocalDate.of(2012, 6, 30));
+
+        // Then: 按年切分，首尾相接
+        assertEquals(3, chunks.size());
+        assertEquals(LocalDate.of(2010, 3, 1), chunks.get(0)[0]);
+        assertEquals(LocalDate.of(2011, 2, 28), chunks.get(0)[1]);
+        assertEquals(LocalDate.of(2011, 3, 1), chunks.get(1)[0]);
+        assertEquals(LocalDate.of(2012, 3, 1), chunks.get(2)[0]);
+        assertEquals(LocalDate.of(2012, 6, 30), chunks.get(2)[1]);
+        assertEquals(1, CrawlRetryService.yearlyChunks(LocalDate.of(2025, 9, 1), LocalDate.of(2025, 10, 1)).size());
+    }
+
+    @Test
+    void testMarkProgress_AdvancesStartOnlyForward() {
+        // Given
+        CrawlRetryTask task = new CrawlRetryTask();
+        task.setId(1L);
+        task.setStartDate(LocalDate.of(2010, 3, 1));
+
+        // When
+        crawlRetryService.markProgress(task, LocalDate.of(2010, 3, 1));
+        crawlRetryService.markProgress(task, LocalDate.of(2012, 3, 1));
+
+        // Then: 首段就失败时不更新；以读取时的开始日期为条件，避免覆盖并发合并的更早范围
+        verify(crawlRetryTaskMapper, times(1)).advanceStartDate(anyLong(), any(), any());
+        verify(crawlRetryTaskMapper).advanceStartDate(1L, LocalDate.of(2010, 3, 1), LocalDate.of(2012, 3, 1));
+    }
+
+    @Test
+    void testEnqueue_SchedulesFirstRetryWithJitter() {
+        // When
+        LocalDateTime before = LocalDateTime.now();
+        crawlRetryService.enqueue(CrawlRetryTask.TYPE_FUND, "010500", "中银创新医疗混合C",
+                LocalDate.of(2025, 9, 1), LocalDate.of(2025, 10, 1), new IOException("timeout"));
+
+        // Then
+        ArgumentCaptor<CrawlRetryTask> captor = ArgumentCaptor.forClass(CrawlRetryTask.class);
+        verify(crawlRetryTaskMapper).upsertFailure(captor.capture());
+        CrawlRetryTask task = captor.getValue();
+        assertEquals("IOException: timeout", task.getLastError());
+        assertFalse(task.getNextRetryTime().isBefore(before.plusSeconds(150)));
+        assertFalse(task.getNextRetryTime().isAfter(before.plusSeconds(301)));
+    }
+
+    @Test
+    void testNextDelaySeconds_ExponentialWithinCap() {
+        for (int i = 0; i < 50; i++) {
+            long first = crawlRetryService.nextDelaySeconds(1);
+            long third = crawlRetryService.nextDelaySeconds(3);
+            long tenth = crawlRetryService.nextDelaySeconds(10);
+            assertTrue(first >= 150 && first <= 300);
+            assertTrue(third >= 600 && third <= 1200);
+            assertTrue(tenth >= 1800 && tenth <= 3600);
+        }
+    }
+
+    @Test
+    void testMarkFailure_DeadLettersAfterMaxAttempts() {
+        // Given
+        CrawlRetryTask task = new CrawlRetryTask();
+        task.setId(1L);
+        task.setTaskType(CrawlRetryTask.TYPE_INDEX);
+        task.setTargetCode("000001");
+        task.setAttempts(1);
+
+        // When: 第2次失败仍在重试中
+        crawlRetryService.markFailure(task, new RuntimeException("502"));
+
+        // Then
+        verify(crawlRetryTaskMapper).updateResult(eq(1L), eq(CrawlRetryTask.STATUS_PENDING), eq(2),
+                any(LocalDateTime.class), anyString());
+
+        // When: 第3次失败达到上限
+        task.setAttempts(2);
+        crawlRetryService.markFailure(task, new RuntimeException("502"));
+
+        // Then
+        verify(crawlRetryTaskMapper).updateResult(eq(1L), eq(CrawlRetryTask.STATUS_DEAD), eq(3),
+                isNull(), anyString());
+        verify(crawlRetryTaskMapper, times(2)).updateResult(anyLong(), anyString(), anyInt(), any(), anyString());
+    }
+}
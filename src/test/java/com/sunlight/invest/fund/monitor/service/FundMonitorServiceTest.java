@@ -0,0 +1,102 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.entity.MonitorFund;
+import com.sunlight.invest.fund.monitor.mapper.AlarmRecordMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.MonitorFundMapper;
+import com.sunlight.invest.notification.service.EmailNotificationService;
+import com.sunlight.invest.system.service.SystemConfigService;
+import com.sunlight.invest.system.service.SystemConfigSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 基金监控服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class FundMonitorServiceTest {
+
+    @Mock
+    private FundNavMapper fundNavMapper;
+
+    @Mock
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    @Mock
+    private EmailNotificationService emailNotificationService;
+
+    @Mock
+    private AlarmRecordMapper alarmRecordMapper;
+
+    @Mock
+    private FundCrawlerService fundCrawlerService;
+
+    @Mock
+    private MonitorFundMapper monitorFundMapper;
+
+    @Mock
+    private SystemConfigService systemConfigService;
+
+    @Mock
+    private CrawlRetryService crawlRetryService;
+
+    @InjectMocks
+    private FundMonitorService fundMonitorService;
+
+    private List<FundNav> navList;
+
+    @BeforeEach
+    void setUp() {
+        when(systemConfigService.getSnapshot()).thenReturn(SystemConfigSnapshot.empty());
+        // 最新一日跌幅超过5%，评估时会触发规则B
+        navList = Arrays.asList(
+                new FundNav("007721", "天弘标普500A", LocalDate.of(2025, 10, 17), new BigDecimal("1.9000"), new BigDecimal("-6.0000")),
+                new FundNav("007721", "天弘标普500A", LocalDate.of(2025, 10, 16), new BigDecimal("2.0213"), new BigDecimal("0.1000")));
+    }
+
+    @Test
+    void testMonitorFundIfNewNav_SkipsAlreadyAlertedNavDate() {
+        // Given: 晚间轮询已评估过 10-17 的净值
+        when(fundNavMapper.selectRecentDays(eq("007721"), anyInt())).thenReturn(navList);
+        when(fundNavLatestMapper.claimAlert("007721", LocalDate.of(2025, 10, 17))).thenReturn(0);
+
+        // When
+        fundMonitorService.monitorFundIfNewNav("007721");
+
+        // Then: 不再发送预警
+        verifyNoInteractions(emailNotificationService, alarmRecordMapper);
+    }
+
+    @Test
+    void testRunMonitorTask_SkipsFundsAlertedByPolling() throws Exception {
+        // Given
+        when(monitorFundMapper.selectAllEnabled()).thenReturn(Collections.singletonList(new MonitorFund("007721", "天弘标普500A")));
+        Map<String, List<FundNav>> grouped = Collections.singletonMap("007721", navList);
+        when(fundNavMapper.selectRecentDaysGrouped(eq(Collections.singletonList("007721")), anyInt())).thenReturn(grouped);
+        when(fundNavLatestMapper.claimAlert("007721", LocalDate.of(2025, 10, 17))).thenReturn(0);
+
+        // When
+        fundMonitorService.runMonitorTask();
+
+        // Then
+        verify(fundCrawlerService).incrementalUpdate("007721", "天弘标普500A");
+        verifyNoInteractions(emailNotificationService, alarmRecordMapper);
+    }
+}
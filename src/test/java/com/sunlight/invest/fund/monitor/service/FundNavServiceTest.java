@@ -0,0 +1,71 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNav;
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 基金净值服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class FundNavServiceTest {
+
+    @Mock
+    private FundNavMapper fundNavMapper;
+
+    @Mock
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    @InjectMocks
+    private FundNavService fundNavService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSaveAll_RefreshesEachFundOnce() {
+        // Given
+        List<FundNav> navList = Arrays.asList(
+                nav("007721", LocalDate.of(2025, 10, 16)),
+                nav("007721", LocalDate.of(2025, 10, 17)),
+                nav("010500", LocalDate.of(2025, 10, 17)));
+        when(fundNavMapper.batchInsert(navList)).thenReturn(3);
+
+        // When
+        int count = fundNavService.saveAll(navList);
+
+        // Then
+        assertEquals(3, count);
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(fundNavLatestMapper).refreshByFundCodes(captor.capture());
+        assertEquals(Arrays.asList("007721", "010500"), new ArrayList<>(captor.getValue()));
+    }
+
+    @Test
+    void testSaveAll_EmptyListSkipsDatabase() {
+        assertEquals(0, fundNavService.saveAll(Collections.<FundNav>emptyList()));
+        verify(fundNavMapper, never()).batchInsert(anyList());
+        verify(fundNavLatestMapper, never()).refreshByFundCodes(any());
+    }
+
+    private FundNav nav(String fundCode, LocalDate date) {
+        return new FundNav(fundCode, "测试基金", date, new BigDecimal("1.2345"), new BigDecimal("0.50"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.FundNavLatest;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 基金净值晚间轮询服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class NavPollingServiceTest {
+
+    @Mock
+    private FundNavMapper fundNavMapper;
+
+    @Mock
+    private FundNavService fundNavService;
+
+    @Mock
+    private FundCrawlerService fundCrawlerService;
+
+    @Mock
+    private FundMonitorService fundMonitorService;
+
+    @Mock
+    private TradingCalendarService tradingCalendarService;
+
+    @InjectMocks
+    private NavPollingService navPollingService;
+
+    // 无观测数据，仅按周末判断交易日
+    private final TradingCalendar calendar = new TradingCalendar(
+            Collections.<LocalDate>emptyList(), Collections.<LocalDate>emptyList());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(navPollingService, "backoffBaseMinutes", 5L);
+        ReflectionTestUtils.setField(navPollingService, "backoffMaxMinutes", 120L);
+        ReflectionTestUtils.setField(navPollingService, "defaultDelayMinutes", NavPollingService.DEFAULT_DELAY_MINUTES);
+    }
+
+    @Test
+    void testMedianDelayIgnoresBackfilledRows() {
+        assertEquals(1300L, NavPollingService.medianDelayMinutes(Arrays.asList(1200L, 99999L), 1300L));
+        assertEquals(1230L, NavPollingService.medianDelayMinutes(Arrays.asList(1250L, 1230L, 1200L, 99999L, -5L), 1300L));
+    }
+
+    @Test
+    void testExpectedNavDateRespectsPublishDelay() {
+        // 周五20:00公布：19:00时期望周四净值，21:00时期望周五净值
+        assertEquals(LocalDate.of(2025, 10, 16),
+                NavPollingService.expectedNavDate(calendar, LocalDateTime.of(2025, 10, 17, 19, 0), 1200));
+        assertEquals(LocalDate.of(2025, 10, 17),
+                NavPollingService.expectedNavDate(calendar, LocalDateTime.of(2025, 10, 17, 21, 0), 1200));
+        // QDII次日晚间公布：周一21:00期望的是上周五净值
+        assertEquals(LocalDate.of(2025, 10, 17),
+                NavPollingService.expectedNavDate(calendar, LocalDateTime.of(2025, 10, 20, 21, 0), 2640));
+    }
+
+    @Test
+    void testBackoffGrowsExponentiallyUpToMax() {
+        assertEquals(5, NavPollingService.backoffMinutes(1, 5, 120));
+        assertEquals(10, NavPollingService.backoffMinutes(2, 5, 120));
+        assertEquals(40, NavPollingService.backoffMinutes(4, 5, 120));
+        assertEquals(120, NavPollingService.backoffMinutes(10, 5, 120));
+    }
+
+    @Test
+    void testPollFund_BacksOffUntilPublishedThenEvaluatesOnce() {
+        // Given
+        when(tradingCalendarService.getCalendar()).thenReturn(calendar);
+        when(fundNavMapper.selectPublishDelayMinutes(eq("007721"), anyInt())).thenReturn(Collections.<Long>emptyList());
+        FundNavLatest thursday = nav(LocalDate.of(2025, 10, 16));
+        FundNavLatest friday = nav(LocalDate.of(2025, 10, 17));
+        when(fundNavService.getLatest("007721")).thenReturn(thursday);
+
+        // When: 20:05 尚未公布
+        navPollingService.pollFund("007721", "天弘标普500A", LocalDateTime.of(2025, 10, 17, 20, 5));
+        // 20:08 仍在退避期内，不应抓取
+        navPollingService.pollFund("007721", "天弘标普500A", LocalDateTime.of(2025, 10, 17, 20, 8));
+
+        // Then
+        verify(fundCrawlerService, times(1)).forceCrawlAndSave(eq("007721"), any(), any(), any());
+        verify(fundMonitorService, never()).monitorFundIfNewNav(any(String.class));
+
+        // When: 20:10 已公布
+        when(fundNavService.getLatest("007721")).thenReturn(thursday, friday, friday);
+        navPollingService.pollFund("007721", "天弘标普500A", LocalDateTime.of(2025, 10, 17, 20, 10));
+        navPollingService.pollFund("007721", "天弘标普500A", LocalDateTime.of(2025, 10, 17, 20, 15));
+
+        // Then
+        verify(fundCrawlerService, times(2)).forceCrawlAndSave(eq("007721"), any(), any(), any());
+        verify(fundMonitorService, times(1)).monitorFundIfNewNav("007721");
+        // 20:05 确认未公布、20:10 出现，记录发现时间
+        verify(fundNavMapper).updateFirstSeenTime("007721", LocalDate.of(2025, 10, 17), LocalDateTime.of(2025, 10, 17, 20, 10));
+    }
+
+    @Test
+    void testPollFund_FirstPollOfEveningDoesNotRecordFirstSeen() {
+        // Given: 当晚第一次轮询就拿到新净值，无法判断实际公布时间
+        when(tradingCalendarService.getCalendar()).thenReturn(calendar);
+        when(fundNavMapper.selectPublishDelayMinutes(eq("007721"), anyInt())).thenReturn(Collections.<Long>emptyList());
+        when(fundNavService.getLatest("007721")).thenReturn(nav(LocalDate.of(2025, 10, 16)), nav(LocalDate.of(2025, 10, 17)));
+
+        // When
+        navPollingService.pollFund("007721", "天弘标普500A", LocalDateTime.of(2025, 10, 17, 21, 0));
+
+        // Then
+        verify(fundNavMapper, never()).updateFirstSeenTime(any(), any(), any());
+    }
+
+    private FundNavLatest nav(LocalDate date) {
+        FundNavLatest nav = new FundNavLatest();
+        nav.setFundCode("007721");
+        nav.setNavDate(date);
+        return nav;
+    }
+}
@@ -0,0 +1,86 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.entity.PerformanceMetric;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 业绩指标计算器测试类
+ */
+class PerformanceCalculatorTest {
+
+    @Test
+    void testPeriodReturnsUseLastPriceOnOrBeforeBaseDate() {
+        // Given: 2025-10-10（周五）到 2025-10-17（周五），每个工作日上涨1%
+        List<LocalDate> dates = weekdays(LocalDate.of(2025, 10, 10), LocalDate.of(2025, 10, 17));
+        double[] prices = new double[dates.size()];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = Math.pow(1.01, i);
+        }
+
+        // When
+        PerformanceMetric metric = PerformanceCalculator.calculate(dates, prices, 0);
+
+        // Then: 近1周基准为 2025-10-10，涨幅 1.01^5 - 1；数据不足1月则为空
+        assertEquals(LocalDate.of(2025, 10, 17), metric.getAsOfDate());
+        assertEquals(new BigDecimal("5.1010"), metric.getReturn1w());
+        assertNull(metric.getReturn1m());
+        assertNull(metric.getReturn3y());
+        assertNull(metric.getVolatility1y());
+        assertEquals(new BigDecimal("0.0000"), metric.getMaxDrawdown1y());
+    }
+
+    @Test
+    void testVolatilityDrawdownAndSharpe() {
+        // Given: 一年多的数据，涨跌交替，期间有一次明显回撤
+        List<LocalDate> dates = weekdays(LocalDate.of(2024, 9, 2), LocalDate.of(2025, 10, 17));
+        double[] prices = new double[dates.size()];
+        prices[0] = 1.0;
+        for (int i = 1; i < prices.length; i++) {
+            prices[i] = prices[i - 1] * (i % 2 == 0 ? 1.012 : 0.99);
+        }
+        int crash = prices.length - 30;
+        prices[crash] = prices[crash - 1] * 0.8;
+        for (int i = crash + 1; i < prices.length; i++) {
+            prices[i] = prices[i - 1] * 1.001;
+        }
+
+        // When
+        PerformanceMetric metric = PerformanceCalculator.calculate(dates, prices, 0.015);
+
+        // Then
+        assertNotNull(metric.getReturn1y());
+        assertTrue(metric.getSampleCount() >= 250);
+        assertTrue(metric.getVolatility1y().doubleValue() > 10);
+        assertTrue(metric.getMaxDrawdown1y().doubleValue() <= -20);
+        assertNotNull(metric.getSharpe1y());
+    }
+
+    @Test
+    void testIndexOnOrBefore() {
+        List<LocalDate> dates = Arrays.asList(LocalDate.of(2025, 10, 15), LocalDate.of(2025, 10, 17));
+        assertEquals(-1, PerformanceCalculator.indexOnOrBefore(dates, LocalDate.of(2025, 10, 14)));
+        assertEquals(0, PerformanceCalculator.indexOnOrBefore(dates, LocalDate.of(2025, 10, 16)));
+        assertEquals(1, PerformanceCalculator.indexOnOrBefore(dates, LocalDate.of(2025, 10, 20)));
+        assertNull(PerformanceCalculator.calculate(Collections.<LocalDate>emptyList(), new double[0], 0));
+    }
+
+    private List<LocalDate> weekdays(LocalDate start, LocalDate end) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            if (d.getDayOfWeek() != DayOfWeek.SATURDAY && d.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                dates.add(d);
+            }
+        }
+        return dates;
+    }
+}
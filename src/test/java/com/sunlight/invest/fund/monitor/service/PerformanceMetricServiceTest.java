@@ -0,0 +1,79 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import com.sunlight.invest.fund.monitor.mapper.FundNavLatestMapper;
+import com.sunlight.invest.fund.monitor.mapper.FundNavMapper;
+import com.sunlight.invest.fund.monitor.mapper.IndexDataMapper;
+import com.sunlight.invest.fund.monitor.mapper.PerformanceMetricMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 业绩指标服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class PerformanceMetricServiceTest {
+
+    @Mock
+    private PerformanceMetricMapper performanceMetricMapper;
+
+    @Mock
+    private FundNavMapper fundNavMapper;
+
+    @Mock
+    private FundNavLatestMapper fundNavLatestMapper;
+
+    @Mock
+    private IndexDataMapper indexDataMapper;
+
+    @Mock
+    private IndexDataService indexDataService;
+
+    @InjectMocks
+    private PerformanceMetricService performanceMetricService;
+
+    @Test
+    void testRefreshStale_MarksFundWithoutRecentNavAsChecked() {
+        // Given: 监控基金近3年没有净值
+        when(performanceMetricMapper.selectStaleFundCodes()).thenReturn(Collections.singletonList("000001"));
+        when(performanceMetricMapper.selectStaleIndexCodes()).thenReturn(new ArrayList<>());
+        when(fundNavMapper.selectByDateRange(eq("000001"), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        int count = performanceMetricService.refreshStale();
+
+        // Then: 记录已检查，下一轮增量查询不再返回该基金
+        assertEquals(0, count);
+        verify(fundNavLatestMapper).markMetricInsufficient("000001");
+        verify(performanceMetricMapper, never()).upsert(any());
+    }
+
+    @Test
+    void testRefreshStale_OnlySupportedIndices() {
+        // Given: index_data 中还有已不再支持的指数
+        when(performanceMetricMapper.selectStaleFundCodes()).thenReturn(Collections.emptyList());
+        when(performanceMetricMapper.selectStaleIndexCodes()).thenReturn(new ArrayList<>(Arrays.asList("000001", "399999")));
+        when(indexDataService.getSupportedIndexCodes()).thenReturn(Collections.singletonList("000001"));
+        when(indexDataMapper.selectByDateRange(eq("000001"), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+
+        // When
+        performanceMetricService.refreshStale();
+
+        // Then
+        verify(indexDataMapper, never()).selectByDateRange(eq("399999"), any(LocalDate.class), any(LocalDate.class));
+    }
+}
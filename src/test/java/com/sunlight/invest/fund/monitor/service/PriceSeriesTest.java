@@ -0,0 +1,63 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 价格序列测试类
+ */
+class PriceSeriesTest {
+
+    @Test
+    void testCommonDaysAndAlignment() {
+        // Given: 两只基金在不同日期缺数据
+        PriceSeries a = new PriceSeries("A", "基金A", new int[]{1, 2, 3, 5, 6}, new double[]{1.0, 1.1, 1.2, 1.3, 1.4});
+        PriceSeries b = new PriceSeries("B", "基金B", new int[]{2, 3, 4, 5}, new double[]{2.0, 2.1, 2.2, 2.3});
+
+        // When
+        int[] common = PriceSeries.commonDays(Arrays.asList(a, b));
+
+        // Then
+        assertArrayEquals(new int[]{2, 3, 5}, common);
+        assertArrayEquals(new double[]{1.1, 1.2, 1.3}, a.valuesOn(common), 1e-12);
+        assertArrayEquals(new double[]{2.0, 2.1, 2.3}, b.valuesOn(common), 1e-12);
+        assertThrows(IllegalArgumentException.class, () -> b.valuesOn(new int[]{1}));
+    }
+
+    @Test
+    void testCorrelationAndBeta() {
+        // Given: 基金每日涨跌幅是指数的2倍
+        double[] index = {100, 101, 99, 102, 100.5};
+        double[] fund = new double[index.length];
+        fund[0] = 1.0;
+        for (int i = 1; i < index.length; i++) {
+            fund[i] = fund[i - 1] * (1 + 2 * (index[i] / index[i - 1] - 1));
+        }
+        int[] days = {10, 11, 12, 13, 14};
+        PriceSeries fundSeries = new PriceSeries("F", "基金", days, fund);
+        PriceSeries indexSeries = new PriceSeries("I", "指数", days, index);
+
+        // Then
+        assertEquals(1.0, PriceSeries.correlation(PriceSeries.returns(fund), PriceSeries.returns(index)), 1e-9);
+        assertEquals(2.0, fundSeries.betaTo(indexSeries), 1e-9);
+        assertTrue(Double.isNaN(PriceSeries.correlation(new double[]{1, 1}, new double[]{1, 2})));
+    }
+
+    @Test
+    void testDrawdown() {
+        int base = (int) LocalDate.of(2025, 10, 13).toEpochDay();
+        PriceSeries series = new PriceSeries("F", "基金", new int[]{base, base + 1, base + 2, base + 3, base + 4},
+                new double[]{1.0, 1.2, 0.9, 1.1, 1.0});
+
+        PriceSeries.Drawdown drawdown = series.drawdown();
+
+        assertEquals(-0.25, drawdown.getMaxDrawdown(), 1e-12);
+        assertEquals(LocalDate.of(2025, 10, 14), drawdown.getPeakDate());
+        assertEquals(LocalDate.of(2025, 10, 15), drawdown.getTroughDate());
+        assertEquals(1.0 / 1.2 - 1, drawdown.getCurrentDrawdown(), 1e-12);
+    }
+}
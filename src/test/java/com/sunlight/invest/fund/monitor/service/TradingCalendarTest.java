@@ -0,0 +1,48 @@
+package com.sunlight.invest.fund.monitor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 交易日历测试类
+ */
+class TradingCalendarTest {
+
+    @Test
+    void testObservedRangeUsesActualTradeDates() {
+        // 2025-04-03(周四) 有行情，2025-04-04(周五，清明) 无行情，2025-04-07(周一) 有行情
+        TradingCalendar calendar = new TradingCalendar(
+                Arrays.asList(LocalDate.of(2025, 4, 3), LocalDate.of(2025, 4, 7)),
+                Collections.<LocalDate>emptyList());
+
+        assertTrue(calendar.isTradingDay(LocalDate.of(2025, 4, 3)));
+        assertFalse(calendar.isTradingDay(LocalDate.of(2025, 4, 4)));
+        assertFalse(calendar.isTradingDay(LocalDate.of(2025, 4, 5)));
+        assertEquals(LocalDate.of(2025, 4, 3), calendar.previousTradingDay(LocalDate.of(2025, 4, 7)));
+        assertEquals(LocalDate.of(2025, 4, 7), calendar.nextTradingDay(LocalDate.of(2025, 4, 3)));
+    }
+
+    @Test
+    void testFutureDatesUseWeekendsAndHolidays() {
+        List<LocalDate> holidays = TradingCalendarService.parseHolidays("2025-10-01~2025-10-08, bad-date");
+        TradingCalendar calendar = new TradingCalendar(
+                Collections.singletonList(LocalDate.of(2025, 9, 26)), holidays);
+
+        assertEquals(8, holidays.size());
+        assertTrue(calendar.isTradingDay(LocalDate.of(2025, 9, 30)));
+        assertFalse(calendar.isTradingDay(LocalDate.of(2025, 10, 8)));
+        assertTrue(calendar.isTradingDay(LocalDate.of(2025, 10, 9)));
+
+        // 节后第一天早上，期望的最新净值是节前最后一个交易日
+        assertEquals(LocalDate.of(2025, 9, 30), calendar.expectedNavDate(LocalDate.of(2025, 10, 9)));
+        // 周一早上，期望的最新净值是上周五
+        assertEquals(LocalDate.of(2025, 10, 17), calendar.expectedNavDate(LocalDate.of(2025, 10, 20)));
+        assertEquals(5, calendar.tradingDaysBetween(LocalDate.of(2025, 10, 13), LocalDate.of(2025, 10, 19)).size());
+    }
+}
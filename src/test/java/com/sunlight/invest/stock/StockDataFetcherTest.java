@@ -0,0 +1,121 @@
+package com.sunlight.invest.stock;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 股票行情抓取客户端测试类
+ */
+class StockDataFetcherTest {
+
+    private HttpServer server;
+
+    private StockDataFetcher fetcher;
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 本地模拟行情接口：每个请求耗时50ms，代码 cn_999999 返回500
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/hisHq", exchange -> {
+            int current = active.incrementAndGet();
+            maxActive.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(50);
+                String query = exchange.getRequestURI().getQuery();
+                String code = query.substring(query.indexOf("code=cn_") + 8, query.indexOf('&'));
+                byte[] body = ("historySearchHandler([{\"status\":0,\"code\":\"" + code + "\"}])")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders("999999".equals(code) ? 500 : 200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        server.start();
+
+        fetcher = new StockDataFetcher();
+        ReflectionTestUtils.setField(fetcher, "baseUrl",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/hisHq");
+        ReflectionTestUtils.setField(fetcher, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(fetcher, "readTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(fetcher, "callTimeoutMs", 3000L);
+        ReflectionTestUtils.setField(fetcher, "maxConcurrency", 4);
+        ReflectionTestUtils.setField(fetcher, "ratePerSecond", 200);
+        fetcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetcher.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void testFetchRecentWatchlist_ParallelUnderConcurrencyLimit() {
+        // Given: 20只股票，其中一只接口报错
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 19; i++) {
+            codes.add(String.format("%06d", i));
+        }
+        codes.add("999999");
+
+        // When
+        long start = System.currentTimeMillis();
+        Map<String, String> result = fetcher.fetchRecentWatchlist(codes, 30);
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Then: 保持顺序，失败的为 null；并发不超过4，且明显快于串行的 20 x 50ms
+        assertEquals(codes, new ArrayList<>(result.keySet()));
+        assertTrue(result.get("000005").contains("\"code\":\"000005\""));
+        assertNull(result.get("999999"));
+        assertTrue(maxActive.get() <= 4, "max concurrent requests: " + maxActive.get());
+        assertTrue(maxActive.get() > 1, "requests were not parallel");
+        assertTrue(elapsed < 20 * 50, "elapsed " + elapsed + " ms");
+    }
+
+    @Test
+    void testFetchStockHistoryData_ReturnsBodyOrNullOnError() {
+        assertTrue(fetcher.fetchStockHistoryData("600519", "20250101", "20250131").startsWith("historySearchHandler"));
+        assertNull(fetcher.fetchStockHistoryData("999999", "20250101", "20250131"));
+    }
+
+    @Test
+    void testFetchRecentWatchlist_RateLimitSpacesRequests() {
+        // Given: 每秒10个请求
+        fetcher.destroy();
+        ReflectionTestUtils.setField(fetcher, "ratePerSecond", 10);
+        fetcher.init();
+
+        // When
+        long start = System.currentTimeMillis();
+        Map<String, String> result = fetcher.fetchRecentWatchlist(Arrays.asList("000001", "000002", "000003", "000004"), 30);
+
+        // Then: 第4个请求至少在300ms后发出
+        assertEquals(4, result.size());
+        assertTrue(System.currentTimeMillis() - start >= 300);
+    }
+}
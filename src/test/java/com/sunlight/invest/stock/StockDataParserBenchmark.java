@@ -0,0 +1,125 @@
+package com.sunlight.invest.stock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 股票数据解析基准测试
+ * <p>
+ * 模拟搜狐接口返回的10年日线（约2500条，每条10列），对比原先截取子串 + JsonNode 树 + 正则清洗的解析方式
+ * 与流式解析的吞吐量（thrpt，次/毫秒）和单次平均耗时（avgt）；main 方法附带 GC 分析器，
+ * 输出的 gc.alloc.rate.norm 即每次解析分配的字节数。
+ * 类名不以 Test 结尾，不会随 mvn test 执行；需要时在 IDE 中运行 main 方法，或执行：
+ * <pre>
+ * mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.sunlight.invest.stock.StockDataParserBenchmark
+ * </pre>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StockDataParserBenchmark {
+
+    static final int TRADING_DAYS = 2500;
+
+    private final StockDataParser parser = new StockDataParser();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String response;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(20241203L);
+        StringBuilder hq = new StringBuilder();
+        LocalDate date = LocalDate.of(2025, 12, 31);
+        double close = 1500;
+        for (int i = 0; i < TRADING_DAYS; i++) {
+            double open = close * (1 + random.nextGaussian() * 0.01);
+            double change = close * random.nextGaussian() * 0.015;
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.01);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.01);
+            hq.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                    "[\"%s\",\"%.2f\",\"%.2f\",\"%.2f\",\"%.2f%%\",\"%.2f\",\"%.2f\",\"%d\",\"%.2f\",\"%.2f%%\"]",
+                    date, open, close, change, change / close * 100, low, high,
+                    10000 + random.nextInt(1000000), random.nextDouble() * 500000, random.nextDouble() * 3));
+            close -= change;
+            date = date.minusDays(date.getDayOfWeek().getValue() == 1 ? 3 : 1);
+        }
+        response = "historySearchHandler([{\"status\":0,\"hq\":[" + hq
+                + "],\"code\":\"cn_600519\",\"stat\":[\"累计:\",\"2016-01-04至2025-12-31\"]}])";
+        if (legacyParse().size() != TRADING_DAYS || streamingParse().size() != TRADING_DAYS) {
+            throw new IllegalStateException("模拟数据解析条数不正确");
+        }
+    }
+
+    /**
+     * 原方式：截取子串，构建 JsonNode 树，每个价格 asText 后用正则清洗
+     */
+    @Benchmark
+    public List<StockData> legacyParse() {
+        List<StockData> stockDataList = new ArrayList<>();
+        try {
+            String jsonStr = response.substring(21, response.length() - 1);
+            JsonNode rootNode = objectMapper.readTree(jsonStr);
+            JsonNode dataNode = rootNode.get(0);
+            for (JsonNode record : dataNode.get("hq")) {
+                if (record.isArray() && record.size() >= 5) {
+                    StockData stockData = new StockData();
+                    stockData.setDate(record.get(0).asText());
+                    stockData.setOpenPrice(Double.parseDouble(record.get(1).asText().replaceAll("[^\\d.-]", "")));
+                    stockData.setClosePrice(Double.parseDouble(record.get(2).asText().replaceAll("[^\\d.-]", "")));
+                    stockData.setHighPrice(Double.parseDouble(record.get(3).asText().replaceAll("[^\\d.-]", "")));
+                    stockData.setLowPrice(Double.parseDouble(record.get(4).asText().replaceAll("[^\\d.-]", "")));
+                    stockDataList.add(stockData);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return stockDataList;
+    }
+
+    /**
+     * 流式解析
+     */
+    @Benchmark
+    public List<StockData> streamingParse() {
+        return parser.parseStockData(response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(StockDataParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
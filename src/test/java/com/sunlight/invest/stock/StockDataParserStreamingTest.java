@@ -0,0 +1,80 @@
+package com.sunlight.invest.stock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 股票数据流式解析测试类（不依赖 Spring 上下文）
+ */
+class StockDataParserStreamingTest {
+
+    private final StockDataParser parser = new StockDataParser();
+
+    @Test
+    void testParseStockData_JsonpRecordsAndShortRecordSkipped() {
+        // Given: JSONP 包装，status 在 hq 之后，第三条记录不足5项
+        String jsonData = "historySearchHandler([{\"hq\":["
+                + "[\"2025-12-09\",\"11.52\",\"11.43\",\"-0.09\",\"-0.78%\",\"11.43\",\"11.54\",\"733957\"],"
+                + "[\"2025-12-08\",11.49,\"1,211.52\",{\"x\":[1]},\"0.09%\"],"
+                + "[\"2025-12-05\",\"11.40\"]"
+                + "],\"code\":\"cn_600519\",\"stat\":[\"累计:\",\"2025-12-08至2025-12-09\"],\"status\":0}])";
+
+        // When
+        List<StockData> result = parser.parseStockData(jsonData);
+
+        // Then
+        assertEquals(2, result.size());
+        StockData first = result.get(0);
+        assertEquals("2025-12-09", first.getDate());
+        assertEquals(11.52, first.getOpenPrice(), 0.0);
+        assertEquals(11.43, first.getClosePrice(), 0.0);
+        assertEquals(-0.09, first.getHighPrice(), 0.0);
+        assertEquals(-0.78, first.getLowPrice(), 0.0);
+        StockData second = result.get(1);
+        assertEquals(11.49, second.getOpenPrice(), 0.0);
+        assertEquals(1211.52, second.getClosePrice(), 0.0);
+        assertEquals(0.0, second.getHighPrice(), 0.0);
+    }
+
+    @Test
+    void testParseStockData_ErrorStatusAndMalformedInput() {
+        assertTrue(parser.parseStockData("historySearchHandler([{\"hq\":[[\"2025-12-09\",\"1\",\"1\",\"1\",\"1\"]],\"status\":2}])").isEmpty());
+        assertTrue(parser.parseStockData("[{\"status\":\"3\"}]").isEmpty());
+        assertTrue(parser.parseStockData("historySearchHandler([{\"hq\":[[\"2025-12-09\",\"1\",\"1\",").isEmpty());
+        assertTrue(parser.parseStockData("").isEmpty());
+        assertTrue(parser.parseStockData(null).isEmpty());
+        assertEquals(1, parser.parseStockData("[{\"hq\":[[\"d\",\"1\",\"2\",\"3\",\"4\"]]}]").size());
+    }
+
+    @Test
+    void testParseHistory_DistinguishesNoRowsFromErrors() {
+        assertTrue(parser.parseHistory("historySearchHandler([{\"status\":0,\"hq\":[]}])").isEmpty());
+        assertTrue(parser.parseHistory("historySearchHandler([{\"status\":0}])").isEmpty());
+        assertTrue(parser.parseHistory("historySearchHandler([])").isEmpty());
+        assertNull(parser.parseHistory("historySearchHandler([{\"status\":2}])"));
+        assertNull(parser.parseHistory("historySearchHandler({})"));
+        assertNull(parser.parseHistory("historySearchHandler([{\"hq\":[[\"2025-12-09\",\"1\","));
+        assertNull(parser.parseHistory(""));
+    }
+
+    @Test
+    void testParseDoubleValue_MatchesRegexCleaning() {
+        String[] values = {"11.52", "-0.78%", "0.38%", "1,234.5", "-0", ".5", "5.", "733957", "84273.23",
+                "12.3.4", "5-", "--1", "-", ".", "", "abc", "1e5", "0.1234567890123456789",
+                "123456789012345678901234", "3.14159265358979", "-100.000001", "九.5"};
+        for (String value : values) {
+            double expected;
+            try {
+                expected = Double.parseDouble(value.replaceAll("[^\\d.-]", ""));
+            } catch (NumberFormatException e) {
+                expected = 0.0;
+            }
+            char[] chars = ("xx" + value + "yy").toCharArray();
+            assertEquals(Double.doubleToLongBits(expected),
+                    Double.doubleToLongBits(StockDataParser.parseDoubleValue(chars, 2, value.length())), value);
+        }
+    }
+}
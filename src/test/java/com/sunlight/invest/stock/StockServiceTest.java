@@ -0,0 +1,141 @@
+package com.sunlight.invest.stock;
+
+import com.sunlight.invest.fund.monitor.service.TradingCalendar;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
+import com.sunlight.invest.stock.service.StockDataService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 股票数据服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class StockServiceTest {
+
+    @Mock
+    private StockDataFetcher stockDataFetcher;
+
+    @Mock
+    private StockDataParser stockDataParser;
+
+    @Mock
+    private StockDataService stockDataService;
+
+    @Mock
+    private TradingCalendarService tradingCalendarService;
+
+    @InjectMocks
+    private StockService stockService;
+
+    @Test
+    void testGetStockHistory_FetchesOnlyMissingSubRange() {
+        // Given: 1-01~1-31 中只有 1-20~1-31 未入库
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        LocalDate end = LocalDate.of(2025, 1, 31);
+        LocalDate gapStart = LocalDate.of(2025, 1, 20);
+        when(tradingCalendarService.getCalendar())
+                .thenReturn(new TradingCalendar(Collections.emptyList(), Collections.emptyList()));
+        when(stockDataService.findMissingRanges("600519", start, end))
+                .thenReturn(Collections.singletonList(new LocalDate[]{gapStart, end}));
+        when(stockDataFetcher.fetchStockHistoryDataAsync("600519", "20250120", "20250131"))
+                .thenReturn(CompletableFuture.completedFuture("json"));
+        List<StockData> fetched = Collections.singletonList(new StockData());
+        when(stockDataParser.parseHistory("json")).thenReturn(fetched);
+        when(stockDataService.saveStockData(fetched, "600519", "未知股票")).thenReturn(true);
+        List<StockData> stored = Arrays.asList(new StockData(), new StockData());
+        when(stockDataService.getStockDataByDateRangeFromDB("600519", start, end)).thenReturn(stored);
+
+        // When
+        List<StockData> result = stockService.getStockHistory("600519", "20250101", "20250131");
+
+        // Then: 只抓取缺口，入库并记录覆盖后整体读库
+        assertSame(stored, result);
+        verify(stockDataFetcher, times(1)).fetchStockHistoryDataAsync(anyString(), anyString(), anyString());
+        verify(stockDataService).saveStockData(fetched, "600519", "未知股票");
+        verify(stockDataService).markCovered("600519", gapStart, end);
+    }
+
+    @Test
+    void testGetStockHistory_CoveredRangeServedFromDB() {
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        LocalDate end = LocalDate.of(2025, 1, 31);
+        when(stockDataService.findMissingRanges("600519", start, end)).thenReturn(Collections.emptyList());
+        when(stockDataService.getStockDataByDateRangeFromDB("600519", start, end))
+                .thenReturn(Collections.singletonList(new StockData()));
+
+        assertEquals(1, stockService.getStockHistory("600519", "20250101", "20250131").size());
+        verifyNoInteractions(stockDataFetcher);
+    }
+
+    @Test
+    void testGetStockHistory_NonTradingGapMarkedWithoutFetch_FailedGapNotMarked() {
+        // Given: 周末缺口和一段抓取失败的缺口
+        LocalDate start = LocalDate.of(2025, 1, 4);
+        LocalDate end = LocalDate.of(2025, 1, 10);
+        LocalDate[] weekend = {LocalDate.of(2025, 1, 4), LocalDate.of(2025, 1, 5)};
+        LocalDate[] weekdays = {LocalDate.of(2025, 1, 6), end};
+        when(tradingCalendarService.getCalendar())
+                .thenReturn(new TradingCalendar(Collections.emptyList(), Collections.emptyList()));
+        when(stockDataService.findMissingRanges("600519", start, end)).thenReturn(Arrays.asList(weekend, weekdays));
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("timeout"));
+        when(stockDataFetcher.fetchStockHistoryDataAsync("600519", "20250106", "20250110")).thenReturn(failed);
+
+        // When
+        stockService.getStockHistory("600519", "20250104", "20250110");
+
+        // Then
+        verify(stockDataService).markCovered("600519", weekend[0], weekend[1]);
+        verify(stockDataService, never()).markCovered(eq("600519"), eq(weekdays[0]), any());
+        verify(stockDataService, never()).saveStockData(anyList(), anyString(), anyString());
+        verifyNoInteractions(stockDataParser);
+    }
+
+    @Test
+    void testGetStockHistory_EmptySuccessMarkedCovered_ErrorStatusNotMarked() {
+        // Given: 前一段区间内全部停牌（状态正常但没有行情），后一段接口返回错误状态
+        LocalDate start = LocalDate.of(2025, 1, 6);
+        LocalDate end = LocalDate.of(2025, 1, 17);
+        LocalDate[] suspended = {start, LocalDate.of(2025, 1, 10)};
+        LocalDate[] errored = {LocalDate.of(2025, 1, 13), end};
+        when(tradingCalendarService.getCalendar())
+                .thenReturn(new TradingCalendar(Collections.emptyList(), Collections.emptyList()));
+        when(stockDataService.findMissingRanges("600519", start, end)).thenReturn(Arrays.asList(suspended, errored));
+        when(stockDataFetcher.fetchStockHistoryDataAsync("600519", "20250106", "20250110"))
+                .thenReturn(CompletableFuture.completedFuture("empty"));
+        when(stockDataFetcher.fetchStockHistoryDataAsync("600519", "20250113", "20250117"))
+                .thenReturn(CompletableFuture.completedFuture("error"));
+        when(stockDataParser.parseHistory("empty")).thenReturn(Collections.<StockData>emptyList());
+        when(stockDataParser.parseHistory("error")).thenReturn(null);
+        when(stockDataService.saveStockData(Collections.<StockData>emptyList(), "600519", "未知股票")).thenReturn(true);
+
+        // When
+        stockService.getStockHistory("600519", "20250106", "20250117");
+
+        // Then: 停牌区间不再反复抓取，出错区间下次重试
+        verify(stockDataService).markCovered("600519", suspended[0], suspended[1]);
+        verify(stockDataService, never()).markCovered(eq("600519"), eq(errored[0]), any());
+    }
+
+    @Test
+    void testGetStockHistory_InvalidDate() {
+        assertThrows(IllegalArgumentException.class,
+                () -> stockService.getStockHistory("600519", "2025-01-01", "20250131"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.sunlight.invest.stock.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 日期区间集合测试类
+ */
+class DateRangeSetTest {
+
+    @Test
+    void testPlus_MergesOverlappingAndAdjacentRanges() {
+        // Given: 两段不相邻的区间
+        DateRangeSet set = DateRangeSet.empty()
+                .plus(date(1, 10), date(1, 20))
+                .plus(date(2, 1), date(2, 10));
+        assertEquals(2, set.size());
+
+        // When: 加入与第一段相邻、与第二段重叠的区间
+        DateRangeSet merged = set.plus(date(1, 21), date(2, 5));
+
+        // Then: 合并为一段，原集合不变
+        assertEquals(1, merged.size());
+        assertEquals(date(1, 10), merged.startAt(0));
+        assertEquals(date(2, 10), merged.endAt(0));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void testPlus_KeepsOrderWhenInsertingBetween() {
+        DateRangeSet set = DateRangeSet.empty()
+                .plus(date(3, 1), date(3, 5))
+                .plus(date(1, 1), date(1, 5))
+                .plus(date(2, 1), date(2, 5));
+
+        assertEquals(3, set.size());
+        assertEquals(date(1, 1), set.startAt(0));
+        assertEquals(date(2, 1), set.startAt(1));
+        assertEquals(date(3, 5), set.endAt(2));
+    }
+
+    @Test
+    void testMissing_ReturnsOnlyUncoveredSubRanges() {
+        // Given: 已覆盖 1-10~1-20 和 2-01~2-10
+        DateRangeSet set = DateRangeSet.empty()
+                .plus(date(1, 10), date(1, 20))
+                .plus(date(2, 1), date(2, 10));
+
+        // When
+        List<LocalDate[]> gaps = set.missing(date(1, 1), date(2, 15));
+
+        // Then: 前、中、后三段缺口
+        assertEquals(3, gaps.size());
+        assertArrayEquals(new LocalDate[]{date(1, 1), date(1, 9)}, gaps.get(0));
+        assertArrayEquals(new LocalDate[]{date(1, 21), date(1, 31)}, gaps.get(1));
+        assertArrayEquals(new LocalDate[]{date(2, 11), date(2, 15)}, gaps.get(2));
+        assertTrue(set.covers(date(1, 12), date(1, 20)));
+        assertTrue(set.missing(date(2, 3), date(2, 1)).isEmpty());
+        assertEquals(1, DateRangeSet.empty().missing(date(1, 1), date(1, 1)).size());
+    }
+
+    @Test
+    void testLastSettledDate_TodayOnlyAfterClose() {
+        assertEquals(date(1, 9), StockDataService.lastSettledDate(LocalDateTime.of(2025, 1, 10, 14, 0)));
+        assertEquals(date(1, 10), StockDataService.lastSettledDate(LocalDateTime.of(2025, 1, 10, 16, 0)));
+    }
+
+    private static LocalDate date(int month, int day) {
+        return LocalDate.of(2025, month, day);
+    }
+}
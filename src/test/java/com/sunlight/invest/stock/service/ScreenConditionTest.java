@@ -0,0 +1,121 @@
+package com.sunlight.invest.stock.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 技术选股条件测试类
+ */
+class ScreenConditionTest {
+
+    @Test
+    void testParseAll_SpecsAndErrors() {
+        List<ScreenCondition> conditions = ScreenCondition.parseAll("new-high:20; MA-CROSS:5,20;rsi:14,0,30;volume-spike:20,2.5");
+
+        assertEquals(4, conditions.size());
+        assertEquals(ScreenCondition.Type.MA_CROSS, conditions.get(1).getType());
+        assertEquals("volume-spike:20,2.5", conditions.get(3).toString());
+        assertEquals(21, conditions.get(1).requiredBars());
+        assertEquals(57, conditions.get(2).requiredBars());
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parseAll(" ; "));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("macd:12,26,9"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("ma-cross:20,5"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("rsi:14,30"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("new-high:abc"));
+    }
+
+    @Test
+    void testParse_RejectsNonIntegerAndOversizedPeriods() {
+        // 小数周期不截断
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("ma-cross:5.7,20"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("new-high:20.5"));
+        // 非有限数
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("new-high:NaN"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("volume-spike:20,Infinity"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("rsi:14,-Infinity,30"));
+        // 周期上限，避免 RSI 所需交易日数溢出
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("rsi:1e9,0,30"));
+        assertThrows(IllegalArgumentException.class, () -> ScreenCondition.parse("ma-cross:5,1001"));
+
+        assertEquals(ScreenCondition.MAX_PERIOD * 4 + 1,
+                ScreenCondition.parse("rsi:" + ScreenCondition.MAX_PERIOD + ",0,30").requiredBars());
+    }
+
+    @Test
+    void testNewHighAndMaCross() {
+        // Given: 先跌后涨，最后一天收盘创新高，且5日均线刚上穿10日均线
+        double[] closes = {20, 19, 18, 17, 16, 15, 14, 13, 12, 11, 10, 10, 10, 10, 10, 21};
+        StockSeries series = series(closes);
+
+        assertTrue(ScreenCondition.parse("new-high:16").matches(series));
+        assertTrue(ScreenCondition.parse("ma-cross:5,10").matches(series));
+        assertFalse(ScreenCondition.parse("new-high:17").matches(series), "数据不足时不满足");
+
+        closes[closes.length - 1] = 11;
+        assertFalse(ScreenCondition.parse("new-high:16").matches(series(closes)));
+        assertFalse(ScreenCondition.parse("ma-cross:5,10").matches(series(closes)));
+    }
+
+    @Test
+    void testRsiMatchesReference() {
+        // Given: 涨跌交替的价格
+        double[] closes = new double[60];
+        closes[0] = 100;
+        for (int i = 1; i < closes.length; i++) {
+            closes[i] = closes[i - 1] + (i % 3 == 0 ? -2 : 1);
+        }
+
+        // When
+        double rsi = ScreenCondition.rsi(closes, 14);
+
+        // Then: 与对全部数据做 Wilder 平滑的结果一致
+        assertEquals(referenceRsi(closes, 14), rsi, 0.5);
+        assertTrue(ScreenCondition.parse("rsi:14,40,60").matches(series(closes)));
+        assertEquals(100, ScreenCondition.rsi(new double[]{1, 2, 3, 4}, 2), 1e-12);
+    }
+
+    @Test
+    void testVolumeSpike() {
+        double[] closes = {10, 10, 10, 10, 10, 10};
+        long[] volumes = {100, 100, 100, 100, 100, 250};
+        StockSeries series = StockSeries.of("600519", days(6), closes, closes, volumes);
+
+        assertTrue(ScreenCondition.parse("volume-spike:5,2").matches(series));
+        assertFalse(ScreenCondition.parse("volume-spike:5,3").matches(series));
+        assertFalse(ScreenCondition.parse("volume-spike:5,1")
+                .matches(StockSeries.of("600519", days(6), closes, closes, new long[6])), "没有成交量数据时不满足");
+    }
+
+    private static double referenceRsi(double[] closes, int period) {
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= period; i++) {
+            double change = closes[i] - closes[i - 1];
+            gain += Math.max(change, 0);
+            loss += Math.max(-change, 0);
+        }
+        gain /= period;
+        loss /= period;
+        for (int i = period + 1; i < closes.length; i++) {
+            double change = closes[i] - closes[i - 1];
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    private static StockSeries series(double[] closes) {
+        return StockSeries.of("600519", days(closes.length), closes.clone(), closes.clone(), new long[closes.length]);
+    }
+
+    private static int[] days(int count) {
+        int[] days = new int[count];
+        for (int i = 0; i < count; i++) {
+            days[i] = 20000 + i;
+        }
+        return days;
+    }
+}
@@ -0,0 +1,119 @@
+package com.sunlight.invest.stock.service;
+
+import com.sunlight.invest.stock.entity.StockDataEntity;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 股票数据批量写入器测试类
+ */
+class StockDataBatchWriterTest {
+
+    @Test
+    void testWrite_ChunksWithoutFailures() {
+        // Given: 1000 行，每块 300 行
+        RecordingWriter writer = new RecordingWriter(new HashSet<>());
+        ReflectionTestUtils.setField(writer, "chunkSize", 300);
+
+        // When
+        StockDataBatchWriter.Result result = writer.write(rows(1000));
+
+        // Then: 4 次批量往返
+        assertEquals(1000, result.getWritten());
+        assertTrue(result.getFailed().isEmpty());
+        assertEquals(Arrays.asList(300, 300, 300, 100), writer.batchSizes);
+    }
+
+    @Test
+    void testWrite_IsolatesFailedRowsByBisection() {
+        // Given: 第 100 行和第 400 行写入会失败
+        List<StockDataEntity> rows = rows(500);
+        Set<StockDataEntity> bad = new HashSet<>(Arrays.asList(rows.get(100), rows.get(400)));
+        RecordingWriter writer = new RecordingWriter(bad);
+        ReflectionTestUtils.setField(writer, "chunkSize", 500);
+
+        // When
+        StockDataBatchWriter.Result result = writer.write(rows);
+
+        // Then: 只报告两行失败，往返次数远少于逐行写入
+        assertEquals(498, result.getWritten());
+        assertEquals(2, result.getFailed().size());
+        assertTrue(result.getFailed().containsAll(bad));
+        assertTrue(writer.batchSizes.size() < 50, "batches: " + writer.batchSizes.size());
+    }
+
+    @Test
+    void testWrite_PropagatesNonDataErrorsWithoutBisecting() {
+        // Given: 连接中断与具体行无关
+        List<StockDataEntity> rows = rows(500);
+        RecordingWriter writer = new RecordingWriter(new HashSet<>(Collections.singletonList(rows.get(0))),
+                new PersistenceException(new SQLException("Communications link failure", "08S01")));
+        ReflectionTestUtils.setField(writer, "chunkSize", 500);
+
+        // When & Then: 只尝试一次，不再二分
+        assertThrows(PersistenceException.class, () -> writer.write(rows));
+        assertEquals(Collections.singletonList(500), writer.batchSizes);
+    }
+
+    @Test
+    void testIsDataError() {
+        assertTrue(StockDataBatchWriter.isDataError(
+                new PersistenceException(new SQLIntegrityConstraintViolationException("Duplicate entry", "23000"))));
+        assertTrue(StockDataBatchWriter.isDataError(new DataIntegrityViolationException("constraint")));
+        assertFalse(StockDataBatchWriter.isDataError(new PersistenceException(new SQLException("Lock wait timeout", "HY000"))));
+        assertFalse(StockDataBatchWriter.isDataError(new IllegalStateException("closed")));
+    }
+
+    private static List<StockDataEntity> rows(int count) {
+        List<StockDataEntity> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StockDataEntity entity = new StockDataEntity();
+            entity.setStockCode("600519");
+            entity.setTradeDate(LocalDate.of(2020, 1, 1).plusDays(i));
+            rows.add(entity);
+        }
+        return rows;
+    }
+
+    /**
+     * 记录每次批量执行的行数，包含坏行的批次整体失败
+     */
+    private static class RecordingWriter extends StockDataBatchWriter {
+        private final Set<StockDataEntity> bad;
+        private final RuntimeException failure;
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        RecordingWriter(Set<StockDataEntity> bad) {
+            this(bad, new PersistenceException(new SQLException("Data truncation: Out of range value", "22003")));
+        }
+
+        RecordingWriter(Set<StockDataEntity> bad, RuntimeException failure) {
+            this.bad = bad;
+            this.failure = failure;
+        }
+
+        @Override
+        void executeBatch(List<StockDataEntity> chunk) {
+            batchSizes.add(chunk.size());
+            for (StockDataEntity entity : chunk) {
+                if (bad.contains(entity)) {
+                    throw failure;
+                }
+            }
+        }
+    }
+}
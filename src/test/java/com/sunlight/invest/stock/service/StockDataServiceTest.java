@@ -0,0 +1,62 @@
+package com.sunlight.invest.stock.service;
+
+import com.sunlight.invest.stock.entity.StockDataCoverage;
+import com.sunlight.invest.stock.mapper.StockDataCoverageMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 股票数据服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class StockDataServiceTest {
+
+    @Mock
+    private StockDataCoverageMapper stockDataCoverageMapper;
+
+    @InjectMocks
+    private StockDataService stockDataService;
+
+    @Test
+    void testMarkCovered_FailedLoadDoesNotOverwriteCoverage() {
+        // Given: 覆盖区间表暂时不可用
+        when(stockDataCoverageMapper.selectByStockCode("600519")).thenThrow(new RuntimeException("连接超时"));
+        LocalDate start = LocalDate.of(2025, 1, 6);
+        LocalDate end = LocalDate.of(2025, 1, 10);
+
+        // When & Then: 不删除、不重写已有区间
+        assertThrows(RuntimeException.class, () -> stockDataService.markCovered("600519", start, end));
+        verify(stockDataCoverageMapper, never()).deleteByStockCode(anyString());
+        verify(stockDataCoverageMapper, never()).batchInsert(anyList());
+    }
+
+    @Test
+    void testFindMissingRanges_FailedLoadIsNotCached() {
+        // Given: 第一次加载失败，第二次恢复
+        LocalDate start = LocalDate.of(2025, 1, 6);
+        LocalDate end = LocalDate.of(2025, 1, 10);
+        when(stockDataCoverageMapper.selectByStockCode("600519"))
+                .thenThrow(new RuntimeException("连接超时"))
+                .thenReturn(Collections.singletonList(new StockDataCoverage("600519", start, end)));
+
+        // When
+        List<LocalDate[]> first = stockDataService.findMissingRanges("600519", start, end);
+        List<LocalDate[]> second = stockDataService.findMissingRanges("600519", start, end);
+
+        // Then: 失败时按整段缺失处理，恢复后读到表中的区间
+        assertEquals(1, first.size());
+        assertTrue(second.isEmpty());
+    }
+}
@@ -0,0 +1,152 @@
+package com.sunlight.invest.stock.service;
+
+import com.sunlight.invest.fund.monitor.service.TradingCalendar;
+import com.sunlight.invest.fund.monitor.service.TradingCalendarService;
+import com.sunlight.invest.stock.entity.StockDataEntity;
+import com.sunlight.invest.stock.mapper.StockDataMapper;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 股票技术选股服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class StockScreenServiceTest {
+
+    @Mock
+    private StockDataMapper stockDataMapper;
+
+    @Mock
+    private TradingCalendarService tradingCalendarService;
+
+    @InjectMocks
+    private StockScreenService stockScreenService;
+
+    private final Set<String> loadThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stockScreenService, "threads", 4);
+        stockScreenService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockScreenService.destroy();
+    }
+
+    @Test
+    void testScreen_ParallelBySymbolAndStreamsMatches() {
+        // Given: 200只股票，代码为偶数的最后一天创新高，000013 的数据读取失败，代码为50倍数的股票数据停在10天前
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            codes.add(String.format("%06d", i));
+        }
+        when(stockDataMapper.selectAllStockCodes()).thenReturn(codes);
+        doAnswer(invocation -> {
+            String code = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            ResultHandler<StockDataEntity> handler = invocation.getArgument(2);
+            loadThreads.add(Thread.currentThread().getName());
+            if ("000013".equals(code)) {
+                throw new IllegalStateException("connection reset");
+            }
+            boolean rising = Integer.parseInt(code) % 2 == 0;
+            LocalDate lastDate = Integer.parseInt(code) % 50 == 0 ? LocalDate.of(2025, 3, 21) : LocalDate.of(2025, 3, 31);
+            // 按日期降序返回，共30条
+            DefaultResultContext<StockDataEntity> context = new DefaultResultContext<>();
+            for (int i = 0; i < 30 && i < limit; i++) {
+                double close = i == 0 && rising ? 20 : 10 + (i % 2);
+                context.nextResultObject(bar(lastDate.minusDays(i), close));
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(stockDataMapper).streamRecentBars(anyString(), anyInt(), any());
+
+        // When
+        List<StockScreenService.Match> streamed = new ArrayList<>();
+        StockScreenService.Result result = stockScreenService.screen(
+                ScreenCondition.parseAll("new-high:20"), true, streamed::add, LocalDate.of(2025, 3, 31));
+
+        // Then: 数据过期的4只不作为命中
+        assertEquals(200, result.getScanned());
+        assertEquals(96, result.getMatched());
+        assertEquals(4, result.getStale());
+        assertEquals(1, result.getFailed());
+        assertEquals(96, streamed.size());
+        assertTrue(streamed.stream().noneMatch(m -> "000050".equals(m.getStockCode())));
+        assertTrue(loadThreads.size() > 1, "symbols were not screened in parallel");
+        verify(stockDataMapper, times(200)).streamRecentBars(anyString(), eq(20), any());
+        StockScreenService.Match match = streamed.stream()
+                .filter(m -> "000002".equals(m.getStockCode())).findFirst().orElse(null);
+        assertNotNull(match);
+        assertEquals(LocalDate.of(2025, 3, 31), match.getTradeDate());
+        assertEquals(20, match.getClosePrice(), 1e-12);
+    }
+
+    @Test
+    void testMinTradeDate_LastSettledTradingDayMinusAllowedLag() {
+        when(tradingCalendarService.getCalendar())
+                .thenReturn(new TradingCalendar(Collections.emptyList(), Collections.emptyList()));
+
+        // 周一收盘前，最近已收盘交易日为上周五
+        assertEquals(LocalDate.of(2025, 4, 4), stockScreenService.minTradeDate(LocalDateTime.of(2025, 4, 7, 10, 0)));
+        // 周一收盘后为当天
+        assertEquals(LocalDate.of(2025, 4, 7), stockScreenService.minTradeDate(LocalDateTime.of(2025, 4, 7, 16, 0)));
+        // 允许落后1个交易日
+        ReflectionTestUtils.setField(stockScreenService, "maxStaleDays", 1);
+        assertEquals(LocalDate.of(2025, 4, 3), stockScreenService.minTradeDate(LocalDateTime.of(2025, 4, 7, 10, 0)));
+    }
+
+    @Test
+    void testEvaluate_MatchAllVersusAny() {
+        double[] closes = new double[25];
+        Arrays.fill(closes, 10);
+        closes[24] = 12;
+        int[] days = new int[25];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = 20000 + i;
+        }
+        StockSeries series = StockSeries.of("600519", days, closes, closes, new long[25]);
+        List<ScreenCondition> conditions = ScreenCondition.parseAll("new-high:20;volume-spike:5,2");
+
+        assertNull(StockScreenService.evaluate(series, conditions, true));
+        StockScreenService.Match any = StockScreenService.evaluate(series, conditions, false);
+        assertNotNull(any);
+        assertEquals(Arrays.asList("new-high:20"), any.getConditions());
+    }
+
+    private static StockDataEntity bar(LocalDate date, double close) {
+        StockDataEntity entity = new StockDataEntity();
+        entity.setTradeDate(date);
+        entity.setClosePrice(BigDecimal.valueOf(close));
+        entity.setHighPrice(BigDecimal.valueOf(close));
+        entity.setVolume(0L);
+        return entity;
+    }
+}
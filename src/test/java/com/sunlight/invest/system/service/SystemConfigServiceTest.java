@@ -0,0 +1,100 @@
+package com.sunlight.invest.system.service;
+
+import com.sunlight.invest.system.entity.SystemConfig;
+import com.sunlight.invest.system.mapper.SystemConfigMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SystemConfigServiceTest {
+
+    @Mock
+    private SystemConfigMapper systemConfigMapper;
+
+    @InjectMocks
+    private SystemConfigService systemConfigService;
+
+    @Test
+    void testLoadAllConfigs_BuildsTypedSnapshot() {
+        // Given
+        when(systemConfigMapper.selectVersion()).thenReturn(3L);
+        when(systemConfigMapper.selectAllEnabled()).thenReturn(Arrays.asList(
+                new SystemConfig("threshold_5_percent", "6.5", "5%阈值"),
+                new SystemConfig("monitor_days", "abc", "监控天数")
+        ));
+
+        // When
+        systemConfigService.loadAllConfigs();
+        SystemConfigSnapshot snapshot = systemConfigService.getSnapshot();
+
+        // Then
+        assertEquals(3L, snapshot.getVersion());
+        assertEquals(new BigDecimal("6.5"), snapshot.getThreshold5Percent());
+        assertEquals(new BigDecimal("4.0"), snapshot.getThreshold4Percent());
+        assertEquals(7, snapshot.getMonitorDays());
+        assertEquals("0 0 9 * * ?", snapshot.getScheduleCron());
+        assertEquals(new BigDecimal("6.5"), systemConfigService.getThreshold5Percent());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getValues().put("x", "y"));
+    }
+
+    @Test
+    void testUpdateConfig_BumpsVersionAndNotifiesListeners() {
+        // Given
+        SystemConfig config = new SystemConfig("monitor_days", "5", "监控天数");
+        config.setId(3L);
+        when(systemConfigMapper.selectByConfigKey("monitor_days")).thenReturn(config);
+        when(systemConfigMapper.update(any(SystemConfig.class))).thenReturn(1);
+        when(systemConfigMapper.selectVersion()).thenReturn(2L);
+        when(systemConfigMapper.selectAllEnabled())
+                .thenReturn(Collections.singletonList(new SystemConfig("monitor_days", "9", "监控天数")));
+        List<SystemConfigSnapshot> received = new ArrayList<>();
+        systemConfigService.addListener((oldSnapshot, newSnapshot) -> received.add(newSnapshot));
+        SystemConfigSnapshot before = systemConfigService.getSnapshot();
+
+        // When
+        boolean result = systemConfigService.updateConfig("monitor_days", "9");
+
+        // Then
+        assertTrue(result);
+        verify(systemConfigMapper).incrementVersion();
+        assertEquals(1, received.size());
+        assertEquals(9, received.get(0).getMonitorDays());
+        assertSame(received.get(0), systemConfigService.getSnapshot());
+        assertEquals(7, before.getMonitorDays());
+    }
+
+    @Test
+    void testRefreshIfChanged_ReloadsOnlyWhenVersionDiffers() {
+        // Given
+        when(systemConfigMapper.selectVersion()).thenReturn(1L);
+        when(systemConfigMapper.selectAllEnabled()).thenReturn(Collections.<SystemConfig>emptyList());
+        systemConfigService.loadAllConfigs();
+
+        // When: 版本号未变化
+        systemConfigService.refreshIfChanged();
+
+        // Then
+        verify(systemConfigMapper, times(1)).selectAllEnabled();
+
+        // When: 其他节点修改了配置
+        when(systemConfigMapper.selectVersion()).thenReturn(2L);
+        systemConfigService.refreshIfChanged();
+
+        // Then
+        verify(systemConfigMapper, times(2)).selectAllEnabled();
+        assertEquals(2L, systemConfigService.getSnapshot().getVersion());
+    }
+}